@@ -1,6 +1,6 @@
 "use client";
 
-import { useEffect, useState, useCallback } from "react";
+import { useEffect, useState, useCallback, useRef } from "react";
 import { useParams, useRouter } from "next/navigation";
 import axios from "axios";
 import { AuthGuard } from "@/components/auth-guard";
@@ -56,6 +56,8 @@ function buildSections(seats: Seat[]): SectionData[] {
   return Array.from(sectionMap.values());
 }
 
+const SEAT_CHANGES_POLL_MS = 3_000;
+
 function seatColor(status: string | undefined, isSelected: boolean): string {
   if (isSelected) return "border-sky-500 bg-sky-500 text-white cursor-pointer ring-1 ring-sky-300";
   switch (status) {
@@ -92,17 +94,48 @@ export default function SeatsPage() {
     }
   }, [queueStatus, eventId, router]);
 
-  useEffect(() => {
-    if (!eventId) return;
-    seatsApi
-      .byEvent(eventId)
-      .then(({ data }) => {
+  // Seat-map version of the seats in state; deltas are requested from here
+  const versionRef = useRef<number | null>(null);
+
+  const loadSeats = useCallback(
+    () =>
+      seatsApi.byEvent(eventId).then(({ data }) => {
+        versionRef.current = typeof data.version === "number" ? data.version : null;
         setSeats(data.seats ?? data.data ?? []);
         if (data.event?.title) setEventTitle(data.event.title);
-      })
+      }),
+    [eventId],
+  );
+
+  // Fetches only the seats changed since the held version; falls back to the full map on reset
+  const refreshSeats = useCallback(async () => {
+    if (versionRef.current === null) return loadSeats();
+    const { data } = await seatsApi.changes(eventId, versionRef.current);
+    if (data.reset) return loadSeats();
+    versionRef.current = data.version;
+    const changed = new Map<string, string>(
+      (data.seats ?? []).map((s: { id: string; status: string }) => [s.id, s.status]),
+    );
+    if (changed.size === 0) return;
+    setSeats((prev) =>
+      prev.map((seat) => (changed.has(seat.id) ? { ...seat, status: changed.get(seat.id) } : seat)),
+    );
+  }, [eventId, loadSeats]);
+
+  useEffect(() => {
+    if (!eventId) return;
+    loadSeats()
       .catch(() => setSeats([]))
       .finally(() => setLoading(false));
-  }, [eventId]);
+  }, [eventId, loadSeats]);
+
+  useEffect(() => {
+    if (!eventId) return;
+    const id = setInterval(() => {
+      refreshSeats().catch(() => {});
+    }, SEAT_CHANGES_POLL_MS);
+    return () => clearInterval(id);
+  }, [eventId, refreshSeats]);
 
   const toggleSeat = useCallback(
     (seatId: string, seatStatus?: string) => {
@@ -141,9 +174,7 @@ export default function SeatsPage() {
         if (status === 409) {
           setError("이미 선택된 좌석입니다. 다른 좌석을 선택해주세요.");
           // Refresh seats to get latest status
-          seatsApi.byEvent(eventId).then(({ data: d }) => {
-            setSeats(d.seats ?? d.data ?? []);
-          }).catch(() => {});
+          refreshSeats().catch(() => {});
           setSelected(null);
         } else {
           setError(data?.message ?? data?.error ?? "예매에 실패했습니다. 다시 시도해주세요.");
@@ -172,6 +172,8 @@ export const reservationsApi = {
 
 export const seatsApi = {
   byEvent: (eventId: string) => http.get(`/seats/events/${eventId}`),
+  changes: (eventId: string, sinceVersion: number) =>
+    http.get(`/seats/events/${eventId}/changes`, { params: { sinceVersion } }),
   reserve: (payload: { eventId: string; seatIds: string[]; idempotencyKey?: string }) =>
     http.post("/seats/reserve", {
       ...payload,
@@ -1,10 +1,14 @@
 package guru.urr.queueservice.config;
 
+import guru.urr.queueservice.service.QueueStreamService;
 import java.util.List;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.scripting.support.ResourceScriptSource;
 
 @Configuration
@@ -26,6 +30,62 @@ public class RedisConfig {
         return script;
     }
 
+    @Bean
+    public DefaultRedisScript<List> queuePositionScript() {
+        DefaultRedisScript<List> script = new DefaultRedisScript<>();
+        script.setScriptSource(new ResourceScriptSource(new ClassPathResource("redis/queue_position.lua")));
+        script.setResultType(List.class);
+        return script;
+    }
+
+    @Bean
+    public DefaultRedisScript<List> queueJoinScript() {
+        DefaultRedisScript<List> script = new DefaultRedisScript<>();
+        script.setScriptSource(new ResourceScriptSource(new ClassPathResource("redis/queue_join.lua")));
+        script.setResultType(List.class);
+        return script;
+    }
+
+    @Bean
+    public DefaultRedisScript<Long> queueHeartbeatScript() {
+        DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+        script.setScriptSource(new ResourceScriptSource(new ClassPathResource("redis/queue_heartbeat.lua")));
+        script.setResultType(Long.class);
+        return script;
+    }
+
+    @Bean
+    public DefaultRedisScript<List> queueLeaveScript() {
+        DefaultRedisScript<List> script = new DefaultRedisScript<>();
+        script.setScriptSource(new ResourceScriptSource(new ClassPathResource("redis/queue_leave.lua")));
+        script.setResultType(List.class);
+        return script;
+    }
+
+    @Bean
+    public DefaultRedisScript<Long> queueImportScript() {
+        DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+        script.setScriptSource(new ResourceScriptSource(new ClassPathResource("redis/queue_import.lua")));
+        script.setResultType(Long.class);
+        return script;
+    }
+
+    @Bean
+    public DefaultRedisScript<List> activeIdleCleanupScript() {
+        DefaultRedisScript<List> script = new DefaultRedisScript<>();
+        script.setScriptSource(new ResourceScriptSource(new ClassPathResource("redis/active_idle_cleanup.lua")));
+        script.setResultType(List.class);
+        return script;
+    }
+
+    @Bean
+    public DefaultRedisScript<Long> conversionRecordScript() {
+        DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+        script.setScriptSource(new ResourceScriptSource(new ClassPathResource("redis/conversion_record.lua")));
+        script.setResultType(Long.class);
+        return script;
+    }
+
     @Bean
     public DefaultRedisScript<List> staleCleanupScript() {
         DefaultRedisScript<List> script = new DefaultRedisScript<>();
@@ -33,4 +93,30 @@ public class RedisConfig {
         script.setResultType(List.class);
         return script;
     }
+
+    @Bean
+    public DefaultRedisScript<List> seenRotateScript() {
+        DefaultRedisScript<List> script = new DefaultRedisScript<>();
+        script.setScriptSource(new ResourceScriptSource(new ClassPathResource("redis/seen_rotate.lua")));
+        script.setResultType(List.class);
+        return script;
+    }
+
+    @Bean
+    public DefaultRedisScript<List> shardStatsScript() {
+        DefaultRedisScript<List> script = new DefaultRedisScript<>();
+        script.setScriptSource(new ResourceScriptSource(new ClassPathResource("redis/shard_stats.lua")));
+        script.setResultType(List.class);
+        return script;
+    }
+
+    @Bean
+    public RedisMessageListenerContainer queueTickListenerContainer(
+            RedisConnectionFactory connectionFactory,
+            QueueStreamService queueStreamService) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(queueStreamService, new ChannelTopic(QueueStreamService.TICK_CHANNEL));
+        return container;
+    }
 }
@@ -0,0 +1,60 @@
+package guru.urr.queueservice.controller;
+
+import guru.urr.common.security.InternalTokenValidator;
+import guru.urr.queueservice.service.QueueImportService;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@RequestMapping("/internal/queue")
+public class InternalQueueController {
+
+    private static final int MAX_IMPORT_SIZE = 10_000;
+
+    private final QueueImportService queueImportService;
+    private final InternalTokenValidator internalTokenValidator;
+
+    public InternalQueueController(QueueImportService queueImportService,
+                                   InternalTokenValidator internalTokenValidator) {
+        this.queueImportService = queueImportService;
+        this.internalTokenValidator = internalTokenValidator;
+    }
+
+    /**
+     * Queues users released from VWR Tier 1: userIds[i] gets VWR position startPosition + i
+     * (in ticket mode, the next ticket in that order).
+     */
+    @PostMapping("/{eventId}/vwr-import")
+    public Map<String, Object> vwrImport(
+            @RequestHeader(value = "Authorization", required = false) String authorization,
+            @PathVariable UUID eventId,
+            @RequestBody VwrImportRequest request) {
+        internalTokenValidator.requireValidToken(authorization);
+
+        if (request.startPosition() == null || request.startPosition() < 0
+                || request.userIds() == null || request.userIds().size() > MAX_IMPORT_SIZE
+                || request.userIds().stream().anyMatch(userId -> userId == null || userId.isBlank())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "startPosition and up to " + MAX_IMPORT_SIZE + " userIds are required");
+        }
+
+        long imported = queueImportService.importPositions(eventId, request.startPosition(), request.userIds());
+        return Map.of(
+                "eventId", eventId,
+                "requested", request.userIds().size(),
+                "imported", imported
+        );
+    }
+
+    public record VwrImportRequest(Long startPosition, List<String> userIds) {
+    }
+}
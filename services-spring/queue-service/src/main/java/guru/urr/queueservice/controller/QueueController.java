@@ -3,9 +3,11 @@ package guru.urr.queueservice.controller;
 import guru.urr.common.security.AuthUser;
 import guru.urr.common.security.JwtTokenParser;
 import guru.urr.queueservice.service.QueueService;
+import guru.urr.queueservice.service.QueueStreamService;
 import jakarta.servlet.http.HttpServletRequest;
 import java.util.Map;
 import java.util.UUID;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -13,16 +15,20 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/api/queue")
 public class QueueController {
 
     private final QueueService queueService;
+    private final QueueStreamService queueStreamService;
     private final JwtTokenParser jwtTokenParser;
 
-    public QueueController(QueueService queueService, JwtTokenParser jwtTokenParser) {
+    public QueueController(QueueService queueService, QueueStreamService queueStreamService,
+                           JwtTokenParser jwtTokenParser) {
         this.queueService = queueService;
+        this.queueStreamService = queueStreamService;
         this.jwtTokenParser = jwtTokenParser;
     }
 
@@ -45,6 +51,15 @@ public class QueueController {
         return queueService.status(eventId, user.userId());
     }
 
+    @GetMapping(value = "/stream/{eventId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(
+        @PathVariable UUID eventId,
+        HttpServletRequest request
+    ) {
+        AuthUser user = jwtTokenParser.requireUser(request);
+        return queueStreamService.subscribe(eventId, user.userId());
+    }
+
     @PostMapping("/heartbeat/{eventId}")
     public Map<String, Object> heartbeat(
         @PathVariable UUID eventId,
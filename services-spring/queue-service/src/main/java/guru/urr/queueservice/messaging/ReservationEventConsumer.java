@@ -0,0 +1,91 @@
+package guru.urr.queueservice.messaging;
+
+import guru.urr.queueservice.service.OverbookingController;
+import guru.urr.queueservice.service.QueueService;
+import java.util.Map;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Releases a user's active slot when ticket-service reports their reservation finished.
+ * Without this the slot stays taken until QUEUE_ACTIVE_TTL_SECONDS runs out and admission stalls.
+ * Reservation creation feeds the admitted-to-reservation conversion used for overbooking.
+ */
+@Component
+public class ReservationEventConsumer {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationEventConsumer.class);
+
+    private final QueueService queueService;
+    private final OverbookingController overbookingController;
+
+    public ReservationEventConsumer(QueueService queueService, OverbookingController overbookingController) {
+        this.queueService = queueService;
+        this.overbookingController = overbookingController;
+    }
+
+    @KafkaListener(topics = "reservation-events", groupId = "queue-service-group",
+        autoStartup = "${queue.active-release.kafka-enabled:true}")
+    public void handleReservationEvent(Map<String, Object> event) {
+        String type = str(event.get("type"));
+        if ("RESERVATION_CREATED".equals(type)) {
+            recordConversion(event);
+            return;
+        }
+
+        String reason = switch (type) {
+            case "RESERVATION_CONFIRMED" -> "confirmed";
+            case "RESERVATION_CANCELLED" -> "cancelled";
+            case "RESERVATION_EXPIRED" -> "expired";
+            case null, default -> null;
+        };
+        if (reason == null) {
+            return;
+        }
+
+        UUID eventId = uuid(event.get("eventId"));
+        String userId = str(event.get("userId"));
+        if (eventId == null || userId == null) {
+            log.warn("Queue: skipping {} reservation event without eventId/userId", reason);
+            return;
+        }
+
+        try {
+            if (queueService.releaseActive(eventId, userId, reason)) {
+                log.debug("Queue: released active slot event={} user={} reason={}", eventId, userId, reason);
+            }
+        } catch (Exception e) {
+            // The active TTL still frees the slot eventually; don't block the partition on Redis errors
+            log.warn("Queue: failed to release active slot event={} user={}: {}", eventId, userId, e.getMessage());
+        }
+    }
+
+    private void recordConversion(Map<String, Object> event) {
+        UUID eventId = uuid(event.get("eventId"));
+        String userId = str(event.get("userId"));
+        if (eventId == null || userId == null) {
+            return;
+        }
+        try {
+            overbookingController.recordReservation(eventId, userId);
+        } catch (Exception e) {
+            log.warn("Queue: failed to record conversion event={} user={}: {}", eventId, userId, e.getMessage());
+        }
+    }
+
+    private String str(Object value) {
+        return value != null ? String.valueOf(value) : null;
+    }
+
+    private UUID uuid(Object value) {
+        if (value == null) return null;
+        try {
+            return UUID.fromString(String.valueOf(value));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package guru.urr.queueservice.service;
+
+import guru.urr.queueservice.shared.client.TicketLoadClient;
+import guru.urr.queueservice.shared.client.TicketLoadClient.LoadSignal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * AIMD admission batch sizing driven by ticket-service's load signal.
+ *
+ * Every poll: if the reservation path is overloaded (p99 over target, pool nearly
+ * exhausted or threads waiting for a connection) every event's batch is cut by
+ * decrease-factor; otherwise events that used their whole batch last cycle grow by
+ * increase-step. Without a signal the batches hold. The per-event threshold stays
+ * the hard cap on concurrently active users. Disabled, every event uses batch-size.
+ */
+@Component
+public class AdmissionRateController {
+
+    private static final Logger log = LoggerFactory.getLogger(AdmissionRateController.class);
+
+    private final TicketLoadClient ticketLoadClient;
+    private final boolean enabled;
+    private final int defaultBatchSize;
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final int increaseStep;
+    private final double decreaseFactor;
+    private final double targetP99Ms;
+    private final double maxPoolUtilization;
+    private final Map<String, EventRate> rates = new ConcurrentHashMap<>();
+    private volatile boolean overloaded;
+
+    public AdmissionRateController(
+        TicketLoadClient ticketLoadClient,
+        @Value("${queue.admission.adaptive.enabled:false}") boolean enabled,
+        @Value("${queue.admission.batch-size:100}") int defaultBatchSize,
+        @Value("${queue.admission.adaptive.min-batch-size:10}") int minBatchSize,
+        @Value("${queue.admission.adaptive.max-batch-size:1000}") int maxBatchSize,
+        @Value("${queue.admission.adaptive.increase-step:20}") int increaseStep,
+        @Value("${queue.admission.adaptive.decrease-factor:0.5}") double decreaseFactor,
+        @Value("${queue.admission.adaptive.target-p99-ms:800}") double targetP99Ms,
+        @Value("${queue.admission.adaptive.max-pool-utilization:0.85}") double maxPoolUtilization
+    ) {
+        this.ticketLoadClient = ticketLoadClient;
+        this.enabled = enabled;
+        this.defaultBatchSize = defaultBatchSize;
+        this.minBatchSize = Math.max(1, minBatchSize);
+        this.maxBatchSize = Math.max(this.minBatchSize, maxBatchSize);
+        this.increaseStep = increaseStep;
+        this.decreaseFactor = decreaseFactor;
+        this.targetP99Ms = targetP99Ms;
+        this.maxPoolUtilization = maxPoolUtilization;
+    }
+
+    public int batchSize(String eventId) {
+        if (!enabled) {
+            return defaultBatchSize;
+        }
+        return rates.computeIfAbsent(eventId, id -> new EventRate(clamp(defaultBatchSize))).batchSize;
+    }
+
+    /** Called after each admission; only events that hit their batch limit are allowed to grow. */
+    public void recordCycle(String eventId, int batchSize, long admitted) {
+        if (!enabled) {
+            return;
+        }
+        EventRate rate = rates.get(eventId);
+        if (rate != null && admitted >= batchSize) {
+            rate.saturated = true;
+        }
+    }
+
+    public void forget(String eventId) {
+        rates.remove(eventId);
+    }
+
+    @Scheduled(fixedDelayString = "${queue.admission.adaptive.poll-interval-ms:2000}")
+    public void adjust() {
+        if (!enabled || rates.isEmpty()) {
+            return;
+        }
+        LoadSignal signal = ticketLoadClient.getLoadSignal();
+        if (signal == null) {
+            return;
+        }
+
+        boolean nowOverloaded = isOverloaded(signal);
+        if (nowOverloaded != overloaded) {
+            log.info("Ticket-service {}: p99={}ms pool={} waiting={}",
+                nowOverloaded ? "overloaded, shrinking admission batches" : "recovered, growing admission batches",
+                Math.round(signal.reservationP99Ms()), signal.poolUtilization(), signal.threadsAwaitingConnection());
+            overloaded = nowOverloaded;
+        }
+
+        for (EventRate rate : rates.values()) {
+            if (nowOverloaded) {
+                rate.batchSize = clamp((int) (rate.batchSize * decreaseFactor));
+            } else if (rate.saturated) {
+                rate.batchSize = clamp(rate.batchSize + increaseStep);
+            }
+            rate.saturated = false;
+        }
+    }
+
+    boolean isOverloaded(LoadSignal signal) {
+        return signal.threadsAwaitingConnection() > 0
+            || signal.poolUtilization() > maxPoolUtilization
+            || Math.max(signal.reservationP99Ms(), signal.seatLockP99Ms()) > targetP99Ms;
+    }
+
+    private int clamp(int batchSize) {
+        return Math.max(minBatchSize, Math.min(maxBatchSize, batchSize));
+    }
+
+    private static final class EventRate {
+        volatile int batchSize;
+        volatile boolean saturated;
+
+        EventRate(int batchSize) {
+            this.batchSize = batchSize;
+        }
+    }
+}
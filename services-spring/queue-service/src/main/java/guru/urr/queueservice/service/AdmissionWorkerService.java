@@ -1,9 +1,19 @@
 package guru.urr.queueservice.service;
 
+import guru.urr.queueservice.shared.metrics.QueueMetrics;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
@@ -11,47 +21,87 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 @Service
-public class AdmissionWorkerService {
+public class AdmissionWorkerService implements DisposableBean {
 
     private static final Logger log = LoggerFactory.getLogger(AdmissionWorkerService.class);
     private static final int CLEANUP_BATCH_SIZE = 1000;
     private static final int CLEANUP_BATCH_DELAY_MS = 100;
     private static final int ADMISSION_LOCK_TIMEOUT_SECONDS = 4;
+    private static final double ADMISSION_LOCK_INTERVAL_RATIO = 0.9;
 
     private final StringRedisTemplate redisTemplate;
     private final DefaultRedisScript<List> admissionScript;
     private final DefaultRedisScript<List> staleCleanupScript;
-    private final QueueService queueService;
+    private final DefaultRedisScript<List> seenRotateScript;
+    private final DefaultRedisScript<List> activeIdleCleanupScript;
+    private final DefaultRedisScript<List> shardStatsScript;
+    private final QueueStreamService queueStreamService;
+    private final QueueKeys queueKeys;
+    private final QueueMetrics queueMetrics;
     private final int defaultThreshold;
     private final int activeTtlSeconds;
     private final int seenTtlSeconds;
-    private final int admitBatchSize;
+    private final AdmissionRateController admissionRateController;
+    private final EventOwnership eventOwnership;
+    private final OverbookingController overbookingController;
+    private final boolean ticketMode;
+    private final long admissionLockMs;
+    private final long rateTauMs;
+    private final long activeIdleTimeoutMs;
+
+    // One virtual thread per event per cycle; Lettuce pipelines the concurrent commands on its shared connection
+    private final ExecutorService admissionExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Rotates which shard admits first so no shard is always served ahead of the others
+    private final AtomicLong shardCycle = new AtomicLong();
 
     public AdmissionWorkerService(
         StringRedisTemplate redisTemplate,
         DefaultRedisScript<List> admissionScript,
         DefaultRedisScript<List> staleCleanupScript,
-        QueueService queueService,
+        DefaultRedisScript<List> seenRotateScript,
+        DefaultRedisScript<List> activeIdleCleanupScript,
+        DefaultRedisScript<List> shardStatsScript,
+        QueueStreamService queueStreamService,
+        QueueKeys queueKeys,
+        QueueMetrics queueMetrics,
+        AdmissionRateController admissionRateController,
+        EventOwnership eventOwnership,
+        OverbookingController overbookingController,
         @Value("${QUEUE_THRESHOLD:1000}") int threshold,
         @Value("${QUEUE_ACTIVE_TTL_SECONDS:600}") int activeTtlSeconds,
         @Value("${QUEUE_SEEN_TTL_SECONDS:600}") int seenTtlSeconds,
-        @Value("${queue.admission.batch-size:100}") int admitBatchSize
+        @Value("${queue.ticket-mode.enabled:false}") boolean ticketMode,
+        @Value("${queue.admission.interval-ms:1000}") long admissionIntervalMs,
+        @Value("${queue.throughput.ewma-tau-ms:30000}") long rateTauMs,
+        @Value("${queue.active-idle.timeout-seconds:0}") int activeIdleTimeoutSeconds
     ) {
         this.redisTemplate = redisTemplate;
         this.admissionScript = admissionScript;
         this.staleCleanupScript = staleCleanupScript;
-        this.queueService = queueService;
+        this.seenRotateScript = seenRotateScript;
+        this.activeIdleCleanupScript = activeIdleCleanupScript;
+        this.shardStatsScript = shardStatsScript;
+        this.queueStreamService = queueStreamService;
+        this.queueKeys = queueKeys;
+        this.queueMetrics = queueMetrics;
         this.defaultThreshold = threshold;
         this.activeTtlSeconds = activeTtlSeconds;
         this.seenTtlSeconds = seenTtlSeconds;
-        this.admitBatchSize = admitBatchSize;
+        this.admissionRateController = admissionRateController;
+        this.eventOwnership = eventOwnership;
+        this.overbookingController = overbookingController;
+        this.ticketMode = ticketMode;
+        this.admissionLockMs = Math.max(1, (long) (admissionIntervalMs * ADMISSION_LOCK_INTERVAL_RATIO));
+        this.rateTauMs = Math.max(1, rateTauMs);
+        this.activeIdleTimeoutMs = Math.max(0, activeIdleTimeoutSeconds) * 1000L;
     }
 
     @Scheduled(fixedDelayString = "${queue.admission.interval-ms:1000}")
     public void admitUsers() {
         Set<String> activeEvents = null;
         try {
-            activeEvents = redisTemplate.opsForSet().members("queue:active-events");
+            activeEvents = redisTemplate.opsForSet().members(QueueKeys.ACTIVE_EVENTS);
         } catch (Exception ex) {
             log.error("Failed to get active events from Redis, skipping admission cycle", ex);
             return;
@@ -61,72 +111,184 @@ public class AdmissionWorkerService {
             return;
         }
 
+        long cycleStart = System.nanoTime();
         long now = System.currentTimeMillis();
         long activeTtlMs = activeTtlSeconds * 1000L;
 
-        for (String eventId : activeEvents) {
-            String lockKey = "admission:lock:" + eventId;
-            Boolean acquired = false;
+        Set<String> ownedEvents = activeEvents.stream().filter(eventOwnership::owns).collect(Collectors.toSet());
+        queueMetrics.retainEvents(ownedEvents);
 
-            try {
-                acquired = redisTemplate.opsForValue().setIfAbsent(lockKey, "1",
-                    java.time.Duration.ofSeconds(ADMISSION_LOCK_TIMEOUT_SECONDS));
+        // Events are independent: run the ones this replica owns concurrently and wait for the whole cycle
+        CompletableFuture<?>[] tasks = ownedEvents.stream()
+            .map(eventId -> CompletableFuture.runAsync(() -> admitEvent(eventId, now, activeTtlMs), admissionExecutor))
+            .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(tasks).join();
 
-                if (acquired == null || !acquired) {
-                    log.debug("Skipping event {} - lock held by another worker", eventId);
-                    continue;
-                }
+        queueMetrics.recordAdmissionCycle(System.nanoTime() - cycleStart);
+    }
 
-                int eventThreshold = getThreshold(eventId);
+    private void admitEvent(String eventId, long now, long activeTtlMs) {
+        long start = System.nanoTime();
+        try {
+            int batchSize = admissionRateController.batchSize(eventId);
+            double overbookFactor = overbookingController.factor(eventId);
+            AdmissionSummary summary = queueKeys.isSharded()
+                ? admitShardedWithLock(eventId, batchSize, overbookFactor, now, activeTtlMs)
+                : admitShard(eventId, 0, batchSize, -1, overbookFactor, now, activeTtlMs, admissionLockMs);
 
-                @SuppressWarnings("unchecked")
-                List<Object> result = redisTemplate.execute(
-                    admissionScript,
-                    List.of(
-                        "{" + eventId + "}:queue",
-                        "{" + eventId + "}:active",
-                        "{" + eventId + "}:seen"
-                    ),
-                    String.valueOf(admitBatchSize),
-                    String.valueOf(now),
-                    String.valueOf(activeTtlMs),
-                    String.valueOf(eventThreshold)
-                );
+            if (summary == null || summary.admitted() < 0) {
+                log.debug("Skipping event {} - admitted by another worker this cycle", eventId);
+                return;
+            }
 
-                if (result != null && !result.isEmpty()) {
-                    int admitted = ((Number) result.get(0)).intValue();
-                    if (admitted > 0) {
-                        queueService.recordAdmissions(admitted);
-                        log.info("Admitted {} users for event {}", admitted, eventId);
-                    }
-                }
+            int admitted = (int) summary.admitted();
+            admissionRateController.recordCycle(eventId, batchSize, admitted);
+            queueMetrics.recordEventAdmission(eventId, summary.queueSize(), summary.activeCount(),
+                summary.admitRate(), admitted, System.nanoTime() - start);
+            if (admitted > 0) {
+                log.info("Admitted {} users for event {}", admitted, eventId);
+            }
+            // Every replica (this one included) picks the new rate up from the tick
+            queueStreamService.publishTick(eventId, admitted, summary.serving(), summary.queueSize(),
+                summary.activeCount(), summary.admitRate());
 
-                Long queueSize = redisTemplate.opsForZSet().size("{" + eventId + "}:queue");
-                if (queueSize != null && queueSize == 0) {
-                    Long activeSize = redisTemplate.opsForZSet().count("{" + eventId + "}:active", now, Double.POSITIVE_INFINITY);
-                    if (activeSize != null && activeSize == 0) {
-                        redisTemplate.opsForSet().remove("queue:active-events", eventId);
-                    }
-                }
+            if (summary.queueSize() == 0 && summary.activeCount() == 0) {
+                redisTemplate.opsForSet().remove(QueueKeys.ACTIVE_EVENTS, eventId);
+                admissionRateController.forget(eventId);
+                overbookingController.forget(eventId);
+                queueMetrics.forgetEvent(eventId);
+            }
+        } catch (Exception ex) {
+            log.error("Admission script failed for event {}", eventId, ex);
+        }
+    }
+
+    /** Sharded cycles read several slots before admitting, so they keep an explicit event-wide lock. */
+    private AdmissionSummary admitShardedWithLock(String eventId, int batchSize, double overbookFactor,
+                                                  long now, long activeTtlMs) {
+        String lockKey = queueKeys.admissionLock(eventId);
+        Boolean acquired = redisTemplate.opsForValue().setIfAbsent(lockKey, "1",
+            Duration.ofSeconds(ADMISSION_LOCK_TIMEOUT_SECONDS));
+        if (acquired == null || !acquired) {
+            return null;
+        }
+        try {
+            int eventThreshold = (int) Math.floor(getThreshold(eventId) * overbookFactor);
+            return admitSharded(eventId, batchSize, eventThreshold, now, activeTtlMs);
+        } finally {
+            try {
+                redisTemplate.delete(lockKey);
             } catch (Exception ex) {
-                log.error("Admission script failed for event {}", eventId, ex);
-            } finally {
-                if (acquired != null && acquired) {
-                    try {
-                        redisTemplate.delete(lockKey);
-                    } catch (Exception ex) {
-                        log.error("Failed to release admission lock for event {}, may block future admissions", eventId, ex);
-                    }
-                }
+                log.error("Failed to release admission lock for event {}, may block future admissions", eventId, ex);
             }
         }
     }
 
+    /**
+     * Sharded admission: peek the head of every sub-queue, merge by score and give each
+     * shard its share of the batch, so admission stays roughly FIFO across shards.
+     */
+    @SuppressWarnings("unchecked")
+    private AdmissionSummary admitSharded(String eventId, int batchSize, int eventThreshold, long now, long activeTtlMs) {
+        int shards = queueKeys.shardCount();
+        long[] shardActive = new long[shards];
+        long totalActive = 0;
+        List<long[]> heads = new ArrayList<>();
+
+        for (int shard = 0; shard < shards; shard++) {
+            long start = System.nanoTime();
+            List<Object> stats = redisTemplate.execute(
+                shardStatsScript,
+                List.of(queueKeys.queue(eventId, shard), queueKeys.active(eventId, shard)),
+                "-1", String.valueOf(now), String.valueOf(batchSize)
+            );
+            queueMetrics.recordScript("shard_stats", System.nanoTime() - start);
+            if (stats == null || stats.size() < 3) continue;
+            shardActive[shard] = ((Number) stats.get(2)).longValue();
+            totalActive += shardActive[shard];
+            for (int i = 3; i < stats.size(); i++) {
+                heads.add(new long[]{((Number) stats.get(i)).longValue(), shard});
+            }
+        }
+
+        int toAdmit = (int) Math.max(0, Math.min(eventThreshold - totalActive, batchSize));
+        heads.sort(Comparator.comparingLong(head -> head[0]));
+        int[] quota = new int[shards];
+        for (int i = 0; i < Math.min(toAdmit, heads.size()); i++) {
+            quota[(int) heads.get(i)[1]]++;
+        }
+
+        AdmissionSummary summary = AdmissionSummary.EMPTY;
+        int offset = (int) (shardCycle.getAndIncrement() % shards);
+        for (int i = 0; i < shards; i++) {
+            int shard = (offset + i) % shards;
+            // maxActive = current + quota lets the shard admit exactly its share of the global slots
+            summary = summary.plus(admitShard(eventId, shard, quota[shard],
+                (int) (shardActive[shard] + quota[shard]), 1.0, now, activeTtlMs, 0));
+        }
+        return summary;
+    }
+
+    /**
+     * One round trip per shard: lock check, threshold read (maxActive -1), admission and
+     * the summary used for the stream tick and empty-event cleanup all run in the script,
+     * which also folds this cycle into the shard's EWMA admission rate.
+     */
+    @SuppressWarnings("unchecked")
+    private AdmissionSummary admitShard(String eventId, int shard, int admitCount, int maxActive,
+                              double overbookFactor, long now, long activeTtlMs, long lockMs) {
+        long start = System.nanoTime();
+        List<Object> result = redisTemplate.execute(
+            admissionScript,
+            queueKeys.withSeenPrevious(List.of(
+                queueKeys.queue(eventId, shard),
+                queueKeys.active(eventId, shard),
+                queueKeys.seen(eventId, shard),
+                queueKeys.serving(eventId, shard),
+                queueKeys.threshold(eventId, shard),
+                queueKeys.admissionLock(eventId, shard),
+                queueKeys.admitRate(eventId, shard),
+                queueKeys.conversion(eventId, shard)
+            ), eventId, shard),
+            String.valueOf(admitCount),
+            String.valueOf(now),
+            String.valueOf(activeTtlMs),
+            String.valueOf(maxActive),
+            ticketMode ? "1" : "0",
+            String.valueOf(defaultThreshold),
+            String.valueOf(lockMs),
+            String.valueOf(rateTauMs),
+            String.valueOf(overbookFactor)
+        );
+        queueMetrics.recordScript("admission_control", System.nanoTime() - start);
+
+        if (result == null || result.size() < 5) {
+            throw new IllegalStateException("Admission script returned no summary for shard " + shard);
+        }
+        return new AdmissionSummary(
+            ((Number) result.get(0)).longValue(),
+            ((Number) result.get(1)).longValue(),
+            ((Number) result.get(2)).longValue(),
+            ((Number) result.get(3)).longValue(),
+            Double.parseDouble(result.get(4).toString())
+        );
+    }
+
+    /** Script summary; for sharded events counts and rates are summed, serving is the highest shard's. */
+    private record AdmissionSummary(long admitted, long activeCount, long queueSize, long serving, double admitRate) {
+        static final AdmissionSummary EMPTY = new AdmissionSummary(0, 0, 0, 0, 0);
+
+        AdmissionSummary plus(AdmissionSummary other) {
+            return new AdmissionSummary(admitted + other.admitted, activeCount + other.activeCount,
+                queueSize + other.queueSize, Math.max(serving, other.serving), admitRate + other.admitRate);
+        }
+    }
+
     @Scheduled(fixedDelayString = "${queue.stale-cleanup.interval-ms:30000}")
     public void cleanupStaleUsers() {
         Set<String> activeEvents = null;
         try {
-            activeEvents = redisTemplate.opsForSet().members("queue:active-events");
+            activeEvents = redisTemplate.opsForSet().members(QueueKeys.ACTIVE_EVENTS);
         } catch (Exception ex) {
             log.error("Failed to get active events from Redis for cleanup", ex);
             return;
@@ -138,59 +300,142 @@ public class AdmissionWorkerService {
 
         long cutoff = System.currentTimeMillis() - (seenTtlSeconds * 1000L);
         long activeSeenCutoff = System.currentTimeMillis() - (activeTtlSeconds * 1000L);
+        long idleCutoff = System.currentTimeMillis() - activeIdleTimeoutMs;
 
         for (String eventId : activeEvents) {
-            boolean hasMore = true;
-            int totalRemoved = 0;
-
-            while (hasMore) {
-                try {
-                    @SuppressWarnings("unchecked")
-                    List<Object> result = redisTemplate.execute(
-                        staleCleanupScript,
-                        List.of(
-                            "{" + eventId + "}:seen",
-                            "{" + eventId + "}:queue"
-                        ),
-                        String.valueOf(cutoff),
-                        String.valueOf(CLEANUP_BATCH_SIZE)
-                    );
-
-                    int removed = (result != null && !result.isEmpty())
-                        ? ((Number) result.get(0)).intValue() : 0;
-                    totalRemoved += removed;
-                    hasMore = removed == CLEANUP_BATCH_SIZE;
-
-                    if (hasMore) {
-                        Thread.sleep(CLEANUP_BATCH_DELAY_MS);
-                    }
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    hasMore = false;
-                } catch (Exception ex) {
-                    log.warn("Stale user cleanup failed for event {}", eventId, ex);
-                    hasMore = false;
+            if (!eventOwnership.owns(eventId)) {
+                continue;
+            }
+            for (int shard = 0; shard < queueKeys.shardCount(); shard++) {
+                cleanupShard(eventId, shard, cutoff, activeSeenCutoff);
+                if (activeIdleTimeoutMs > 0) {
+                    releaseIdleActive(eventId, shard, idleCutoff);
                 }
             }
+        }
+    }
 
-            if (totalRemoved > 0) {
-                log.info("Cleaned up {} stale users from queue for event {}", totalRemoved, eventId);
-            }
+    private void cleanupShard(String eventId, int shard, long cutoff, long activeSeenCutoff) {
+        boolean hasMore = true;
+        int totalRemoved = 0;
 
+        while (hasMore) {
             try {
-                Long activeSeenRemoved = redisTemplate.opsForZSet()
-                    .removeRangeByScore("{" + eventId + "}:active-seen", Double.NEGATIVE_INFINITY, activeSeenCutoff);
-                if (activeSeenRemoved != null && activeSeenRemoved > 0) {
-                    log.debug("Cleaned up {} stale entries from active:seen for event {}", activeSeenRemoved, eventId);
+                List<Object> result = queueKeys.isCompact()
+                    ? rotateSeen(eventId, shard)
+                    : removeStale(eventId, shard, cutoff);
+
+                int removed = (result != null && !result.isEmpty())
+                    ? ((Number) result.get(0)).intValue() : 0;
+                totalRemoved += removed;
+                hasMore = removed == CLEANUP_BATCH_SIZE;
+
+                if (hasMore) {
+                    Thread.sleep(CLEANUP_BATCH_DELAY_MS);
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                hasMore = false;
             } catch (Exception ex) {
-                log.warn("Active-seen cleanup failed for event {}", eventId, ex);
+                log.warn("Stale user cleanup failed for event {}", eventId, ex);
+                hasMore = false;
+            }
+        }
+
+        if (totalRemoved > 0) {
+            queueMetrics.recordStaleRemoved(eventId, totalRemoved);
+            log.info("Cleaned up {} stale users from queue for event {} (shard {})", totalRemoved, eventId, shard);
+        }
+
+        try {
+            Long activeSeenRemoved = redisTemplate.opsForZSet()
+                .removeRangeByScore(queueKeys.activeSeen(eventId, shard), Double.NEGATIVE_INFINITY, activeSeenCutoff);
+            if (activeSeenRemoved != null && activeSeenRemoved > 0) {
+                log.debug("Cleaned up {} stale entries from active:seen for event {}", activeSeenRemoved, eventId);
+            }
+        } catch (Exception ex) {
+            log.warn("Active-seen cleanup failed for event {}", eventId, ex);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object> removeStale(String eventId, int shard, long cutoff) {
+        long start = System.nanoTime();
+        List<Object> result = redisTemplate.execute(
+            staleCleanupScript,
+            List.of(
+                queueKeys.seen(eventId, shard),
+                queueKeys.queue(eventId, shard)
+            ),
+            String.valueOf(cutoff),
+            String.valueOf(CLEANUP_BATCH_SIZE)
+        );
+        queueMetrics.recordScript("stale_cleanup", System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Compact layout: one heartbeat generation per seen TTL, so a silent waiter is removed between
+     * one and two TTLs after its last heartbeat, never before the TTL the ZSET layout applies.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Object> rotateSeen(String eventId, int shard) {
+        long start = System.nanoTime();
+        List<Object> result = redisTemplate.execute(
+            seenRotateScript,
+            List.of(
+                queueKeys.queue(eventId, shard),
+                queueKeys.seen(eventId, shard),
+                queueKeys.seenPrevious(eventId, shard),
+                queueKeys.seenRotatedAt(eventId, shard)
+            ),
+            String.valueOf(System.currentTimeMillis()),
+            String.valueOf(seenTtlSeconds * 1000L),
+            String.valueOf(CLEANUP_BATCH_SIZE)
+        );
+        queueMetrics.recordScript("seen_rotate", System.nanoTime() - start);
+        return result;
+    }
+
+    /** Frees active slots of admitted users whose active heartbeat stopped (tab closed mid-booking). */
+    private void releaseIdleActive(String eventId, int shard, long idleCutoff) {
+        long released = 0;
+        boolean hasMore = true;
+        try {
+            while (hasMore) {
+                long start = System.nanoTime();
+                @SuppressWarnings("unchecked")
+                List<Object> result = redisTemplate.execute(
+                    activeIdleCleanupScript,
+                    List.of(
+                        queueKeys.active(eventId, shard),
+                        queueKeys.activeSeen(eventId, shard)
+                    ),
+                    String.valueOf(idleCutoff),
+                    String.valueOf(CLEANUP_BATCH_SIZE)
+                );
+                queueMetrics.recordScript("active_idle_cleanup", System.nanoTime() - start);
+                long examined = (result != null && !result.isEmpty()) ? ((Number) result.get(0)).longValue() : 0;
+                released += (result != null && result.size() > 1) ? ((Number) result.get(1)).longValue() : 0;
+                hasMore = examined == CLEANUP_BATCH_SIZE;
             }
+        } catch (Exception ex) {
+            log.warn("Idle active cleanup failed for event {}", eventId, ex);
+        }
+
+        if (released > 0) {
+            queueMetrics.recordActiveReleased("idle", released);
+            log.info("Released {} idle active users for event {} (shard {})", released, eventId, shard);
         }
     }
 
     private int getThreshold(String eventId) {
-        String custom = redisTemplate.opsForValue().get("{" + eventId + "}:threshold");
+        String custom = redisTemplate.opsForValue().get(queueKeys.threshold(eventId));
         return custom != null ? Integer.parseInt(custom) : defaultThreshold;
     }
+
+    @Override
+    public void destroy() {
+        admissionExecutor.shutdown();
+    }
 }
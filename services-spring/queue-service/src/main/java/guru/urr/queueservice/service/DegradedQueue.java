@@ -0,0 +1,277 @@
+package guru.urr.queueservice.service;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Per-replica in-memory queue used while Redis is unavailable (redisQueue circuit breaker).
+ *
+ * Joins go into a bounded local FIFO per event; every tick at most admit-per-tick users
+ * per event are admitted, up to max-active per event on this replica, so a Redis outage
+ * turns into a slow controlled drain instead of errors or an unqueued stampede. Users
+ * held here are answered from here until they are merged back. Once the breaker closes
+ * again (the tick probes Redis through it), waiters are imported into the Redis queue in
+ * local join order and admitted users are added to the active set with their expiry.
+ * Replicas do not share this state: a user whose polls land on several replicas may be
+ * queued on each, and the import keeps only the first entry.
+ */
+@Component
+public class DegradedQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(DegradedQueue.class);
+    static final String CIRCUIT_BREAKER = "redisQueue";
+    private static final int POLL_SECONDS = 3;
+
+    private final CircuitBreaker circuitBreaker;
+    private final StringRedisTemplate redisTemplate;
+    private final QueueImportService queueImportService;
+    private final EntryTokenGenerator entryTokenGenerator;
+    private final boolean enabled;
+    private final int maxWaiting;
+    private final int maxActivePerEvent;
+    private final int admitPerTick;
+    private final long tickIntervalMs;
+    private final long activeTtlMs;
+    private final Map<UUID, EventQueue> events = new ConcurrentHashMap<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Counter rejected;
+    private final Counter merged;
+
+    public DegradedQueue(
+        CircuitBreakerRegistry circuitBreakerRegistry,
+        StringRedisTemplate redisTemplate,
+        QueueImportService queueImportService,
+        EntryTokenGenerator entryTokenGenerator,
+        MeterRegistry meterRegistry,
+        @Value("${queue.fallback.enabled:true}") boolean enabled,
+        @Value("${queue.fallback.max-waiting:10000}") int maxWaiting,
+        @Value("${queue.fallback.max-active-per-event:50}") int maxActivePerEvent,
+        @Value("${queue.fallback.admit-per-tick:5}") int admitPerTick,
+        @Value("${queue.fallback.tick-interval-ms:1000}") long tickIntervalMs,
+        @Value("${QUEUE_ACTIVE_TTL_SECONDS:600}") int activeTtlSeconds
+    ) {
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(CIRCUIT_BREAKER);
+        this.redisTemplate = redisTemplate;
+        this.queueImportService = queueImportService;
+        this.entryTokenGenerator = entryTokenGenerator;
+        this.enabled = enabled;
+        this.maxWaiting = Math.max(0, maxWaiting);
+        this.maxActivePerEvent = Math.max(0, maxActivePerEvent);
+        this.admitPerTick = Math.max(0, admitPerTick);
+        this.tickIntervalMs = Math.max(1, tickIntervalMs);
+        this.activeTtlMs = activeTtlSeconds * 1000L;
+        this.rejected = Counter.builder("queue.fallback.rejected")
+            .description("Joins refused because the local fallback queue was full")
+            .register(meterRegistry);
+        this.merged = Counter.builder("queue.fallback.merged")
+            .description("Fallback waiters and admitted users merged back into Redis")
+            .register(meterRegistry);
+        Gauge.builder("queue.fallback.waiting", waiting, AtomicInteger::get)
+            .description("Users waiting in the local fallback queue")
+            .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** True if the user is queued or admitted here and not yet merged back into Redis. */
+    public boolean holds(UUID eventId, String userId) {
+        if (events.isEmpty()) {
+            return false;
+        }
+        EventQueue queue = events.get(eventId);
+        return queue != null && queue.contains(userId);
+    }
+
+    public Map<String, Object> check(UUID eventId, String userId) {
+        EventQueue queue = events.computeIfAbsent(eventId, id -> new EventQueue());
+        synchronized (queue) {
+            if (!queue.contains(userId)) {
+                if (waiting.get() >= maxWaiting) {
+                    rejected.increment();
+                    throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "Queue temporarily full. Please retry.");
+                }
+                queue.waiting.put(userId, System.currentTimeMillis());
+                waiting.incrementAndGet();
+            }
+            return response(eventId, userId, queue);
+        }
+    }
+
+    public Map<String, Object> status(UUID eventId, String userId) {
+        EventQueue queue = events.get(eventId);
+        if (queue == null) {
+            return notInQueue();
+        }
+        synchronized (queue) {
+            return queue.contains(userId) ? response(eventId, userId, queue) : notInQueue();
+        }
+    }
+
+    public void leave(UUID eventId, String userId) {
+        EventQueue queue = events.get(eventId);
+        if (queue == null) {
+            return;
+        }
+        synchronized (queue) {
+            if (queue.waiting.remove(userId) != null) {
+                waiting.decrementAndGet();
+            }
+            queue.active.remove(userId);
+        }
+    }
+
+    /** Local admission while degraded, then merge back as soon as Redis is reachable again. */
+    @Scheduled(fixedDelayString = "${queue.fallback.tick-interval-ms:1000}")
+    public void tick() {
+        if (events.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        events.values().forEach(queue -> admit(queue, now));
+        if (redisAvailable()) {
+            mergeBack(now);
+        }
+    }
+
+    private void admit(EventQueue queue, long now) {
+        synchronized (queue) {
+            queue.active.values().removeIf(expiresAt -> expiresAt <= now);
+            int slots = Math.min(admitPerTick, maxActivePerEvent - queue.active.size());
+            Iterator<String> head = queue.waiting.keySet().iterator();
+            for (int i = 0; i < slots && head.hasNext(); i++) {
+                queue.active.put(head.next(), now + activeTtlMs);
+                head.remove();
+                waiting.decrementAndGet();
+            }
+        }
+    }
+
+    private boolean redisAvailable() {
+        if (circuitBreaker.getState() == CircuitBreaker.State.CLOSED) {
+            return true;
+        }
+        try {
+            // Probing through the breaker moves it from open to half-open to closed
+            circuitBreaker.executeSupplier(() -> redisTemplate.opsForSet().size(QueueKeys.ACTIVE_EVENTS));
+        } catch (Exception e) {
+            return false;
+        }
+        return circuitBreaker.getState() == CircuitBreaker.State.CLOSED;
+    }
+
+    private void mergeBack(long now) {
+        for (Map.Entry<UUID, EventQueue> entry : events.entrySet()) {
+            UUID eventId = entry.getKey();
+            EventQueue queue = entry.getValue();
+            List<String> userIds;
+            List<Long> joinedAt;
+            Map<String, Long> active;
+            synchronized (queue) {
+                userIds = new ArrayList<>(queue.waiting.keySet());
+                joinedAt = new ArrayList<>(queue.waiting.values());
+                active = new HashMap<>(queue.active);
+            }
+            try {
+                queueImportService.restoreActive(eventId, active);
+                long added = queueImportService.importScored(eventId, userIds, joinedAt);
+                merged.increment(active.size() + added);
+                log.info("Merged degraded queue for event {} into Redis: {} waiting, {} active",
+                    eventId, userIds.size(), active.size());
+            } catch (Exception e) {
+                log.warn("Degraded queue merge failed for event {}, retrying next tick: {}", eventId, e.getMessage());
+                return;
+            }
+            synchronized (queue) {
+                userIds.forEach(userId -> {
+                    if (queue.waiting.remove(userId) != null) {
+                        waiting.decrementAndGet();
+                    }
+                });
+                active.keySet().forEach(queue.active::remove);
+                if (queue.waiting.isEmpty() && queue.active.isEmpty()) {
+                    events.remove(eventId, queue);
+                }
+            }
+        }
+    }
+
+    private Map<String, Object> response(UUID eventId, String userId, EventQueue queue) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("degraded", true);
+        result.put("currentUsers", queue.active.size());
+        result.put("nextPoll", POLL_SECONDS);
+        if (queue.active.containsKey(userId)) {
+            result.put("queued", false);
+            result.put("status", "active");
+            result.put("entryToken", entryTokenGenerator.generate(eventId.toString(), userId));
+            return result;
+        }
+        int position = queue.positionOf(userId);
+        int queueSize = queue.waiting.size();
+        result.put("queued", true);
+        result.put("status", "queued");
+        result.put("position", position);
+        result.put("peopleAhead", position - 1);
+        result.put("peopleBehind", queueSize - position);
+        result.put("queueSize", queueSize);
+        result.put("estimatedWait", admitPerTick > 0
+            ? (long) Math.ceil((double) position / admitPerTick * tickIntervalMs / 1000) : 0);
+        return result;
+    }
+
+    private static Map<String, Object> notInQueue() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("degraded", true);
+        result.put("status", "not_in_queue");
+        result.put("queued", false);
+        result.put("nextPoll", POLL_SECONDS);
+        result.put("message", "Not in queue");
+        return result;
+    }
+
+    /** Insertion-ordered waiters (userId -> join time) and admitted users (userId -> expiry). */
+    private static final class EventQueue {
+        final LinkedHashMap<String, Long> waiting = new LinkedHashMap<>();
+        final Map<String, Long> active = new HashMap<>();
+
+        boolean contains(String userId) {
+            synchronized (this) {
+                return waiting.containsKey(userId) || active.containsKey(userId);
+            }
+        }
+
+        int positionOf(String userId) {
+            int position = 1;
+            for (String waiter : waiting.keySet()) {
+                if (waiter.equals(userId)) {
+                    return position;
+                }
+                position++;
+            }
+            return 0;
+        }
+    }
+}
@@ -1,38 +1,143 @@
 package guru.urr.queueservice.service;
 
-import io.jsonwebtoken.Jwts;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.jsonwebtoken.security.Keys;
 import java.nio.charset.StandardCharsets;
-import java.util.Date;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import javax.crypto.Mac;
 import javax.crypto.SecretKey;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+/**
+ * Issues queue entry tokens (HMAC-signed JWT: sub=eventId, uid=userId, iat, exp).
+ *
+ * A token is signed once per (event, user, admission) and reused on every status poll
+ * until less than 20% of its lifetime remains. Signing skips the JJWT builder: the header
+ * is pre-encoded and the payload is a fixed-shape string, signed with a Mac taken from a small
+ * pool. Requests run on virtual threads (a new thread each), so a per-thread Mac would never
+ * be reused and every signature would pay Mac.getInstance and init again.
+ * The algorithm follows the key length exactly like JJWT's signWith(key), so the gateway's
+ * Jwts.parser().verifyWith(key) accepts these tokens unchanged.
+ *
+ * The issued-token cache is per replica. Callers only ask for a token after Redis (or the
+ * degraded queue) confirms the user is active, so a user who left gets no token anywhere.
+ * {@link #revoke} clears only this replica's cache, though: a user who leaves and is admitted
+ * again through another replica can be handed that replica's earlier token, which is still
+ * validly signed, until it is within 20% of its expiry.
+ */
 @Component
 public class EntryTokenGenerator {
 
+    private static final Base64.Encoder BASE64_URL = Base64.getUrlEncoder().withoutPadding();
+    private static final double REUSE_MIN_REMAINING_RATIO = 0.2;
+    private static final int MAC_POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
     private final SecretKey entryTokenKey;
+    private final String encodedHeader;
+    private final BlockingQueue<Mac> macPool = new ArrayBlockingQueue<>(MAC_POOL_SIZE);
     private final int entryTokenTtlSeconds;
+    private final long reuseMinRemainingMs;
+    private final Cache<String, IssuedToken> issuedTokens;
 
     public EntryTokenGenerator(
         @Value("${queue.entry-token.secret}") String entryTokenSecret,
-        @Value("${queue.entry-token.ttl-seconds:600}") int entryTokenTtlSeconds
+        @Value("${queue.entry-token.ttl-seconds:600}") int entryTokenTtlSeconds,
+        @Value("${queue.entry-token.cache-max-size:500000}") int cacheMaxSize
     ) {
         this.entryTokenKey = Keys.hmacShaKeyFor(entryTokenSecret.getBytes(StandardCharsets.UTF_8));
         this.entryTokenTtlSeconds = entryTokenTtlSeconds;
+        this.reuseMinRemainingMs = (long) (entryTokenTtlSeconds * 1000L * REUSE_MIN_REMAINING_RATIO);
+        this.encodedHeader = BASE64_URL.encodeToString(
+            ("{\"alg\":\"" + jwsAlgorithm(entryTokenKey) + "\"}").getBytes(StandardCharsets.UTF_8));
+        this.issuedTokens = Caffeine.newBuilder()
+            .maximumSize(cacheMaxSize)
+            .expireAfterWrite(Duration.ofSeconds(entryTokenTtlSeconds))
+            .build();
     }
 
+    /** Returns the user's current entry token, signing a new one only when none is reusable. */
     public String generate(String eventId, String userId) {
+        String cacheKey = eventId + ":" + userId;
         long nowMs = System.currentTimeMillis();
-        Date issuedAt = new Date(nowMs);
-        Date expiration = new Date(nowMs + (entryTokenTtlSeconds * 1000L));
-
-        return Jwts.builder()
-            .subject(eventId)
-            .claim("uid", userId)
-            .issuedAt(issuedAt)
-            .expiration(expiration)
-            .signWith(entryTokenKey)
-            .compact();
+        IssuedToken cached = issuedTokens.getIfPresent(cacheKey);
+        if (cached != null && cached.expiresAtMs() - nowMs > reuseMinRemainingMs) {
+            return cached.token();
+        }
+
+        IssuedToken issued = sign(eventId, userId, nowMs);
+        issuedTokens.put(cacheKey, issued);
+        return issued.token();
+    }
+
+    /** Forget the user's token so the next admission on this replica signs a fresh one. */
+    public void revoke(String eventId, String userId) {
+        issuedTokens.invalidate(eventId + ":" + userId);
+    }
+
+    IssuedToken sign(String eventId, String userId, long nowMs) {
+        long issuedAt = nowMs / 1000;
+        long expiresAt = issuedAt + entryTokenTtlSeconds;
+
+        String payload = new StringBuilder(128)
+            .append("{\"sub\":\"").append(escapeJson(eventId))
+            .append("\",\"uid\":\"").append(escapeJson(userId))
+            .append("\",\"iat\":").append(issuedAt)
+            .append(",\"exp\":").append(expiresAt)
+            .append('}')
+            .toString();
+
+        String signingInput = encodedHeader + "." + BASE64_URL.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        Mac mac = macPool.poll();
+        if (mac == null) {
+            mac = newMac(entryTokenKey);
+        }
+        byte[] signature = mac.doFinal(signingInput.getBytes(StandardCharsets.US_ASCII));
+        // doFinal resets the Mac; beyond the pool size the instance is dropped
+        macPool.offer(mac);
+        return new IssuedToken(signingInput + "." + BASE64_URL.encodeToString(signature), expiresAt * 1000);
+    }
+
+    private static String jwsAlgorithm(SecretKey key) {
+        // Keys.hmacShaKeyFor picks HmacSHA256/384/512 by key length
+        return switch (key.getAlgorithm()) {
+            case "HmacSHA512" -> "HS512";
+            case "HmacSHA384" -> "HS384";
+            default -> "HS256";
+        };
+    }
+
+    private static Mac newMac(SecretKey key) {
+        try {
+            Mac instance = Mac.getInstance(key.getAlgorithm());
+            instance.init(key);
+            return instance;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to initialize entry token MAC", e);
+        }
+    }
+
+    private static String escapeJson(String value) {
+        StringBuilder escaped = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\' || c < 0x20) {
+                if (escaped == null) {
+                    escaped = new StringBuilder(value.length() + 8).append(value, 0, i);
+                }
+                escaped.append(String.format("\\u%04x", (int) c));
+            } else if (escaped != null) {
+                escaped.append(c);
+            }
+        }
+        return escaped == null ? value : escaped.toString();
+    }
+
+    record IssuedToken(String token, long expiresAtMs) {
     }
 }
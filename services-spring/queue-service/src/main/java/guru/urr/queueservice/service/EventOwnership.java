@@ -0,0 +1,142 @@
+package guru.urr.queueservice.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Consistent-hash assignment of active events to live queue-service replicas.
+ *
+ * Each replica heartbeats into the {@link #REPLICAS} ZSET (score = last beat) and
+ * rebuilds a hash ring from the members seen within member-ttl-ms. The admission and
+ * cleanup workers only process events this replica owns, so N pods no longer all race
+ * for every event's lock. A pod that stops cleanly removes itself at once; a crashed pod
+ * ages out after member-ttl-ms and its events move to the next replica on the ring.
+ * The admission lock stays in place to cover the short window while pods disagree.
+ * Until the first successful heartbeat (or with ownership disabled) every event is owned.
+ */
+@Component
+public class EventOwnership implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(EventOwnership.class);
+    public static final String REPLICAS = "queue:replicas";
+    private static final int VIRTUAL_NODES = 64;
+
+    private final StringRedisTemplate redisTemplate;
+    private final boolean enabled;
+    private final String replicaId;
+    private final long memberTtlMs;
+    private volatile Ring ring = Ring.EMPTY;
+
+    public EventOwnership(
+        StringRedisTemplate redisTemplate,
+        @Value("${queue.ownership.enabled:true}") boolean enabled,
+        @Value("${queue.ownership.replica-id:${HOSTNAME:}}") String replicaId,
+        @Value("${queue.ownership.member-ttl-ms:6000}") long memberTtlMs
+    ) {
+        this.redisTemplate = redisTemplate;
+        this.enabled = enabled;
+        this.replicaId = replicaId == null || replicaId.isBlank() ? UUID.randomUUID().toString() : replicaId;
+        this.memberTtlMs = memberTtlMs;
+    }
+
+    public String replicaId() {
+        return replicaId;
+    }
+
+    /** True if this replica should drive admission and cleanup for the event. */
+    public boolean owns(String eventId) {
+        if (!enabled) {
+            return true;
+        }
+        String owner = ring.ownerOf(eventId);
+        return owner == null || owner.equals(replicaId);
+    }
+
+    @Scheduled(fixedDelayString = "${queue.ownership.heartbeat-interval-ms:2000}")
+    public void heartbeat() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            redisTemplate.opsForZSet().add(REPLICAS, replicaId, now);
+            redisTemplate.opsForZSet().removeRangeByScore(REPLICAS, Double.NEGATIVE_INFINITY, now - memberTtlMs);
+            Set<String> members = redisTemplate.opsForZSet().range(REPLICAS, 0, -1);
+            // ZRANGE order follows heartbeat times; sort so an unchanged membership keeps its ring
+            updateMembers(members == null ? List.of() : members.stream().sorted().toList());
+        } catch (Exception e) {
+            // Keep the last known ring; the admission lock still prevents double admission
+            log.warn("Replica heartbeat failed: {}", e.getMessage());
+        }
+    }
+
+    void updateMembers(List<String> members) {
+        if (members.equals(ring.members())) {
+            return;
+        }
+        ring = Ring.of(members);
+        log.info("Queue replicas changed: {} live, this replica {}", members.size(), replicaId);
+    }
+
+    @Override
+    public void destroy() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            // Leave the ring now instead of after member-ttl-ms so survivors take over immediately
+            redisTemplate.opsForZSet().remove(REPLICAS, replicaId);
+        } catch (Exception e) {
+            log.debug("Failed to deregister replica {}: {}", replicaId, e.getMessage());
+        }
+    }
+
+    private record Ring(List<String> members, NavigableMap<Long, String> points) {
+        static final Ring EMPTY = new Ring(List.of(), new TreeMap<>());
+
+        static Ring of(List<String> members) {
+            TreeMap<Long, String> points = new TreeMap<>();
+            for (String member : members) {
+                for (int i = 0; i < VIRTUAL_NODES; i++) {
+                    points.put(hash(member + "#" + i), member);
+                }
+            }
+            return new Ring(members, points);
+        }
+
+        String ownerOf(String eventId) {
+            if (points.isEmpty()) {
+                return null;
+            }
+            Map.Entry<Long, String> entry = points.ceilingEntry(hash(eventId));
+            return entry != null ? entry.getValue() : points.firstEntry().getValue();
+        }
+    }
+
+    /** 64-bit FNV-1a with a final avalanche mix; stable across JVMs, unlike String.hashCode spreading. */
+    static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
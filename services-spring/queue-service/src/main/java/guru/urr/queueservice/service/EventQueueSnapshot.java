@@ -0,0 +1,68 @@
+package guru.urr.queueservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Local per-event queue summary, refreshed from the admission tick on every replica.
+ *
+ * queueSize, activeCount, serving and the admission rate are the same for every poller of
+ * an event within one admission interval, so status() reads them from here and only looks
+ * up the caller's own position in Redis. Entries count as fresh for max-age-ms; a missing
+ * entry (no tick yet, admission paused) sends status() back to the full per-request Redis read.
+ * Sharded events fall back to {@link #last} instead, so no request reads every shard.
+ */
+@Component
+public class EventQueueSnapshot {
+
+    /**
+     * Event-wide counts as of the last admission tick. admitRate (positions served per
+     * second, 0 until measured) is the ETA slope; serving is the ticket served up to.
+     */
+    public record QueueSummary(long queueSize, long activeCount, long serving, double admitRate) {
+    }
+
+    private record Stamped(QueueSummary summary, long writtenAtNanos) {
+    }
+
+    // Stale summaries stay available to last() for this long after the final tick
+    private static final Duration RETAIN = Duration.ofMinutes(10);
+
+    private final Cache<String, Stamped> summaries;
+    private final long maxAgeNanos;
+
+    public EventQueueSnapshot(
+        @Value("${queue.snapshot.max-age-ms:3000}") long maxAgeMs,
+        @Value("${queue.snapshot.max-size:10000}") int maxSize
+    ) {
+        this.maxAgeNanos = Duration.ofMillis(maxAgeMs).toNanos();
+        this.summaries = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofMillis(Math.max(maxAgeMs, RETAIN.toMillis())))
+            .build();
+    }
+
+    /** The event's summary, or null when no fresh tick has arrived. */
+    public QueueSummary get(String eventId) {
+        Stamped stamped = summaries.getIfPresent(eventId);
+        return stamped != null && System.nanoTime() - stamped.writtenAtNanos() <= maxAgeNanos
+            ? stamped.summary() : null;
+    }
+
+    /** The event's last summary however old, or null when no tick has arrived in a while. */
+    public QueueSummary last(String eventId) {
+        Stamped stamped = summaries.getIfPresent(eventId);
+        return stamped != null ? stamped.summary() : null;
+    }
+
+    public void put(String eventId, QueueSummary summary) {
+        summaries.put(eventId, new Stamped(summary, System.nanoTime()));
+    }
+
+    public void invalidate(String eventId) {
+        summaries.invalidate(eventId);
+    }
+}
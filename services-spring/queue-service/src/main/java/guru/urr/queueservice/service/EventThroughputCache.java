@@ -0,0 +1,68 @@
+package guru.urr.queueservice.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import java.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Local snapshot of each event's admission rate (EWMA, admissions/second).
+ *
+ * admission_control.lua keeps the rate in {eventId}:admit-rate (one hash per shard),
+ * so every replica sees the same value. The admission tick carries the fresh rate and
+ * is written straight into this cache on every replica; a replica that misses ticks
+ * re-reads Redis after refresh-seconds. Reads on the status path never block on a lock.
+ */
+@Component
+public class EventThroughputCache {
+
+    private static final Logger log = LoggerFactory.getLogger(EventThroughputCache.class);
+    static final String RATE_FIELD = "rate";
+
+    private final LoadingCache<String, Double> rates;
+
+    public EventThroughputCache(
+        StringRedisTemplate redisTemplate,
+        QueueKeys queueKeys,
+        @Value("${queue.throughput.refresh-seconds:5}") int refreshSeconds,
+        @Value("${queue.throughput.max-size:10000}") int maxSize
+    ) {
+        this.rates = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .refreshAfterWrite(Duration.ofSeconds(refreshSeconds))
+            .expireAfterWrite(Duration.ofSeconds(refreshSeconds * 12L))
+            .build(eventId -> {
+                double rate = 0;
+                for (int shard = 0; shard < queueKeys.shardCount(); shard++) {
+                    Object value = redisTemplate.opsForHash().get(queueKeys.admitRate(eventId, shard), RATE_FIELD);
+                    if (value != null) {
+                        rate += Double.parseDouble(value.toString());
+                    }
+                }
+                return rate;
+            });
+    }
+
+    /** Admissions per second for the event, 0 when nothing has been measured yet. */
+    public double get(String eventId) {
+        try {
+            return rates.get(eventId);
+        } catch (Exception e) {
+            log.debug("Admission rate load failed for event {}: {}", eventId, e.getMessage());
+            return 0;
+        }
+    }
+
+    /** Called with the rate carried by each admission tick. */
+    public void put(String eventId, double rate) {
+        rates.put(eventId, rate);
+    }
+
+    public void invalidate(String eventId) {
+        rates.invalidate(eventId);
+    }
+}
@@ -0,0 +1,135 @@
+package guru.urr.queueservice.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Per-event overbooking factor from the measured admitted-to-reservation conversion.
+ *
+ * admission_control.lua counts admissions and conversion_record.lua counts admitted users
+ * whose first reservation arrives on reservation-events. Every poll the factor moves toward
+ * admitted / converted by at most max-step, capped at max-factor, and the admission worker
+ * admits up to threshold x factor. Until min-admitted admissions are seen the factor is 1.0.
+ * Conversion lags admission by the booking think time, so the estimate runs slightly low;
+ * the step limit and cap bound that, and the load-driven batch sizing still backs off when
+ * ticket-service is actually saturated. Disabled, every event uses factor 1.0.
+ */
+@Component
+public class OverbookingController {
+
+    private static final Logger log = LoggerFactory.getLogger(OverbookingController.class);
+    private static final long COUNTER_TTL_MS = 3_600_000;
+
+    private final StringRedisTemplate redisTemplate;
+    private final DefaultRedisScript<Long> conversionRecordScript;
+    private final QueueKeys queueKeys;
+    private final boolean enabled;
+    private final double maxFactor;
+    private final long minAdmitted;
+    private final double maxStep;
+    private final Map<String, Double> factors = new ConcurrentHashMap<>();
+
+    public OverbookingController(
+        StringRedisTemplate redisTemplate,
+        DefaultRedisScript<Long> conversionRecordScript,
+        QueueKeys queueKeys,
+        @Value("${queue.overbooking.enabled:false}") boolean enabled,
+        @Value("${queue.overbooking.max-factor:1.5}") double maxFactor,
+        @Value("${queue.overbooking.min-admitted:200}") long minAdmitted,
+        @Value("${queue.overbooking.max-step:0.05}") double maxStep
+    ) {
+        this.redisTemplate = redisTemplate;
+        this.conversionRecordScript = conversionRecordScript;
+        this.queueKeys = queueKeys;
+        this.enabled = enabled;
+        this.maxFactor = Math.max(1.0, maxFactor);
+        this.minAdmitted = Math.max(1, minAdmitted);
+        this.maxStep = Math.max(0.0, maxStep);
+    }
+
+    public double factor(String eventId) {
+        if (!enabled) {
+            return 1.0;
+        }
+        return factors.computeIfAbsent(eventId, id -> 1.0);
+    }
+
+    public void forget(String eventId) {
+        factors.remove(eventId);
+    }
+
+    /** Counts the user as converted if they are active and this is their first reservation. */
+    public void recordReservation(UUID eventId, String userId) {
+        if (!enabled) {
+            return;
+        }
+        int shard = queueKeys.shardOf(userId);
+        String event = eventId.toString();
+        redisTemplate.execute(
+            conversionRecordScript,
+            List.of(
+                queueKeys.active(event, shard),
+                queueKeys.converted(event, shard),
+                queueKeys.conversion(event, shard)
+            ),
+            queueKeys.member(userId),
+            String.valueOf(COUNTER_TTL_MS)
+        );
+    }
+
+    @Scheduled(fixedDelayString = "${queue.overbooking.poll-interval-ms:10000}")
+    public void adjust() {
+        if (!enabled || factors.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<String, Double> entry : factors.entrySet()) {
+            String eventId = entry.getKey();
+            try {
+                long[] counts = readCounts(eventId);
+                double current = entry.getValue();
+                double next = nextFactor(current, counts[0], counts[1]);
+                if (next != current) {
+                    factors.replace(eventId, current, next);
+                    log.debug("Overbooking factor for event {}: {} -> {} (admitted={}, converted={})",
+                        eventId, current, next, counts[0], counts[1]);
+                }
+            } catch (Exception e) {
+                log.warn("Overbooking update failed for event {}: {}", eventId, e.getMessage());
+            }
+        }
+    }
+
+    private long[] readCounts(String eventId) {
+        long admitted = 0;
+        long converted = 0;
+        for (int shard = 0; shard < queueKeys.shardCount(); shard++) {
+            List<Object> values = redisTemplate.opsForHash()
+                .multiGet(queueKeys.conversion(eventId, shard), List.<Object>of("admitted", "converted"));
+            admitted += parse(values.get(0));
+            converted += parse(values.get(1));
+        }
+        return new long[]{admitted, converted};
+    }
+
+    double nextFactor(double current, long admitted, long converted) {
+        if (admitted < minAdmitted) {
+            return 1.0;
+        }
+        double target = converted <= 0 ? maxFactor : Math.min(maxFactor, Math.max(1.0, (double) admitted / converted));
+        double step = Math.max(-maxStep, Math.min(maxStep, target - current));
+        return Math.max(1.0, Math.min(maxFactor, current + step));
+    }
+
+    private static long parse(Object value) {
+        return value == null ? 0 : Long.parseLong(value.toString());
+    }
+}
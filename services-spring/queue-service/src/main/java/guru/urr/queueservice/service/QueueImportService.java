@@ -0,0 +1,128 @@
+package guru.urr.queueservice.service;
+
+import guru.urr.queueservice.shared.metrics.QueueMetrics;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+/**
+ * Bulk writes into the Redis queue from outside the per-user join path.
+ *
+ * Used for the VWR Tier 1 handoff (released positions arrive in one request instead of
+ * each user joining with check(vwrPosition)) and for merging the degraded-mode local
+ * queue back once Redis recovers. Users are grouped by shard and written by
+ * queue_import.lua in chunks; the given scores keep their order. In ticket mode VWR
+ * positions are used as the tickets (as check(vwrPosition) does), while degraded-mode
+ * join times are issued tickets in that order. Their later check() finds them already queued.
+ */
+@Service
+public class QueueImportService {
+
+    static final int CHUNK_SIZE = 500;
+
+    private final StringRedisTemplate redisTemplate;
+    private final DefaultRedisScript<Long> queueImportScript;
+    private final QueueKeys queueKeys;
+    private final QueueMetrics queueMetrics;
+    private final boolean ticketMode;
+
+    public QueueImportService(
+        StringRedisTemplate redisTemplate,
+        DefaultRedisScript<Long> queueImportScript,
+        QueueKeys queueKeys,
+        QueueMetrics queueMetrics,
+        @Value("${queue.ticket-mode.enabled:false}") boolean ticketMode
+    ) {
+        this.redisTemplate = redisTemplate;
+        this.queueImportScript = queueImportScript;
+        this.queueKeys = queueKeys;
+        this.queueMetrics = queueMetrics;
+        this.ticketMode = ticketMode;
+    }
+
+    /**
+     * Queues userIds with consecutive VWR positions from startPosition. Returns how many
+     * were added; users already queued or active are left as they are.
+     */
+    public long importPositions(UUID eventId, long startPosition, List<String> userIds) {
+        List<Long> scores = new ArrayList<>(userIds.size());
+        for (int i = 0; i < userIds.size(); i++) {
+            scores.add(startPosition + i);
+        }
+        return importScored(eventId, userIds, scores, ticketMode ? "2" : "0");
+    }
+
+    /** Queues userIds[i] with scores[i]; callers pass them in queue order. */
+    public long importScored(UUID eventId, List<String> userIds, List<Long> scores) {
+        return importScored(eventId, userIds, scores, ticketMode ? "1" : "0");
+    }
+
+    private long importScored(UUID eventId, List<String> userIds, List<Long> scores, String ticketArg) {
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+        String event = eventId.toString();
+        Map<Integer, List<String>> argsByShard = new HashMap<>();
+        for (int i = 0; i < userIds.size(); i++) {
+            String userId = userIds.get(i);
+            List<String> args = argsByShard.computeIfAbsent(queueKeys.shardOf(userId), k -> new ArrayList<>());
+            args.add(queueKeys.member(userId));
+            args.add(String.valueOf(scores.get(i)));
+        }
+
+        long added = 0;
+        String now = String.valueOf(System.currentTimeMillis());
+        for (Map.Entry<Integer, List<String>> entry : argsByShard.entrySet()) {
+            int shard = entry.getKey();
+            List<String> keys = queueKeys.withSeenPrevious(List.of(
+                queueKeys.queue(event, shard),
+                queueKeys.active(event, shard),
+                queueKeys.seen(event, shard),
+                queueKeys.seq(event, shard)
+            ), event, shard);
+            List<String> args = entry.getValue();
+            for (int from = 0; from < args.size(); from += CHUNK_SIZE * 2) {
+                List<String> chunk = args.subList(from, Math.min(args.size(), from + CHUNK_SIZE * 2));
+                List<String> argv = new ArrayList<>(chunk.size() + 4);
+                argv.add(now);
+                argv.add(ticketArg);
+                argv.add(String.valueOf(shard));
+                argv.add(String.valueOf(queueKeys.shardCount()));
+                argv.addAll(chunk);
+                long start = System.nanoTime();
+                Long result = redisTemplate.execute(queueImportScript, keys, argv.toArray());
+                queueMetrics.recordScript("queue_import", System.nanoTime() - start);
+                added += result == null ? 0 : result;
+            }
+        }
+
+        if (added > 0) {
+            redisTemplate.opsForSet().add(QueueKeys.ACTIVE_EVENTS, event);
+            queueMetrics.recordQueueJoined(added);
+        }
+        return added;
+    }
+
+    /** Adds already admitted users to the active set with their expiry, so they count against the threshold. */
+    public void restoreActive(UUID eventId, Map<String, Long> expiresAtByUser) {
+        if (expiresAtByUser.isEmpty()) {
+            return;
+        }
+        String event = eventId.toString();
+        Map<Integer, Set<ZSetOperations.TypedTuple<String>>> tuplesByShard = new HashMap<>();
+        expiresAtByUser.forEach((userId, expiresAt) ->
+            tuplesByShard.computeIfAbsent(queueKeys.shardOf(userId), k -> new HashSet<>())
+                .add(ZSetOperations.TypedTuple.of(queueKeys.member(userId), expiresAt.doubleValue())));
+        tuplesByShard.forEach((shard, tuples) -> redisTemplate.opsForZSet().addIfAbsent(queueKeys.active(event, shard), tuples));
+        redisTemplate.opsForSet().add(QueueKeys.ACTIVE_EVENTS, event);
+    }
+}
@@ -0,0 +1,160 @@
+package guru.urr.queueservice.service;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Redis key layout for per-event queue state.
+ *
+ * Keys are hash-tagged so every key a Lua script touches shares one cluster slot.
+ * With queue.sharding.shard-count > 1 an event is split into N sub-queues tagged
+ * {eventId:shard}, each with its own queue/active/seen ZSETs, so one hot event
+ * spreads across cluster nodes. Users are pinned to a shard by userId hash.
+ * With a single shard the layout is the original {eventId}:* keys.
+ *
+ * queue.compact-members.enabled switches to a lower-memory layout: UUID user ids are
+ * stored as 22-char base64url members instead of 36-char strings, and queue heartbeats
+ * move from the :seen ZSET to two generation SETs (:seen:cur / :seen:prev) rotated by
+ * seen_rotate.lua once per seen TTL, so a silent waiter is removed between one and two
+ * TTLs after its last heartbeat (the ZSET layout removes it at the TTL). Only change it
+ * while no event has an open queue; the layouts use different key types and members.
+ */
+@Component
+public class QueueKeys {
+
+    public static final String ACTIVE_EVENTS = "queue:active-events";
+    private static final Pattern UUID_FORMAT =
+        Pattern.compile("[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+    private static final Base64.Encoder MEMBER_ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final int shardCount;
+    private final boolean compact;
+
+    public QueueKeys(
+        @Value("${queue.sharding.shard-count:1}") int shardCount,
+        @Value("${queue.compact-members.enabled:false}") boolean compact
+    ) {
+        this.shardCount = Math.max(1, shardCount);
+        this.compact = compact;
+    }
+
+    public boolean isCompact() {
+        return compact;
+    }
+
+    /** ZSET/SET member for a user: the 16 UUID bytes as base64url in compact mode, else the id as is. */
+    public String member(String userId) {
+        if (!compact || userId.length() != 36 || !UUID_FORMAT.matcher(userId).matches()) {
+            return userId;
+        }
+        UUID uuid = UUID.fromString(userId);
+        ByteBuffer bytes = ByteBuffer.allocate(16)
+            .putLong(uuid.getMostSignificantBits())
+            .putLong(uuid.getLeastSignificantBits());
+        return MEMBER_ENCODER.encodeToString(bytes.array());
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    public boolean isSharded() {
+        return shardCount > 1;
+    }
+
+    public int shardOf(String userId) {
+        return isSharded() ? Math.floorMod(userId.hashCode(), shardCount) : 0;
+    }
+
+    public String queue(String eventId, int shard) {
+        return tag(eventId, shard) + ":queue";
+    }
+
+    public String active(String eventId, int shard) {
+        return tag(eventId, shard) + ":active";
+    }
+
+    /** Queue heartbeats: ZSET (score = last seen), or the current generation SET in compact mode. */
+    public String seen(String eventId, int shard) {
+        return tag(eventId, shard) + (compact ? ":seen:cur" : ":seen");
+    }
+
+    /** Previous heartbeat generation SET (compact mode): members still here at rotation are stale. */
+    public String seenPrevious(String eventId, int shard) {
+        return tag(eventId, shard) + ":seen:prev";
+    }
+
+    /** Last generation rotation time (compact mode). */
+    public String seenRotatedAt(String eventId, int shard) {
+        return tag(eventId, shard) + ":seen:rotated-at";
+    }
+
+    /**
+     * Appends the previous-generation key in compact mode. Scripts that touch :seen take it as
+     * their last KEY and switch from ZSET to generation SETs when it is present.
+     */
+    public List<String> withSeenPrevious(List<String> keys, String eventId, int shard) {
+        if (!compact) {
+            return keys;
+        }
+        List<String> extended = new ArrayList<>(keys);
+        extended.add(seenPrevious(eventId, shard));
+        return extended;
+    }
+
+    public String activeSeen(String eventId, int shard) {
+        return tag(eventId, shard) + ":active-seen";
+    }
+
+    public String seq(String eventId, int shard) {
+        return tag(eventId, shard) + ":seq";
+    }
+
+    public String serving(String eventId, int shard) {
+        return tag(eventId, shard) + ":serving";
+    }
+
+    /** Event-wide threshold (source of truth, read by the admission worker). */
+    public String threshold(String eventId) {
+        return "{" + eventId + "}:threshold";
+    }
+
+    /** Threshold readable from a shard's slot; a per-shard copy when sharded. */
+    public String threshold(String eventId, int shard) {
+        return tag(eventId, shard) + ":threshold";
+    }
+
+    /** HASH {rate, at}: EWMA admissions/second, maintained by admission_control.lua. */
+    public String admitRate(String eventId, int shard) {
+        return tag(eventId, shard) + ":admit-rate";
+    }
+
+    /** HASH {admitted, converted}: admissions vs. admitted users who went on to reserve. */
+    public String conversion(String eventId, int shard) {
+        return tag(eventId, shard) + ":conversion";
+    }
+
+    /** SET of admitted users already counted as converted (first reservation only). */
+    public String converted(String eventId, int shard) {
+        return tag(eventId, shard) + ":converted";
+    }
+
+    /** Event-wide admission lock (sharded cycles span several slots). */
+    public String admissionLock(String eventId) {
+        return "{" + eventId + "}:admission-lock";
+    }
+
+    public String admissionLock(String eventId, int shard) {
+        return tag(eventId, shard) + ":admission-lock";
+    }
+
+    private String tag(String eventId, int shard) {
+        return isSharded() ? "{" + eventId + ":" + shard + "}" : "{" + eventId + "}";
+    }
+}
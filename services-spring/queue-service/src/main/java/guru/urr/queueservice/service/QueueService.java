@@ -1,17 +1,28 @@
 package guru.urr.queueservice.service;
 
-import guru.urr.queueservice.shared.client.TicketInternalClient;
+import guru.urr.queueservice.service.EventQueueSnapshot.QueueSummary;
+import guru.urr.queueservice.shared.client.EventQueueInfoCache;
 import guru.urr.queueservice.shared.metrics.QueueMetrics;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.RedisConnectionFailureException;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
 
@@ -21,95 +32,121 @@ public class QueueService {
     private static final Logger log = LoggerFactory.getLogger(QueueService.class);
 
     private final StringRedisTemplate redisTemplate;
-    private final TicketInternalClient ticketInternalClient;
+    private final EventQueueInfoCache eventQueueInfoCache;
     private final SqsPublisher sqsPublisher;
     private final DefaultRedisScript<List> queueCheckScript;
+    private final DefaultRedisScript<List> queuePositionScript;
+    private final DefaultRedisScript<List> queueJoinScript;
+    private final DefaultRedisScript<Long> queueHeartbeatScript;
+    private final DefaultRedisScript<List> queueLeaveScript;
+    private final QueueKeys queueKeys;
     private final int defaultThreshold;
     private final int activeTtlSeconds;
+    private final boolean ticketMode;
     private final EntryTokenGenerator entryTokenGenerator;
     private final QueueMetrics queueMetrics;
-
-    // Throughput tracking for wait estimation
-    private final AtomicLong recentAdmissions = new AtomicLong(0);
-    private final AtomicLong throughputWindowStart = new AtomicLong(System.currentTimeMillis());
-    private static final long THROUGHPUT_WINDOW_MS = 60_000; // 1-minute window
-    private static final int DEFAULT_THROUGHPUT_PER_SECOND = 50;
-    private static final int MINIMUM_WAIT_SECONDS = 5;
-    private static final long THROUGHPUT_MIN_DATA_MS = 5000;
-    private static final int POLL_SECONDS_DEFAULT = 3;
-    private static final int POLL_SECONDS_NEAR = 1;
-    private static final int POLL_SECONDS_MEDIUM = 5;
-    private static final int POLL_SECONDS_FAR = 10;
-    private static final int POLL_SECONDS_VERY_FAR = 30;
-    private static final int POLL_SECONDS_DISTANT = 60;
-    private static final int POSITION_THRESHOLD_NEAR = 1_000;
-    private static final int POSITION_THRESHOLD_MEDIUM = 5_000;
-    private static final int POSITION_THRESHOLD_FAR = 10_000;
-    private static final int POSITION_THRESHOLD_VERY_FAR = 100_000;
+    private final EventThroughputCache eventThroughputCache;
+    private final EventQueueSnapshot eventQueueSnapshot;
+    private final DegradedQueue degradedQueue;
+    // queue:active-events lives in its own cluster slot, so tracking it is kept off the request path
+    private final ExecutorService trackingExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private static final int JOIN_ALREADY_QUEUED = 1;
+    private static final int JOIN_ALREADY_ACTIVE = 2;
+    private static final int JOIN_QUEUED = 3;
+    private static final int JOIN_ADMITTED = 4;
+    private static final long HEARTBEAT_QUEUED = 1;
+    private static final long HEARTBEAT_ACTIVE = 2;
+    private static final int POLL_SECONDS_DEFAULT = WaitPolicy.POLL_SECONDS_DEFAULT;
+    private static final int MEMBERSHIP_BATCH = 1_000;
 
     public QueueService(
         StringRedisTemplate redisTemplate,
-        TicketInternalClient ticketInternalClient,
+        EventQueueInfoCache eventQueueInfoCache,
         SqsPublisher sqsPublisher,
         DefaultRedisScript<List> queueCheckScript,
+        DefaultRedisScript<List> queuePositionScript,
+        DefaultRedisScript<List> queueJoinScript,
+        DefaultRedisScript<Long> queueHeartbeatScript,
+        DefaultRedisScript<List> queueLeaveScript,
+        QueueKeys queueKeys,
         QueueMetrics queueMetrics,
         EntryTokenGenerator entryTokenGenerator,
+        EventThroughputCache eventThroughputCache,
+        EventQueueSnapshot eventQueueSnapshot,
+        DegradedQueue degradedQueue,
         @Value("${QUEUE_THRESHOLD:1000}") int threshold,
-        @Value("${QUEUE_ACTIVE_TTL_SECONDS:600}") int activeTtlSeconds
+        @Value("${QUEUE_ACTIVE_TTL_SECONDS:600}") int activeTtlSeconds,
+        @Value("${queue.ticket-mode.enabled:false}") boolean ticketMode
     ) {
         this.redisTemplate = redisTemplate;
-        this.ticketInternalClient = ticketInternalClient;
+        this.eventQueueInfoCache = eventQueueInfoCache;
         this.sqsPublisher = sqsPublisher;
         this.queueCheckScript = queueCheckScript;
+        this.queuePositionScript = queuePositionScript;
+        this.queueJoinScript = queueJoinScript;
+        this.queueHeartbeatScript = queueHeartbeatScript;
+        this.queueLeaveScript = queueLeaveScript;
+        this.queueKeys = queueKeys;
         this.queueMetrics = queueMetrics;
         this.entryTokenGenerator = entryTokenGenerator;
+        this.eventThroughputCache = eventThroughputCache;
+        this.eventQueueSnapshot = eventQueueSnapshot;
+        this.degradedQueue = degradedQueue;
         this.defaultThreshold = threshold;
         this.activeTtlSeconds = activeTtlSeconds;
+        this.ticketMode = ticketMode;
     }
 
     public Map<String, Object> check(UUID eventId, String userId) {
         return check(eventId, userId, null);
     }
 
+    @CircuitBreaker(name = DegradedQueue.CIRCUIT_BREAKER, fallbackMethod = "checkFallback")
     public Map<String, Object> check(UUID eventId, String userId, Integer vwrPosition) {
-        Map<String, Object> eventInfo = ticketInternalClient.getEventQueueInfo(eventId);
-
-        // Single Lua call: [inQueue, inActive, position, queueSize, activeCount, threshold]
-        long[] state = executeQueueCheck(eventId, userId);
-        boolean inQueue = state[0] == 1;
-        boolean inActive = state[1] == 1;
-        int position = (int) state[2];
-        int queueSize = (int) state[3];
-        int activeCount = (int) state[4];
-        int threshold = (int) state[5];
-
-        if (inQueue) {
-            return buildQueuedResponse(position, queueSize, eventInfo, activeCount, threshold);
+        if (degradedQueue.holds(eventId, userId)) {
+            return withEventInfo(degradedQueue.check(eventId, userId), eventId);
         }
-
-        if (inActive) {
-            return buildActiveResponse(eventInfo, eventId, userId, activeCount, threshold);
-        }
-
-        if (queueSize > 0 || activeCount >= threshold) {
-            double score = vwrPosition != null ? (double) vwrPosition : System.currentTimeMillis();
-            addToQueue(eventId, userId, score);
-            trackActiveEvent(eventId);
-            queueMetrics.recordQueueJoined();
-            position = getQueuePosition(eventId, userId);
-            queueSize = getQueueSize(eventId);
-            return buildQueuedResponse(position, queueSize, eventInfo, activeCount, threshold);
-        }
-
-        addActiveUser(eventId, userId);
-        trackActiveEvent(eventId);
-        queueMetrics.recordQueueAdmitted();
-        return buildActiveResponse(eventInfo, eventId, userId, activeCount, threshold);
+        Map<String, Object> eventInfo = eventQueueInfoCache.get(eventId);
+
+        // Single Lua call: [outcome, position, queueSize, activeCount, threshold]
+        long[] state = executeQueueJoin(eventId, userId, vwrPosition);
+        int outcome = (int) state[0];
+        int position = (int) state[1];
+        int queueSize = (int) state[2];
+        int activeCount = (int) state[3];
+        int threshold = (int) state[4];
+
+        return switch (outcome) {
+            case JOIN_ALREADY_QUEUED -> buildQueuedResponse(eventId, position, queueSize, eventInfo, activeCount, threshold);
+            case JOIN_ALREADY_ACTIVE -> buildActiveResponse(eventInfo, eventId, userId, activeCount, threshold);
+            case JOIN_QUEUED -> {
+                trackActiveEvent(eventId);
+                queueMetrics.recordQueueJoined();
+                yield buildQueuedResponse(eventId, position, queueSize, eventInfo, activeCount, threshold);
+            }
+            default -> {
+                trackActiveEvent(eventId);
+                queueMetrics.recordQueueAdmitted();
+                yield buildActiveResponse(eventInfo, eventId, userId, activeCount, threshold);
+            }
+        };
     }
 
+    @CircuitBreaker(name = DegradedQueue.CIRCUIT_BREAKER, fallbackMethod = "statusFallback")
     public Map<String, Object> status(UUID eventId, String userId) {
-        // Single Lua call: [inQueue, inActive, position, queueSize, activeCount, threshold]
-        long[] state = executeQueueCheck(eventId, userId);
+        if (degradedQueue.holds(eventId, userId)) {
+            return degradedQueue.status(eventId, userId);
+        }
+        // [inQueue, inActive, position, queueSize, activeCount]: with a tick snapshot only the user's
+        // own entry is read from Redis, otherwise one full check. Sharded events take the last
+        // snapshot even when stale, since the alternative is a read of every shard.
+        QueueSummary summary = queueKeys.isSharded()
+            ? eventQueueSnapshot.last(eventId.toString())
+            : eventQueueSnapshot.get(eventId.toString());
+        long[] state = summary != null
+            ? executeUserLookup(eventId, userId, summary)
+            : executeQueueCheck(eventId, userId);
         boolean inQueue = state[0] == 1;
         boolean inActive = state[1] == 1;
         int position = (int) state[2];
@@ -117,17 +154,7 @@ public class QueueService {
         int activeCount = (int) state[4];
 
         if (inQueue) {
-            Map<String, Object> result = new HashMap<>();
-            result.put("status", "queued");
-            result.put("queued", true);
-            result.put("currentUsers", activeCount);
-            result.put("position", position);
-            result.put("peopleAhead", Math.max(0, position - 1));
-            result.put("peopleBehind", Math.max(0, queueSize - position));
-            result.put("estimatedWait", estimateWait(position));
-            result.put("nextPoll", calculateNextPoll(position));
-            result.put("queueSize", queueSize);
-            return result;
+            return buildQueuedStatus(eventId, position, queueSize, activeCount);
         }
 
         if (inActive) {
@@ -151,25 +178,114 @@ public class QueueService {
         return result;
     }
 
+    @CircuitBreaker(name = DegradedQueue.CIRCUIT_BREAKER, fallbackMethod = "heartbeatFallback")
     public Map<String, Object> heartbeat(UUID eventId, String userId) {
-        if (isInQueue(eventId, userId)) {
-            touchQueueUser(eventId, userId);
+        if (degradedQueue.holds(eventId, userId)) {
+            return heartbeatOf(degradedQueue.status(eventId, userId));
+        }
+        long start = System.nanoTime();
+        Long state = redisTemplate.execute(
+            queueHeartbeatScript,
+            userZSetKeys(eventId, userId),
+            queueKeys.member(userId),
+            String.valueOf(System.currentTimeMillis()),
+            String.valueOf(activeTtlSeconds * 1000L)
+        );
+        queueMetrics.recordScript("queue_heartbeat", System.nanoTime() - start);
+        if (state != null && state == HEARTBEAT_QUEUED) {
             return Map.of("status", "queued", "queued", true);
         }
-        if (isActiveUser(eventId, userId)) {
-            touchActiveUser(eventId, userId);
+        if (state != null && state == HEARTBEAT_ACTIVE) {
             return Map.of("status", "active", "queued", false);
         }
         return Map.of("status", "not_in_queue", "queued", false);
     }
 
+    @CircuitBreaker(name = DegradedQueue.CIRCUIT_BREAKER, fallbackMethod = "leaveFallback")
     public Map<String, Object> leave(UUID eventId, String userId) {
-        removeFromQueue(eventId, userId);
-        removeActiveUser(eventId, userId);
+        degradedQueue.leave(eventId, userId);
+        long start = System.nanoTime();
+        redisTemplate.execute(queueLeaveScript, userZSetKeys(eventId, userId), queueKeys.member(userId));
+        queueMetrics.recordScript("queue_leave", System.nanoTime() - start);
+        entryTokenGenerator.revoke(eventId.toString(), userId);
         queueMetrics.recordQueueLeft();
         return Map.of("message", "Left queue");
     }
 
+    // Fallbacks for the redisQueue breaker: while Redis is unreachable, joins and polls are
+    // served by the per-replica DegradedQueue; any other failure propagates unchanged.
+
+    @SuppressWarnings("unused")
+    private Map<String, Object> checkFallback(UUID eventId, String userId, Integer vwrPosition, Throwable t) {
+        requireDegradable(t, eventId);
+        return withEventInfo(degradedQueue.check(eventId, userId), eventId);
+    }
+
+    @SuppressWarnings("unused")
+    private Map<String, Object> statusFallback(UUID eventId, String userId, Throwable t) {
+        requireDegradable(t, eventId);
+        return degradedQueue.status(eventId, userId);
+    }
+
+    @SuppressWarnings("unused")
+    private Map<String, Object> heartbeatFallback(UUID eventId, String userId, Throwable t) {
+        requireDegradable(t, eventId);
+        return heartbeatOf(degradedQueue.status(eventId, userId));
+    }
+
+    @SuppressWarnings("unused")
+    private Map<String, Object> leaveFallback(UUID eventId, String userId, Throwable t) {
+        requireDegradable(t, eventId);
+        degradedQueue.leave(eventId, userId);
+        return Map.of("message", "Left queue");
+    }
+
+    private void requireDegradable(Throwable t, UUID eventId) {
+        boolean redisUnavailable = t instanceof CallNotPermittedException
+            || t instanceof RedisConnectionFailureException
+            || t instanceof QueryTimeoutException;
+        if (!redisUnavailable || !degradedQueue.isEnabled()) {
+            if (t instanceof RuntimeException e) {
+                throw e;
+            }
+            if (t instanceof Error e) {
+                throw e;
+            }
+            throw new IllegalStateException(t);
+        }
+        log.debug("Redis unavailable, serving event {} from the degraded queue: {}", eventId, t.getMessage());
+    }
+
+    private Map<String, Object> withEventInfo(Map<String, Object> response, UUID eventId) {
+        Map<String, Object> result = new HashMap<>(response);
+        try {
+            result.put("eventInfo", eventQueueInfoCache.get(eventId));
+        } catch (Exception e) {
+            log.debug("Event info unavailable for {} in degraded mode: {}", eventId, e.getMessage());
+        }
+        return result;
+    }
+
+    private static Map<String, Object> heartbeatOf(Map<String, Object> status) {
+        return Map.of("status", status.get("status"), "queued", status.get("queued"));
+    }
+
+    /**
+     * Frees an admitted user's active slot as soon as their booking ends (confirmed,
+     * cancelled or expired) instead of waiting out the active TTL. Idempotent.
+     */
+    public boolean releaseActive(UUID eventId, String userId, String reason) {
+        String member = queueKeys.member(userId);
+        Long removed = redisTemplate.opsForZSet().remove(activeKey(eventId, userId), member);
+        redisTemplate.opsForZSet().remove(activeSeenKey(eventId, userId), member);
+        entryTokenGenerator.revoke(eventId.toString(), userId);
+        boolean released = removed != null && removed > 0;
+        if (released) {
+            queueMetrics.recordActiveReleased(reason, 1);
+        }
+        return released;
+    }
+
     public Map<String, Object> admin(UUID eventId) {
         int currentUsers = getCurrentUsers(eventId);
         int queueSize = getQueueSize(eventId);
@@ -188,21 +304,99 @@ public class QueueService {
         return Map.of("message", "Queue cleared");
     }
 
-    /** Called by AdmissionWorkerService to record throughput */
-    public synchronized void recordAdmissions(int count) {
-        long now = System.currentTimeMillis();
-        long windowStart = throughputWindowStart.get();
-        if (now - windowStart > THROUGHPUT_WINDOW_MS) {
-            recentAdmissions.set(count);
-            throughputWindowStart.set(now);
-        } else {
-            recentAdmissions.addAndGet(count);
+    /** Ticket number held by a queued user (ticket mode only), 0 if not queued. */
+    public long getTicket(UUID eventId, String userId) {
+        if (!ticketMode) return 0;
+        Double score = redisTemplate.opsForZSet().score(queueKey(eventId, userId), queueKeys.member(userId));
+        return score == null ? 0 : score.longValue();
+    }
+
+    public boolean isTicketMode() {
+        return ticketMode;
+    }
+
+    /**
+     * Those of the given users still waiting in the event's queue, read with one ZMSCORE per
+     * shard (per {@value #MEMBERSHIP_BATCH} users).
+     */
+    public Set<String> queuedUsers(UUID eventId, Collection<String> userIds) {
+        String event = eventId.toString();
+        Map<Integer, List<String>> usersByShard = new HashMap<>();
+        for (String userId : userIds) {
+            usersByShard.computeIfAbsent(queueKeys.shardOf(userId), k -> new ArrayList<>()).add(userId);
+        }
+        Set<String> queued = new HashSet<>();
+        usersByShard.forEach((shard, users) -> {
+            for (int from = 0; from < users.size(); from += MEMBERSHIP_BATCH) {
+                List<String> batch = users.subList(from, Math.min(users.size(), from + MEMBERSHIP_BATCH));
+                Object[] members = batch.stream().map(queueKeys::member).toArray();
+                List<Double> scores = redisTemplate.opsForZSet().score(queueKeys.queue(event, shard), members);
+                for (int i = 0; scores != null && i < batch.size(); i++) {
+                    if (scores.get(i) != null) {
+                        queued.add(batch.get(i));
+                    }
+                }
+            }
+        });
+        return queued;
+    }
+
+    /** Batch heartbeat for waiters holding a push stream instead of polling. */
+    public void touchQueueUsers(UUID eventId, Collection<String> userIds) {
+        if (userIds.isEmpty()) return;
+        if (queueKeys.isCompact()) {
+            touchQueueGenerations(eventId, userIds);
+            return;
+        }
+        double now = System.currentTimeMillis();
+        Map<String, Set<ZSetOperations.TypedTuple<String>>> tuplesByKey = new HashMap<>();
+        for (String userId : userIds) {
+            tuplesByKey.computeIfAbsent(queueSeenKey(eventId, userId), k -> new HashSet<>())
+                .add(ZSetOperations.TypedTuple.of(userId, now));
+        }
+        try {
+            tuplesByKey.forEach((key, tuples) -> redisTemplate.opsForZSet().add(key, tuples));
+        } catch (Exception e) {
+            log.warn("Failed to touch queue heartbeats for {} users on event {}: {}", userIds.size(), eventId, e.getMessage());
+        }
+    }
+
+    /** Compact layout: mark users in the current generation and drop them from the previous one. */
+    private void touchQueueGenerations(UUID eventId, Collection<String> userIds) {
+        String event = eventId.toString();
+        Map<Integer, List<String>> membersByShard = new HashMap<>();
+        for (String userId : userIds) {
+            membersByShard.computeIfAbsent(queueKeys.shardOf(userId), k -> new ArrayList<>())
+                .add(queueKeys.member(userId));
+        }
+        try {
+            membersByShard.forEach((shard, members) -> {
+                String[] values = members.toArray(String[]::new);
+                redisTemplate.opsForSet().add(queueKeys.seen(event, shard), values);
+                redisTemplate.opsForSet().remove(queueKeys.seenPrevious(event, shard), (Object[]) values);
+            });
+        } catch (Exception e) {
+            log.warn("Failed to touch queue heartbeats for {} users on event {}: {}", userIds.size(), eventId, e.getMessage());
         }
     }
 
     // -- Response builders --
 
-    private Map<String, Object> buildQueuedResponse(int position, int queueSize,
+    Map<String, Object> buildQueuedStatus(UUID eventId, int position, int queueSize, int activeCount) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("status", "queued");
+        result.put("queued", true);
+        result.put("currentUsers", activeCount);
+        result.put("position", position);
+        result.put("peopleAhead", Math.max(0, position - 1));
+        result.put("peopleBehind", Math.max(0, queueSize - position));
+        result.put("estimatedWait", estimateWait(eventId, position));
+        result.put("nextPoll", WaitPolicy.nextPollSeconds(position));
+        result.put("queueSize", queueSize);
+        return result;
+    }
+
+    private Map<String, Object> buildQueuedResponse(UUID eventId, int position, int queueSize,
                                                      Map<String, Object> eventInfo,
                                                      int activeCount, int threshold) {
         Map<String, Object> result = new HashMap<>();
@@ -211,8 +405,8 @@ public class QueueService {
         result.put("position", position);
         result.put("peopleAhead", Math.max(0, position - 1));
         result.put("peopleBehind", Math.max(0, queueSize - position));
-        result.put("estimatedWait", estimateWait(position));
-        result.put("nextPoll", calculateNextPoll(position));
+        result.put("estimatedWait", estimateWait(eventId, position));
+        result.put("nextPoll", WaitPolicy.nextPollSeconds(position));
         result.put("threshold", threshold);
         result.put("currentUsers", activeCount);
         result.put("eventInfo", eventInfo);
@@ -240,190 +434,275 @@ public class QueueService {
 
     // -- Lua script execution --
 
+    /** [queue, seen, active, active-seen] on the user's shard, as used by the heartbeat and leave scripts. */
+    private List<String> userZSetKeys(UUID eventId, String userId) {
+        return queueKeys.withSeenPrevious(List.of(
+            queueKey(eventId, userId),
+            queueSeenKey(eventId, userId),
+            activeKey(eventId, userId),
+            activeSeenKey(eventId, userId)
+        ), eventId.toString(), queueKeys.shardOf(userId));
+    }
+
+    /**
+     * One round trip for the default layout. Sharded events pass the other shards' sizes so the
+     * threshold decision in the script sees event-wide counts, estimated from the last tick
+     * snapshot or, before the first tick, by the script from this shard. A non-ticket waiter's
+     * shard rank is then scaled to the event, as in executeUserLookup.
+     */
     @SuppressWarnings("unchecked")
-    private long[] executeQueueCheck(UUID eventId, String userId) {
-        List<String> keys = Arrays.asList(
-            queueKey(eventId),
-            activeKey(eventId),
-            queueSeenKey(eventId),
-            activeSeenKey(eventId),
-            "{" + eventId + "}:threshold"
+    private long[] executeQueueJoin(UUID eventId, String userId, Integer vwrPosition) {
+        int shard = queueKeys.shardOf(userId);
+        long[] others = queueKeys.isSharded() ? otherShardSizes(eventId) : new long[3];
+        List<String> keys = queueKeys.withSeenPrevious(Arrays.asList(
+            queueKey(eventId, userId),
+            activeKey(eventId, userId),
+            queueSeenKey(eventId, userId),
+            activeSeenKey(eventId, userId),
+            queueKeys.threshold(eventId.toString(), shard),
+            servingKey(eventId, userId),
+            queueKeys.seq(eventId.toString(), shard)
+        ), eventId.toString(), shard);
+
+        long start = System.nanoTime();
+        List<Long> result = redisTemplate.execute(
+            queueJoinScript,
+            keys,
+            queueKeys.member(userId),
+            String.valueOf(System.currentTimeMillis()),
+            String.valueOf(defaultThreshold),
+            String.valueOf(activeTtlSeconds * 1000L),
+            ticketMode ? "1" : "0",
+            vwrPosition != null ? String.valueOf(vwrPosition) : "-1",
+            String.valueOf(shard),
+            String.valueOf(queueKeys.shardCount()),
+            String.valueOf(others[1]),
+            String.valueOf(others[2])
         );
+        queueMetrics.recordScript("queue_join", System.nanoTime() - start);
+
+        if (result == null || result.size() < 6) {
+            throw new IllegalStateException("Queue join script returned no result for event " + eventId);
+        }
+        long[] state = new long[]{result.get(0), result.get(1), result.get(2), result.get(3), result.get(4)};
+
+        boolean queued = state[0] == JOIN_ALREADY_QUEUED || state[0] == JOIN_QUEUED;
+        if (queued && queueKeys.isSharded() && !ticketMode) {
+            // Script-estimated others are this shard's size before the join times shardCount - 1
+            long shardQueueSize = others[1] >= 0
+                ? Math.max(1, state[2] - others[1])
+                : Math.max(1, (state[2] + queueKeys.shardCount() - 1) / queueKeys.shardCount());
+            state[1] = Math.max(state[1], Math.round((double) state[1] * state[2] / shardQueueSize));
+        }
+        return state;
+    }
+
+    /**
+     * [0, queueSize, activeCount] of the event's other shards: the last tick snapshot's event
+     * total minus this shard's even share, rounded down. It stays at least 1 while anyone waits,
+     * so a joiner never skips an event-wide queue, and errs towards queueing. A stale snapshot
+     * is at most one admission pause old; with none at all, -1 has queue_join.lua scale its own
+     * shard instead.
+     */
+    private long[] otherShardSizes(UUID eventId) {
+        QueueSummary summary = eventQueueSnapshot.last(eventId.toString());
+        if (summary == null) {
+            return new long[]{0, -1, -1};
+        }
+        int shards = queueKeys.shardCount();
+        return new long[]{
+            0,
+            summary.queueSize() - summary.queueSize() / shards,
+            summary.activeCount() - summary.activeCount() / shards
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private long[] executeQueueCheck(UUID eventId, String userId) {
+        int shard = queueKeys.shardOf(userId);
+        List<String> keys = queueKeys.withSeenPrevious(Arrays.asList(
+            queueKey(eventId, userId),
+            activeKey(eventId, userId),
+            queueSeenKey(eventId, userId),
+            activeSeenKey(eventId, userId),
+            queueKeys.threshold(eventId.toString(), shard),
+            servingKey(eventId, userId)
+        ), eventId.toString(), shard);
         long now = System.currentTimeMillis();
         long activeTtlMs = activeTtlSeconds * 1000L;
 
+        long start = System.nanoTime();
         List<Long> result = redisTemplate.execute(
             queueCheckScript,
             keys,
-            userId,
+            queueKeys.member(userId),
             String.valueOf(now),
             String.valueOf(defaultThreshold),
-            String.valueOf(activeTtlMs)
+            String.valueOf(activeTtlMs),
+            ticketMode ? "1" : "0"
         );
+        queueMetrics.recordScript("queue_check", System.nanoTime() - start);
 
         if (result == null || result.size() < 6) {
             return new long[]{0, 0, 0, 0, 0, defaultThreshold};
         }
-        return new long[]{
+        long[] state = new long[]{
             result.get(0), result.get(1), result.get(2),
             result.get(3), result.get(4), result.get(5)
         };
+
+        if (queueKeys.isSharded()) {
+            // No tick has arrived yet: users hash evenly over shards, so scale the shard-local
+            // counts to the event (ticket positions are already event-wide)
+            int shards = queueKeys.shardCount();
+            if (state[0] == 1 && !ticketMode) {
+                state[2] = (state[2] - 1) * shards + 1;
+            }
+            state[3] = Math.max(state[3] * shards, state[2]);
+            state[4] *= shards;
+        }
+        return state;
     }
 
-    // -- Dynamic polling interval --
+    /** One script call on the user's shard; event-wide counts come from the tick snapshot. */
+    @SuppressWarnings("unchecked")
+    private long[] executeUserLookup(UUID eventId, String userId, QueueSummary summary) {
+        long start = System.nanoTime();
+        List<Long> result = redisTemplate.execute(
+            queuePositionScript,
+            queueKeys.withSeenPrevious(List.of(
+                queueKey(eventId, userId),
+                activeKey(eventId, userId),
+                queueSeenKey(eventId, userId),
+                activeSeenKey(eventId, userId),
+                servingKey(eventId, userId)
+            ), eventId.toString(), queueKeys.shardOf(userId)),
+            queueKeys.member(userId),
+            String.valueOf(System.currentTimeMillis()),
+            String.valueOf(activeTtlSeconds * 1000L),
+            ticketMode ? "1" : "0"
+        );
+        queueMetrics.recordScript("queue_position", System.nanoTime() - start);
 
-    private int calculateNextPoll(int position) {
-        if (position <= 0) return POLL_SECONDS_DEFAULT;
-        if (position <= POSITION_THRESHOLD_NEAR) return POLL_SECONDS_NEAR;
-        if (position <= POSITION_THRESHOLD_MEDIUM) return POLL_SECONDS_MEDIUM;
-        if (position <= POSITION_THRESHOLD_FAR) return POLL_SECONDS_FAR;
-        if (position <= POSITION_THRESHOLD_VERY_FAR) return POLL_SECONDS_VERY_FAR;
-        return POLL_SECONDS_DISTANT;
+        if (result == null || result.size() < 4) {
+            return new long[]{0, 0, 0, summary.queueSize(), summary.activeCount()};
+        }
+        boolean inQueue = result.get(0) == 1;
+        long position = result.get(2);
+        if (inQueue && queueKeys.isSharded() && !ticketMode) {
+            // Users hash evenly over shards, so the shard-local rank scales by event size / shard size
+            long shardQueueSize = Math.max(1, result.get(3));
+            position = Math.max(position, Math.round((double) position * summary.queueSize() / shardQueueSize));
+        }
+        // The snapshot can trail the user's own read by up to one tick
+        long queueSize = inQueue ? Math.max(summary.queueSize(), position) : summary.queueSize();
+        return new long[]{result.get(0), result.get(1), position, queueSize, summary.activeCount()};
     }
 
     // -- Throughput-based wait estimation --
 
-    private int estimateWait(int position) {
+    private int estimateWait(UUID eventId, int position) {
         if (position <= 0) return 0;
 
-        long now = System.currentTimeMillis();
-        long elapsed = now - throughputWindowStart.get();
-        long admissions = recentAdmissions.get();
-
-        if (elapsed < THROUGHPUT_MIN_DATA_MS || admissions <= 0) {
-            // Before throughput data is available, assume default processing rate
-            // and cap at a reasonable maximum to avoid alarming overestimates
-            return Math.max(position / DEFAULT_THROUGHPUT_PER_SECOND, MINIMUM_WAIT_SECONDS);
+        QueueSummary summary = eventQueueSnapshot.get(eventId.toString());
+        if (summary != null && summary.admitRate() > 0) {
+            return WaitPolicy.estimateWaitSeconds(position, summary.admitRate());
         }
 
-        double throughputPerSecond = (admissions * 1000.0) / elapsed;
-        if (throughputPerSecond <= 0) {
-            return Math.max(position / DEFAULT_THROUGHPUT_PER_SECOND, MINIMUM_WAIT_SECONDS);
-        }
-        return (int) Math.ceil(position / throughputPerSecond);
+        // Per-event EWMA kept in Redis by the admission script; read from the local snapshot
+        return WaitPolicy.estimateWaitSeconds(position, eventThroughputCache.get(eventId.toString()));
     }
 
     // -- Active event tracking (avoid KEYS command) --
 
     private void trackActiveEvent(UUID eventId) {
-        try {
-            redisTemplate.opsForSet().add("queue:active-events", eventId.toString());
-        } catch (Exception e) {
-            log.debug("Failed to track active event {}: {}", eventId, e.getMessage());
-        }
+        trackingExecutor.execute(() -> {
+            try {
+                redisTemplate.opsForSet().add(QueueKeys.ACTIVE_EVENTS, eventId.toString());
+            } catch (Exception e) {
+                log.debug("Failed to track active event {}: {}", eventId, e.getMessage());
+            }
+        });
     }
 
     // -- Per-event threshold (#25) --
 
     private int getThreshold(UUID eventId) {
-        String custom = redisTemplate.opsForValue().get("{" + eventId + "}:threshold");
+        String custom = redisTemplate.opsForValue().get(queueKeys.threshold(eventId.toString()));
         return custom != null ? Integer.parseInt(custom) : defaultThreshold;
     }
 
     public void setThreshold(UUID eventId, int threshold) {
-        redisTemplate.opsForValue().set("{" + eventId + "}:threshold", String.valueOf(threshold));
-    }
-
-    // -- Redis key helpers (hash-tagged for Redis Cluster slot affinity) --
-
-    private String queueKey(UUID eventId) {
-        return "{" + eventId + "}:queue";
-    }
-
-    private String activeKey(UUID eventId) {
-        return "{" + eventId + "}:active";
-    }
-
-    private String queueSeenKey(UUID eventId) {
-        return "{" + eventId + "}:seen";
-    }
-
-    private String activeSeenKey(UUID eventId) {
-        return "{" + eventId + "}:active-seen";
-    }
-
-    // -- Active users: ZSET with expiry-timestamp scores --
-
-    private boolean isActiveUser(UUID eventId, String userId) {
-        Double score = redisTemplate.opsForZSet().score(activeKey(eventId), userId);
-        if (score == null) return false;
-        return score > System.currentTimeMillis();
-    }
-
-    private int getCurrentUsers(UUID eventId) {
-        Long count = redisTemplate.opsForZSet().count(activeKey(eventId),
-            System.currentTimeMillis(), Double.POSITIVE_INFINITY);
-        return count == null ? 0 : count.intValue();
-    }
-
-    private void addActiveUser(UUID eventId, String userId) {
-        long expiryScore = System.currentTimeMillis() + (activeTtlSeconds * 1000L);
-        redisTemplate.opsForZSet().add(activeKey(eventId), userId, expiryScore);
-        touchActiveUser(eventId, userId);
-    }
-
-    private void removeActiveUser(UUID eventId, String userId) {
-        redisTemplate.opsForZSet().remove(activeKey(eventId), userId);
-        redisTemplate.opsForZSet().remove(activeSeenKey(eventId), userId);
+        redisTemplate.opsForValue().set(queueKeys.threshold(eventId.toString()), String.valueOf(threshold));
+        if (queueKeys.isSharded()) {
+            // Per-shard copies so queue_check.lua can read the threshold from the user's slot
+            for (int shard = 0; shard < queueKeys.shardCount(); shard++) {
+                redisTemplate.opsForValue().set(queueKeys.threshold(eventId.toString(), shard), String.valueOf(threshold));
+            }
+        }
     }
 
-    // -- Queue operations (ZSET) --
-
-    private boolean isInQueue(UUID eventId, String userId) {
-        Double score = redisTemplate.opsForZSet().score(queueKey(eventId), userId);
-        return score != null;
-    }
+    // -- Redis key helpers (hash-tagged for Redis Cluster slot affinity, on the user's shard) --
 
-    private int getQueuePosition(UUID eventId, String userId) {
-        Long rank = redisTemplate.opsForZSet().rank(queueKey(eventId), userId);
-        return rank == null ? 0 : rank.intValue() + 1;
+    private String queueKey(UUID eventId, String userId) {
+        return queueKeys.queue(eventId.toString(), queueKeys.shardOf(userId));
     }
 
-    private int getQueueSize(UUID eventId) {
-        Long size = redisTemplate.opsForZSet().size(queueKey(eventId));
-        return size == null ? 0 : size.intValue();
+    private String activeKey(UUID eventId, String userId) {
+        return queueKeys.active(eventId.toString(), queueKeys.shardOf(userId));
     }
 
-    private void addToQueue(UUID eventId, String userId) {
-        addToQueue(eventId, userId, System.currentTimeMillis());
+    private String queueSeenKey(UUID eventId, String userId) {
+        return queueKeys.seen(eventId.toString(), queueKeys.shardOf(userId));
     }
 
-    private void addToQueue(UUID eventId, String userId, double score) {
-        redisTemplate.opsForZSet().add(queueKey(eventId), userId, score);
-        touchQueueUser(eventId, userId);
+    private String activeSeenKey(UUID eventId, String userId) {
+        return queueKeys.activeSeen(eventId.toString(), queueKeys.shardOf(userId));
     }
 
-    private void removeFromQueue(UUID eventId, String userId) {
-        redisTemplate.opsForZSet().remove(queueKey(eventId), userId);
-        redisTemplate.opsForZSet().remove(queueSeenKey(eventId), userId);
+    private String servingKey(UUID eventId, String userId) {
+        return queueKeys.serving(eventId.toString(), queueKeys.shardOf(userId));
     }
 
-    // -- Heartbeat touch --
+    // -- Event-wide counts (admin view) --
 
-    private void touchQueueUser(UUID eventId, String userId) {
-        try {
-            redisTemplate.opsForZSet().add(queueSeenKey(eventId), userId, System.currentTimeMillis());
-        } catch (Exception e) {
-            log.warn("Failed to touch queue heartbeat for user {} on event {}: {}", userId, eventId, e.getMessage());
+    private int getCurrentUsers(UUID eventId) {
+        long now = System.currentTimeMillis();
+        int total = 0;
+        for (int shard = 0; shard < queueKeys.shardCount(); shard++) {
+            Long count = redisTemplate.opsForZSet().count(queueKeys.active(eventId.toString(), shard),
+                now, Double.POSITIVE_INFINITY);
+            total += count == null ? 0 : count.intValue();
         }
+        return total;
     }
 
-    private void touchActiveUser(UUID eventId, String userId) {
-        try {
-            redisTemplate.opsForZSet().add(activeSeenKey(eventId), userId, System.currentTimeMillis());
-            long newExpiry = System.currentTimeMillis() + (activeTtlSeconds * 1000L);
-            redisTemplate.opsForZSet().add(activeKey(eventId), userId, newExpiry);
-        } catch (Exception e) {
-            log.warn("Failed to refresh active session for user {} on event {}: {}", userId, eventId, e.getMessage());
+    private int getQueueSize(UUID eventId) {
+        int total = 0;
+        for (int shard = 0; shard < queueKeys.shardCount(); shard++) {
+            Long size = redisTemplate.opsForZSet().size(queueKeys.queue(eventId.toString(), shard));
+            total += size == null ? 0 : size.intValue();
         }
+        return total;
     }
 
     // -- Clear --
 
     private void clearQueue(UUID eventId) {
-        redisTemplate.delete(List.of(
-            queueKey(eventId), activeKey(eventId),
-            queueSeenKey(eventId), activeSeenKey(eventId)));
-        redisTemplate.opsForSet().remove("queue:active-events", eventId.toString());
+        String event = eventId.toString();
+        List<String> keys = new ArrayList<>();
+        for (int shard = 0; shard < queueKeys.shardCount(); shard++) {
+            keys.addAll(List.of(
+                queueKeys.queue(event, shard), queueKeys.active(event, shard),
+                queueKeys.seen(event, shard), queueKeys.activeSeen(event, shard),
+                queueKeys.seq(event, shard), queueKeys.serving(event, shard),
+                queueKeys.admitRate(event, shard), queueKeys.conversion(event, shard),
+                queueKeys.converted(event, shard), queueKeys.seenPrevious(event, shard),
+                queueKeys.seenRotatedAt(event, shard)));
+        }
+        redisTemplate.delete(keys);
+        eventThroughputCache.invalidate(event);
+        eventQueueSnapshot.invalidate(event);
+        redisTemplate.opsForSet().remove(QueueKeys.ACTIVE_EVENTS, event);
     }
 }
@@ -0,0 +1,239 @@
+package guru.urr.queueservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Server-push queue status for waiting users.
+ *
+ * Each waiter holds one SSE connection instead of polling /status. The admission
+ * worker publishes one tick per event per cycle on {@link #TICK_CHANNEL}; every
+ * replica fans the tick out to its local subscribers in one task per event. Positions
+ * come from the tick, not from Redis: ticket - serving in ticket mode, otherwise the
+ * subscriber's last position moved forward by the users admitted since (capped at
+ * the queue size). Leaves ahead are not seen, so that estimate errs long.
+ *
+ * One membership read per shard per tick finds subscribers no longer queued; only
+ * those get a status call, which hands the admitted their entry token and closes the
+ * stream of users who left or were dropped.
+ */
+@Service
+public class QueueStreamService implements MessageListener, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(QueueStreamService.class);
+    public static final String TICK_CHANNEL = "queue:ticks";
+    private static final long HEARTBEAT_INTERVAL_MS = 30_000;
+
+    private final QueueService queueService;
+    private final EventThroughputCache eventThroughputCache;
+    private final EventQueueSnapshot eventQueueSnapshot;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final long streamTimeoutMs;
+    private final int maxSubscribers;
+    private final ExecutorService sendExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // eventId -> userId -> subscriber (one connection per waiter; reconnect replaces)
+    private final Map<UUID, Map<String, Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    public QueueStreamService(
+        QueueService queueService,
+        EventThroughputCache eventThroughputCache,
+        EventQueueSnapshot eventQueueSnapshot,
+        StringRedisTemplate redisTemplate,
+        @Value("${queue.stream.timeout-ms:1800000}") long streamTimeoutMs,
+        @Value("${queue.stream.max-subscribers:200000}") int maxSubscribers
+    ) {
+        this.queueService = queueService;
+        this.eventThroughputCache = eventThroughputCache;
+        this.eventQueueSnapshot = eventQueueSnapshot;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = new ObjectMapper();
+        this.streamTimeoutMs = streamTimeoutMs;
+        this.maxSubscribers = maxSubscribers;
+    }
+
+    public SseEmitter subscribe(UUID eventId, String userId) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        Map<String, Object> status = queueService.status(eventId, userId);
+
+        if (!"queued".equals(status.get("status")) || subscriberCount() >= maxSubscribers) {
+            // Nothing to wait for (or replica full): send the current state and let the client poll
+            send(emitter, status);
+            emitter.complete();
+            return emitter;
+        }
+
+        Subscriber subscriber = new Subscriber(userId, emitter, queueService.getTicket(eventId, userId),
+            (int) status.get("position"));
+
+        Map<String, Subscriber> eventSubscribers = subscribers.computeIfAbsent(eventId, k -> new ConcurrentHashMap<>());
+        Subscriber previous = eventSubscribers.put(userId, subscriber);
+        if (previous != null) {
+            previous.emitter.complete();
+        }
+
+        Runnable unregister = () -> eventSubscribers.remove(userId, subscriber);
+        emitter.onCompletion(unregister);
+        emitter.onTimeout(unregister);
+        emitter.onError(e -> unregister.run());
+
+        send(emitter, status);
+        return emitter;
+    }
+
+    /** Called by the admission worker once per event per cycle. */
+    public void publishTick(String eventId, long admitted, long serving, long queueSize, long activeCount,
+                            double admitRate) {
+        try {
+            String payload = objectMapper.writeValueAsString(Map.of(
+                "eventId", eventId,
+                "admitted", admitted,
+                "serving", serving,
+                "queueSize", queueSize,
+                "activeCount", activeCount,
+                "admitRate", admitRate
+            ));
+            redisTemplate.convertAndSend(TICK_CHANNEL, payload);
+        } catch (Exception e) {
+            log.debug("Failed to publish queue tick for event {}: {}", eventId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            Map<?, ?> tick = objectMapper.readValue(new String(message.getBody(), StandardCharsets.UTF_8), Map.class);
+            UUID eventId = UUID.fromString((String) tick.get("eventId"));
+            double admitRate = tick.get("admitRate") instanceof Number rate ? rate.doubleValue() : 0;
+            eventThroughputCache.put(eventId.toString(), admitRate);
+            eventQueueSnapshot.put(eventId.toString(), new EventQueueSnapshot.QueueSummary(
+                ((Number) tick.get("queueSize")).longValue(),
+                ((Number) tick.get("activeCount")).longValue(),
+                ((Number) tick.get("serving")).longValue(),
+                admitRate));
+            Map<String, Subscriber> eventSubscribers = subscribers.get(eventId);
+            if (eventSubscribers == null || eventSubscribers.isEmpty()) {
+                return;
+            }
+            long admitted = tick.get("admitted") instanceof Number count ? count.longValue() : 0;
+            long serving = ((Number) tick.get("serving")).longValue();
+            int queueSize = ((Number) tick.get("queueSize")).intValue();
+            int activeCount = ((Number) tick.get("activeCount")).intValue();
+            sendExecutor.execute(() -> fanOut(eventId, eventSubscribers, admitted, serving, queueSize, activeCount));
+        } catch (Exception e) {
+            log.warn("Failed to handle queue tick: {}", e.getMessage());
+        }
+    }
+
+    private void fanOut(UUID eventId, Map<String, Subscriber> eventSubscribers,
+                        long admitted, long serving, int queueSize, int activeCount) {
+        List<Subscriber> open = new ArrayList<>(eventSubscribers.values());
+        Set<String> queued;
+        try {
+            queued = queueService.queuedUsers(eventId, open.stream().map(subscriber -> subscriber.userId).toList());
+        } catch (Exception e) {
+            // Keep pushing estimates; departures are picked up on a later tick
+            log.debug("Queue membership read failed for event {}: {}", eventId, e.getMessage());
+            queued = null;
+        }
+        for (Subscriber subscriber : open) {
+            if (queued != null && !queued.contains(subscriber.userId)) {
+                refresh(eventId, subscriber);
+                continue;
+            }
+            int position = subscriber.ticket > 0
+                ? (int) Math.max(1, subscriber.ticket - serving)
+                : subscriber.advance(admitted, queueSize);
+            send(subscriber.emitter, queueService.buildQueuedStatus(eventId, position, queueSize, activeCount));
+        }
+    }
+
+    private void refresh(UUID eventId, Subscriber subscriber) {
+        Map<String, Object> status = queueService.status(eventId, subscriber.userId);
+        send(subscriber.emitter, status);
+        if ("queued".equals(status.get("status"))) {
+            // Rejoined since the membership read
+            subscriber.position = (int) status.get("position");
+        } else {
+            // Admitted (entryToken delivered) or dropped from the queue: stream is done
+            subscriber.emitter.complete();
+        }
+    }
+
+    /** Stream subscribers don't poll, so keep their queue heartbeat fresh in one ZADD per event. */
+    @Scheduled(fixedDelay = HEARTBEAT_INTERVAL_MS)
+    public void touchSubscribers() {
+        subscribers.forEach((eventId, eventSubscribers) -> {
+            if (eventSubscribers.isEmpty()) {
+                subscribers.remove(eventId, eventSubscribers);
+                return;
+            }
+            queueService.touchQueueUsers(eventId, new ArrayList<>(eventSubscribers.keySet()));
+        });
+    }
+
+    public int subscriberCount() {
+        int count = 0;
+        for (Map<String, Subscriber> eventSubscribers : subscribers.values()) {
+            count += eventSubscribers.size();
+        }
+        return count;
+    }
+
+    private void send(SseEmitter emitter, Map<String, Object> status) {
+        try {
+            emitter.send(SseEmitter.event().name("status").data(status));
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        List<Subscriber> open = new ArrayList<>();
+        subscribers.values().forEach(eventSubscribers -> open.addAll(eventSubscribers.values()));
+        // Clients reconnect to another replica and resume from /status
+        open.forEach(subscriber -> subscriber.emitter.complete());
+        sendExecutor.shutdown();
+    }
+
+    private static final class Subscriber {
+        private final String userId;
+        private final SseEmitter emitter;
+        private final long ticket;
+        // Position estimate outside ticket mode; only the event's fan-out task updates it
+        private volatile int position;
+
+        private Subscriber(String userId, SseEmitter emitter, long ticket, int position) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.ticket = ticket;
+            this.position = position;
+        }
+
+        private synchronized int advance(long admitted, int queueSize) {
+            position = (int) Math.max(1, Math.min(position - admitted, queueSize));
+            return position;
+        }
+    }
+}
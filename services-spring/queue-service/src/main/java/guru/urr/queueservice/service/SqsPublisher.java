@@ -1,69 +1,274 @@
 package guru.urr.queueservice.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import software.amazon.awssdk.services.sqs.SqsClient;
-import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Publishes admissions to the SQS FIFO queue without blocking the request thread.
+ *
+ * publishAdmission() only enqueues into a bounded buffer; a background sender drains it
+ * with SendMessageBatch (at most 10 entries per call, one message group per call so FIFO
+ * order within an event is kept). When the buffer is full the caller waits up to
+ * offer-timeout-ms for the sender to catch up; only then is the admission dropped and counted
+ * in queue.sqs.admission.dropped, which is alerted on. Redis stays the source of truth either way.
+ * Failed batch entries are retried in place, ahead of later admissions of the same event, a
+ * bounded number of times. Dedup IDs are userId:eventId.
+ */
 @Service
-public class SqsPublisher {
+public class SqsPublisher implements DisposableBean {
 
     private static final Logger log = LoggerFactory.getLogger(SqsPublisher.class);
+    static final int MAX_BATCH_ENTRIES = 10;
+    private static final int MAX_DRAIN_PER_ROUND = 500;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long POLL_TIMEOUT_MS = 500;
+    private static final long RETRY_BACKOFF_MS = 50;
+    private static final long SHUTDOWN_TIMEOUT_MS = 5000;
 
     private final SqsClient sqsClient;
     private final String queueUrl;
     private final ObjectMapper objectMapper;
     private final boolean enabled;
+    private final long offerTimeoutMs;
+    private final BlockingQueue<Admission> buffer;
+    private final Counter published;
+    private final Counter droppedOverflow;
+    private final Counter droppedFailed;
+    private volatile boolean running;
+    private Thread sender;
 
     public SqsPublisher(
             @org.springframework.lang.Nullable SqsClient sqsClient,
             @Value("${aws.sqs.queue-url:}") String queueUrl,
-            @Value("${aws.sqs.enabled:false}") boolean enabled) {
+            @Value("${aws.sqs.enabled:false}") boolean enabled,
+            @Value("${aws.sqs.buffer-capacity:10000}") int bufferCapacity,
+            @Value("${aws.sqs.offer-timeout-ms:100}") long offerTimeoutMs,
+            MeterRegistry meterRegistry) {
         this.sqsClient = sqsClient;
         this.queueUrl = queueUrl;
         this.objectMapper = new ObjectMapper();
         this.enabled = enabled && sqsClient != null && !queueUrl.isBlank();
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.buffer = new ArrayBlockingQueue<>(Math.max(1, bufferCapacity));
+        this.published = Counter.builder("queue.sqs.admission.published")
+                .description("Admission messages accepted by SQS")
+                .register(meterRegistry);
+        this.droppedOverflow = Counter.builder("queue.sqs.admission.dropped")
+                .description("Admission messages not delivered to SQS")
+                .tag("reason", "overflow")
+                .register(meterRegistry);
+        this.droppedFailed = Counter.builder("queue.sqs.admission.dropped")
+                .description("Admission messages not delivered to SQS")
+                .tag("reason", "failed")
+                .register(meterRegistry);
+        Gauge.builder("queue.sqs.admission.buffer.size", buffer, BlockingQueue::size)
+                .description("Admission messages waiting to be sent to SQS")
+                .register(meterRegistry);
     }
 
     public boolean isEnabled() {
         return enabled;
     }
 
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        sender = Thread.ofVirtual().name("sqs-admission-sender").start(this::sendLoop);
+    }
+
+    /** Enqueues the admission, waiting at most offer-timeout-ms while the buffer is full; never throws. */
     public void publishAdmission(UUID eventId, String userId, String entryToken) {
         if (!enabled) {
             return;
         }
 
+        Admission admission = new Admission(eventId, userId, entryToken, System.currentTimeMillis(), 1);
+        boolean accepted;
         try {
-            Map<String, Object> body = Map.of(
-                    "action", "admitted",
-                    "eventId", eventId.toString(),
-                    "userId", userId,
-                    "entryToken", entryToken,
-                    "timestamp", System.currentTimeMillis()
-            );
-
-            String messageBody = objectMapper.writeValueAsString(body);
-            // Use only userId + eventId so SQS FIFO dedup window (5min) prevents duplicate admissions
-            String deduplicationId = userId + ":" + eventId;
-
-            sqsClient.sendMessage(SendMessageRequest.builder()
+            accepted = buffer.offer(admission, offerTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        }
+        if (!accepted) {
+            droppedOverflow.increment();
+            log.debug("SQS admission buffer full, dropping: user={} event={}", userId, eventId);
+        }
+    }
+
+    private void sendLoop() {
+        while (running) {
+            try {
+                Admission first = buffer.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    sendRound(first);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("SQS admission sender failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /** Sends everything currently buffered. Used by the sender loop, shutdown and tests. */
+    void flush() {
+        Admission first;
+        while ((first = buffer.poll()) != null) {
+            sendRound(first);
+        }
+    }
+
+    private void sendRound(Admission first) {
+        List<Admission> drained = new ArrayList<>(MAX_BATCH_ENTRIES);
+        drained.add(first);
+        buffer.drainTo(drained, MAX_DRAIN_PER_ROUND - 1);
+
+        Map<UUID, List<Admission>> byGroup = new LinkedHashMap<>();
+        for (Admission admission : drained) {
+            byGroup.computeIfAbsent(admission.eventId(), k -> new ArrayList<>()).add(admission);
+        }
+        byGroup.values().forEach(this::sendGroup);
+    }
+
+    private void sendGroup(List<Admission> group) {
+        Deque<Admission> pending = new ArrayDeque<>(group);
+        while (!pending.isEmpty()) {
+            List<Admission> batch = new ArrayList<>(MAX_BATCH_ENTRIES);
+            while (batch.size() < MAX_BATCH_ENTRIES && !pending.isEmpty()) {
+                batch.add(pending.poll());
+            }
+            List<Admission> retries = sendBatch(batch);
+            if (retries.isEmpty()) {
+                continue;
+            }
+            // Back at the head in their original order, so they go out before later admissions of the event
+            for (int i = retries.size() - 1; i >= 0; i--) {
+                pending.addFirst(retries.get(i));
+            }
+            backoff(retries.getFirst().attempt());
+        }
+    }
+
+    private void backoff(int attempt) {
+        try {
+            Thread.sleep(RETRY_BACKOFF_MS * (attempt - 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Sends one batch of a single message group; returns the entries to retry, in batch order. */
+    private List<Admission> sendBatch(List<Admission> batch) {
+        List<SendMessageBatchRequestEntry> entries = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            Admission admission = batch.get(i);
+            try {
+                entries.add(SendMessageBatchRequestEntry.builder()
+                        .id(String.valueOf(i))
+                        .messageBody(messageBody(admission))
+                        .messageGroupId(admission.eventId().toString())
+                        // Use only userId + eventId so SQS FIFO dedup window (5min) prevents duplicate admissions
+                        .messageDeduplicationId(admission.userId() + ":" + admission.eventId())
+                        .build());
+            } catch (Exception e) {
+                droppedFailed.increment();
+                log.warn("SQS admission not serializable: user={} event={}", admission.userId(), admission.eventId());
+            }
+        }
+        if (entries.isEmpty()) {
+            return List.of();
+        }
+
+        try {
+            SendMessageBatchResponse response = sqsClient.sendMessageBatch(SendMessageBatchRequest.builder()
                     .queueUrl(queueUrl)
-                    .messageBody(messageBody)
-                    .messageGroupId(eventId.toString())
-                    .messageDeduplicationId(deduplicationId)
+                    .entries(entries)
                     .build());
-
-            log.info("SQS admission published: user={} event={}", userId, eventId);
+            published.increment(response.successful().size());
+            Map<Integer, BatchResultErrorEntry> failedByIndex = new LinkedHashMap<>();
+            for (BatchResultErrorEntry failed : response.failed()) {
+                failedByIndex.put(Integer.parseInt(failed.id()), failed);
+            }
+            List<Admission> retries = new ArrayList<>();
+            for (int i = 0; i < batch.size(); i++) {
+                BatchResultErrorEntry failed = failedByIndex.get(i);
+                if (failed != null) {
+                    retryOrDrop(batch.get(i), failed.senderFault(), failed.message(), retries);
+                }
+            }
+            return retries;
         } catch (Exception e) {
-            log.error("SQS publish failed (fallback to Redis-only): user={} event={} error={}",
-                    userId, eventId, e.getMessage());
+            log.warn("SQS batch publish failed for {} admissions: {}", entries.size(), e.getMessage());
+            List<Admission> retries = new ArrayList<>();
+            batch.forEach(admission -> retryOrDrop(admission, false, e.getMessage(), retries));
+            return retries;
+        }
+    }
+
+    private void retryOrDrop(Admission admission, boolean senderFault, String reason, List<Admission> retries) {
+        // Sender faults (bad request) won't succeed on retry; the dedup ID makes retries safe
+        if (senderFault || admission.attempt() >= MAX_ATTEMPTS) {
+            droppedFailed.increment();
+            log.warn("SQS admission dropped (fallback to Redis-only): user={} event={} error={}",
+                    admission.userId(), admission.eventId(), reason);
+        } else {
+            retries.add(admission.nextAttempt());
+        }
+    }
+
+    private String messageBody(Admission admission) throws Exception {
+        return objectMapper.writeValueAsString(Map.of(
+                "action", "admitted",
+                "eventId", admission.eventId().toString(),
+                "userId", admission.userId(),
+                "entryToken", admission.entryToken(),
+                "timestamp", admission.timestamp()
+        ));
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        if (sender != null) {
+            sender.join(SHUTDOWN_TIMEOUT_MS);
+        }
+        if (enabled) {
+            flush();
+        }
+    }
+
+    private record Admission(UUID eventId, String userId, String entryToken, long timestamp, int attempt) {
+        Admission nextAttempt() {
+            return new Admission(eventId, userId, entryToken, timestamp, attempt + 1);
         }
     }
 }
@@ -0,0 +1,208 @@
+package guru.urr.queueservice.service;
+
+import guru.urr.queueservice.service.EventQueueSnapshot.QueueSummary;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+/**
+ * Paces the VWR Tier 1 servingCounter against measured Tier 2 capacity.
+ *
+ * Every tick the active events are read from the counters table and, for each event this
+ * replica owns, servingCounter is moved so the Redis queue holds about buffer-seconds of
+ * admissions at the measured admit rate (initial-batch until a rate exists). Positions
+ * released in the last handoff-window-ms are counted as still on their way to Tier 2,
+ * fading out linearly so users who never come back stop holding the counter. Each update
+ * is conditional on the servingCounter that was read, so a concurrent admin advance or a
+ * second advancer makes the write fail instead of double-advancing.
+ *
+ * Replaces the vwr-counter-advancer Lambda's fixed batch; disable that schedule when this
+ * is enabled. Only active when vwr.dynamodb.enabled=true and vwr.advancer.enabled=true.
+ */
+@Component
+@ConditionalOnProperty(name = {"vwr.dynamodb.enabled", "vwr.advancer.enabled"}, havingValue = "true")
+public class VwrCounterAdvancer {
+
+    private static final Logger log = LoggerFactory.getLogger(VwrCounterAdvancer.class);
+
+    private final DynamoDbClient dynamoDbClient;
+    private final String countersTableName;
+    private final EventQueueSnapshot eventQueueSnapshot;
+    private final EventThroughputCache eventThroughputCache;
+    private final StringRedisTemplate redisTemplate;
+    private final QueueKeys queueKeys;
+    private final EventOwnership eventOwnership;
+    private final double bufferSeconds;
+    private final long minBacklog;
+    private final long initialBatch;
+    private final long maxBatch;
+    private final long handoffWindowMs;
+    private final Counter advanced;
+    private final Counter conflicts;
+    private final Map<String, Deque<long[]>> releases = new ConcurrentHashMap<>();
+
+    public VwrCounterAdvancer(
+        DynamoDbClient dynamoDbClient,
+        @Value("${vwr.dynamodb.counters-table:}") String countersTableName,
+        EventQueueSnapshot eventQueueSnapshot,
+        EventThroughputCache eventThroughputCache,
+        StringRedisTemplate redisTemplate,
+        QueueKeys queueKeys,
+        EventOwnership eventOwnership,
+        @Value("${vwr.advancer.buffer-seconds:30}") double bufferSeconds,
+        @Value("${vwr.advancer.min-backlog:100}") long minBacklog,
+        @Value("${vwr.advancer.initial-batch:500}") long initialBatch,
+        @Value("${vwr.advancer.max-batch:5000}") long maxBatch,
+        @Value("${vwr.advancer.handoff-window-ms:20000}") long handoffWindowMs,
+        MeterRegistry meterRegistry
+    ) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.countersTableName = countersTableName;
+        this.eventQueueSnapshot = eventQueueSnapshot;
+        this.eventThroughputCache = eventThroughputCache;
+        this.redisTemplate = redisTemplate;
+        this.queueKeys = queueKeys;
+        this.eventOwnership = eventOwnership;
+        this.bufferSeconds = Math.max(0, bufferSeconds);
+        this.minBacklog = Math.max(0, minBacklog);
+        this.initialBatch = Math.max(1, initialBatch);
+        this.maxBatch = Math.max(1, maxBatch);
+        this.handoffWindowMs = Math.max(1, handoffWindowMs);
+        this.advanced = Counter.builder("vwr.counter.advanced")
+            .description("VWR positions released to the Redis queue by the advancer")
+            .register(meterRegistry);
+        this.conflicts = Counter.builder("vwr.counter.conflicts")
+            .description("VWR counter updates skipped because servingCounter moved concurrently")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${vwr.advancer.interval-ms:2000}")
+    public void advance() {
+        if (countersTableName == null || countersTableName.isBlank()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Set<String> seen = new HashSet<>();
+        try {
+            ScanRequest scan = ScanRequest.builder()
+                .tableName(countersTableName)
+                .filterExpression("isActive = :true")
+                .projectionExpression("eventId, servingCounter, nextPosition")
+                .expressionAttributeValues(Map.of(":true", AttributeValue.fromBool(true)))
+                .build();
+            for (Map<String, AttributeValue> item : dynamoDbClient.scanPaginator(scan).items()) {
+                String eventId = item.get("eventId").s();
+                seen.add(eventId);
+                if (eventOwnership.owns(eventId)) {
+                    advanceEvent(eventId, item.containsKey("servingCounter"),
+                        number(item, "servingCounter"), number(item, "nextPosition"), now);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("VWR counter advance failed: {}", e.getMessage());
+            return;
+        }
+        releases.keySet().retainAll(seen);
+    }
+
+    private void advanceEvent(String eventId, boolean hasCounter, long servingCounter, long nextPosition, long now) {
+        QueueSummary summary = eventQueueSnapshot.get(eventId);
+        long queueSize = summary != null ? summary.queueSize() : redisQueueSize(eventId);
+        double admitRate = summary != null ? summary.admitRate() : eventThroughputCache.get(eventId);
+
+        long step = nextStep(nextPosition - servingCounter, queueSize, admitRate, inFlight(eventId, now));
+        if (step <= 0) {
+            return;
+        }
+        Map<String, AttributeValue> values = new HashMap<>(Map.of(
+            ":next", AttributeValue.fromN(String.valueOf(servingCounter + step)),
+            ":true", AttributeValue.fromBool(true),
+            ":now", AttributeValue.fromN(String.valueOf(now))
+        ));
+        String counterCondition = "attribute_not_exists(servingCounter)";
+        if (hasCounter) {
+            counterCondition = "servingCounter = :current";
+            values.put(":current", AttributeValue.fromN(String.valueOf(servingCounter)));
+        }
+        try {
+            dynamoDbClient.updateItem(UpdateItemRequest.builder()
+                .tableName(countersTableName)
+                .key(Map.of("eventId", AttributeValue.fromS(eventId)))
+                .updateExpression("SET servingCounter = :next, updatedAt = :now")
+                .conditionExpression("isActive = :true AND " + counterCondition)
+                .expressionAttributeValues(values)
+                .build());
+            releases.computeIfAbsent(eventId, id -> new ArrayDeque<>()).addLast(new long[]{now, step});
+            advanced.increment(step);
+            log.debug("VWR event {}: servingCounter {} -> {} (queue={}, rate={}/s)",
+                eventId, servingCounter, servingCounter + step, queueSize, admitRate);
+        } catch (ConditionalCheckFailedException e) {
+            // Deactivated or moved by someone else since the scan; re-read next tick
+            conflicts.increment();
+        }
+    }
+
+    /**
+     * Positions to release: enough to bring Redis queue + in-flight handoffs up to the
+     * target depth, never more than max-batch or the Tier 1 backlog.
+     */
+    long nextStep(long waiting, long queueSize, double admitRate, double inFlight) {
+        if (waiting <= 0) {
+            return 0;
+        }
+        double target = admitRate > 0 ? Math.max(minBacklog, admitRate * bufferSeconds) : initialBatch;
+        long deficit = (long) Math.floor(target - queueSize - inFlight);
+        if (deficit <= 0) {
+            return 0;
+        }
+        return Math.min(deficit, Math.min(maxBatch, waiting));
+    }
+
+    /** Released positions not yet expected in the Redis queue, decaying over handoff-window-ms. */
+    double inFlight(String eventId, long now) {
+        Deque<long[]> recent = releases.get(eventId);
+        if (recent == null) {
+            return 0;
+        }
+        while (!recent.isEmpty() && now - recent.peekFirst()[0] >= handoffWindowMs) {
+            recent.pollFirst();
+        }
+        double pending = 0;
+        for (long[] release : recent) {
+            pending += release[1] * (1.0 - (double) (now - release[0]) / handoffWindowMs);
+        }
+        return pending;
+    }
+
+    private long redisQueueSize(String eventId) {
+        long total = 0;
+        for (int shard = 0; shard < queueKeys.shardCount(); shard++) {
+            Long size = redisTemplate.opsForZSet().size(queueKeys.queue(eventId, shard));
+            total += size == null ? 0 : size;
+        }
+        return total;
+    }
+
+    private static long number(Map<String, AttributeValue> item, String name) {
+        AttributeValue value = item.get(name);
+        return value == null || value.n() == null ? 0 : Long.parseLong(value.n());
+    }
+}
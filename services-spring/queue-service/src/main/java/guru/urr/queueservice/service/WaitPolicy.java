@@ -0,0 +1,48 @@
+package guru.urr.queueservice.service;
+
+/**
+ * Client-facing pacing of the queue: how long a waiter should wait before the next poll,
+ * and the wait estimate shown for a position.
+ *
+ * Pure functions of position and admission rate, shared by QueueService and the admission
+ * simulator (src/simulation) so tuning runs use exactly what production answers.
+ */
+public final class WaitPolicy {
+
+    public static final int POLL_SECONDS_DEFAULT = 3;
+    private static final int POLL_SECONDS_NEAR = 1;
+    private static final int POLL_SECONDS_MEDIUM = 5;
+    private static final int POLL_SECONDS_FAR = 10;
+    private static final int POLL_SECONDS_VERY_FAR = 30;
+    private static final int POLL_SECONDS_DISTANT = 60;
+    private static final int POSITION_THRESHOLD_NEAR = 1_000;
+    private static final int POSITION_THRESHOLD_MEDIUM = 5_000;
+    private static final int POSITION_THRESHOLD_FAR = 10_000;
+    private static final int POSITION_THRESHOLD_VERY_FAR = 100_000;
+    private static final int DEFAULT_THROUGHPUT_PER_SECOND = 50;
+    private static final int MINIMUM_WAIT_SECONDS = 5;
+
+    private WaitPolicy() {
+    }
+
+    /** Seconds until the next status poll for a 1-based queue position (0 = not queued). */
+    public static int nextPollSeconds(int position) {
+        if (position <= 0) return POLL_SECONDS_DEFAULT;
+        if (position <= POSITION_THRESHOLD_NEAR) return POLL_SECONDS_NEAR;
+        if (position <= POSITION_THRESHOLD_MEDIUM) return POLL_SECONDS_MEDIUM;
+        if (position <= POSITION_THRESHOLD_FAR) return POLL_SECONDS_FAR;
+        if (position <= POSITION_THRESHOLD_VERY_FAR) return POLL_SECONDS_VERY_FAR;
+        return POLL_SECONDS_DISTANT;
+    }
+
+    /** Estimated seconds until admission, from the event's admissions/second (0 = not measured yet). */
+    public static int estimateWaitSeconds(int position, double admitRatePerSecond) {
+        if (position <= 0) return 0;
+        if (admitRatePerSecond <= 0) {
+            // Before throughput data is available, assume default processing rate
+            // and cap at a reasonable maximum to avoid alarming overestimates
+            return Math.max(position / DEFAULT_THROUGHPUT_PER_SECOND, MINIMUM_WAIT_SECONDS);
+        }
+        return (int) Math.ceil(position / admitRatePerSecond);
+    }
+}
@@ -0,0 +1,61 @@
+package guru.urr.queueservice.shared.client;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-process cache of catalog event queue-info (title, artist) for QueueService.check().
+ *
+ * Concurrent misses for one event share a single catalog call, entries are refreshed in
+ * the background once they pass refresh-seconds, and a failed refresh keeps serving the
+ * previous value. Circuit-breaker fallbacks are never cached.
+ * Hit/miss/load stats are exported as cache.* meters with cache=queue.event-info.
+ */
+@Component
+public class EventQueueInfoCache {
+
+    private static final Logger log = LoggerFactory.getLogger(EventQueueInfoCache.class);
+
+    private final LoadingCache<UUID, Map<String, Object>> cache;
+
+    public EventQueueInfoCache(
+        TicketInternalClient ticketInternalClient,
+        MeterRegistry meterRegistry,
+        @Value("${queue.event-info-cache.ttl-seconds:60}") int ttlSeconds,
+        @Value("${queue.event-info-cache.refresh-seconds:15}") int refreshSeconds,
+        @Value("${queue.event-info-cache.max-size:1000}") int maxSize
+    ) {
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .refreshAfterWrite(Duration.ofSeconds(refreshSeconds))
+            .recordStats()
+            .build(eventId -> {
+                Map<String, Object> info = ticketInternalClient.getEventQueueInfo(eventId);
+                if (TicketInternalClient.UNKNOWN_EVENT_INFO.equals(info)) {
+                    // Don't pin the fallback for a whole TTL; a refresh failure keeps the old value
+                    throw new IllegalStateException("Event queue-info unavailable for " + eventId);
+                }
+                return info;
+            });
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "queue.event-info");
+    }
+
+    public Map<String, Object> get(UUID eventId) {
+        try {
+            return cache.get(eventId);
+        } catch (Exception e) {
+            log.debug("Event queue-info load failed for event {}: {}", eventId, e.getMessage());
+            return TicketInternalClient.UNKNOWN_EVENT_INFO;
+        }
+    }
+}
@@ -19,6 +19,7 @@ public class TicketInternalClient {
     private static final Logger log = LoggerFactory.getLogger(TicketInternalClient.class);
     private static final int CONNECT_TIMEOUT_SECONDS = 5;
     private static final int READ_TIMEOUT_SECONDS = 10;
+    public static final Map<String, Object> UNKNOWN_EVENT_INFO = Map.of("title", "Unknown");
 
     private final RestClient restClient;
     private final String internalApiToken;
@@ -46,12 +47,12 @@ public class TicketInternalClient {
             .header("Authorization", "Bearer " + internalApiToken)
             .retrieve()
             .body(Map.class);
-        return response != null ? response : Map.of("title", "Unknown");
+        return response != null ? response : UNKNOWN_EVENT_INFO;
     }
 
     @SuppressWarnings("unused")
     private Map<String, Object> getEventQueueInfoFallback(UUID eventId, Throwable t) {
         log.warn("Circuit breaker: getEventQueueInfo failed for event {}: {}", eventId, t.getMessage());
-        return Map.of("title", "Unknown");
+        return UNKNOWN_EVENT_INFO;
     }
 }
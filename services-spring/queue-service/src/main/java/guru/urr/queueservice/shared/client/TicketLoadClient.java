@@ -0,0 +1,75 @@
+package guru.urr.queueservice.shared.client;
+
+import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import java.time.Duration;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.http.client.ClientHttpRequestFactoryBuilder;
+import org.springframework.boot.http.client.ClientHttpRequestFactorySettings;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+/**
+ * Reads ticket-service's reservation-path load signal. No retry: the admission
+ * controller polls on a short interval and treats a miss as "no signal".
+ */
+@Component
+public class TicketLoadClient {
+
+    private static final Logger log = LoggerFactory.getLogger(TicketLoadClient.class);
+    private static final int CONNECT_TIMEOUT_MILLIS = 500;
+    private static final int READ_TIMEOUT_MILLIS = 1000;
+
+    public record LoadSignal(double poolUtilization, int threadsAwaitingConnection,
+                             double reservationP99Ms, double seatLockP99Ms) {
+    }
+
+    private final RestClient restClient;
+    private final String internalApiToken;
+
+    public TicketLoadClient(
+        @Value("${internal.ticket-service-url:http://localhost:3002}") String ticketServiceUrl,
+        @Value("${internal.api-token}") String internalApiToken
+    ) {
+        var requestFactory = ClientHttpRequestFactoryBuilder.detect().build(ClientHttpRequestFactorySettings.defaults()
+                .withConnectTimeout(Duration.ofMillis(CONNECT_TIMEOUT_MILLIS))
+                .withReadTimeout(Duration.ofMillis(READ_TIMEOUT_MILLIS)));
+        this.restClient = RestClient.builder()
+            .baseUrl(ticketServiceUrl)
+            .requestFactory(requestFactory)
+            .build();
+        this.internalApiToken = internalApiToken;
+    }
+
+    /** Returns null when ticket-service is unreachable or the circuit is open. */
+    @CircuitBreaker(name = "ticketLoad", fallbackMethod = "getLoadSignalFallback")
+    @SuppressWarnings("unchecked")
+    public LoadSignal getLoadSignal() {
+        Map<String, Object> response = restClient.get()
+            .uri("/internal/load-signal")
+            .header("Authorization", "Bearer " + internalApiToken)
+            .retrieve()
+            .body(Map.class);
+        if (response == null) {
+            return null;
+        }
+        return new LoadSignal(
+            number(response.get("poolUtilization")),
+            (int) number(response.get("threadsAwaitingConnection")),
+            number(response.get("reservationP99Ms")),
+            number(response.get("seatLockP99Ms"))
+        );
+    }
+
+    @SuppressWarnings("unused")
+    private LoadSignal getLoadSignalFallback(Throwable t) {
+        log.warn("Circuit breaker: getLoadSignal failed: {}", t.getMessage());
+        return null;
+    }
+
+    private static double number(Object value) {
+        return value instanceof Number n ? n.doubleValue() : 0;
+    }
+}
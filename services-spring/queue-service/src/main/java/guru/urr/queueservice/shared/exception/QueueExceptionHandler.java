@@ -1,5 +1,6 @@
 package guru.urr.queueservice.shared.exception;
 
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,4 +27,11 @@ public class QueueExceptionHandler {
         return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
             .body(Map.of("error", "Queue service temporarily unavailable. Please retry."));
     }
+
+    @ExceptionHandler(CallNotPermittedException.class)
+    public ResponseEntity<Map<String, String>> handleRedisCircuitOpen(CallNotPermittedException ex) {
+        log.warn("Redis circuit open: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .body(Map.of("error", "Queue service temporarily unavailable. Please retry."));
+    }
 }
@@ -1,17 +1,41 @@
 package guru.urr.queueservice.shared.metrics;
 
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+/**
+ * Business and queue-internals metrics.
+ *
+ * Per-event meters (tag event) are registered by the replica that drives the event's
+ * admission and removed when the event leaves queue:active-events or moves to another
+ * replica, so summing over replicas gives one series per event. At most max-events
+ * events are tracked at once; further events only show up in the global meters.
+ */
 @Component
 public class QueueMetrics {
 
     private final Counter queueJoined;
     private final Counter queueAdmitted;
     private final Counter queueLeft;
+    private final Timer admissionCycle;
+    private final MeterRegistry registry;
+    private final int maxTrackedEvents;
+    private final Map<String, EventMeters> events = new ConcurrentHashMap<>();
+    private final Map<String, Timer> scriptTimers = new ConcurrentHashMap<>();
 
-    public QueueMetrics(MeterRegistry registry) {
+    public QueueMetrics(MeterRegistry registry, @Value("${queue.metrics.max-events:50}") int maxTrackedEvents) {
+        this.registry = registry;
+        this.maxTrackedEvents = Math.max(0, maxTrackedEvents);
         this.queueJoined = Counter.builder("business.queue.joined.total")
             .description("Total users who joined the queue")
             .register(registry);
@@ -21,9 +45,119 @@ public class QueueMetrics {
         this.queueLeft = Counter.builder("business.queue.left.total")
             .description("Total users who left the queue")
             .register(registry);
+        this.admissionCycle = Timer.builder("queue.admission.cycle.duration")
+            .description("Duration of one admission cycle across all active events")
+            .publishPercentileHistogram()
+            .register(registry);
     }
 
     public void recordQueueJoined() { queueJoined.increment(); }
+    public void recordQueueJoined(long count) { queueJoined.increment(count); }
     public void recordQueueAdmitted() { queueAdmitted.increment(); }
     public void recordQueueLeft() { queueLeft.increment(); }
+    public void recordActiveReleased(String reason, long count) {
+        Counter.builder("business.queue.released.total")
+            .description("Active slots freed before their TTL")
+            .tag("reason", reason)
+            .register(registry)
+            .increment(count);
+    }
+    public void recordAdmissionCycle(long durationNanos) { admissionCycle.record(durationNanos, TimeUnit.NANOSECONDS); }
+
+    /** Lua script round trip, tagged by script name (a fixed set). */
+    public void recordScript(String script, long durationNanos) {
+        scriptTimers.computeIfAbsent(script, name -> Timer.builder("queue.redis.script.duration")
+                .description("Redis Lua script execution time, including the round trip")
+                .tag("script", name)
+                .publishPercentileHistogram()
+                .register(registry))
+            .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** One admission tick for an event: depth, active users, EWMA rate and the admission latency. */
+    public void recordEventAdmission(String eventId, long queueSize, long activeCount, double admitRate,
+                                     long admitted, long durationNanos) {
+        EventMeters meters = eventMeters(eventId);
+        if (meters == null) {
+            return;
+        }
+        meters.queueSize = queueSize;
+        meters.activeCount = activeCount;
+        meters.admitRate = admitRate;
+        meters.admitted.increment(admitted);
+        meters.admission.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordStaleRemoved(String eventId, long count) {
+        EventMeters meters = events.get(eventId);
+        if (meters != null) {
+            meters.staleRemoved.increment(count);
+        }
+    }
+
+    /** Drops the meters of every tracked event not in eventIds. */
+    public void retainEvents(Set<String> eventIds) {
+        events.keySet().stream()
+            .filter(eventId -> !eventIds.contains(eventId))
+            .toList()
+            .forEach(this::forgetEvent);
+    }
+
+    public void forgetEvent(String eventId) {
+        EventMeters meters = events.remove(eventId);
+        if (meters != null) {
+            meters.all().forEach(registry::remove);
+        }
+    }
+
+    private EventMeters eventMeters(String eventId) {
+        EventMeters meters = events.get(eventId);
+        if (meters != null || events.size() >= maxTrackedEvents) {
+            return meters;
+        }
+        return events.computeIfAbsent(eventId, id -> new EventMeters(registry, id));
+    }
+
+    private static final class EventMeters {
+        private volatile double queueSize;
+        private volatile double activeCount;
+        private volatile double admitRate;
+        private final Gauge queueSizeGauge;
+        private final Gauge activeCountGauge;
+        private final Gauge admitRateGauge;
+        private final Counter admitted;
+        private final Counter staleRemoved;
+        private final Timer admission;
+
+        EventMeters(MeterRegistry registry, String eventId) {
+            this.queueSizeGauge = Gauge.builder("queue.event.depth", this, meters -> meters.queueSize)
+                .description("Users waiting in the event's queue")
+                .tag("event", eventId)
+                .register(registry);
+            this.activeCountGauge = Gauge.builder("queue.event.active", this, meters -> meters.activeCount)
+                .description("Users admitted and still active for the event")
+                .tag("event", eventId)
+                .register(registry);
+            this.admitRateGauge = Gauge.builder("queue.event.admit.rate", this, meters -> meters.admitRate)
+                .description("EWMA admissions per second for the event")
+                .tag("event", eventId)
+                .register(registry);
+            this.admitted = Counter.builder("queue.event.admitted.total")
+                .description("Users admitted for the event")
+                .tag("event", eventId)
+                .register(registry);
+            this.staleRemoved = Counter.builder("queue.event.stale.removed.total")
+                .description("Waiters removed for missing heartbeats")
+                .tag("event", eventId)
+                .register(registry);
+            this.admission = Timer.builder("queue.event.admission.duration")
+                .description("Admission work for the event in one cycle")
+                .tag("event", eventId)
+                .register(registry);
+        }
+
+        List<Meter> all() {
+            return List.of(queueSizeGauge, activeCountGauge, admitRateGauge, admitted, staleRemoved, admission);
+        }
+    }
 }
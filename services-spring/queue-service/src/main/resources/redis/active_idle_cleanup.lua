@@ -0,0 +1,25 @@
+-- active_idle_cleanup.lua: Free active slots of admitted users who stopped heartbeating
+--
+-- KEYS[1] = {eventId}:active      (ZSET: active users, score=expiry timestamp)
+-- KEYS[2] = {eventId}:active-seen (ZSET: active heartbeat tracking, score=last heartbeat)
+--
+-- ARGV[1] = idleCutoff (ms; last heartbeat before this counts as idle)
+-- ARGV[2] = batchSize
+--
+-- Only users that heartbeated while active are judged; clients that never heartbeat
+-- keep their slot until the active TTL.
+--
+-- Returns: [examined, released]
+
+local idleCutoff = tonumber(ARGV[1])
+local batchSize = tonumber(ARGV[2])
+
+local idleUsers = redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', idleCutoff, 'LIMIT', 0, batchSize)
+if #idleUsers == 0 then
+    return {0, 0}
+end
+
+local released = redis.call('ZREM', KEYS[1], unpack(idleUsers))
+redis.call('ZREM', KEYS[2], unpack(idleUsers))
+
+return {#idleUsers, released}
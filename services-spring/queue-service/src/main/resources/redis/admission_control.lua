@@ -1,18 +1,97 @@
 -- KEYS[1] = {eventId}:queue         (ZSET: waiting queue, score=timestamp)
 -- KEYS[2] = {eventId}:active       (ZSET: active users, score=expiry timestamp)
 -- KEYS[3] = {eventId}:seen         (ZSET: heartbeat tracking)
+-- KEYS[4] = {eventId}:serving      (STRING: last ticket number admitted)
+-- KEYS[5] = {eventId}:threshold    (STRING: per-event threshold, optional)
+-- KEYS[6] = {eventId}:admission-lock (STRING: one admission per event per cycle)
+-- KEYS[7] = {eventId}:admit-rate   (HASH: rate = EWMA admissions/sec, at = last update ms)
+-- KEYS[8] = {eventId}:conversion   (HASH: admitted counter; converted is bumped by conversion_record.lua)
+-- KEYS[9] = {eventId}:seen:prev    (SET: previous heartbeat generation, compact members only)
 -- ARGV[1] = admitCount             (max to admit this batch)
 -- ARGV[2] = now                    (current timestamp ms)
 -- ARGV[3] = activeTtlMs            (active user TTL in ms)
--- ARGV[4] = maxActive              (threshold)
+-- ARGV[4] = maxActive              (threshold, -1 = read KEYS[5] or ARGV[6])
+-- ARGV[5] = ticketMode             ('1' = queue scores are ticket numbers)
+-- ARGV[6] = defaultThreshold       (used when maxActive is -1 and KEYS[5] is unset)
+-- ARGV[7] = lockMs                 (0 = caller already holds the lock)
+-- ARGV[8] = rateTauMs              (EWMA time constant)
+-- ARGV[9] = overbookFactor         (scales the threshold read when maxActive is -1)
+--
+-- Returns: [admitted, activeCount, queueSize, serving, admitRate]
+--   admitted is -1 when another replica admitted this event within lockMs
+--   admitRate is a string (Lua numbers are truncated to integers in replies)
+--   queueSize/serving are published as the per-event stream tick;
+--   queueSize = activeCount = 0 tells the caller to drop the event from queue:active-events
 
 local queueKey = KEYS[1]
 local activeKey = KEYS[2]
 local queueSeenKey = KEYS[3]
+local servingKey = KEYS[4]
+local thresholdKey = KEYS[5]
+local lockKey = KEYS[6]
+local rateKey = KEYS[7]
+local conversionKey = KEYS[8]
 local admitCount = tonumber(ARGV[1])
 local now = tonumber(ARGV[2])
 local activeTtlMs = tonumber(ARGV[3])
 local maxActive = tonumber(ARGV[4])
+local ticketMode = ARGV[5] == '1'
+local defaultThreshold = tonumber(ARGV[6])
+local lockMs = tonumber(ARGV[7])
+local rateTauMs = tonumber(ARGV[8])
+local overbookFactor = tonumber(ARGV[9])
+local RATE_KEY_TTL_MS = 3600000
+
+-- Compact members: queueSeenKey and KEYS[9] are the heartbeat generation SETs (see seen_rotate.lua)
+local seenPrevKey = KEYS[9]
+local function forgetSeen(member)
+    if seenPrevKey then
+        redis.call('SREM', queueSeenKey, member)
+        redis.call('SREM', seenPrevKey, member)
+    else
+        redis.call('ZREM', queueSeenKey, member)
+    end
+end
+
+-- Time-weighted EWMA: the weight of the new sample grows with the gap since the last update
+local function updateRate(admitted)
+    local prev = redis.call('HMGET', rateKey, 'rate', 'at')
+    local rate = tonumber(prev[1])
+    local at = tonumber(prev[2])
+    if at and now <= at then
+        return rate or 0
+    end
+    if at then
+        local dt = now - at
+        local instant = admitted * 1000 / dt
+        if rate then
+            rate = rate + (1 - math.exp(-dt / rateTauMs)) * (instant - rate)
+        else
+            rate = instant
+        end
+        redis.call('HSET', rateKey, 'rate', tostring(rate), 'at', now)
+    else
+        redis.call('HSET', rateKey, 'at', now)
+    end
+    redis.call('PEXPIRE', rateKey, RATE_KEY_TTL_MS)
+    return rate or 0
+end
+
+local function summary(admitted, active)
+    local serving = tonumber(redis.call('GET', servingKey) or '0')
+    local rate = updateRate(admitted)
+    return {admitted, active, redis.call('ZCARD', queueKey), serving, tostring(rate)}
+end
+
+-- 0. Per-cycle lock (replaces SETNX + DEL round trips); expires on its own
+if lockMs > 0 and not redis.call('SET', lockKey, '1', 'NX', 'PX', lockMs) then
+    return {-1, 0, 0, 0, '0'}
+end
+
+if maxActive < 0 then
+    local customThreshold = redis.call('GET', thresholdKey)
+    maxActive = math.floor((customThreshold and tonumber(customThreshold) or defaultThreshold) * overbookFactor)
+end
 
 -- 1. Remove expired active users
 redis.call('ZREMRANGEBYSCORE', activeKey, '-inf', now)
@@ -23,15 +102,18 @@ local activeCount = redis.call('ZCARD', activeKey)
 -- 3. Available slots
 local available = maxActive - activeCount
 if available <= 0 then
-    return {0, activeCount}
+    return summary(0, activeCount)
 end
 
 local toAdmit = math.min(available, admitCount)
+if toAdmit <= 0 then
+    return summary(0, activeCount)
+end
 
 -- 4. ZPOPMIN - atomic pop from queue (no duplicates)
 local popped = redis.call('ZPOPMIN', queueKey, toAdmit)
 if #popped == 0 then
-    return {0, activeCount}
+    return summary(0, activeCount)
 end
 
 -- 5. Add to active with expiry score, remove from seen
@@ -39,8 +121,20 @@ local admitted = 0
 for i = 1, #popped, 2 do
     local userId = popped[i]
     redis.call('ZADD', activeKey, now + activeTtlMs, userId)
-    redis.call('ZREM', queueSeenKey, userId)
+    forgetSeen(userId)
     admitted = admitted + 1
 end
 
-return {admitted, activeCount + admitted}
+redis.call('HINCRBY', conversionKey, 'admitted', admitted)
+redis.call('PEXPIRE', conversionKey, RATE_KEY_TTL_MS)
+
+-- 6. Ticket mode: advance serving counter to the highest admitted ticket
+if ticketMode then
+    local lastTicket = tonumber(popped[#popped])
+    local serving = tonumber(redis.call('GET', servingKey) or '0')
+    if lastTicket > serving then
+        redis.call('SET', servingKey, popped[#popped])
+    end
+end
+
+return summary(admitted, activeCount + admitted)
@@ -0,0 +1,25 @@
+-- conversion_record.lua: Count an admitted user's first reservation
+--
+-- KEYS[1] = {eventId}:active      (ZSET: active users)
+-- KEYS[2] = {eventId}:converted   (SET: users already counted)
+-- KEYS[3] = {eventId}:conversion  (HASH: admitted / converted counters)
+--
+-- ARGV[1] = userId
+-- ARGV[2] = ttlMs
+--
+-- Returns: 1 if counted, 0 if the user is not active or was already counted
+
+local userId = ARGV[1]
+local ttlMs = tonumber(ARGV[2])
+
+if not redis.call('ZSCORE', KEYS[1], userId) then
+    return 0
+end
+if redis.call('SADD', KEYS[2], userId) == 0 then
+    return 0
+end
+
+redis.call('HINCRBY', KEYS[3], 'converted', 1)
+redis.call('PEXPIRE', KEYS[2], ttlMs)
+redis.call('PEXPIRE', KEYS[3], ttlMs)
+return 1
@@ -1,35 +1,58 @@
 -- queue_check.lua: Atomic check/status for queue service
 -- Replaces 5-6 individual Redis round-trips with a single Lua call
 --
--- KEYS[1] = {eventId}:queue       (ZSET: waiting queue, score=join timestamp or VWR position)
+-- KEYS[1] = {eventId}:queue       (ZSET: waiting queue, score=join timestamp, VWR position or ticket number)
 -- KEYS[2] = {eventId}:active      (ZSET: active users, score=expiry timestamp)
 -- KEYS[3] = {eventId}:seen        (ZSET: queue heartbeat tracking)
 -- KEYS[4] = {eventId}:active-seen (ZSET: active heartbeat tracking)
 -- KEYS[5] = {eventId}:threshold   (STRING: per-event threshold, optional)
+-- KEYS[6] = {eventId}:serving     (STRING: last ticket number admitted, ticket mode)
+-- KEYS[7] = {eventId}:seen:prev   (SET: previous heartbeat generation, compact members only)
 --
 -- ARGV[1] = userId
 -- ARGV[2] = now (ms)
 -- ARGV[3] = defaultThreshold
 -- ARGV[4] = activeTtlMs
+-- ARGV[5] = ticketMode ('1' = position from ticket numbers, '0' = ZRANK)
 --
--- Returns: [inQueue, inActive, position, queueSize, activeCount, threshold]
+-- Returns: [inQueue, inActive, position, queueSize, activeCount, threshold, queueScore]
 --   inQueue:     1 if user is in queue, 0 otherwise
 --   inActive:    1 if user is active (non-expired), 0 otherwise
 --   position:    1-based queue position (0 if not in queue)
+--                ticket mode: ticket - serving (upper bound, O(1))
 --   queueSize:   total queue size
 --   activeCount: count of non-expired active users
 --   threshold:   per-event or default threshold
+--   queueScore:  user's queue score (0 if not in queue), used to rank across shards
 
 local queueKey      = KEYS[1]
 local activeKey     = KEYS[2]
 local queueSeenKey  = KEYS[3]
 local activeSeenKey = KEYS[4]
 local thresholdKey  = KEYS[5]
+local servingKey    = KEYS[6]
 
 local userId           = ARGV[1]
 local now              = tonumber(ARGV[2])
 local defaultThreshold = tonumber(ARGV[3])
 local activeTtlMs      = tonumber(ARGV[4])
+local ticketMode       = ARGV[5] == '1'
+
+-- Compact members: queueSeenKey is the current heartbeat generation SET and KEYS[7] the
+-- previous one (see seen_rotate.lua); otherwise queueSeenKey is a ZSET scored by last heartbeat
+local seenPrevKey = KEYS[7]
+local function touchSeen(member)
+    if not seenPrevKey then
+        redis.call('ZADD', queueSeenKey, now, member)
+    elseif redis.call('SADD', queueSeenKey, member) == 1 then
+        redis.call('SREM', seenPrevKey, member)
+    end
+end
+
+local serving = 0
+if ticketMode then
+    serving = tonumber(redis.call('GET', servingKey) or '0')
+end
 
 -- 1. Check threshold
 local customThreshold = redis.call('GET', thresholdKey)
@@ -42,10 +65,15 @@ local position = 0
 if queueScore then
     inQueue = 1
     -- Touch heartbeat
-    redis.call('ZADD', queueSeenKey, now, userId)
-    -- Get position (0-based rank → 1-based position)
-    local rank = redis.call('ZRANK', queueKey, userId)
-    position = rank and (rank + 1) or 0
+    touchSeen(userId)
+    if ticketMode then
+        -- Score is the ticket number; users who left ahead still count (never under-reports)
+        position = math.max(1, tonumber(queueScore) - serving)
+    else
+        -- Get position (0-based rank → 1-based position)
+        local rank = redis.call('ZRANK', queueKey, userId)
+        position = rank and (rank + 1) or 0
+    end
 end
 
 -- 3. Check if user is active (non-expired)
@@ -64,4 +92,5 @@ local queueSize = redis.call('ZCARD', queueKey)
 -- 5. Active count (non-expired only)
 local activeCount = redis.call('ZCOUNT', activeKey, now, '+inf')
 
-return {inQueue, inActive, position, queueSize, activeCount, threshold}
+return {inQueue, inActive, position, queueSize, activeCount, threshold,
+        queueScore and tonumber(queueScore) or 0}
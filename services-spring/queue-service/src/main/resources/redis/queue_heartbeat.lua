@@ -0,0 +1,42 @@
+-- queue_heartbeat.lua: Single-call heartbeat for a waiting or active user
+--
+-- KEYS[1] = {eventId}:queue       (ZSET: waiting queue)
+-- KEYS[2] = {eventId}:seen        (ZSET: queue heartbeat tracking)
+-- KEYS[3] = {eventId}:active      (ZSET: active users, score=expiry timestamp)
+-- KEYS[4] = {eventId}:active-seen (ZSET: active heartbeat tracking)
+-- KEYS[5] = {eventId}:seen:prev   (SET: previous heartbeat generation, compact members only)
+--
+-- ARGV[1] = userId
+-- ARGV[2] = now (ms)
+-- ARGV[3] = activeTtlMs
+--
+-- Returns: 1 = queued (seen touched), 2 = active (seen touched, expiry refreshed), 0 = neither
+
+local userId      = ARGV[1]
+local now         = tonumber(ARGV[2])
+local activeTtlMs = tonumber(ARGV[3])
+
+-- Compact members: KEYS[2] is the current heartbeat generation SET and KEYS[5] the
+-- previous one (see seen_rotate.lua); otherwise KEYS[2] is a ZSET scored by last heartbeat
+local seenPrevKey = KEYS[5]
+local function touchSeen(member)
+    if not seenPrevKey then
+        redis.call('ZADD', KEYS[2], now, member)
+    elseif redis.call('SADD', KEYS[2], member) == 1 then
+        redis.call('SREM', seenPrevKey, member)
+    end
+end
+
+if redis.call('ZSCORE', KEYS[1], userId) then
+    touchSeen(userId)
+    return 1
+end
+
+local activeScore = redis.call('ZSCORE', KEYS[3], userId)
+if activeScore and tonumber(activeScore) > now then
+    redis.call('ZADD', KEYS[4], now, userId)
+    redis.call('ZADD', KEYS[3], now + activeTtlMs, userId)
+    return 2
+end
+
+return 0
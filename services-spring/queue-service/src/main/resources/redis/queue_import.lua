@@ -0,0 +1,62 @@
+-- queue_import.lua: Bulk import of waiters into one shard's queue
+-- Used by the VWR Tier 1 -> Tier 2 handoff (score = VWR position) and by the degraded-mode
+-- drain (score = local join time). Users who are queued keep their score; active users are skipped.
+-- Ticket mode '1': the given scores only fix the order and each new waiter is issued the next
+-- ticket (degraded drain). Ticket mode '2': the scores are VWR positions and are used as the
+-- tickets, the same as queue_join.lua does for a single handed-off user.
+--
+-- KEYS[1] = {eventId}:queue       (ZSET: waiting queue)
+-- KEYS[2] = {eventId}:active      (ZSET: active users, score=expiry timestamp)
+-- KEYS[3] = {eventId}:seen        (ZSET: queue heartbeat tracking)
+-- KEYS[4] = {eventId}:seq         (STRING: last ticket number issued, ticket mode)
+-- KEYS[5] = {eventId}:seen:prev   (SET: previous heartbeat generation, compact members only)
+--
+-- ARGV[1] = now (ms)
+-- ARGV[2] = ticketMode ('0' = off, '1' = issue ticket numbers, '2' = scores are tickets)
+-- ARGV[3] = shard
+-- ARGV[4] = shardCount (tickets are interleaved as k*shardCount + shard)
+-- ARGV[5..] = member, score pairs
+--
+-- Returns: number of users added to the queue
+
+local queueKey     = KEYS[1]
+local activeKey    = KEYS[2]
+local queueSeenKey = KEYS[3]
+local seqKey       = KEYS[4]
+local seenPrevKey  = KEYS[5]
+local now          = tonumber(ARGV[1])
+local ticketMode   = ARGV[2]
+local shard        = tonumber(ARGV[3])
+local shardCount   = tonumber(ARGV[4])
+
+local function touchSeen(member)
+    if not seenPrevKey then
+        redis.call('ZADD', queueSeenKey, now, member)
+    elseif redis.call('SADD', queueSeenKey, member) == 1 then
+        redis.call('SREM', seenPrevKey, member)
+    end
+end
+
+local added = 0
+for i = 5, #ARGV, 2 do
+    local member = ARGV[i]
+    local activeScore = redis.call('ZSCORE', activeKey, member)
+    local waiting = redis.call('ZSCORE', queueKey, member)
+    if not waiting and not (activeScore and tonumber(activeScore) > now) then
+        local score = ARGV[i + 1]
+        if ticketMode == '1' then
+            local seq = redis.call('INCR', seqKey)
+            score = shardCount > 1 and (seq * shardCount + shard) or seq
+        elseif ticketMode == '2' then
+            local k = math.floor(tonumber(score) / shardCount)
+            if k > tonumber(redis.call('GET', seqKey) or '0') then
+                redis.call('SET', seqKey, k)
+            end
+        end
+        redis.call('ZADD', queueKey, score, member)
+        touchSeen(member)
+        added = added + 1
+    end
+end
+
+return added
@@ -0,0 +1,133 @@
+-- queue_join.lua: Atomic check-and-join for QueueService.check()
+-- Replaces queue_check + ZADD queue + ZADD seen + ZRANK + ZCARD with a single Lua call,
+-- and makes the threshold decision and the insert atomic.
+--
+-- KEYS[1] = {eventId}:queue       (ZSET: waiting queue, score=join timestamp, VWR position or ticket number)
+-- KEYS[2] = {eventId}:active      (ZSET: active users, score=expiry timestamp)
+-- KEYS[3] = {eventId}:seen        (ZSET: queue heartbeat tracking)
+-- KEYS[4] = {eventId}:active-seen (ZSET: active heartbeat tracking)
+-- KEYS[5] = {eventId}:threshold   (STRING: per-event threshold, optional)
+-- KEYS[6] = {eventId}:serving     (STRING: last ticket number admitted, ticket mode)
+-- KEYS[7] = {eventId}:seq         (STRING: last ticket number issued, ticket mode)
+-- KEYS[8] = {eventId}:seen:prev   (SET: previous heartbeat generation, compact members only)
+--
+-- ARGV[1]  = userId
+-- ARGV[2]  = now (ms)
+-- ARGV[3]  = defaultThreshold
+-- ARGV[4]  = activeTtlMs
+-- ARGV[5]  = ticketMode ('1' = score is an issued ticket number)
+-- ARGV[6]  = score (queue score for a new waiter, -1 = now; in ticket mode a VWR position is used as the ticket)
+-- ARGV[7]  = shard
+-- ARGV[8]  = shardCount (tickets are interleaved as k*shardCount + shard)
+-- ARGV[9]  = othersQueueSize   (waiters in the event's other shards, 0 when not sharded,
+--                                -1 = estimate as this shard's size times the other shards)
+-- ARGV[10] = othersActiveCount (active users in the event's other shards, -1 = estimate likewise)
+--
+-- Returns: [outcome, position, queueSize, activeCount, threshold, queueScore]
+--   outcome:     1 = already queued, 2 = already active, 3 = joined queue, 4 = admitted
+--   position:    1-based position in this shard (ticket mode: ticket - serving), 0 if not queued
+--   queueSize:   event queue size (this shard + othersQueueSize)
+--   activeCount: event active count (this shard + othersActiveCount)
+--   threshold:   per-event or default threshold
+--   queueScore:  user's queue score (0 if not queued), used to rank across shards
+
+local queueKey      = KEYS[1]
+local activeKey     = KEYS[2]
+local queueSeenKey  = KEYS[3]
+local activeSeenKey = KEYS[4]
+local thresholdKey  = KEYS[5]
+local servingKey    = KEYS[6]
+local seqKey        = KEYS[7]
+
+local userId            = ARGV[1]
+local now               = tonumber(ARGV[2])
+local defaultThreshold  = tonumber(ARGV[3])
+local activeTtlMs       = tonumber(ARGV[4])
+local ticketMode        = ARGV[5] == '1'
+local score             = tonumber(ARGV[6])
+local shard             = tonumber(ARGV[7])
+local shardCount        = tonumber(ARGV[8])
+local othersQueueSize   = tonumber(ARGV[9])
+local othersActiveCount = tonumber(ARGV[10])
+
+-- No tick snapshot yet: users hash evenly over shards, so this shard stands for each of the others
+if othersQueueSize < 0 then
+    othersQueueSize = redis.call('ZCARD', queueKey) * (shardCount - 1)
+end
+if othersActiveCount < 0 then
+    othersActiveCount = redis.call('ZCOUNT', activeKey, now, '+inf') * (shardCount - 1)
+end
+
+-- Compact members: queueSeenKey is the current heartbeat generation SET and KEYS[8] the
+-- previous one (see seen_rotate.lua); otherwise queueSeenKey is a ZSET scored by last heartbeat
+local seenPrevKey = KEYS[8]
+local function touchSeen(member)
+    if not seenPrevKey then
+        redis.call('ZADD', queueSeenKey, now, member)
+    elseif redis.call('SADD', queueSeenKey, member) == 1 then
+        redis.call('SREM', seenPrevKey, member)
+    end
+end
+
+local customThreshold = redis.call('GET', thresholdKey)
+local threshold = customThreshold and tonumber(customThreshold) or defaultThreshold
+
+local function positionOf(queueScore)
+    if ticketMode then
+        -- Score is the ticket number; users who left ahead still count (never under-reports)
+        local serving = tonumber(redis.call('GET', servingKey) or '0')
+        return math.max(1, queueScore - serving)
+    end
+    local rank = redis.call('ZRANK', queueKey, userId)
+    return rank and (rank + 1) or 0
+end
+
+local function result(outcome, position, queueScore)
+    local queueSize = redis.call('ZCARD', queueKey) + othersQueueSize
+    local activeCount = redis.call('ZCOUNT', activeKey, now, '+inf') + othersActiveCount
+    return {outcome, position, queueSize, activeCount, threshold, queueScore}
+end
+
+-- 1. Already queued: touch heartbeat
+local existing = redis.call('ZSCORE', queueKey, userId)
+if existing then
+    existing = tonumber(existing)
+    touchSeen(userId)
+    return result(1, positionOf(existing), existing)
+end
+
+-- 2. Already active (non-expired): touch heartbeat + refresh expiry
+local activeScore = redis.call('ZSCORE', activeKey, userId)
+if activeScore and tonumber(activeScore) > now then
+    redis.call('ZADD', activeSeenKey, now, userId)
+    redis.call('ZADD', activeKey, now + activeTtlMs, userId)
+    return result(2, 0, 0)
+end
+
+-- 3. Wait if anyone is queued or the event is full, otherwise enter directly
+local queueSize = redis.call('ZCARD', queueKey) + othersQueueSize
+local activeCount = redis.call('ZCOUNT', activeKey, now, '+inf') + othersActiveCount
+if queueSize > 0 or activeCount >= threshold then
+    local queueScore = score >= 0 and score or now
+    if ticketMode then
+        if score >= 0 then
+            -- VWR handoff: the Tier 1 position is the ticket, so Tier 2 keeps Tier 1 order.
+            -- Tickets are event-wide numbers (k*shardCount + shard), as VWR positions are;
+            -- seq moves past the position so later issued tickets stay behind it.
+            local k = math.floor(score / shardCount)
+            if k > tonumber(redis.call('GET', seqKey) or '0') then
+                redis.call('SET', seqKey, k)
+            end
+        else
+            local seq = redis.call('INCR', seqKey)
+            queueScore = shardCount > 1 and (seq * shardCount + shard) or seq
+        end
+    end
+    redis.call('ZADD', queueKey, queueScore, userId)
+    touchSeen(userId)
+    return result(3, positionOf(queueScore), queueScore)
+end
+
+redis.call('ZADD', activeKey, now + activeTtlMs, userId)
+redis.call('ZADD', activeSeenKey, now, userId)
+return result(4, 0, 0)
@@ -0,0 +1,31 @@
+-- queue_leave.lua: Remove a user from the queue and active set in one call
+--
+-- KEYS[1] = {eventId}:queue       (ZSET: waiting queue)
+-- KEYS[2] = {eventId}:seen        (ZSET: queue heartbeat tracking)
+-- KEYS[3] = {eventId}:active      (ZSET: active users)
+-- KEYS[4] = {eventId}:active-seen (ZSET: active heartbeat tracking)
+-- KEYS[5] = {eventId}:seen:prev   (SET: previous heartbeat generation, compact members only)
+--
+-- ARGV[1] = userId
+--
+-- Returns: [removedFromQueue, removedFromActive]
+
+local userId = ARGV[1]
+
+-- Compact members: KEYS[2] and KEYS[5] are the heartbeat generation SETs (see seen_rotate.lua)
+local seenPrevKey = KEYS[5]
+local function forgetSeen(member)
+    if seenPrevKey then
+        redis.call('SREM', KEYS[2], member)
+        redis.call('SREM', seenPrevKey, member)
+    else
+        redis.call('ZREM', KEYS[2], member)
+    end
+end
+
+local inQueue = redis.call('ZREM', KEYS[1], userId)
+forgetSeen(userId)
+local inActive = redis.call('ZREM', KEYS[3], userId)
+redis.call('ZREM', KEYS[4], userId)
+
+return {inQueue, inActive}
@@ -0,0 +1,55 @@
+-- queue_position.lua: Per-user status lookup; event-wide counts come from the local snapshot
+--
+-- KEYS[1] = {eventId}:queue       (ZSET: waiting queue)
+-- KEYS[2] = {eventId}:active      (ZSET: active users, score=expiry timestamp)
+-- KEYS[3] = {eventId}:seen        (ZSET: queue heartbeat tracking)
+-- KEYS[4] = {eventId}:active-seen (ZSET: active heartbeat tracking)
+-- KEYS[5] = {eventId}:serving     (STRING: last ticket number admitted, ticket mode)
+-- KEYS[6] = {eventId}:seen:prev   (SET: previous heartbeat generation, compact members only)
+--
+-- ARGV[1] = userId
+-- ARGV[2] = now (ms)
+-- ARGV[3] = activeTtlMs
+-- ARGV[4] = ticketMode ('1' = position from ticket numbers, '0' = ZRANK)
+--
+-- Returns: [inQueue, inActive, position, shardQueueSize]
+--   position:       1-based position within this key's queue (ticket mode: ticket - serving)
+--   shardQueueSize: ZCARD of this queue, used to scale a shard-local rank to the whole event
+
+local userId      = ARGV[1]
+local now         = tonumber(ARGV[2])
+local activeTtlMs = tonumber(ARGV[3])
+local ticketMode  = ARGV[4] == '1'
+
+-- Compact members: KEYS[3] is the current heartbeat generation SET and KEYS[6] the
+-- previous one (see seen_rotate.lua); otherwise KEYS[3] is a ZSET scored by last heartbeat
+local seenPrevKey = KEYS[6]
+local function touchSeen(member)
+    if not seenPrevKey then
+        redis.call('ZADD', KEYS[3], now, member)
+    elseif redis.call('SADD', KEYS[3], member) == 1 then
+        redis.call('SREM', seenPrevKey, member)
+    end
+end
+
+local queueScore = redis.call('ZSCORE', KEYS[1], userId)
+if queueScore then
+    touchSeen(userId)
+    local position
+    if ticketMode then
+        local serving = tonumber(redis.call('GET', KEYS[5]) or '0')
+        position = math.max(1, tonumber(queueScore) - serving)
+    else
+        position = redis.call('ZRANK', KEYS[1], userId) + 1
+    end
+    return {1, 0, position, redis.call('ZCARD', KEYS[1])}
+end
+
+local activeScore = redis.call('ZSCORE', KEYS[2], userId)
+if activeScore and tonumber(activeScore) > now then
+    redis.call('ZADD', KEYS[4], now, userId)
+    redis.call('ZADD', KEYS[2], now + activeTtlMs, userId)
+    return {0, 1, 0, 0}
+end
+
+return {0, 0, 0, 0}
@@ -0,0 +1,43 @@
+-- seen_rotate.lua: Stale waiter cleanup for the compact heartbeat layout
+-- Heartbeats SADD into :seen:cur and drop the member from :seen:prev. Every generationMs
+-- whatever is still in :seen:prev went a whole generation without a heartbeat: it is
+-- removed from the queue, then :seen:cur becomes :seen:prev. A silent waiter is removed
+-- between one and two generations after its last heartbeat.
+--
+-- KEYS[1] = {eventId}:queue            (ZSET: waiting queue)
+-- KEYS[2] = {eventId}:seen:cur         (SET: current heartbeat generation)
+-- KEYS[3] = {eventId}:seen:prev        (SET: previous heartbeat generation)
+-- KEYS[4] = {eventId}:seen:rotated-at  (STRING: last rotation time ms)
+--
+-- ARGV[1] = now (ms)
+-- ARGV[2] = generationMs
+-- ARGV[3] = batchSize (max stale members removed per call)
+--
+-- Returns: [removed]  (removed == batchSize means call again)
+
+local now = tonumber(ARGV[1])
+local generationMs = tonumber(ARGV[2])
+local batchSize = tonumber(ARGV[3])
+
+local rotatedAt = redis.call('GET', KEYS[4])
+if not rotatedAt then
+    redis.call('SET', KEYS[4], now)
+    return {0}
+end
+if now - tonumber(rotatedAt) < generationMs then
+    return {0}
+end
+
+local stale = redis.call('SPOP', KEYS[3], batchSize)
+if #stale > 0 then
+    redis.call('ZREM', KEYS[1], unpack(stale))
+end
+if #stale == batchSize then
+    return {#stale}
+end
+
+if redis.call('EXISTS', KEYS[2]) == 1 then
+    redis.call('RENAME', KEYS[2], KEYS[3])
+end
+redis.call('SET', KEYS[4], now)
+return {#stale}
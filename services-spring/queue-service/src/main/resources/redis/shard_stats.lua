@@ -0,0 +1,38 @@
+-- shard_stats.lua: Read-only stats for one sub-queue of a sharded event
+-- Used to aggregate position/size across shards and to peek shard heads for admission
+--
+-- KEYS[1] = {eventId:shard}:queue   (ZSET: waiting queue)
+-- KEYS[2] = {eventId:shard}:active  (ZSET: active users, score=expiry timestamp)
+--
+-- ARGV[1] = score      (count members strictly ahead of this score, -1 to skip)
+-- ARGV[2] = now (ms)
+-- ARGV[3] = peekLimit  (number of head scores to return, 0 for none)
+--
+-- Returns: [countBefore, queueSize, activeCount, headScore1, headScore2, ...]
+
+local queueKey  = KEYS[1]
+local activeKey = KEYS[2]
+
+local score     = tonumber(ARGV[1])
+local now       = tonumber(ARGV[2])
+local peekLimit = tonumber(ARGV[3])
+
+local countBefore = 0
+if score >= 0 then
+    countBefore = redis.call('ZCOUNT', queueKey, '-inf', '(' .. ARGV[1])
+end
+
+local result = {
+    countBefore,
+    redis.call('ZCARD', queueKey),
+    redis.call('ZCOUNT', activeKey, now, '+inf')
+}
+
+if peekLimit > 0 then
+    local head = redis.call('ZRANGE', queueKey, 0, peekLimit - 1, 'WITHSCORES')
+    for i = 2, #head, 2 do
+        result[#result + 1] = tonumber(head[i])
+    end
+end
+
+return result
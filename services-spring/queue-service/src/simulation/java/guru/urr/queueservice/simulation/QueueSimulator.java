@@ -0,0 +1,538 @@
+package guru.urr.queueservice.simulation;
+
+import guru.urr.queueservice.service.WaitPolicy;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Discrete-event simulation of one event's queue, for tuning QUEUE_THRESHOLD,
+ * queue.admission.batch-size / interval-ms and the nextPoll tiers before an on-sale.
+ *
+ * Clients follow production pacing: they join with check(), then poll status() after the
+ * nextPoll seconds of WaitPolicy, and every poll refreshes their heartbeat. The admission
+ * tick mirrors admission_control.lua (expire active, ZPOPMIN up to min(batch, threshold -
+ * active), time-weighted EWMA rate) and stale cleanup mirrors stale_cleanup.lua: a waiter
+ * whose last heartbeat is seen-ttl old is dropped by the next cleanup pass. Waiters may
+ * leave (abandon-rate) or close the tab and stop polling (heartbeat-loss-rate); admitted
+ * users either free their slot after a booking session or hold it until the active TTL.
+ *
+ * Arrivals are generated in join order, so a waiter's queue position is the number of
+ * waiters ahead of its arrival index (Fenwick tree); all other events sit in one heap of
+ * packed longs. A million users run in a few seconds. Redis calls are counted per script,
+ * one per client request and one per admission tick or cleanup pass (single shard,
+ * default member encoding).
+ *
+ * Run with: ./gradlew simulate --args="users=2000000 threshold=2000 batch-size=200"
+ */
+public final class QueueSimulator {
+
+    private static final int CLEANUP_BATCH_SIZE = 1000;
+    private static final int NEVER = Integer.MAX_VALUE;
+
+    private static final byte NOT_ARRIVED = 0;
+    private static final byte WAITING = 1;
+    private static final byte ACTIVE = 2;
+    private static final byte DONE = 3;
+
+    private static final byte PATIENT = 0;
+    private static final byte LEAVES = 1;
+    private static final byte VANISHES = 2;
+
+    // Scheduled entries: type << 26 | user
+    private static final int POLL = 0;
+    private static final int GIVE_UP = 1;
+    private static final int RELEASE = 2;
+    private static final int EVICT = 3;
+    private static final int USER_BITS = 26;
+    private static final long USER_MASK = (1L << USER_BITS) - 1;
+
+    private static final String[] SCRIPTS = {"queue_join", "queue_check", "queue_leave", "release_active",
+        "admission_control", "stale_cleanup"};
+    private static final int OP_JOIN = 0;
+    private static final int OP_STATUS = 1;
+    private static final int OP_LEAVE = 2;
+    private static final int OP_RELEASE = 3;
+    private static final int OP_ADMISSION = 4;
+    private static final int OP_STALE = 5;
+
+    private final SimulationConfig config;
+    private final SplittableRandom random;
+    private final int users;
+    private final long activeTtlMs;
+    private final long seenTtlMs;
+
+    private final int[] arrivalMs;
+    private final int[] giveUpMs;
+    private final int[] lastSeenMs;
+    private final int[] admittedMs;
+    private final int[] firstEstimateSeconds;
+    private final byte[] state;
+    private final byte[] behaviour;
+    private final boolean[] noShow;
+    private final int[] waiting;
+    private final int[] admitOrder;
+    private final EventWheel events = new EventWheel();
+
+    private int arrived;
+    private int queueHead;
+    private int waitingCount;
+    private int activeCount;
+    private int admittedCount;
+    private int expiryHead;
+    private double admitRate;
+    private long rateAt = -1;
+
+    private final long[] opsByScript = new long[SCRIPTS.length];
+    private long[] opsPerSecond = new long[1024];
+    private int removedSinceCleanup;
+    private int peakWaiting;
+    private int left;
+    private int vanished;
+    private int staleRemoved;
+    private int evictedWhilePolling;
+    private int released;
+    private int expired;
+
+    QueueSimulator(SimulationConfig config) {
+        this.config = config;
+        this.random = new SplittableRandom(config.seed());
+        this.users = config.users();
+        this.activeTtlMs = config.activeTtlSeconds() * 1000L;
+        this.seenTtlMs = config.seenTtlSeconds() * 1000L;
+        this.arrivalMs = new int[users];
+        this.giveUpMs = new int[users];
+        this.lastSeenMs = new int[users];
+        this.admittedMs = new int[users];
+        this.firstEstimateSeconds = new int[users];
+        this.state = new byte[users];
+        this.behaviour = new byte[users];
+        this.noShow = new boolean[users];
+        this.waiting = new int[users + 1];
+        this.admitOrder = new int[users];
+        generateUsers();
+    }
+
+    public static void main(String[] args) {
+        SimulationConfig config = SimulationConfig.parse(args);
+        long start = System.nanoTime();
+        QueueSimulator simulator = new QueueSimulator(config);
+        long simulatedMs = simulator.run();
+        simulator.report(System.out, simulatedMs, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void generateUsers() {
+        long spanMs = config.arrivalSeconds() * 1000L;
+        double tau = spanMs / 5.0;
+        double spikeMass = 1 - Math.exp(-spanMs / Math.max(tau, 1));
+        double abandonBelow = config.abandonRate();
+        double vanishBelow = abandonBelow + config.heartbeatLossRate();
+        for (int u = 0; u < users; u++) {
+            // (u + r) / users is increasing in u, so arrivals come out sorted
+            double quantile = (u + random.nextDouble()) / users;
+            arrivalMs[u] = (int) (config.arrival().equals("spike") && spanMs > 0
+                ? -tau * Math.log(1 - quantile * spikeMass)
+                : quantile * spanMs);
+            double draw = random.nextDouble();
+            behaviour[u] = draw < abandonBelow ? LEAVES : draw < vanishBelow ? VANISHES : PATIENT;
+            giveUpMs[u] = behaviour[u] == PATIENT
+                ? NEVER
+                : (int) Math.min(NEVER - 1L, arrivalMs[u] + exponential(config.patienceSeconds() * 1000.0));
+            noShow[u] = random.nextDouble() < config.noShowRate();
+        }
+    }
+
+    /** Runs until every arrival has joined and the queue is empty; returns the simulated time in ms. */
+    long run() {
+        long endMs = config.maxHours() * 3_600_000L;
+        long nextTick = config.intervalMs();
+        long nextCleanup = config.staleCleanupMs();
+        long now = 0;
+        while (now < endMs && (arrived < users || waitingCount > 0)) {
+            long nextArrival = arrived < users ? arrivalMs[arrived] : Long.MAX_VALUE;
+            long limit = Math.min(nextArrival, Math.min(nextTick, nextCleanup));
+            long nextEvent = events.peekTime(limit);
+            now = Math.min(nextEvent, limit);
+            if (nextEvent == now) {
+                int entry = events.poll();
+                handle(entry >>> USER_BITS, (int) (entry & USER_MASK), (int) now);
+            } else if (nextArrival == now) {
+                join(arrived++, (int) now);
+            } else if (nextTick == now) {
+                admit((int) now);
+                nextTick += config.intervalMs();
+            } else {
+                cleanup(now);
+                nextCleanup += config.staleCleanupMs();
+            }
+        }
+        return now;
+    }
+
+    private void join(int u, int now) {
+        count(OP_JOIN, now);
+        expireActive(now);
+        if (waitingCount == 0 && activeCount < config.threshold()) {
+            // queue_join.lua admits directly while nobody waits and a slot is free
+            activate(u, now);
+            notice(u, now);
+            return;
+        }
+        state[u] = WAITING;
+        add(u, 1);
+        waitingCount++;
+        peakWaiting = Math.max(peakWaiting, waitingCount);
+        lastSeenMs[u] = now;
+        int position = rank(u);
+        firstEstimateSeconds[u] = WaitPolicy.estimateWaitSeconds(position, admitRate);
+        scheduleNext(u, now, WaitPolicy.nextPollSeconds(position));
+    }
+
+    private void handle(int type, int u, int now) {
+        switch (type) {
+            case POLL -> {
+                if (state[u] == WAITING) {
+                    count(OP_STATUS, now);
+                    lastSeenMs[u] = now;
+                    scheduleNext(u, now, WaitPolicy.nextPollSeconds(rank(u)));
+                } else if (state[u] == ACTIVE) {
+                    // First poll after admission: the user gets the entry token and starts booking
+                    count(OP_STATUS, now);
+                    notice(u, now);
+                }
+            }
+            case GIVE_UP -> {
+                if (behaviour[u] == LEAVES && state[u] != DONE) {
+                    count(OP_LEAVE, now);
+                    if (state[u] == WAITING) {
+                        dequeue(u);
+                        left++;
+                    } else {
+                        deactivate(u);
+                        released++;
+                    }
+                } else if (behaviour[u] == VANISHES && state[u] == WAITING) {
+                    // Tab closed: stays queued until stale cleanup, or is admitted and holds a slot until the TTL
+                    vanished++;
+                    long staleAt = staleAt(u);
+                    if (staleAt < NEVER) {
+                        events.add(staleAt, entry(EVICT, u));
+                    }
+                }
+            }
+            case RELEASE -> {
+                if (state[u] == ACTIVE) {
+                    count(OP_RELEASE, now);
+                    deactivate(u);
+                    released++;
+                }
+            }
+            default -> {
+                if (state[u] == WAITING) {
+                    dequeue(u);
+                    removedSinceCleanup++;
+                    if (behaviour[u] == VANISHES && now >= giveUpMs[u]) {
+                        staleRemoved++;
+                    } else {
+                        // Still polling, but seen-ttl is shorter than its poll interval
+                        evictedWhilePolling++;
+                    }
+                }
+            }
+        }
+    }
+
+    /** Next poll, unless the user gives up or is dropped as stale before it. */
+    private void scheduleNext(int u, int now, int pollSeconds) {
+        long pollAt = now + pollSeconds * 1000L;
+        long staleAt = staleAt(u);
+        long giveUpAt = giveUpMs[u];
+        if (staleAt < pollAt && staleAt < giveUpAt) {
+            events.add(staleAt, entry(EVICT, u));
+        } else if (giveUpAt <= pollAt) {
+            events.add(giveUpAt, entry(GIVE_UP, u));
+        } else {
+            events.add(pollAt, entry(POLL, u));
+        }
+    }
+
+    /** First cleanup pass that sees the user's last heartbeat as stale (passes run every stale-cleanup-ms). */
+    private long staleAt(int u) {
+        long cutoffReached = lastSeenMs[u] + seenTtlMs;
+        long interval = config.staleCleanupMs();
+        return Math.max(interval, (cutoffReached + interval - 1) / interval * interval);
+    }
+
+    private void notice(int u, int now) {
+        if (!noShow[u]) {
+            long releaseAt = now + (long) exponential(config.sessionSeconds() * 1000.0);
+            if (releaseAt < NEVER) {
+                events.add(releaseAt, entry(RELEASE, u));
+            }
+        }
+    }
+
+    /** One admission tick, as admission_control.lua. */
+    private void admit(int now) {
+        if (arrived == 0) {
+            return;
+        }
+        count(OP_ADMISSION, now);
+        expireActive(now);
+        int slots = Math.min(config.batchSize(), config.threshold() - activeCount);
+        int admitted = 0;
+        while (admitted < slots && queueHead < arrived) {
+            int u = queueHead++;
+            if (state[u] == WAITING) {
+                dequeue(u);
+                activate(u, now);
+                admitted++;
+            }
+        }
+        updateRate(admitted, now);
+    }
+
+    // Time-weighted EWMA as updateRate in admission_control.lua
+    private void updateRate(int admitted, long now) {
+        if (rateAt >= 0 && now > rateAt) {
+            double instant = admitted * 1000.0 / (now - rateAt);
+            admitRate += (1 - Math.exp(-(double) (now - rateAt) / config.rateTauMs())) * (instant - admitRate);
+        }
+        rateAt = now;
+    }
+
+    private void cleanup(long now) {
+        if (arrived == 0) {
+            return;
+        }
+        count(OP_STALE, now, 1 + removedSinceCleanup / CLEANUP_BATCH_SIZE);
+        removedSinceCleanup = 0;
+    }
+
+    private void expireActive(long now) {
+        while (expiryHead < admittedCount && admittedMs[admitOrder[expiryHead]] + activeTtlMs <= now) {
+            int u = admitOrder[expiryHead++];
+            if (state[u] == ACTIVE) {
+                deactivate(u);
+                expired++;
+            }
+        }
+    }
+
+    private void activate(int u, int now) {
+        state[u] = ACTIVE;
+        admittedMs[u] = now;
+        admitOrder[admittedCount++] = u;
+        activeCount++;
+    }
+
+    private void deactivate(int u) {
+        state[u] = DONE;
+        activeCount--;
+    }
+
+    private void dequeue(int u) {
+        state[u] = DONE;
+        add(u, -1);
+        waitingCount--;
+    }
+
+    private void count(int script, long now) {
+        count(script, now, 1);
+    }
+
+    private void count(int script, long now, int calls) {
+        opsByScript[script] += calls;
+        int second = (int) (now / 1000);
+        if (second >= opsPerSecond.length) {
+            opsPerSecond = Arrays.copyOf(opsPerSecond, Math.max(second + 1, opsPerSecond.length * 2));
+        }
+        opsPerSecond[second] += calls;
+    }
+
+    private double exponential(double mean) {
+        return -mean * Math.log(1 - random.nextDouble());
+    }
+
+    private static int entry(int type, int u) {
+        return type << USER_BITS | u;
+    }
+
+    // Fenwick tree over arrival order: rank(u) = waiters with an arrival index <= u
+
+    private void add(int u, int delta) {
+        for (int i = u + 1; i <= users; i += i & -i) {
+            waiting[i] += delta;
+        }
+    }
+
+    private int rank(int u) {
+        int sum = 0;
+        for (int i = u + 1; i > 0; i -= i & -i) {
+            sum += waiting[i];
+        }
+        return sum;
+    }
+
+    void report(PrintStream out, long simulatedMs, long wallMs) {
+        int[] waits = new int[admittedCount];
+        double[] etaErrors = new double[admittedCount];
+        int queued = 0;
+        for (int i = 0; i < admittedCount; i++) {
+            int u = admitOrder[i];
+            waits[i] = admittedMs[u] - arrivalMs[u];
+            if (firstEstimateSeconds[u] > 0) {
+                etaErrors[queued++] = Math.abs(firstEstimateSeconds[u] - waits[i] / 1000.0);
+            }
+        }
+        Arrays.sort(waits);
+        double[] errors = Arrays.copyOf(etaErrors, queued);
+        Arrays.sort(errors);
+
+        int lastSecond = (int) Math.min(opsPerSecond.length - 1, simulatedMs / 1000);
+        long totalOps = Arrays.stream(opsByScript).sum();
+        long peakOps = 0;
+        for (int s = 0; s <= lastSecond; s++) {
+            peakOps = Math.max(peakOps, opsPerSecond[s]);
+        }
+
+        out.printf("simulated %d users (%s arrival over %ds) in %d ms wall time%n",
+            users, config.arrival(), config.arrivalSeconds(), wallMs);
+        out.printf("settings: threshold=%d batch-size=%d interval-ms=%d active-ttl=%ds seen-ttl=%ds stale-cleanup-ms=%d%n",
+            config.threshold(), config.batchSize(), config.intervalMs(), config.activeTtlSeconds(),
+            config.seenTtlSeconds(), config.staleCleanupMs());
+        if (waitingCount > 0 || arrived < users) {
+            out.printf("NOT DRAINED after %d h: %d still waiting%n", config.maxHours(), waitingCount + users - arrived);
+        } else {
+            out.printf("drain time: %.1f s (queue peak %d)%n", simulatedMs / 1000.0, peakWaiting);
+        }
+        out.printf("admitted=%d left=%d heartbeat-lost=%d stale-removed=%d evicted-while-polling=%d%n",
+            admittedCount, left, vanished, staleRemoved, evictedWhilePolling);
+        out.printf("active slots freed: released=%d ttl-expired=%d%n", released, expired);
+        out.printf("wait (s): p50=%.1f p90=%.1f p99=%.1f max=%.1f%n",
+            percentile(waits, 0.50) / 1000.0, percentile(waits, 0.90) / 1000.0,
+            percentile(waits, 0.99) / 1000.0, (waits.length == 0 ? 0 : waits[waits.length - 1]) / 1000.0);
+        out.printf("first ETA error (s): p50=%.0f p90=%.0f%n", percentile(errors, 0.50), percentile(errors, 0.90));
+        out.printf("redis calls: total=%d avg=%.0f/s peak=%d/s%n",
+            totalOps, totalOps / Math.max(1.0, simulatedMs / 1000.0), peakOps);
+        for (int i = 0; i < SCRIPTS.length; i++) {
+            out.printf("  %-18s %d%n", SCRIPTS[i], opsByScript[i]);
+        }
+    }
+
+    private static double percentile(int[] sorted, double p) {
+        return sorted.length == 0 ? 0 : sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+
+    private static double percentile(double[] sorted, double p) {
+        return sorted.length == 0 ? 0 : sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+
+    /**
+     * Timing wheel with one slot per millisecond for the next 65 s (every poll interval fits);
+     * later entries wait in an overflow heap until they come within range. Entries due in
+     * the same millisecond run in scheduling order.
+     */
+    private static final class EventWheel {
+        private static final int SLOTS = 1 << 16;
+        private static final int SLOT_MASK = SLOTS - 1;
+
+        private final int[][] slots = new int[SLOTS][];
+        private final int[] sizes = new int[SLOTS];
+        private final LongHeap overflow = new LongHeap();
+        private long cursor;
+        private int read;
+
+        /** timeMs must not be before the time of the entry being handled. */
+        void add(long timeMs, int entry) {
+            if (timeMs - cursor >= SLOTS) {
+                overflow.add(timeMs << 32 | entry);
+                return;
+            }
+            int slot = (int) (timeMs & SLOT_MASK);
+            int[] entries = slots[slot];
+            if (entries == null) {
+                entries = slots[slot] = new int[8];
+            } else if (sizes[slot] == entries.length) {
+                entries = slots[slot] = Arrays.copyOf(entries, entries.length * 2);
+            }
+            entries[sizes[slot]++] = entry;
+        }
+
+        /** Time of the next entry, or Long.MAX_VALUE if there is none up to limit. */
+        long peekTime(long limit) {
+            while (true) {
+                int slot = (int) (cursor & SLOT_MASK);
+                if (read < sizes[slot]) {
+                    return cursor;
+                }
+                if (cursor >= limit) {
+                    return Long.MAX_VALUE;
+                }
+                sizes[slot] = 0;
+                read = 0;
+                cursor++;
+                while (!overflow.isEmpty() && (overflow.peek() >>> 32) - cursor < SLOTS) {
+                    long due = overflow.poll();
+                    add(due >>> 32, (int) due);
+                }
+            }
+        }
+
+        /** Next entry at peekTime(); call only after peekTime returned a time. */
+        int poll() {
+            return slots[(int) (cursor & SLOT_MASK)][read++];
+        }
+    }
+
+    /** Binary min-heap of primitive longs. */
+    /** Binary min-heap of primitive longs. */
+    private static final class LongHeap {
+        private long[] heap = new long[1024];
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long peek() {
+            return heap[0];
+        }
+
+        void add(long value) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent] <= value) {
+                    break;
+                }
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = value;
+        }
+
+        long poll() {
+            long top = heap[0];
+            long last = heap[--size];
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && heap[child + 1] < heap[child]) {
+                    child++;
+                }
+                if (last <= heap[child]) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = last;
+            return top;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package guru.urr.queueservice.simulation;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One simulated on-sale: arrival curve, user behaviour and the queue settings under test.
+ * Settings use the names of the queue-service properties they stand for.
+ */
+record SimulationConfig(
+    int users,
+    String arrival,
+    int arrivalSeconds,
+    int threshold,
+    int batchSize,
+    int intervalMs,
+    int activeTtlSeconds,
+    int seenTtlSeconds,
+    int staleCleanupMs,
+    int rateTauMs,
+    double abandonRate,
+    double heartbeatLossRate,
+    int patienceSeconds,
+    double noShowRate,
+    int sessionSeconds,
+    int maxHours,
+    long seed
+) {
+
+    static final int MAX_USERS = 1 << 26;
+
+    private static final Set<String> KEYS = Set.of(
+        "users", "arrival", "arrival-seconds", "threshold", "batch-size", "interval-ms",
+        "active-ttl-seconds", "seen-ttl-seconds", "stale-cleanup-ms", "rate-tau-ms",
+        "abandon-rate", "heartbeat-loss-rate", "patience-seconds", "no-show-rate",
+        "session-seconds", "max-hours", "seed");
+
+    SimulationConfig {
+        if (users <= 0 || users > MAX_USERS) {
+            throw new IllegalArgumentException("users must be between 1 and " + MAX_USERS);
+        }
+        if (!arrival.equals("uniform") && !arrival.equals("spike")) {
+            throw new IllegalArgumentException("arrival must be uniform or spike");
+        }
+        if (arrivalSeconds < 0 || threshold <= 0 || batchSize <= 0 || intervalMs <= 0 || activeTtlSeconds <= 0
+                || seenTtlSeconds <= 0 || staleCleanupMs <= 0 || rateTauMs <= 0 || patienceSeconds <= 0
+                || sessionSeconds <= 0 || maxHours <= 0 || maxHours > 24 * 20) {
+            throw new IllegalArgumentException("durations, threshold and batch-size must be positive, max-hours at most 480");
+        }
+        if (arrivalSeconds > maxHours * 3600L) {
+            throw new IllegalArgumentException("arrival-seconds must fit within max-hours");
+        }
+        if (abandonRate < 0 || heartbeatLossRate < 0 || abandonRate + heartbeatLossRate > 1
+                || noShowRate < 0 || noShowRate > 1) {
+            throw new IllegalArgumentException("rates must be in [0, 1] and abandon-rate + heartbeat-loss-rate <= 1");
+        }
+    }
+
+    /** Parses key=value arguments; anything not given keeps the queue-service default. */
+    static SimulationConfig parse(String... args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            String key = eq > 0 ? arg.substring(0, eq).replaceFirst("^--", "") : arg;
+            if (eq <= 0 || !KEYS.contains(key)) {
+                throw new IllegalArgumentException("Unknown argument: " + arg + " (expected key=value, keys: " + KEYS + ")");
+            }
+            values.put(key, arg.substring(eq + 1));
+        }
+        return new SimulationConfig(
+            intValue(values, "users", 100_000),
+            values.getOrDefault("arrival", "spike"),
+            intValue(values, "arrival-seconds", 300),
+            intValue(values, "threshold", 1000),
+            intValue(values, "batch-size", 100),
+            intValue(values, "interval-ms", 1000),
+            intValue(values, "active-ttl-seconds", 600),
+            intValue(values, "seen-ttl-seconds", 600),
+            intValue(values, "stale-cleanup-ms", 30000),
+            intValue(values, "rate-tau-ms", 30000),
+            doubleValue(values, "abandon-rate", 0.1),
+            doubleValue(values, "heartbeat-loss-rate", 0.1),
+            intValue(values, "patience-seconds", 900),
+            doubleValue(values, "no-show-rate", 0.2),
+            intValue(values, "session-seconds", 180),
+            intValue(values, "max-hours", 48),
+            Long.parseLong(values.getOrDefault("seed", "42"))
+        );
+    }
+
+    private static int intValue(Map<String, String> values, String key, int defaultValue) {
+        String value = values.get(key);
+        return value == null ? defaultValue : Integer.parseInt(value.replace("_", ""));
+    }
+
+    private static double doubleValue(Map<String, String> values, String key, double defaultValue) {
+        String value = values.get(key);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+}
@@ -0,0 +1,127 @@
+package guru.urr.queueservice.integration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import guru.urr.queueservice.config.RedisConfig;
+import guru.urr.queueservice.service.DegradedQueue;
+import guru.urr.queueservice.service.EntryTokenGenerator;
+import guru.urr.queueservice.service.EventQueueSnapshot;
+import guru.urr.queueservice.service.EventThroughputCache;
+import guru.urr.queueservice.service.QueueKeys;
+import guru.urr.queueservice.service.QueueService;
+import guru.urr.queueservice.service.SqsPublisher;
+import guru.urr.queueservice.shared.client.EventQueueInfoCache;
+import guru.urr.queueservice.shared.metrics.QueueMetrics;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Runs queue_join.lua through QueueService.check against a real Redis, including the sharded
+ * join that estimates the other shards in the script before the first admission tick.
+ */
+@Testcontainers
+@Tag("integration")
+class QueueJoinScriptRedisTest {
+
+    @Container
+    private static final GenericContainer<?> redis =
+            new GenericContainer<>("redis:7.2-alpine").withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(redis.getHost(), redis.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    private static QueueService queueService(QueueKeys queueKeys, int threshold) {
+        RedisConfig scripts = new RedisConfig();
+        return new QueueService(
+                redisTemplate,
+                mock(EventQueueInfoCache.class),
+                mock(SqsPublisher.class),
+                scripts.queueCheckScript(),
+                scripts.queuePositionScript(),
+                scripts.queueJoinScript(),
+                scripts.queueHeartbeatScript(),
+                scripts.queueLeaveScript(),
+                queueKeys,
+                mock(QueueMetrics.class),
+                mock(EntryTokenGenerator.class),
+                mock(EventThroughputCache.class),
+                new EventQueueSnapshot(3000, 100),
+                mock(DegradedQueue.class),
+                threshold,
+                600,
+                false
+        );
+    }
+
+    @Test
+    void check_admitsUpToThresholdThenQueuesInJoinOrder() {
+        QueueService queueService = queueService(new QueueKeys(1, false), 2);
+        UUID eventId = UUID.randomUUID();
+
+        assertEquals("active", queueService.check(eventId, "user-1").get("status"));
+        assertEquals("active", queueService.check(eventId, "user-2").get("status"));
+        Map<String, Object> third = queueService.check(eventId, "user-3");
+        Map<String, Object> fourth = queueService.check(eventId, "user-4");
+
+        assertEquals("queued", third.get("status"));
+        assertEquals(1, third.get("position"));
+        assertEquals(2, fourth.get("position"));
+        assertEquals(0, fourth.get("peopleBehind"));
+        assertEquals(2L, redisTemplate.opsForZSet().zCard("{" + eventId + "}:active"));
+
+        // Rejoin keeps the place and does not add a second entry
+        Map<String, Object> again = queueService.check(eventId, "user-3");
+        assertEquals(1, again.get("position"));
+        assertEquals(1, again.get("peopleBehind"));
+        assertEquals(2L, redisTemplate.opsForZSet().zCard("{" + eventId + "}:queue"));
+        // Already active users stay active
+        assertEquals("active", queueService.check(eventId, "user-1").get("status"));
+    }
+
+    @Test
+    void check_sharded_withoutSnapshot_scriptEstimatesOtherShardsFromOwnShard() {
+        QueueKeys queueKeys = new QueueKeys(4, false);
+        QueueService queueService = queueService(queueKeys, 1000);
+        UUID eventId = UUID.randomUUID();
+        String joiner = UUID.randomUUID().toString();
+        int shard = queueKeys.shardOf(joiner);
+        String queueKey = queueKeys.queue(eventId.toString(), shard);
+        // Ten earlier waiters on the joiner's shard; the other shards are empty but unread
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 10; i++) {
+            redisTemplate.opsForZSet().add(queueKey, "waiter-" + i, now - 1000 + i);
+        }
+
+        Map<String, Object> result = queueService.check(eventId, joiner);
+
+        assertEquals("queued", result.get("status"));
+        // 11 on this shard + 3 x 10 estimated; rank 11 of 11 scales to the back of 41
+        assertEquals(41, result.get("position"));
+        assertEquals(0, result.get("peopleBehind"));
+        assertEquals(11L, redisTemplate.opsForZSet().zCard(queueKey));
+    }
+}
@@ -0,0 +1,103 @@
+package guru.urr.queueservice.integration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import guru.urr.queueservice.service.QueueKeys;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Redis memory of one event's waiting room in the default layout (UUID-string members,
+ * :queue + :seen ZSETs) vs the compact layout (base64url members, :queue ZSET + :seen:cur SET).
+ * Run with ./gradlew benchmark; -Dqueue.benchmark.members=1000000 for a 1M-user queue.
+ */
+@Testcontainers
+@Tag("benchmark")
+class QueueMemoryBenchmark {
+
+    private static final int MEMBERS = Integer.getInteger("queue.benchmark.members", 100_000);
+    private static final int CHUNK = 5_000;
+
+    @Container
+    private static final GenericContainer<?> redis =
+            new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(redis.getHost(), redis.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void compareLayouts() {
+        List<String> userIds = new ArrayList<>(MEMBERS);
+        for (int i = 0; i < MEMBERS; i++) {
+            userIds.add(UUID.randomUUID().toString());
+        }
+
+        long legacy = load(new QueueKeys(1, false), "legacy", userIds);
+        long compact = load(new QueueKeys(1, true), "compact", userIds);
+
+        System.out.printf("queue memory for %d members: default=%d bytes (%.1f/member) compact=%d bytes (%.1f/member) saved=%.0f%%%n",
+                MEMBERS, legacy, (double) legacy / MEMBERS, compact, (double) compact / MEMBERS,
+                100.0 * (legacy - compact) / legacy);
+        assertTrue(compact < legacy, "compact layout should use less memory than the default layout");
+    }
+
+    private long load(QueueKeys keys, String eventId, List<String> userIds) {
+        String queueKey = keys.queue(eventId, 0);
+        String seenKey = keys.seen(eventId, 0);
+        long now = System.currentTimeMillis();
+        for (int from = 0; from < userIds.size(); from += CHUNK) {
+            List<String> chunk = userIds.subList(from, Math.min(userIds.size(), from + CHUNK));
+            int offset = from;
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (int i = 0; i < chunk.size(); i++) {
+                    byte[] member = keys.member(chunk.get(i)).getBytes(StandardCharsets.UTF_8);
+                    connection.zSetCommands().zAdd(bytes(queueKey), now + offset + i, member);
+                    if (keys.isCompact()) {
+                        connection.setCommands().sAdd(bytes(seenKey), member);
+                    } else {
+                        connection.zSetCommands().zAdd(bytes(seenKey), now, member);
+                    }
+                }
+                return null;
+            });
+        }
+        return memoryUsage(queueKey) + memoryUsage(seenKey);
+    }
+
+    private long memoryUsage(String key) {
+        Object usage = redisTemplate.execute((RedisCallback<Object>) connection ->
+                connection.execute("MEMORY", bytes("USAGE"), bytes(key), bytes("SAMPLES"), bytes("0")));
+        assertNotNull(usage, "MEMORY USAGE returned nothing for " + key);
+        return ((Number) usage).longValue();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
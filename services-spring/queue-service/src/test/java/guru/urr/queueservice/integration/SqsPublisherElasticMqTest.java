@@ -0,0 +1,92 @@
+package guru.urr.queueservice.integration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import guru.urr.queueservice.service.SqsPublisher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.net.URI;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.CreateQueueRequest;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.QueueAttributeName;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+
+/**
+ * Runs the batched admission publisher against ElasticMQ, a local SQS stand-in.
+ */
+@Testcontainers
+@Tag("integration")
+class SqsPublisherElasticMqTest {
+
+    @Container
+    private static final GenericContainer<?> elasticMq =
+            new GenericContainer<>("softwaremill/elasticmq-native:1.6.11").withExposedPorts(9324);
+
+    private SqsClient sqsClient;
+    private String queueUrl;
+
+    @BeforeEach
+    void setUp() {
+        sqsClient = SqsClient.builder()
+                .endpointOverride(URI.create("http://" + elasticMq.getHost() + ":" + elasticMq.getMappedPort(9324)))
+                .region(Region.AP_NORTHEAST_2)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("x", "x")))
+                .build();
+        queueUrl = sqsClient.createQueue(CreateQueueRequest.builder()
+                .queueName("admissions-" + UUID.randomUUID() + ".fifo")
+                .attributes(Map.of(
+                        QueueAttributeName.FIFO_QUEUE, "true",
+                        QueueAttributeName.CONTENT_BASED_DEDUPLICATION, "false"))
+                .build()).queueUrl();
+    }
+
+    @AfterEach
+    void tearDown() {
+        sqsClient.close();
+    }
+
+    @Test
+    void batchedAdmissions_deliveredOncePerUser() throws Exception {
+        SqsPublisher publisher = new SqsPublisher(sqsClient, queueUrl, true, 1000, 100, new SimpleMeterRegistry());
+        UUID eventA = UUID.randomUUID();
+        UUID eventB = UUID.randomUUID();
+
+        for (int i = 0; i < 25; i++) {
+            publisher.publishAdmission(eventA, "a-" + i, "token");
+        }
+        for (int i = 0; i < 7; i++) {
+            publisher.publishAdmission(eventB, "b-" + i, "token");
+        }
+        // Same user admitted twice: the dedup ID collapses it
+        publisher.publishAdmission(eventA, "a-0", "token");
+        publisher.destroy();
+
+        Set<String> received = new HashSet<>();
+        for (int attempt = 0; attempt < 20 && received.size() < 32; attempt++) {
+            for (Message message : sqsClient.receiveMessage(ReceiveMessageRequest.builder()
+                    .queueUrl(queueUrl)
+                    .maxNumberOfMessages(10)
+                    .waitTimeSeconds(1)
+                    .build()).messages()) {
+                assertTrue(received.add(message.body().replaceAll(".*\"userId\":\"([^\"]+)\".*", "$1")));
+                sqsClient.deleteMessage(builder -> builder.queueUrl(queueUrl).receiptHandle(message.receiptHandle()));
+            }
+        }
+
+        assertEquals(32, received.size());
+    }
+}
@@ -0,0 +1,128 @@
+package guru.urr.queueservice.integration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import guru.urr.queueservice.service.EventOwnership;
+import guru.urr.queueservice.service.EventQueueSnapshot;
+import guru.urr.queueservice.service.EventQueueSnapshot.QueueSummary;
+import guru.urr.queueservice.service.EventThroughputCache;
+import guru.urr.queueservice.service.QueueKeys;
+import guru.urr.queueservice.service.VwrCounterAdvancer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.net.URI;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+
+/**
+ * Runs the VWR counter advancer against DynamoDB Local.
+ */
+@Testcontainers
+@Tag("integration")
+class VwrCounterAdvancerDynamoDbLocalTest {
+
+    @Container
+    private static final GenericContainer<?> dynamoDbLocal =
+            new GenericContainer<>("amazon/dynamodb-local:2.5.2").withExposedPorts(8000);
+
+    private DynamoDbClient dynamoDbClient;
+    private String tableName;
+    private EventQueueSnapshot snapshot;
+    private VwrCounterAdvancer advancer;
+
+    @BeforeEach
+    void setUp() {
+        dynamoDbClient = DynamoDbClient.builder()
+                .endpointOverride(URI.create("http://" + dynamoDbLocal.getHost() + ":" + dynamoDbLocal.getMappedPort(8000)))
+                .region(Region.AP_NORTHEAST_2)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("x", "x")))
+                .build();
+        tableName = "vwr-counters-" + UUID.randomUUID();
+        dynamoDbClient.createTable(builder -> builder
+                .tableName(tableName)
+                .keySchema(KeySchemaElement.builder().attributeName("eventId").keyType(KeyType.HASH).build())
+                .attributeDefinitions(AttributeDefinition.builder()
+                        .attributeName("eventId").attributeType(ScalarAttributeType.S).build())
+                .billingMode(BillingMode.PAY_PER_REQUEST));
+
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        snapshot = new EventQueueSnapshot(60_000, 100);
+        advancer = new VwrCounterAdvancer(dynamoDbClient, tableName, snapshot, mock(EventThroughputCache.class),
+                redisTemplate, new QueueKeys(1, false), new EventOwnership(redisTemplate, false, "replica-1", 6000),
+                30, 100, 500, 5000, 20_000, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        dynamoDbClient.close();
+    }
+
+    private void putCounters(String eventId, long nextPosition, long servingCounter, boolean active) {
+        dynamoDbClient.putItem(builder -> builder.tableName(tableName).item(Map.of(
+                "eventId", AttributeValue.fromS(eventId),
+                "nextPosition", AttributeValue.fromN(String.valueOf(nextPosition)),
+                "servingCounter", AttributeValue.fromN(String.valueOf(servingCounter)),
+                "isActive", AttributeValue.fromBool(active))));
+    }
+
+    private long servingCounter(String eventId) {
+        return Long.parseLong(dynamoDbClient.getItem(builder -> builder.tableName(tableName)
+                .key(Map.of("eventId", AttributeValue.fromS(eventId))))
+                .item().get("servingCounter").n());
+    }
+
+    @Test
+    void advancesToTargetDepthAndCountsReleasesInFlight() {
+        String eventId = UUID.randomUUID().toString();
+        putCounters(eventId, 10_000, 0, true);
+        // 40/s x 30s = 1200 target depth, 200 already queued in Redis
+        snapshot.put(eventId, new QueueSummary(200, 50, 0, 40));
+
+        advancer.advance();
+        assertEquals(1000, servingCounter(eventId));
+
+        // Released positions have not joined the Redis queue yet: no second release
+        advancer.advance();
+        assertEquals(1000, servingCounter(eventId));
+    }
+
+    @Test
+    void neverPassesNextPosition() {
+        String eventId = UUID.randomUUID().toString();
+        putCounters(eventId, 120, 100, true);
+        snapshot.put(eventId, new QueueSummary(0, 0, 0, 40));
+
+        advancer.advance();
+
+        assertEquals(120, servingCounter(eventId));
+    }
+
+    @Test
+    void inactiveEvent_notAdvanced() {
+        String eventId = UUID.randomUUID().toString();
+        putCounters(eventId, 10_000, 0, false);
+        snapshot.put(eventId, new QueueSummary(0, 0, 0, 40));
+
+        advancer.advance();
+
+        assertEquals(0, servingCounter(eventId));
+    }
+}
@@ -0,0 +1,75 @@
+package guru.urr.queueservice.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import guru.urr.queueservice.shared.client.TicketLoadClient;
+import guru.urr.queueservice.shared.client.TicketLoadClient.LoadSignal;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class AdmissionRateControllerTest {
+
+    private static final LoadSignal HEALTHY = new LoadSignal(0.3, 0, 120, 5);
+    private static final LoadSignal SLOW = new LoadSignal(0.3, 0, 2500, 5);
+    private static final LoadSignal POOL_WAIT = new LoadSignal(1.0, 12, 300, 5);
+
+    @Mock private TicketLoadClient ticketLoadClient;
+
+    private AdmissionRateController newController(boolean enabled) {
+        return new AdmissionRateController(ticketLoadClient, enabled, 100, 10, 1000, 20, 0.5, 800, 0.85);
+    }
+
+    @Test
+    void disabled_usesStaticBatchSize() {
+        AdmissionRateController controller = newController(false);
+
+        controller.recordCycle("event-1", 100, 100);
+        controller.adjust();
+
+        assertEquals(100, controller.batchSize("event-1"));
+        verifyNoInteractions(ticketLoadClient);
+    }
+
+    @Test
+    void healthy_growsOnlySaturatedEvents() {
+        when(ticketLoadClient.getLoadSignal()).thenReturn(HEALTHY);
+        AdmissionRateController controller = newController(true);
+
+        controller.recordCycle("busy", controller.batchSize("busy"), 100);
+        controller.recordCycle("idle", controller.batchSize("idle"), 7);
+        controller.adjust();
+
+        assertEquals(120, controller.batchSize("busy"));
+        assertEquals(100, controller.batchSize("idle"));
+    }
+
+    @Test
+    void overloaded_halvesBatchDownToMinimum() {
+        when(ticketLoadClient.getLoadSignal()).thenReturn(SLOW, POOL_WAIT, POOL_WAIT, POOL_WAIT, POOL_WAIT);
+        AdmissionRateController controller = newController(true);
+        controller.batchSize("event-1");
+
+        controller.adjust();
+        assertEquals(50, controller.batchSize("event-1"));
+
+        for (int i = 0; i < 4; i++) {
+            controller.adjust();
+        }
+        assertEquals(10, controller.batchSize("event-1"));
+    }
+
+    @Test
+    void noSignal_holdsBatchSize() {
+        when(ticketLoadClient.getLoadSignal()).thenReturn(null);
+        AdmissionRateController controller = newController(true);
+
+        controller.recordCycle("event-1", controller.batchSize("event-1"), 100);
+        controller.adjust();
+
+        assertEquals(100, controller.batchSize("event-1"));
+    }
+}
@@ -0,0 +1,130 @@
+package guru.urr.queueservice.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+@ExtendWith(MockitoExtension.class)
+class DegradedQueueTest {
+
+    @Mock private StringRedisTemplate redisTemplate;
+    @Mock private QueueImportService queueImportService;
+    @Mock private EntryTokenGenerator entryTokenGenerator;
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final UUID eventId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        circuitBreakerRegistry.circuitBreaker(DegradedQueue.CIRCUIT_BREAKER).transitionToOpenState();
+    }
+
+    private DegradedQueue degradedQueue(int maxWaiting, int maxActive, int admitPerTick) {
+        return new DegradedQueue(circuitBreakerRegistry, redisTemplate, queueImportService, entryTokenGenerator,
+            meterRegistry, true, maxWaiting, maxActive, admitPerTick, 1000, 600);
+    }
+
+    @Test
+    void check_queuesInJoinOrder() {
+        DegradedQueue queue = degradedQueue(100, 10, 2);
+
+        queue.check(eventId, "user-1");
+        Map<String, Object> second = queue.check(eventId, "user-2");
+
+        assertEquals(true, second.get("degraded"));
+        assertEquals("queued", second.get("status"));
+        assertEquals(2, second.get("position"));
+        assertEquals(1L, second.get("estimatedWait"));
+        assertTrue(queue.holds(eventId, "user-1"));
+        assertFalse(queue.holds(eventId, "user-3"));
+        assertEquals("not_in_queue", queue.status(eventId, "user-3").get("status"));
+    }
+
+    @Test
+    void tick_admitsAtMostAdmitPerTickUpToMaxActive() {
+        DegradedQueue queue = degradedQueue(100, 3, 2);
+        when(entryTokenGenerator.generate(eq(eventId.toString()), anyString())).thenReturn("token");
+        for (int i = 1; i <= 5; i++) {
+            queue.check(eventId, "user-" + i);
+        }
+
+        queue.tick();
+        assertEquals("active", queue.status(eventId, "user-2").get("status"));
+        assertEquals("token", queue.status(eventId, "user-2").get("entryToken"));
+        assertEquals(1, queue.status(eventId, "user-3").get("position"));
+
+        queue.tick();
+        assertEquals("active", queue.status(eventId, "user-3").get("status"));
+        assertEquals(1, queue.status(eventId, "user-4").get("position"));
+        assertEquals(2.0, meterRegistry.get("queue.fallback.waiting").gauge().value());
+        verifyNoInteractions(queueImportService);
+    }
+
+    @Test
+    void check_rejectsNewUsersWhenFull() {
+        DegradedQueue queue = degradedQueue(2, 10, 1);
+        queue.check(eventId, "user-1");
+        queue.check(eventId, "user-2");
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> queue.check(eventId, "user-3"));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatusCode());
+        assertEquals(1.0, meterRegistry.get("queue.fallback.rejected").counter().count());
+        assertEquals("queued", queue.check(eventId, "user-2").get("status"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void tick_mergesBackOnceBreakerCloses() {
+        DegradedQueue queue = degradedQueue(100, 10, 1);
+        queue.check(eventId, "user-1");
+        queue.check(eventId, "user-2");
+        queue.check(eventId, "user-3");
+        queue.tick();
+        verifyNoInteractions(queueImportService);
+
+        circuitBreakerRegistry.circuitBreaker(DegradedQueue.CIRCUIT_BREAKER).transitionToClosedState();
+        when(queueImportService.importScored(eq(eventId), anyList(), anyList())).thenReturn(1L);
+        queue.tick();
+
+        ArgumentCaptor<Map<String, Long>> active = ArgumentCaptor.forClass(Map.class);
+        verify(queueImportService).restoreActive(eq(eventId), active.capture());
+        assertEquals(Set.of("user-1", "user-2"), active.getValue().keySet());
+        verify(queueImportService).importScored(eq(eventId), eq(List.of("user-3")), anyList());
+        assertFalse(queue.holds(eventId, "user-1"));
+        assertFalse(queue.holds(eventId, "user-3"));
+        assertEquals(3.0, meterRegistry.get("queue.fallback.merged").counter().count());
+        assertEquals(0.0, meterRegistry.get("queue.fallback.waiting").gauge().value());
+    }
+
+    @Test
+    void tick_keepsUsersWhenMergeFails() {
+        DegradedQueue queue = degradedQueue(100, 10, 0);
+        queue.check(eventId, "user-1");
+        circuitBreakerRegistry.circuitBreaker(DegradedQueue.CIRCUIT_BREAKER).transitionToClosedState();
+        when(queueImportService.importScored(eq(eventId), anyList(), anyList()))
+            .thenThrow(new RedisConnectionFailureException("down"));
+
+        queue.tick();
+
+        assertTrue(queue.holds(eventId, "user-1"));
+        assertEquals(1, queue.status(eventId, "user-1").get("position"));
+    }
+}
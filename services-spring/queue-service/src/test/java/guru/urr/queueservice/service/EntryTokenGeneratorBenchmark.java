@@ -0,0 +1,120 @@
+package guru.urr.queueservice.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.sun.management.OperatingSystemMXBean;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * CPU cost of an active-user status poll's entry token: JJWT builder (previous path)
+ * vs lean signer vs cached reuse. Run with ./gradlew benchmark.
+ */
+@Tag("benchmark")
+class EntryTokenGeneratorBenchmark {
+
+    private static final String SECRET = "test-queue-entry-token-secret-minimum-32-chars-long";
+    private static final int WARMUP_ITERATIONS = 200_000;
+    private static final int MEASURED_ITERATIONS = 1_000_000;
+    private static final int USERS = 10_000;
+    private static final int VIRTUAL_THREAD_OPS = 200_000;
+
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    @Test
+    void compareSigningPaths() {
+        SecretKey key = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        EntryTokenGenerator generator = new EntryTokenGenerator(SECRET, 600, USERS);
+
+        double jjwt = cpuNanosPerOp(i -> {
+            long nowMs = System.currentTimeMillis();
+            return Jwts.builder()
+                .subject("event-1")
+                .claim("uid", "user-" + (i % USERS))
+                .issuedAt(new Date(nowMs))
+                .expiration(new Date(nowMs + 600_000))
+                .signWith(key)
+                .compact();
+        });
+        double lean = cpuNanosPerOp(i -> generator.sign("event-1", "user-" + (i % USERS), System.currentTimeMillis()).token());
+        double cached = cpuNanosPerOp(i -> generator.generate("event-1", "user-" + (i % USERS)));
+
+        System.out.printf("entry token CPU ns/op: jjwt-builder=%.0f lean-sign=%.0f cached-reuse=%.0f%n", jjwt, lean, cached);
+        assertTrue(lean < jjwt, "lean signer should be cheaper than the JJWT builder");
+        assertTrue(cached < lean, "cached reuse should be cheaper than signing");
+    }
+
+    /**
+     * Requests run on virtual threads, one per request. Each sign runs on a fresh virtual thread:
+     * a per-thread Mac (the previous approach) degrades to Mac.getInstance + init per signature,
+     * the pool reuses instances across threads.
+     */
+    @Test
+    void signOnVirtualThreads() throws Exception {
+        SecretKey key = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        EntryTokenGenerator generator = new EntryTokenGenerator(SECRET, 600, USERS);
+        ThreadLocal<Mac> perThreadMac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(key.getAlgorithm());
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        IntFunction<String> pooledSign = i -> generator.sign("event-1", "user-" + (i % USERS), System.currentTimeMillis()).token();
+        // Same signing work plus the Mac a fresh virtual thread had to create for its ThreadLocal
+        IntFunction<String> threadLocalSign = i -> perThreadMac.get().getAlgorithm() + pooledSign.apply(i);
+
+        processCpuNanosPerOp(threadLocalSign, VIRTUAL_THREAD_OPS / 5);
+        processCpuNanosPerOp(pooledSign, VIRTUAL_THREAD_OPS / 5);
+        double threadLocal = processCpuNanosPerOp(threadLocalSign, VIRTUAL_THREAD_OPS);
+        double pooled = processCpuNanosPerOp(pooledSign, VIRTUAL_THREAD_OPS);
+
+        System.out.printf("entry token CPU ns/op on virtual threads: thread-local-mac=%.0f pooled-mac=%.0f%n", threadLocal, pooled);
+        assertTrue(pooled < threadLocal, "pooled Mac should be cheaper than a per-virtual-thread Mac");
+    }
+
+    private static double processCpuNanosPerOp(IntFunction<String> op, int ops) throws Exception {
+        OperatingSystemMXBean os = (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        AtomicLong sink = new AtomicLong();
+        long start = os.getProcessCpuTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < ops; i++) {
+                int n = i;
+                executor.submit(() -> sink.addAndGet(op.apply(n).length()));
+            }
+        }
+        long elapsed = os.getProcessCpuTime() - start;
+        assertTrue(sink.get() > 0);
+        return (double) elapsed / ops;
+    }
+
+    private double cpuNanosPerOp(IntFunction<String> op) {
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            sink += op.apply(i).length();
+        }
+        long start = threadMXBean.getCurrentThreadCpuTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            sink += op.apply(i).length();
+        }
+        long elapsed = threadMXBean.getCurrentThreadCpuTime() - start;
+        assertTrue(sink > 0);
+        return (double) elapsed / MEASURED_ITERATIONS;
+    }
+}
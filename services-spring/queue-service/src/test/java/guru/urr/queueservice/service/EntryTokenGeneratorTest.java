@@ -0,0 +1,66 @@
+package guru.urr.queueservice.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import java.nio.charset.StandardCharsets;
+import javax.crypto.SecretKey;
+import org.junit.jupiter.api.Test;
+
+class EntryTokenGeneratorTest {
+
+    private static final String SECRET = "test-queue-entry-token-secret-minimum-32-chars-long";
+    private static final String LONG_SECRET = SECRET + "-padded-out-to-a-512-bit-hmac-key-length";
+
+    private static Claims parse(String secret, String token) {
+        SecretKey key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        return Jwts.parser().verifyWith(key).build().parseSignedClaims(token).getPayload();
+    }
+
+    @Test
+    void generate_tokenVerifiesWithJjwtParser() {
+        EntryTokenGenerator generator = new EntryTokenGenerator(SECRET, 600, 100);
+
+        String token = generator.generate("event-1", "user-1");
+
+        Claims claims = parse(SECRET, token);
+        assertEquals("event-1", claims.getSubject());
+        assertEquals("user-1", claims.get("uid", String.class));
+        assertEquals(600_000, claims.getExpiration().getTime() - claims.getIssuedAt().getTime());
+    }
+
+    @Test
+    void generate_longKey_usesMatchingAlgorithm() {
+        EntryTokenGenerator generator = new EntryTokenGenerator(LONG_SECRET, 600, 100);
+
+        String token = generator.generate("event-1", "user-\"quoted\"");
+
+        assertEquals("user-\"quoted\"", parse(LONG_SECRET, token).get("uid", String.class));
+    }
+
+    @Test
+    void generate_reusesTokenUntilNearExpiry() {
+        EntryTokenGenerator generator = new EntryTokenGenerator(SECRET, 600, 100);
+
+        String first = generator.generate("event-1", "user-1");
+        String second = generator.generate("event-1", "user-1");
+        String otherUser = generator.generate("event-1", "user-2");
+
+        assertSame(first, second);
+        assertNotEquals(first, otherUser);
+    }
+
+    @Test
+    void revoke_nextGenerateSignsFreshToken() {
+        EntryTokenGenerator generator = new EntryTokenGenerator(SECRET, 600, 100);
+
+        String first = generator.generate("event-1", "user-1");
+        generator.revoke("event-1", "user-1");
+        String second = generator.generate("event-1", "user-1");
+
+        assertNotSame(first, second);
+        assertEquals("user-1", parse(SECRET, second).get("uid", String.class));
+    }
+}
@@ -0,0 +1,119 @@
+package guru.urr.queueservice.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+
+@ExtendWith(MockitoExtension.class)
+class EventOwnershipTest {
+
+    @Mock private StringRedisTemplate redisTemplate;
+    @Mock private ZSetOperations<String, String> zSetOps;
+
+    private static final List<String> EVENTS = IntStream.range(0, 2000).mapToObj(i -> "event-" + i).toList();
+
+    private EventOwnership ownership(String replicaId, List<String> members) {
+        EventOwnership ownership = new EventOwnership(redisTemplate, true, replicaId, 6000);
+        ownership.updateMembers(members);
+        return ownership;
+    }
+
+    @Test
+    void noMembershipYet_ownsEverything() {
+        EventOwnership ownership = new EventOwnership(redisTemplate, true, "pod-a", 6000);
+
+        assertTrue(EVENTS.stream().allMatch(ownership::owns));
+    }
+
+    @Test
+    void disabled_ownsEverything() {
+        EventOwnership ownership = new EventOwnership(redisTemplate, false, "pod-a", 6000);
+        ownership.updateMembers(List.of("pod-b", "pod-c"));
+
+        assertTrue(EVENTS.stream().allMatch(ownership::owns));
+        ownership.heartbeat();
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    void everyEventHasExactlyOneOwner_andLoadIsSpread() {
+        List<String> members = List.of("pod-a", "pod-b", "pod-c");
+        List<EventOwnership> replicas = members.stream().map(id -> ownership(id, members)).toList();
+
+        for (String eventId : EVENTS) {
+            assertEquals(1, replicas.stream().filter(r -> r.owns(eventId)).count(), eventId);
+        }
+        for (EventOwnership replica : replicas) {
+            long owned = EVENTS.stream().filter(replica::owns).count();
+            // Fair share is ~667; virtual nodes keep each replica well within 2x of it
+            assertTrue(owned > 333 && owned < 1333, replica.replicaId() + " owns " + owned);
+        }
+    }
+
+    @Test
+    void replicaLeaving_onlyItsEventsMove() {
+        EventOwnership before = ownership("pod-a", List.of("pod-a", "pod-b", "pod-c"));
+        EventOwnership after = ownership("pod-a", List.of("pod-a", "pod-b"));
+        EventOwnership leaving = ownership("pod-c", List.of("pod-a", "pod-b", "pod-c"));
+
+        for (String eventId : EVENTS) {
+            if (before.owns(eventId)) {
+                assertTrue(after.owns(eventId), "pod-a lost " + eventId + " although it stayed");
+            }
+        }
+        long gained = EVENTS.stream().filter(e -> after.owns(e) && !before.owns(e)).count();
+        assertTrue(gained > 0);
+        assertTrue(EVENTS.stream().filter(e -> after.owns(e) && !before.owns(e)).allMatch(leaving::owns));
+    }
+
+    @Test
+    void heartbeat_registersPrunesAndRebuildsRing() {
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOps);
+        when(zSetOps.range(EventOwnership.REPLICAS, 0, -1))
+            .thenReturn(new LinkedHashSet<>(List.of("pod-a", "pod-b")));
+        EventOwnership ownership = new EventOwnership(redisTemplate, true, "pod-a", 6000);
+
+        ownership.heartbeat();
+
+        verify(zSetOps).add(eq(EventOwnership.REPLICAS), eq("pod-a"), anyDouble());
+        verify(zSetOps).removeRangeByScore(eq(EventOwnership.REPLICAS), eq(Double.NEGATIVE_INFINITY), anyDouble());
+        long owned = EVENTS.stream().filter(ownership::owns).count();
+        assertTrue(owned > 0 && owned < EVENTS.size());
+    }
+
+    @Test
+    void heartbeatFailure_keepsLastKnownRing() {
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOps);
+        when(zSetOps.range(EventOwnership.REPLICAS, 0, -1))
+            .thenReturn(Set.of("pod-a", "pod-b"))
+            .thenThrow(new RuntimeException("Redis down"));
+        EventOwnership ownership = new EventOwnership(redisTemplate, true, "pod-a", 6000);
+
+        ownership.heartbeat();
+        List<String> ownedBefore = EVENTS.stream().filter(ownership::owns).toList();
+        assertDoesNotThrow(ownership::heartbeat);
+
+        assertEquals(ownedBefore, EVENTS.stream().filter(ownership::owns).toList());
+    }
+
+    @Test
+    void destroy_removesReplicaFromRing() {
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOps);
+        EventOwnership ownership = new EventOwnership(redisTemplate, true, "pod-a", 6000);
+
+        ownership.destroy();
+
+        verify(zSetOps).remove(EventOwnership.REPLICAS, "pod-a");
+    }
+}
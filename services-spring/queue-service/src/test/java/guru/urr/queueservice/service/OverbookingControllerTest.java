@@ -0,0 +1,95 @@
+package guru.urr.queueservice.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+@ExtendWith(MockitoExtension.class)
+class OverbookingControllerTest {
+
+    @Mock private StringRedisTemplate redisTemplate;
+    @Mock private DefaultRedisScript<Long> conversionRecordScript;
+    @Mock private HashOperations<String, Object, Object> hashOperations;
+
+    private OverbookingController controller(boolean enabled) {
+        return new OverbookingController(redisTemplate, conversionRecordScript, new QueueKeys(1, false),
+            enabled, 1.5, 200, 0.05);
+    }
+
+    private void stubCounts(String eventId, String admitted, String converted) {
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.multiGet("{" + eventId + "}:conversion", List.<Object>of("admitted", "converted")))
+            .thenReturn(Arrays.asList(admitted, converted));
+    }
+
+    @Test
+    void disabled_factorIsOneAndNothingIsRecorded() {
+        OverbookingController controller = controller(false);
+
+        assertEquals(1.0, controller.factor("event-1"));
+        controller.recordReservation(UUID.randomUUID(), "user-1");
+        controller.adjust();
+
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    void nextFactor_belowMinimumSample_staysAtOne() {
+        OverbookingController controller = controller(true);
+
+        assertEquals(1.0, controller.nextFactor(1.3, 199, 10));
+    }
+
+    @Test
+    void nextFactor_movesTowardInverseConversionByAtMostMaxStep() {
+        OverbookingController controller = controller(true);
+
+        // 1000 admitted, 800 reserved -> target 1.25
+        assertEquals(1.05, controller.nextFactor(1.0, 1000, 800), 1e-9);
+        assertEquals(1.25, controller.nextFactor(1.22, 1000, 800), 1e-9);
+        assertEquals(1.20, controller.nextFactor(1.25, 1200, 1000), 1e-9);
+    }
+
+    @Test
+    void nextFactor_isCappedAndNeverBelowOne() {
+        OverbookingController controller = controller(true);
+
+        assertEquals(1.5, controller.nextFactor(1.48, 1000, 0), 1e-9);
+        assertEquals(1.5, controller.nextFactor(1.5, 1000, 100), 1e-9);
+        assertEquals(1.0, controller.nextFactor(1.02, 1000, 1000), 1e-9);
+    }
+
+    @Test
+    void adjust_updatesTrackedEventsFromRedisCounters() {
+        OverbookingController controller = controller(true);
+        assertEquals(1.0, controller.factor("event-1"));
+        stubCounts("event-1", "1000", "500");
+
+        controller.adjust();
+
+        assertEquals(1.05, controller.factor("event-1"), 1e-9);
+    }
+
+    @Test
+    void recordReservation_runsScriptOnUserShardKeys() {
+        OverbookingController controller = controller(true);
+        UUID eventId = UUID.randomUUID();
+
+        controller.recordReservation(eventId, "user-1");
+
+        verify(redisTemplate).execute(eq(conversionRecordScript),
+            eq(List.of("{" + eventId + "}:active", "{" + eventId + "}:converted", "{" + eventId + "}:conversion")),
+            eq("user-1"), anyString());
+    }
+}
@@ -0,0 +1,104 @@
+package guru.urr.queueservice.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import guru.urr.queueservice.shared.metrics.QueueMetrics;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+@ExtendWith(MockitoExtension.class)
+class QueueImportServiceTest {
+
+    @Mock private StringRedisTemplate redisTemplate;
+    @Mock private DefaultRedisScript<Long> queueImportScript;
+    @Mock private QueueMetrics queueMetrics;
+    @Mock private SetOperations<String, String> setOperations;
+
+    private QueueImportService service(QueueKeys queueKeys) {
+        return new QueueImportService(redisTemplate, queueImportScript, queueKeys, queueMetrics, false);
+    }
+
+    @Test
+    void importPositions_chunksUsersWithConsecutivePositions() {
+        UUID eventId = UUID.randomUUID();
+        List<String> userIds = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            userIds.add("user-" + i);
+        }
+        when(redisTemplate.execute(eq(queueImportScript), anyList(), any(Object[].class))).thenReturn(500L, 500L, 200L);
+        when(redisTemplate.opsForSet()).thenReturn(setOperations);
+
+        long imported = service(new QueueKeys(1, false)).importPositions(eventId, 5001, userIds);
+
+        assertEquals(1200, imported);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(redisTemplate, times(3)).execute(eq(queueImportScript),
+            eq(List.of("{" + eventId + "}:queue", "{" + eventId + "}:active", "{" + eventId + "}:seen",
+                "{" + eventId + "}:seq")),
+            args.capture());
+        Object[] first = args.getAllValues().get(0);
+        assertEquals(4 + QueueImportService.CHUNK_SIZE * 2, first.length);
+        assertEquals("0", first[1]);
+        assertEquals("user-0", first[4]);
+        assertEquals("5001", first[5]);
+        Object[] last = args.getAllValues().get(2);
+        assertEquals("user-1199", last[last.length - 2]);
+        assertEquals("6200", last[last.length - 1]);
+        verify(setOperations).add(QueueKeys.ACTIVE_EVENTS, eventId.toString());
+        verify(queueMetrics).recordQueueJoined(1200);
+    }
+
+    @Test
+    void importPositions_compactLayout_encodesMembersAndPassesPreviousGeneration() {
+        UUID eventId = UUID.randomUUID();
+        String userId = UUID.randomUUID().toString();
+        QueueKeys queueKeys = new QueueKeys(1, true);
+        when(redisTemplate.execute(eq(queueImportScript), anyList(), any(Object[].class))).thenReturn(0L);
+
+        long imported = service(queueKeys).importPositions(eventId, 1, List.of(userId));
+
+        assertEquals(0, imported);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(redisTemplate).execute(eq(queueImportScript),
+            eq(List.of("{" + eventId + "}:queue", "{" + eventId + "}:active",
+                "{" + eventId + "}:seen:cur", "{" + eventId + "}:seq", "{" + eventId + "}:seen:prev")),
+            args.capture());
+        assertEquals(queueKeys.member(userId), args.getValue()[4]);
+        verify(queueMetrics, never()).recordQueueJoined(anyLong());
+    }
+
+    @Test
+    void ticketMode_vwrPositionsAreTicketsWhileDrainedJoinsAreIssuedTickets() {
+        UUID eventId = UUID.randomUUID();
+        when(redisTemplate.execute(eq(queueImportScript), anyList(), any(Object[].class))).thenReturn(1L);
+        when(redisTemplate.opsForSet()).thenReturn(setOperations);
+        QueueImportService ticketService = new QueueImportService(redisTemplate, queueImportScript,
+            new QueueKeys(1, false), queueMetrics, true);
+
+        ticketService.importPositions(eventId, 42, List.of("user-1"));
+        ticketService.importScored(eventId, List.of("user-2"), List.of(1_700_000_000_000L));
+
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(redisTemplate, times(2)).execute(eq(queueImportScript), anyList(), args.capture());
+        assertEquals("2", args.getAllValues().get(0)[1]);
+        assertEquals("1", args.getAllValues().get(1)[1]);
+    }
+
+    @Test
+    void importPositions_empty_doesNothing() {
+        assertEquals(0, service(new QueueKeys(1, false)).importPositions(UUID.randomUUID(), 1, List.of()));
+
+        verifyNoInteractions(redisTemplate);
+    }
+}
@@ -0,0 +1,50 @@
+package guru.urr.queueservice.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class QueueKeysTest {
+
+    @Test
+    void defaultLayout_keepsUserIdsAndSeenZset() {
+        QueueKeys keys = new QueueKeys(1, false);
+        String userId = UUID.randomUUID().toString();
+
+        assertEquals(userId, keys.member(userId));
+        assertEquals("{e1}:seen", keys.seen("e1", 0));
+        assertEquals(List.of("a", "b"), keys.withSeenPrevious(List.of("a", "b"), "e1", 0));
+    }
+
+    @Test
+    void compactLayout_encodesUuidAs22CharBase64Url() {
+        QueueKeys keys = new QueueKeys(1, true);
+        UUID uuid = UUID.randomUUID();
+
+        String member = keys.member(uuid.toString());
+
+        assertEquals(22, member.length());
+        ByteBuffer decoded = ByteBuffer.wrap(Base64.getUrlDecoder().decode(member));
+        assertEquals(uuid, new UUID(decoded.getLong(), decoded.getLong()));
+        assertEquals(member, keys.member(uuid.toString().toUpperCase()));
+    }
+
+    @Test
+    void compactLayout_passesNonUuidIdsThrough() {
+        QueueKeys keys = new QueueKeys(1, true);
+
+        assertEquals("user-1", keys.member("user-1"));
+    }
+
+    @Test
+    void compactLayout_usesGenerationSeenKeys() {
+        QueueKeys keys = new QueueKeys(4, true);
+
+        assertEquals("{e1:2}:seen:cur", keys.seen("e1", 2));
+        assertEquals(List.of("a", "{e1:2}:seen:prev"), keys.withSeenPrevious(List.of("a"), "e1", 2));
+    }
+}
@@ -4,7 +4,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
-import guru.urr.queueservice.shared.client.TicketInternalClient;
+import guru.urr.queueservice.shared.client.EventQueueInfoCache;
 import guru.urr.queueservice.shared.metrics.QueueMetrics;
 import java.util.Arrays;
 import java.util.List;
@@ -24,28 +24,47 @@ import org.springframework.data.redis.core.script.DefaultRedisScript;
 class QueueServiceTest {
 
     @Mock private StringRedisTemplate redisTemplate;
-    @Mock private TicketInternalClient ticketInternalClient;
+    @Mock private EventQueueInfoCache eventQueueInfoCache;
     @Mock private SqsPublisher sqsPublisher;
     @Mock private ZSetOperations<String, String> zSetOperations;
     @Mock private SetOperations<String, String> setOperations;
     @SuppressWarnings("rawtypes")
     @Mock private DefaultRedisScript<List> queueCheckScript;
+    @SuppressWarnings("rawtypes")
+    @Mock private DefaultRedisScript<List> queuePositionScript;
+    @SuppressWarnings("rawtypes")
+    @Mock private DefaultRedisScript<List> queueJoinScript;
+    @Mock private DefaultRedisScript<Long> queueHeartbeatScript;
+    @SuppressWarnings("rawtypes")
+    @Mock private DefaultRedisScript<List> queueLeaveScript;
     @Mock private QueueMetrics queueMetrics;
     @Mock private EntryTokenGenerator entryTokenGenerator;
+    @Mock private EventThroughputCache eventThroughputCache;
+    @Mock private DegradedQueue degradedQueue;
 
+    private final EventQueueSnapshot eventQueueSnapshot = new EventQueueSnapshot(60_000, 100);
     private QueueService queueService;
 
     @BeforeEach
     void setUp() {
         queueService = new QueueService(
                 redisTemplate,
-                ticketInternalClient,
+                eventQueueInfoCache,
                 sqsPublisher,
                 queueCheckScript,
+                queuePositionScript,
+                queueJoinScript,
+                queueHeartbeatScript,
+                queueLeaveScript,
+                new QueueKeys(1, false),
                 queueMetrics,
                 entryTokenGenerator,
+                eventThroughputCache,
+                eventQueueSnapshot,
+                degradedQueue,
                 1000,
-                600
+                600,
+                false
         );
     }
 
@@ -54,6 +73,8 @@ class QueueServiceTest {
     private static String activeKey(UUID eventId) { return "{" + eventId + "}:active"; }
     private static String seenKey(UUID eventId) { return "{" + eventId + "}:seen"; }
     private static String activeSeenKey(UUID eventId) { return "{" + eventId + "}:active-seen"; }
+    private static String seqKey(UUID eventId) { return "{" + eventId + "}:seq"; }
+    private static String servingKey(UUID eventId) { return "{" + eventId + "}:serving"; }
 
     private void stubRedisOperations() {
         lenient().when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
@@ -65,8 +86,18 @@ class QueueServiceTest {
     private void stubLuaScript(long inQueue, long inActive, long position,
                                long queueSize, long activeCount, long threshold) {
         doReturn(Arrays.asList(inQueue, inActive, position, queueSize, activeCount, threshold))
-                .when(redisTemplate).execute(any(DefaultRedisScript.class), anyList(),
-                        any(), any(), any(), any());
+                .when(redisTemplate).execute(eq(queueCheckScript), anyList(),
+                        any(), any(), any(), any(), any());
+    }
+
+    private void stubJoinScript(long outcome, long position, long queueSize, long activeCount, long threshold) {
+        doReturn(Arrays.asList(outcome, position, queueSize, activeCount, threshold, 0L))
+                .when(redisTemplate).execute(eq(queueJoinScript), anyList(),
+                        any(), any(), any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    private static List<String> userZSetKeys(UUID eventId) {
+        return List.of(queueKey(eventId), seenKey(eventId), activeKey(eventId), activeSeenKey(eventId));
     }
 
     @Test
@@ -76,9 +107,9 @@ class QueueServiceTest {
         String userId = "user-1";
 
         Map<String, Object> eventInfo = Map.of("title", "Concert", "queueEnabled", true);
-        when(ticketInternalClient.getEventQueueInfo(eventId)).thenReturn(eventInfo);
+        when(eventQueueInfoCache.get(eventId)).thenReturn(eventInfo);
 
-        stubLuaScript(0, 0, 0, 0, 0, 1000);
+        stubJoinScript(4, 0, 0, 1, 1000);
 
         Map<String, Object> result = queueService.check(eventId, userId);
 
@@ -86,8 +117,8 @@ class QueueServiceTest {
         assertEquals(false, result.get("queued"));
         assertNotNull(result.get("entryToken"));
         assertEquals("test-entry-token", result.get("entryToken"));
-        verify(zSetOperations, atLeast(1)).add(eq(activeKey(eventId)), eq(userId), anyDouble());
         verify(queueMetrics).recordQueueAdmitted();
+        verifyNoInteractions(zSetOperations);
     }
 
     @Test
@@ -97,20 +128,36 @@ class QueueServiceTest {
         String userId = "user-2";
 
         Map<String, Object> eventInfo = Map.of("title", "Concert", "queueEnabled", true);
-        when(ticketInternalClient.getEventQueueInfo(eventId)).thenReturn(eventInfo);
-
-        stubLuaScript(0, 0, 0, 0, 1000, 1000);
+        when(eventQueueInfoCache.get(eventId)).thenReturn(eventInfo);
 
-        when(zSetOperations.rank(queueKey(eventId), userId)).thenReturn(0L);
-        when(zSetOperations.size(queueKey(eventId))).thenReturn(1L);
+        stubJoinScript(3, 1, 1, 1000, 1000);
 
         Map<String, Object> result = queueService.check(eventId, userId);
 
         assertEquals("queued", result.get("status"));
         assertEquals(true, result.get("queued"));
         assertEquals(1, result.get("position"));
-        verify(zSetOperations).add(eq(queueKey(eventId)), eq(userId), anyDouble());
         verify(queueMetrics).recordQueueJoined();
+        verifyNoInteractions(zSetOperations);
+    }
+
+    @Test
+    void check_joinsWithOneScriptCallOnUsersKeys() {
+        stubRedisOperations();
+        UUID eventId = UUID.randomUUID();
+        String userId = "user-join";
+        when(eventQueueInfoCache.get(eventId)).thenReturn(Map.of("title", "Concert"));
+        stubJoinScript(3, 5, 5, 1000, 1000);
+
+        queueService.check(eventId, userId, 42);
+
+        verify(redisTemplate).execute(eq(queueJoinScript),
+                eq(List.of(queueKey(eventId), activeKey(eventId), seenKey(eventId), activeSeenKey(eventId),
+                        "{" + eventId + "}:threshold", servingKey(eventId), seqKey(eventId))),
+                eq(userId), anyString(), eq("1000"), eq("600000"), eq("0"), eq("42"), eq("0"), eq("1"),
+                eq("0"), eq("0"));
+        verify(redisTemplate, never()).execute(eq(queueCheckScript), anyList(),
+                any(), any(), any(), any(), any());
     }
 
     @Test
@@ -134,16 +181,14 @@ class QueueServiceTest {
         UUID eventId = UUID.randomUUID();
         String userId = "user-4";
 
-        when(zSetOperations.score(eq(queueKey(eventId)), eq(userId))).thenReturn(null);
-        long futureExpiry = System.currentTimeMillis() + 300_000;
-        when(zSetOperations.score(eq(activeKey(eventId)), eq(userId))).thenReturn((double) futureExpiry);
+        doReturn(2L).when(redisTemplate).execute(eq(queueHeartbeatScript), eq(userZSetKeys(eventId)),
+                eq(userId), anyString(), eq("600000"));
 
         Map<String, Object> result = queueService.heartbeat(eventId, userId);
 
         assertEquals("active", result.get("status"));
         assertEquals(false, result.get("queued"));
-        verify(zSetOperations).add(eq(activeSeenKey(eventId)), eq(userId), anyDouble());
-        verify(zSetOperations).add(eq(activeKey(eventId)), eq(userId), anyDouble());
+        verifyNoInteractions(zSetOperations);
     }
 
     @Test
@@ -155,13 +200,36 @@ class QueueServiceTest {
         Map<String, Object> result = queueService.leave(eventId, userId);
 
         assertEquals("Left queue", result.get("message"));
-        verify(zSetOperations).remove(queueKey(eventId), userId);
-        verify(zSetOperations).remove(seenKey(eventId), userId);
-        verify(zSetOperations).remove(activeKey(eventId), userId);
-        verify(zSetOperations).remove(activeSeenKey(eventId), userId);
+        verify(redisTemplate).execute(queueLeaveScript, userZSetKeys(eventId), userId);
+        verifyNoInteractions(zSetOperations);
         verify(queueMetrics).recordQueueLeft();
     }
 
+    @Test
+    void releaseActive_activeUser_freesSlotImmediately() {
+        stubRedisOperations();
+        UUID eventId = UUID.randomUUID();
+        String userId = "user-done";
+        when(zSetOperations.remove(activeKey(eventId), userId)).thenReturn(1L);
+
+        assertTrue(queueService.releaseActive(eventId, userId, "confirmed"));
+
+        verify(zSetOperations).remove(activeSeenKey(eventId), userId);
+        verify(entryTokenGenerator).revoke(eventId.toString(), userId);
+        verify(queueMetrics).recordActiveReleased("confirmed", 1);
+    }
+
+    @Test
+    void releaseActive_notActive_isNoOp() {
+        stubRedisOperations();
+        UUID eventId = UUID.randomUUID();
+        when(zSetOperations.remove(activeKey(eventId), "user-gone")).thenReturn(0L);
+
+        assertFalse(queueService.releaseActive(eventId, "user-gone", "expired"));
+
+        verify(queueMetrics, never()).recordActiveReleased(anyString(), anyLong());
+    }
+
     @Test
     void check_belowThreshold_publishesSqsAdmission() {
         stubRedisOperations();
@@ -169,9 +237,9 @@ class QueueServiceTest {
         String userId = "user-sqs-1";
 
         Map<String, Object> eventInfo = Map.of("title", "Concert", "queueEnabled", true);
-        when(ticketInternalClient.getEventQueueInfo(eventId)).thenReturn(eventInfo);
+        when(eventQueueInfoCache.get(eventId)).thenReturn(eventInfo);
 
-        stubLuaScript(0, 0, 0, 0, 0, 1000);
+        stubJoinScript(4, 0, 0, 1, 1000);
 
         Map<String, Object> result = queueService.check(eventId, userId);
 
@@ -186,16 +254,165 @@ class QueueServiceTest {
         String userId = "user-sqs-2";
 
         Map<String, Object> eventInfo = Map.of("title", "Concert", "queueEnabled", true);
-        when(ticketInternalClient.getEventQueueInfo(eventId)).thenReturn(eventInfo);
+        when(eventQueueInfoCache.get(eventId)).thenReturn(eventInfo);
 
-        stubLuaScript(0, 0, 0, 0, 1000, 1000);
-
-        when(zSetOperations.rank(queueKey(eventId), userId)).thenReturn(0L);
-        when(zSetOperations.size(queueKey(eventId))).thenReturn(1L);
+        stubJoinScript(3, 1, 1, 1000, 1000);
 
         Map<String, Object> result = queueService.check(eventId, userId);
 
         assertEquals("queued", result.get("status"));
         verify(sqsPublisher, never()).publishAdmission(any(), any(), any());
     }
+
+    @Test
+    void check_ticketMode_positionFromJoinScript() {
+        QueueService ticketQueueService = new QueueService(
+                redisTemplate, eventQueueInfoCache, sqsPublisher, queueCheckScript, queuePositionScript,
+                queueJoinScript, queueHeartbeatScript, queueLeaveScript,
+                new QueueKeys(1, false), queueMetrics, entryTokenGenerator, eventThroughputCache, eventQueueSnapshot, degradedQueue,
+                1000, 600, true);
+        stubRedisOperations();
+        UUID eventId = UUID.randomUUID();
+        String userId = "user-ticket-1";
+
+        when(eventQueueInfoCache.get(eventId)).thenReturn(Map.of("title", "Concert"));
+        // Script issued ticket 2511 with serving at 2500
+        stubJoinScript(3, 11, 11, 1000, 1000);
+
+        Map<String, Object> result = ticketQueueService.check(eventId, userId);
+
+        assertEquals("queued", result.get("status"));
+        assertEquals(11, result.get("position"));
+        verify(redisTemplate).execute(eq(queueJoinScript), anyList(),
+                eq(userId), anyString(), anyString(), anyString(), eq("1"), anyString(), anyString(), anyString(),
+                anyString(), anyString());
+        verifyNoInteractions(zSetOperations);
+    }
+
+    @Test
+    void status_estimatedWaitUsesEventAdmissionRate() {
+        stubRedisOperations();
+        UUID eventId = UUID.randomUUID();
+        stubLuaScript(1, 0, 100, 500, 1000, 1000);
+        when(eventThroughputCache.get(eventId.toString())).thenReturn(8.0);
+
+        Map<String, Object> result = queueService.status(eventId, "user-eta");
+
+        assertEquals(13, result.get("estimatedWait"));
+    }
+
+    @Test
+    void status_withSnapshot_readsOnlyUserPositionFromRedis() {
+        stubRedisOperations();
+        UUID eventId = UUID.randomUUID();
+        String userId = "user-snap";
+        eventQueueSnapshot.put(eventId.toString(), new EventQueueSnapshot.QueueSummary(5000, 900, 0, 20.0));
+        doReturn(Arrays.asList(1L, 0L, 400L, 5000L)).when(redisTemplate).execute(eq(queuePositionScript),
+                eq(List.of(queueKey(eventId), activeKey(eventId), seenKey(eventId), activeSeenKey(eventId),
+                        servingKey(eventId))),
+                eq(userId), anyString(), eq("600000"), eq("0"));
+
+        Map<String, Object> result = queueService.status(eventId, userId);
+
+        assertEquals("queued", result.get("status"));
+        assertEquals(400, result.get("position"));
+        assertEquals(5000, result.get("queueSize"));
+        assertEquals(900, result.get("currentUsers"));
+        // ETA slope from the snapshot: 400 positions at 20 admissions/s
+        assertEquals(20, result.get("estimatedWait"));
+        verify(redisTemplate, never()).execute(eq(queueCheckScript), anyList(), any(), any(), any(), any(), any());
+        verifyNoInteractions(eventThroughputCache);
+    }
+
+    @Test
+    void status_withSnapshot_shardedScalesShardRankToEvent() {
+        QueueService shardedService = new QueueService(
+                redisTemplate, eventQueueInfoCache, sqsPublisher, queueCheckScript, queuePositionScript,
+                queueJoinScript, queueHeartbeatScript, queueLeaveScript,
+                new QueueKeys(4, false), queueMetrics, entryTokenGenerator, eventThroughputCache, eventQueueSnapshot, degradedQueue,
+                1000, 600, false);
+        UUID eventId = UUID.randomUUID();
+        eventQueueSnapshot.put(eventId.toString(), new EventQueueSnapshot.QueueSummary(4000, 0, 0, 0));
+        doReturn(Arrays.asList(1L, 0L, 250L, 1000L)).when(redisTemplate).execute(eq(queuePositionScript),
+                anyList(), any(), any(), any(), any());
+
+        Map<String, Object> result = shardedService.status(eventId, "user-sharded");
+
+        assertEquals(1000, result.get("position"));
+        verify(redisTemplate, never()).execute(eq(queueCheckScript), anyList(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void status_sharded_withStaleSnapshot_stillReadsOnlyUserPosition() throws InterruptedException {
+        EventQueueSnapshot staleSnapshot = new EventQueueSnapshot(1, 100);
+        QueueService shardedService = new QueueService(
+                redisTemplate, eventQueueInfoCache, sqsPublisher, queueCheckScript, queuePositionScript,
+                queueJoinScript, queueHeartbeatScript, queueLeaveScript,
+                new QueueKeys(4, false), queueMetrics, entryTokenGenerator, eventThroughputCache, staleSnapshot, degradedQueue,
+                1000, 600, false);
+        UUID eventId = UUID.randomUUID();
+        staleSnapshot.put(eventId.toString(), new EventQueueSnapshot.QueueSummary(4000, 0, 0, 0));
+        Thread.sleep(5);
+        doReturn(Arrays.asList(1L, 0L, 250L, 1000L)).when(redisTemplate).execute(eq(queuePositionScript),
+                anyList(), any(), any(), any(), any());
+
+        Map<String, Object> result = shardedService.status(eventId, "user-sharded");
+
+        assertNull(staleSnapshot.get(eventId.toString()));
+        assertEquals(1000, result.get("position"));
+        verify(redisTemplate, never()).execute(eq(queueCheckScript), anyList(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void status_sharded_withoutSnapshot_scalesShardCountsToEvent() {
+        UUID eventId = UUID.randomUUID();
+        // Own shard: rank 100 of 250 waiters, 10 active
+        stubLuaScript(1, 0, 100, 250, 10, 1000);
+
+        Map<String, Object> result = shardedQueueService().status(eventId, "user-sharded");
+
+        assertEquals(397, result.get("position"));
+        assertEquals(1000, result.get("queueSize"));
+        assertEquals(40, result.get("currentUsers"));
+        verify(redisTemplate, times(1)).execute(eq(queueCheckScript), anyList(), any(), any(), any(), any(), any());
+    }
+
+    private QueueService shardedQueueService() {
+        return new QueueService(
+                redisTemplate, eventQueueInfoCache, sqsPublisher, queueCheckScript, queuePositionScript,
+                queueJoinScript, queueHeartbeatScript, queueLeaveScript,
+                new QueueKeys(4, false), queueMetrics, entryTokenGenerator, eventThroughputCache, eventQueueSnapshot, degradedQueue,
+                1000, 600, false);
+    }
+
+    @Test
+    void check_sharded_withSnapshot_joinsWithoutReadingOtherShards() {
+        stubRedisOperations();
+        UUID eventId = UUID.randomUUID();
+        when(eventQueueInfoCache.get(eventId)).thenReturn(Map.of("title", "Concert"));
+        eventQueueSnapshot.put(eventId.toString(), new EventQueueSnapshot.QueueSummary(4000, 1000, 0, 0));
+        // Own shard: rank 250 of 1000 waiters; the script adds the 3000 estimated for the others
+        stubJoinScript(3, 250, 4000, 1000, 1000);
+
+        Map<String, Object> result = shardedQueueService().check(eventId, "user-sharded");
+
+        assertEquals(1000, result.get("position"));
+        verify(redisTemplate).execute(eq(queueJoinScript), anyList(), any(), any(), any(), any(), any(),
+                any(), any(), any(), eq("3000"), eq("750"));
+    }
+
+    @Test
+    void check_sharded_withoutSnapshot_letsScriptEstimateOtherShards() {
+        stubRedisOperations();
+        UUID eventId = UUID.randomUUID();
+        when(eventQueueInfoCache.get(eventId)).thenReturn(Map.of("title", "Concert"));
+        // Own shard: rank 100 of 250 waiters; the script adds 3 x 250 for the other shards
+        stubJoinScript(3, 100, 1000, 0, 1000);
+
+        Map<String, Object> result = shardedQueueService().check(eventId, "user-sharded");
+
+        assertEquals(400, result.get("position"));
+        verify(redisTemplate).execute(eq(queueJoinScript), anyList(), any(), any(), any(), any(), any(),
+                any(), any(), any(), eq("-1"), eq("-1"));
+    }
 }
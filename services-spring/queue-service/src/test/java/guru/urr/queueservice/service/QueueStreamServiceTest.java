@@ -0,0 +1,112 @@
+package guru.urr.queueservice.service;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+@ExtendWith(MockitoExtension.class)
+class QueueStreamServiceTest {
+
+    @Mock private QueueService queueService;
+    @Mock private EventThroughputCache eventThroughputCache;
+    @Mock private EventQueueSnapshot eventQueueSnapshot;
+    @Mock private StringRedisTemplate redisTemplate;
+
+    private final UUID eventId = UUID.randomUUID();
+    private QueueStreamService streamService;
+
+    @BeforeEach
+    void setUp() {
+        streamService = new QueueStreamService(queueService, eventThroughputCache, eventQueueSnapshot,
+            redisTemplate, 60_000, 100);
+        lenient().when(queueService.buildQueuedStatus(any(), anyInt(), anyInt(), anyInt()))
+            .thenReturn(Map.of("status", "queued"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        streamService.destroy();
+    }
+
+    private Map<String, Object> queued(int position) {
+        Map<String, Object> status = new HashMap<>();
+        status.put("status", "queued");
+        status.put("position", position);
+        status.put("nextPoll", 3);
+        return status;
+    }
+
+    private void tick(long admitted, long serving, long queueSize) {
+        String payload = "{\"eventId\":\"" + eventId + "\",\"admitted\":" + admitted + ",\"serving\":" + serving
+            + ",\"queueSize\":" + queueSize + ",\"activeCount\":10,\"admitRate\":5.0}";
+        streamService.onMessage(new DefaultMessage(QueueStreamService.TICK_CHANNEL.getBytes(StandardCharsets.UTF_8),
+            payload.getBytes(StandardCharsets.UTF_8)), null);
+    }
+
+    @Test
+    void tick_pushesPositionsAdvancedByAdmittedWithoutStatusCalls() {
+        when(queueService.status(eventId, "user-1")).thenReturn(queued(50));
+        when(queueService.status(eventId, "user-2")).thenReturn(queued(80));
+        streamService.subscribe(eventId, "user-1");
+        streamService.subscribe(eventId, "user-2");
+        when(queueService.queuedUsers(eq(eventId), anyCollection())).thenReturn(Set.of("user-1", "user-2"));
+
+        tick(30, 0, 500);
+
+        verify(queueService, timeout(1000)).buildQueuedStatus(eventId, 20, 500, 10);
+        verify(queueService, timeout(1000)).buildQueuedStatus(eventId, 50, 500, 10);
+        verify(queueService, times(1)).queuedUsers(eq(eventId), anyCollection());
+        // Only the subscribe-time reads
+        verify(queueService, times(2)).status(any(), any());
+    }
+
+    @Test
+    void tick_positionCappedAtQueueSize() {
+        when(queueService.status(eventId, "user-1")).thenReturn(queued(900));
+        streamService.subscribe(eventId, "user-1");
+        when(queueService.queuedUsers(eq(eventId), anyCollection())).thenReturn(Set.of("user-1"));
+
+        tick(0, 0, 300);
+
+        verify(queueService, timeout(1000)).buildQueuedStatus(eventId, 300, 300, 10);
+    }
+
+    @Test
+    void tick_ticketMode_positionFromServing() {
+        when(queueService.status(eventId, "user-1")).thenReturn(queued(40));
+        when(queueService.getTicket(eventId, "user-1")).thenReturn(140L);
+        streamService.subscribe(eventId, "user-1");
+        when(queueService.queuedUsers(eq(eventId), anyCollection())).thenReturn(Set.of("user-1"));
+
+        tick(20, 120, 500);
+
+        verify(queueService, timeout(1000)).buildQueuedStatus(eventId, 20, 500, 10);
+    }
+
+    @Test
+    void tick_userNoLongerQueued_getsOneStatusCallInsteadOfPosition() {
+        Map<String, Object> left = Map.of("status", "not_in_queue", "queued", false);
+        when(queueService.status(eventId, "user-1")).thenReturn(queued(5), left);
+        when(queueService.getTicket(eventId, "user-1")).thenReturn(30L);
+        streamService.subscribe(eventId, "user-1");
+        when(queueService.queuedUsers(eq(eventId), anyCollection())).thenReturn(Set.of());
+
+        tick(0, 10, 500);
+
+        verify(queueService, timeout(1000).times(2)).status(eventId, "user-1");
+        verify(queueService, never()).buildQueuedStatus(any(), anyInt(), anyInt(), anyInt());
+    }
+}
@@ -4,6 +4,8 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
 import java.util.UUID;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -11,32 +13,76 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import software.amazon.awssdk.services.sqs.SqsClient;
-import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
-import software.amazon.awssdk.services.sqs.model.SendMessageResponse;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResultEntry;
 import software.amazon.awssdk.services.sqs.model.SqsException;
 
 @ExtendWith(MockitoExtension.class)
 class SqsPublisherTest {
 
+    private static final String QUEUE_URL = "https://sqs.example.com/queue.fifo";
+
     @Mock private SqsClient sqsClient;
 
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private SqsPublisher newPublisher(SqsClient client, String queueUrl, boolean enabled, int capacity) {
+        return new SqsPublisher(client, queueUrl, enabled, capacity, 0, registry);
+    }
+
+    private SendMessageBatchResponse successful(SendMessageBatchRequest request, String... failedIds) {
+        List<String> failed = List.of(failedIds);
+        return SendMessageBatchResponse.builder()
+                .successful(request.entries().stream()
+                        .filter(entry -> !failed.contains(entry.id()))
+                        .map(entry -> SendMessageBatchResultEntry.builder().id(entry.id()).messageId("m-" + entry.id()).build())
+                        .toList())
+                .failed(failed.stream()
+                        .map(id -> BatchResultErrorEntry.builder().id(id).senderFault(false).code("InternalError").build())
+                        .toList())
+                .build();
+    }
+
+    private static List<String> users(SendMessageBatchRequest request) {
+        return request.entries().stream()
+                .map(entry -> entry.messageDeduplicationId().substring(0, entry.messageDeduplicationId().indexOf(':')))
+                .toList();
+    }
+
+    private void stubAllSuccessful() {
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class))).thenAnswer(invocation -> {
+            SendMessageBatchRequest request = invocation.getArgument(0);
+            return SendMessageBatchResponse.builder()
+                    .successful(request.entries().stream()
+                            .map(entry -> SendMessageBatchResultEntry.builder().id(entry.id()).messageId("m-" + entry.id()).build())
+                            .toList())
+                    .build();
+        });
+    }
+
+    private double dropped(String reason) {
+        return registry.get("queue.sqs.admission.dropped").tag("reason", reason).counter().count();
+    }
+
     @Test
     void disabled_publishAdmission_doesNothing() {
-        SqsPublisher publisher = new SqsPublisher(sqsClient, "https://sqs.example.com/queue", false);
+        SqsPublisher publisher = newPublisher(sqsClient, QUEUE_URL, false, 100);
 
         assertFalse(publisher.isEnabled());
 
         publisher.publishAdmission(UUID.randomUUID(), "user-1", "token-abc");
+        publisher.flush();
 
         verifyNoInteractions(sqsClient);
     }
 
     @Test
     void enabled_publishAdmission_sendsMessageWithCorrectGroupId() {
-        when(sqsClient.sendMessage(any(SendMessageRequest.class)))
-                .thenReturn(SendMessageResponse.builder().messageId("sqs-msg-1").build());
-
-        SqsPublisher publisher = new SqsPublisher(sqsClient, "https://sqs.example.com/queue.fifo", true);
+        stubAllSuccessful();
+        SqsPublisher publisher = newPublisher(sqsClient, QUEUE_URL, true, 100);
 
         assertTrue(publisher.isEnabled());
 
@@ -45,42 +91,166 @@ class SqsPublisherTest {
         String entryToken = "token-xyz";
 
         publisher.publishAdmission(eventId, userId, entryToken);
+        // Publishing only buffers; nothing is sent on the caller's thread
+        verifyNoInteractions(sqsClient);
+        publisher.flush();
 
-        ArgumentCaptor<SendMessageRequest> captor = ArgumentCaptor.forClass(SendMessageRequest.class);
-        verify(sqsClient).sendMessage(captor.capture());
+        ArgumentCaptor<SendMessageBatchRequest> captor = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+        verify(sqsClient).sendMessageBatch(captor.capture());
 
-        SendMessageRequest captured = captor.getValue();
-        assertEquals("https://sqs.example.com/queue.fifo", captured.queueUrl());
-        assertEquals(eventId.toString(), captured.messageGroupId());
-        assertNotNull(captured.messageDeduplicationId());
+        SendMessageBatchRequest captured = captor.getValue();
+        assertEquals(QUEUE_URL, captured.queueUrl());
+        SendMessageBatchRequestEntry entry = captured.entries().getFirst();
+        assertEquals(eventId.toString(), entry.messageGroupId());
+        assertEquals(userId + ":" + eventId, entry.messageDeduplicationId());
 
         // Verify message body contains expected fields
-        String body = captured.messageBody();
+        String body = entry.messageBody();
         assertTrue(body.contains("\"action\":\"admitted\""));
         assertTrue(body.contains("\"eventId\":\"" + eventId + "\""));
         assertTrue(body.contains("\"userId\":\"" + userId + "\""));
         assertTrue(body.contains("\"entryToken\":\"" + entryToken + "\""));
         assertTrue(body.contains("\"timestamp\":"));
+        assertEquals(1.0, registry.get("queue.sqs.admission.published").counter().count());
+    }
+
+    @Test
+    void flush_batchesAtMostTenEntriesPerGroup() {
+        stubAllSuccessful();
+        SqsPublisher publisher = newPublisher(sqsClient, QUEUE_URL, true, 100);
+        UUID eventA = UUID.randomUUID();
+        UUID eventB = UUID.randomUUID();
+
+        for (int i = 0; i < 15; i++) {
+            publisher.publishAdmission(eventA, "a-" + i, "token");
+        }
+        for (int i = 0; i < 8; i++) {
+            publisher.publishAdmission(eventB, "b-" + i, "token");
+        }
+        publisher.flush();
+
+        ArgumentCaptor<SendMessageBatchRequest> captor = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+        verify(sqsClient, times(3)).sendMessageBatch(captor.capture());
+        List<SendMessageBatchRequest> batches = captor.getAllValues();
+        assertEquals(List.of(10, 5, 8), batches.stream().map(batch -> batch.entries().size()).toList());
+        for (SendMessageBatchRequest batch : batches) {
+            assertEquals(1, batch.entries().stream().map(SendMessageBatchRequestEntry::messageGroupId).distinct().count());
+        }
+        assertEquals(23.0, registry.get("queue.sqs.admission.published").counter().count());
     }
 
     @Test
-    void enabled_sqsThrowsException_doesNotPropagate() {
-        when(sqsClient.sendMessage(any(SendMessageRequest.class)))
+    void bufferFull_dropsAndCountsOverflow() {
+        SqsPublisher publisher = newPublisher(sqsClient, QUEUE_URL, true, 2);
+        UUID eventId = UUID.randomUUID();
+
+        publisher.publishAdmission(eventId, "user-1", "token");
+        publisher.publishAdmission(eventId, "user-2", "token");
+        publisher.publishAdmission(eventId, "user-3", "token");
+
+        assertEquals(1.0, dropped("overflow"));
+        assertEquals(2.0, registry.get("queue.sqs.admission.buffer.size").gauge().value());
+        verifyNoInteractions(sqsClient);
+    }
+
+    @Test
+    void bufferFull_waitsForSpaceBeforeDropping() throws Exception {
+        stubAllSuccessful();
+        SqsPublisher publisher = new SqsPublisher(sqsClient, QUEUE_URL, true, 1, 2000, registry);
+        UUID eventId = UUID.randomUUID();
+        publisher.publishAdmission(eventId, "user-1", "token");
+
+        Thread sender = Thread.ofVirtual().start(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            publisher.flush();
+        });
+        publisher.publishAdmission(eventId, "user-2", "token");
+        sender.join();
+        publisher.flush();
+
+        assertEquals(0.0, dropped("overflow"));
+        assertEquals(2.0, registry.get("queue.sqs.admission.published").counter().count());
+    }
+
+    @Test
+    void failedBatch_retriedBeforeLaterAdmissionsOfTheGroup() {
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenThrow(SqsException.builder().message("Service unavailable").build())
+                .thenAnswer(invocation -> successful(invocation.getArgument(0)));
+        SqsPublisher publisher = newPublisher(sqsClient, QUEUE_URL, true, 100);
+        UUID eventId = UUID.randomUUID();
+        for (int i = 0; i < 12; i++) {
+            publisher.publishAdmission(eventId, "u" + i, "token");
+        }
+
+        publisher.flush();
+
+        ArgumentCaptor<SendMessageBatchRequest> captor = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+        verify(sqsClient, times(3)).sendMessageBatch(captor.capture());
+        List<SendMessageBatchRequest> batches = captor.getAllValues();
+        assertEquals(users(batches.get(0)), users(batches.get(1)));
+        assertEquals(List.of("u10", "u11"), users(batches.get(2)));
+        assertEquals(12.0, registry.get("queue.sqs.admission.published").counter().count());
+    }
+
+    @Test
+    void failedEntry_retriedAtTheHeadOfTheNextBatch() {
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenAnswer(invocation -> successful(invocation.getArgument(0), "3"))
+                .thenAnswer(invocation -> successful(invocation.getArgument(0)));
+        SqsPublisher publisher = newPublisher(sqsClient, QUEUE_URL, true, 100);
+        UUID eventId = UUID.randomUUID();
+        for (int i = 0; i < 12; i++) {
+            publisher.publishAdmission(eventId, "u" + i, "token");
+        }
+
+        publisher.flush();
+
+        ArgumentCaptor<SendMessageBatchRequest> captor = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+        verify(sqsClient, times(2)).sendMessageBatch(captor.capture());
+        assertEquals(List.of("u3", "u10", "u11"), users(captor.getAllValues().get(1)));
+        assertEquals(0.0, dropped("failed"));
+    }
+
+    @Test
+    void enabled_sqsThrowsException_retriesThenDrops() {
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class)))
                 .thenThrow(SqsException.builder().message("Service unavailable").build());
 
-        SqsPublisher publisher = new SqsPublisher(sqsClient, "https://sqs.example.com/queue.fifo", true);
+        SqsPublisher publisher = newPublisher(sqsClient, QUEUE_URL, true, 100);
 
         UUID eventId = UUID.randomUUID();
 
         // Should not throw -- fire-and-forget behavior
         assertDoesNotThrow(() -> publisher.publishAdmission(eventId, "user-3", "token-err"));
+        assertDoesNotThrow(publisher::flush);
+
+        verify(sqsClient, times(3)).sendMessageBatch(any(SendMessageBatchRequest.class));
+        assertEquals(1.0, dropped("failed"));
+    }
+
+    @Test
+    void senderFaultEntry_droppedWithoutRetry() {
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class))).thenReturn(
+                SendMessageBatchResponse.builder()
+                        .failed(BatchResultErrorEntry.builder().id("0").senderFault(true).code("InvalidParameterValue").build())
+                        .build());
+        SqsPublisher publisher = newPublisher(sqsClient, QUEUE_URL, true, 100);
+
+        publisher.publishAdmission(UUID.randomUUID(), "user-4", "token");
+        publisher.flush();
 
-        verify(sqsClient).sendMessage(any(SendMessageRequest.class));
+        verify(sqsClient, times(1)).sendMessageBatch(any(SendMessageBatchRequest.class));
+        assertEquals(1.0, dropped("failed"));
     }
 
     @Test
     void nullSqsClient_disablesPublisher() {
-        SqsPublisher publisher = new SqsPublisher(null, "https://sqs.example.com/queue.fifo", true);
+        SqsPublisher publisher = newPublisher(null, QUEUE_URL, true, 100);
 
         // enabled=true but sqsClient is null, so effective enabled should be false
         assertFalse(publisher.isEnabled());
@@ -88,7 +258,7 @@ class SqsPublisherTest {
 
     @Test
     void blankQueueUrl_disablesPublisher() {
-        SqsPublisher publisher = new SqsPublisher(sqsClient, "", true);
+        SqsPublisher publisher = newPublisher(sqsClient, "", true, 100);
 
         // enabled=true but queueUrl is blank, so effective enabled should be false
         assertFalse(publisher.isEnabled());
@@ -0,0 +1,56 @@
+package guru.urr.queueservice.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+@ExtendWith(MockitoExtension.class)
+class VwrCounterAdvancerTest {
+
+    @Mock private DynamoDbClient dynamoDbClient;
+    @Mock private EventThroughputCache eventThroughputCache;
+    @Mock private StringRedisTemplate redisTemplate;
+
+    private VwrCounterAdvancer advancer() {
+        return new VwrCounterAdvancer(dynamoDbClient, "vwr-counters", new EventQueueSnapshot(60_000, 100),
+            eventThroughputCache, redisTemplate, new QueueKeys(1, false),
+            new EventOwnership(redisTemplate, false, "replica-1", 6000),
+            30, 100, 500, 5000, 20_000, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void nextStep_noMeasuredRate_fillsToInitialBatch() {
+        assertEquals(500, advancer().nextStep(10_000, 0, 0, 0));
+        assertEquals(200, advancer().nextStep(10_000, 300, 0, 0));
+    }
+
+    @Test
+    void nextStep_keepsBufferSecondsOfAdmissionsQueued() {
+        // 50/s x 30s = 1500 target; 600 queued + 400 still on the way
+        assertEquals(500, advancer().nextStep(10_000, 600, 50, 400));
+        assertEquals(0, advancer().nextStep(10_000, 1600, 50, 0));
+    }
+
+    @Test
+    void nextStep_lowRate_usesMinimumBacklog() {
+        assertEquals(100, advancer().nextStep(10_000, 0, 1, 0));
+    }
+
+    @Test
+    void nextStep_cappedByMaxBatchAndTier1Backlog() {
+        assertEquals(5000, advancer().nextStep(100_000, 0, 1000, 0));
+        assertEquals(42, advancer().nextStep(42, 0, 1000, 0));
+        assertEquals(0, advancer().nextStep(0, 0, 1000, 0));
+    }
+
+    @Test
+    void inFlight_unknownEvent_isZero() {
+        assertEquals(0, advancer().inFlight("event-1", System.currentTimeMillis()));
+    }
+}
@@ -0,0 +1,31 @@
+package guru.urr.queueservice.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class WaitPolicyTest {
+
+    @Test
+    void nextPollSeconds_backsOffWithPosition() {
+        assertEquals(WaitPolicy.POLL_SECONDS_DEFAULT, WaitPolicy.nextPollSeconds(0));
+        assertEquals(1, WaitPolicy.nextPollSeconds(1));
+        assertEquals(1, WaitPolicy.nextPollSeconds(1_000));
+        assertEquals(5, WaitPolicy.nextPollSeconds(1_001));
+        assertEquals(10, WaitPolicy.nextPollSeconds(10_000));
+        assertEquals(30, WaitPolicy.nextPollSeconds(100_000));
+        assertEquals(60, WaitPolicy.nextPollSeconds(100_001));
+    }
+
+    @Test
+    void estimateWaitSeconds_usesMeasuredRate() {
+        assertEquals(0, WaitPolicy.estimateWaitSeconds(0, 10.0));
+        assertEquals(11, WaitPolicy.estimateWaitSeconds(101, 10.0));
+    }
+
+    @Test
+    void estimateWaitSeconds_withoutRateAssumesDefaultWithFloor() {
+        assertEquals(5, WaitPolicy.estimateWaitSeconds(10, 0));
+        assertEquals(20, WaitPolicy.estimateWaitSeconds(1_000, 0));
+    }
+}
@@ -0,0 +1,87 @@
+package guru.urr.queueservice.shared.client;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class EventQueueInfoCacheTest {
+
+    @Mock private TicketInternalClient ticketInternalClient;
+
+    private EventQueueInfoCache newCache(SimpleMeterRegistry registry) {
+        return new EventQueueInfoCache(ticketInternalClient, registry, 60, 15, 100);
+    }
+
+    @Test
+    void concurrentMisses_singleCatalogCall() throws Exception {
+        UUID eventId = UUID.randomUUID();
+        CountDownLatch release = new CountDownLatch(1);
+        when(ticketInternalClient.getEventQueueInfo(eventId)).thenAnswer(invocation -> {
+            release.await();
+            return Map.of("title", "Concert", "artist", "Band");
+        });
+        EventQueueInfoCache cache = newCache(new SimpleMeterRegistry());
+
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        try {
+            List<Future<Map<String, Object>>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                results.add(executor.submit(() -> cache.get(eventId)));
+            }
+            release.countDown();
+            for (Future<Map<String, Object>> result : results) {
+                assertEquals("Concert", result.get().get("title"));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(ticketInternalClient, times(1)).getEventQueueInfo(eventId);
+    }
+
+    @Test
+    void fallbackResponse_notCached() {
+        UUID eventId = UUID.randomUUID();
+        when(ticketInternalClient.getEventQueueInfo(eventId))
+                .thenReturn(TicketInternalClient.UNKNOWN_EVENT_INFO)
+                .thenReturn(Map.of("title", "Concert"));
+        EventQueueInfoCache cache = newCache(new SimpleMeterRegistry());
+
+        assertEquals("Unknown", cache.get(eventId).get("title"));
+        assertEquals("Concert", cache.get(eventId).get("title"));
+        assertEquals("Concert", cache.get(eventId).get("title"));
+
+        verify(ticketInternalClient, times(2)).getEventQueueInfo(eventId);
+    }
+
+    @Test
+    void hitsAndMisses_exportedAsMetrics() {
+        UUID eventId = UUID.randomUUID();
+        when(ticketInternalClient.getEventQueueInfo(eventId)).thenReturn(Map.of("title", "Concert"));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        EventQueueInfoCache cache = newCache(registry);
+
+        cache.get(eventId);
+        cache.get(eventId);
+        cache.get(eventId);
+
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "queue.event-info").tag("result", "miss")
+                .functionCounter().count());
+        assertEquals(2.0, registry.get("cache.gets").tag("cache", "queue.event-info").tag("result", "hit")
+                .functionCounter().count());
+    }
+}
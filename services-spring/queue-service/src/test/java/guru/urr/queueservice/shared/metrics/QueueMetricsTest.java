@@ -0,0 +1,65 @@
+package guru.urr.queueservice.shared.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class QueueMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void recordEventAdmission_publishesTaggedGauges() {
+        QueueMetrics metrics = new QueueMetrics(registry, 10);
+
+        metrics.recordEventAdmission("event-1", 1200, 300, 42.5, 25, 1_000_000);
+        metrics.recordStaleRemoved("event-1", 7);
+
+        assertEquals(1200, registry.get("queue.event.depth").tag("event", "event-1").gauge().value());
+        assertEquals(300, registry.get("queue.event.active").tag("event", "event-1").gauge().value());
+        assertEquals(42.5, registry.get("queue.event.admit.rate").tag("event", "event-1").gauge().value());
+        assertEquals(25, registry.get("queue.event.admitted.total").tag("event", "event-1").counter().count());
+        assertEquals(7, registry.get("queue.event.stale.removed.total").tag("event", "event-1").counter().count());
+        assertEquals(1, registry.get("queue.event.admission.duration").tag("event", "event-1").timer().count());
+    }
+
+    @Test
+    void trackedEvents_areCapped() {
+        QueueMetrics metrics = new QueueMetrics(registry, 2);
+
+        metrics.recordEventAdmission("event-1", 1, 0, 0, 0, 0);
+        metrics.recordEventAdmission("event-2", 1, 0, 0, 0, 0);
+        metrics.recordEventAdmission("event-3", 1, 0, 0, 0, 0);
+
+        assertEquals(2, registry.find("queue.event.depth").gauges().size());
+        assertNull(registry.find("queue.event.depth").tag("event", "event-3").gauge());
+    }
+
+    @Test
+    void retainEvents_removesMetersOfEventsThatLeft() {
+        QueueMetrics metrics = new QueueMetrics(registry, 2);
+        metrics.recordEventAdmission("event-1", 1, 0, 0, 0, 0);
+        metrics.recordEventAdmission("event-2", 1, 0, 0, 0, 0);
+
+        metrics.retainEvents(Set.of("event-2"));
+        metrics.recordEventAdmission("event-3", 1, 0, 0, 0, 0);
+
+        assertNull(registry.find("queue.event.depth").tag("event", "event-1").gauge());
+        assertNull(registry.find("queue.event.admitted.total").tag("event", "event-1").counter());
+        assertNotNull(registry.find("queue.event.depth").tag("event", "event-3").gauge());
+    }
+
+    @Test
+    void recordScript_timesPerScriptName() {
+        QueueMetrics metrics = new QueueMetrics(registry, 10);
+
+        metrics.recordScript("queue_join", 2_000_000);
+        metrics.recordScript("queue_join", 4_000_000);
+        metrics.recordScript("admission_control", 1_000_000);
+
+        assertEquals(2, registry.get("queue.redis.script.duration").tag("script", "queue_join").timer().count());
+        assertEquals(1, registry.get("queue.redis.script.duration").tag("script", "admission_control").timer().count());
+    }
+}
@@ -86,6 +86,9 @@ public class StatsEventConsumer {
         } else if ("RESERVATION_CREATED".equals(type)) {
             log.info("Stats: recording reservation created eventId={}", eventId);
             statsWriteService.recordReservationCreated(eventId);
+        } else if ("RESERVATION_EXPIRED".equals(type)) {
+            // Expiry only frees the queue slot (queue-service); it is not a cancellation in daily stats
+            log.debug("Stats: ignoring reservation expired eventId={}", eventId);
         } else {
             // Fallback: duck-typing for backward compatibility
             if (event.containsKey("paymentMethod") && !event.containsKey("reason")) {
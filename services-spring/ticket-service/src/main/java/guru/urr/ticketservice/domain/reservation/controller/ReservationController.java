@@ -4,6 +4,8 @@ import guru.urr.ticketservice.domain.reservation.dto.CreateReservationRequest;
 import guru.urr.common.security.AuthUser;
 import guru.urr.common.security.JwtTokenParser;
 import guru.urr.ticketservice.domain.reservation.service.ReservationService;
+import guru.urr.ticketservice.shared.metrics.BusinessMetrics;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import java.util.Map;
@@ -21,10 +23,13 @@ public class ReservationController {
 
     private final ReservationService reservationService;
     private final JwtTokenParser jwtTokenParser;
+    private final BusinessMetrics metrics;
 
-    public ReservationController(ReservationService reservationService, JwtTokenParser jwtTokenParser) {
+    public ReservationController(ReservationService reservationService, JwtTokenParser jwtTokenParser,
+                                 BusinessMetrics metrics) {
         this.reservationService = reservationService;
         this.jwtTokenParser = jwtTokenParser;
+        this.metrics = metrics;
     }
 
     @PostMapping
@@ -33,7 +38,12 @@ public class ReservationController {
         @Valid @RequestBody CreateReservationRequest body
     ) {
         AuthUser user = jwtTokenParser.requireUser(request);
-        return reservationService.createReservation(user.userId(), body);
+        Timer.Sample sample = metrics.startReservationTimer();
+        try {
+            return reservationService.createReservation(user.userId(), body);
+        } finally {
+            metrics.stopReservationTimer(sample);
+        }
     }
 
     @GetMapping("/my")
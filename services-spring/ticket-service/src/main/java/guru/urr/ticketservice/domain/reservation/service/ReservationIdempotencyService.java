@@ -0,0 +1,162 @@
+package guru.urr.ticketservice.domain.reservation.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Redis-first idempotency for reservation requests.
+ *
+ * The first request with a key takes it with SET NX as an in-flight marker; a duplicate arriving
+ * meanwhile gets 409, and one arriving after commit gets the stored response, both without a
+ * database read. The response is stored when the transaction commits and kept as long as the
+ * reservation can be pending; a rollback removes the marker so the client can retry. The in-flight
+ * marker has its own short TTL so a crashed request does not block the key.
+ *
+ * Keys are scoped per user. The Redis key can be lost (TTL, eviction, restart) while the row
+ * remains, so an owned claim is not proof of a first request: callers insert against the unique
+ * reservations.idempotency_key index and {@link Claim#replay} the stored row when it conflicts.
+ * Without an owned claim they look the key up before inserting.
+ */
+@Service
+public class ReservationIdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationIdempotencyService.class);
+    private static final String IN_FLIGHT = "IN_FLIGHT";
+    private static final TypeReference<Map<String, Object>> RESPONSE_TYPE = new TypeReference<>() {};
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration inFlightTtl;
+
+    /**
+     * Outcome of taking an idempotency key. cachedResponse is the stored response of an earlier
+     * request; owned means this request holds the key and must {@link #complete} it on success.
+     */
+    public static final class Claim {
+
+        private final boolean owned;
+        private final Map<String, Object> cachedResponse;
+        private volatile Map<String, Object> response;
+        private volatile boolean replayed;
+
+        Claim(boolean owned, Map<String, Object> cachedResponse) {
+            this.owned = owned;
+            this.cachedResponse = cachedResponse;
+        }
+
+        /** No key given, or Redis unavailable. A fresh instance, since complete() records into it. */
+        public static Claim none() {
+            return new Claim(false, null);
+        }
+
+        public boolean owned() {
+            return owned;
+        }
+
+        public Map<String, Object> cachedResponse() {
+            return cachedResponse;
+        }
+
+        /** Response to store for retries once the transaction commits. */
+        public void complete(Map<String, Object> response) {
+            this.response = response;
+        }
+
+        /**
+         * Response of a reservation already stored under the key, found after the Redis key was
+         * lost. Stored even though the current transaction is rolled back.
+         */
+        public void replay(Map<String, Object> response) {
+            this.response = response;
+            this.replayed = true;
+        }
+    }
+
+    public ReservationIdempotencyService(
+        StringRedisTemplate redisTemplate,
+        ObjectMapper objectMapper,
+        @Value("${reservation.idempotency.in-flight-seconds:30}") int inFlightSeconds
+    ) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.inFlightTtl = Duration.ofSeconds(inFlightSeconds);
+    }
+
+    /**
+     * Takes the key for this request. Must run inside the reservation transaction; the key is
+     * released or filled in when that transaction completes.
+     *
+     * @throws ResponseStatusException 409 while an earlier request with the same key is in flight
+     */
+    public Claim claim(String userId, String idempotencyKey, Duration responseTtl) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return Claim.none();
+        }
+        String key = key(userId, idempotencyKey);
+        String existing;
+        try {
+            Boolean acquired = redisTemplate.opsForValue().setIfAbsent(key, IN_FLIGHT, inFlightTtl);
+            if (Boolean.TRUE.equals(acquired)) {
+                Claim claim = new Claim(true, null);
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        finish(key, claim, status == STATUS_COMMITTED, responseTtl);
+                    }
+                });
+                return claim;
+            }
+            existing = redisTemplate.opsForValue().get(key);
+        } catch (Exception ex) {
+            log.warn("Idempotency claim failed for key {}: {}", key, ex.getMessage());
+            return Claim.none();
+        }
+
+        if (existing == null) {
+            // Marker expired or was released between SET NX and GET; let the database decide
+            return Claim.none();
+        }
+        if (IN_FLIGHT.equals(existing)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Reservation request already in progress");
+        }
+        try {
+            return new Claim(false, objectMapper.readValue(existing, RESPONSE_TYPE));
+        } catch (Exception ex) {
+            log.warn("Unreadable idempotent response for key {}: {}", key, ex.getMessage());
+            return Claim.none();
+        }
+    }
+
+    private void finish(String key, Claim claim, boolean committed, Duration responseTtl) {
+        try {
+            if ((committed || claim.replayed) && claim.response != null) {
+                redisTemplate.opsForValue().set(key, objectMapper.writeValueAsString(claim.response), responseTtl);
+            } else {
+                redisTemplate.delete(key);
+            }
+        } catch (Exception ex) {
+            log.warn("Idempotency completion failed for key {}: {}", key, ex.getMessage());
+            try {
+                redisTemplate.delete(key);
+            } catch (Exception ignored) {
+                // The in-flight marker expires on its own
+            }
+        }
+    }
+
+    private String key(String userId, String idempotencyKey) {
+        return "reservation:idempotency:" + userId + ":" + idempotencyKey;
+    }
+}
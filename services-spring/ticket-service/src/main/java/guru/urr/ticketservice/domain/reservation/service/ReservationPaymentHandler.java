@@ -2,6 +2,8 @@ package guru.urr.ticketservice.domain.reservation.service;
 
 import guru.urr.ticketservice.domain.membership.service.MembershipService;
 import guru.urr.ticketservice.domain.seat.service.SeatLockService;
+import guru.urr.ticketservice.domain.seat.service.SeatMapService;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -21,12 +23,14 @@ public class ReservationPaymentHandler {
 
     private final JdbcTemplate jdbcTemplate;
     private final SeatLockService seatLockService;
+    private final SeatMapService seatMapService;
     private final MembershipService membershipService;
 
     public ReservationPaymentHandler(JdbcTemplate jdbcTemplate, SeatLockService seatLockService,
-                                      MembershipService membershipService) {
+                                      SeatMapService seatMapService, MembershipService membershipService) {
         this.jdbcTemplate = jdbcTemplate;
         this.seatLockService = seatLockService;
+        this.seatMapService = seatMapService;
         this.membershipService = membershipService;
     }
 
@@ -79,14 +83,17 @@ public class ReservationPaymentHandler {
 
         UUID eventId = resRows.isEmpty() ? null : (UUID) resRows.getFirst().get("event_id");
 
+        List<UUID> reservedSeatIds = new ArrayList<>();
         for (Map<String, Object> item : seatItems) {
             UUID seatId = (UUID) item.get("seat_id");
             jdbcTemplate.update("UPDATE seats SET status = 'reserved', updated_at = NOW() WHERE id = ?", seatId);
+            reservedSeatIds.add(seatId);
             // Clean up Redis seat lock
             if (eventId != null) {
                 seatLockService.cleanupLock(eventId, seatId);
             }
         }
+        seatMapService.seatsChanged(eventId, reservedSeatIds);
 
         // Award membership points for ticket purchase
         try {
@@ -111,13 +118,18 @@ public class ReservationPaymentHandler {
             WHERE id = ?
             """, reservationId);
 
-        jdbcTemplate.update("""
+        List<Map<String, Object>> releasedSeats = jdbcTemplate.queryForList("""
             UPDATE seats
             SET status = 'available', updated_at = NOW()
             WHERE id IN (
                 SELECT seat_id FROM reservation_items
                 WHERE reservation_id = ? AND seat_id IS NOT NULL
             )
+            RETURNING id, event_id
             """, reservationId);
+        if (!releasedSeats.isEmpty()) {
+            seatMapService.seatsChanged((UUID) releasedSeats.getFirst().get("event_id"),
+                releasedSeats.stream().map(row -> (UUID) row.get("id")).toList());
+        }
     }
 }
@@ -4,50 +4,68 @@ import guru.urr.ticketservice.domain.reservation.dto.CreateReservationRequest;
 import guru.urr.ticketservice.domain.reservation.dto.ReservationItemRequest;
 import guru.urr.ticketservice.domain.reservation.dto.SeatReserveRequest;
 import guru.urr.ticketservice.domain.seat.service.SeatLockService;
+import guru.urr.ticketservice.domain.seat.service.SeatMapService;
 import guru.urr.ticketservice.shared.client.PaymentInternalClient;
 import guru.urr.ticketservice.messaging.TicketEventProducer;
 import guru.urr.ticketservice.messaging.event.ReservationCancelledEvent;
+import guru.urr.ticketservice.messaging.event.ReservationCreatedEvent;
 import guru.urr.ticketservice.shared.metrics.BusinessMetrics;
 import java.sql.Timestamp;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.server.ResponseStatusException;
 
 @Service
 public class ReservationService {
 
     private static final Logger log = LoggerFactory.getLogger(ReservationService.class);
-    private static final int MAX_SEATS_PER_RESERVATION = 1;
     private static final int RESERVATION_EXPIRY_MINUTES = 5;
+    private static final Duration IDEMPOTENT_RESPONSE_TTL = Duration.ofMinutes(RESERVATION_EXPIRY_MINUTES);
 
     private final JdbcTemplate jdbcTemplate;
     private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
     private final SeatLockService seatLockService;
+    private final SeatMapService seatMapService;
+    private final ReservationIdempotencyService idempotencyService;
     private final TicketEventProducer ticketEventProducer;
     private final BusinessMetrics metrics;
+    private final int maxSeatsPerReservation;
 
     public ReservationService(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate,
-                              SeatLockService seatLockService,
-                              TicketEventProducer ticketEventProducer, BusinessMetrics metrics) {
+                              SeatLockService seatLockService, SeatMapService seatMapService,
+                              ReservationIdempotencyService idempotencyService,
+                              TicketEventProducer ticketEventProducer, BusinessMetrics metrics,
+                              @Value("${reservation.max-seats:1}") int maxSeatsPerReservation) {
         this.jdbcTemplate = jdbcTemplate;
         this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
         this.seatLockService = seatLockService;
+        this.seatMapService = seatMapService;
+        this.idempotencyService = idempotencyService;
         this.ticketEventProducer = ticketEventProducer;
         this.metrics = metrics;
+        this.maxSeatsPerReservation = maxSeatsPerReservation;
     }
 
     @Transactional
@@ -56,101 +74,125 @@ public class ReservationService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Please select at least one seat");
         }
 
-        // Idempotency check: return existing reservation if key matches
-        if (request.idempotencyKey() != null && !request.idempotencyKey().isBlank()) {
-            List<Map<String, Object>> existing = jdbcTemplate.queryForList(
-                "SELECT id, reservation_number, total_amount, status, payment_status, expires_at FROM reservations WHERE idempotency_key = ?",
-                request.idempotencyKey());
-            if (!existing.isEmpty()) {
-                return Map.of("message", "Seat reserved temporarily", "reservation", existing.getFirst());
-            }
-        }
-        if (request.seatIds().size() > MAX_SEATS_PER_RESERVATION) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Only one seat can be selected");
+        // Idempotency check: Redis answers retries first. Without an owned claim the reservations
+        // lookup runs up front; with one, a lost Redis key surfaces as a conflict on the insert.
+        ReservationIdempotencyService.Claim claim = idempotencyService.claim(userId, request.idempotencyKey(), IDEMPOTENT_RESPONSE_TTL);
+        if (claim.cachedResponse() != null) {
+            return claim.cachedResponse();
         }
-
-        // Phase 1: Acquire Redis Lua seat locks (before DB lock)
-        List<SeatLockService.SeatLockResult> lockResults = new ArrayList<>();
-        for (UUID seatId : request.seatIds()) {
-            SeatLockService.SeatLockResult lockResult = seatLockService.acquireLock(
-                request.eventId(), seatId, userId);
-
-            if (!lockResult.success()) {
-                // Rollback any already-acquired locks
-                for (int i = 0; i < lockResults.size(); i++) {
-                    seatLockService.releaseLock(request.eventId(),
-                        request.seatIds().get(i), userId, lockResults.get(i).fencingToken());
-                }
-                throw new ResponseStatusException(HttpStatus.CONFLICT, "Seat already selected by another user");
+        if (!claim.owned()) {
+            Map<String, Object> existing = storedReservation(userId, request.idempotencyKey(), "Seat reserved temporarily", claim);
+            if (existing != null) {
+                return existing;
             }
-            lockResults.add(lockResult);
         }
-
-        // Phase 2: DB lock with optimistic locking (version check)
-        List<Map<String, Object>> seats = namedParameterJdbcTemplate.queryForList("""
-            SELECT id, seat_label, price, status, version
-            FROM seats
-            WHERE id IN (:seatIds) AND event_id = :eventId
-            FOR UPDATE
-            """, new MapSqlParameterSource()
-            .addValue("seatIds", request.seatIds())
-            .addValue("eventId", request.eventId()));
-
-        if (seats.size() != request.seatIds().size()) {
-            releaseLocks(request.eventId(), request.seatIds(), userId, lockResults);
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Selected seat not found");
+        if (request.seatIds().size() > maxSeatsPerReservation) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, maxSeatsPerReservation == 1
+                ? "Only one seat can be selected"
+                : "Up to " + maxSeatsPerReservation + " seats can be selected");
         }
-
-        List<String> unavailable = seats.stream()
-            .filter(seat -> !Objects.equals("available", seat.get("status")))
-            .map(seat -> String.valueOf(seat.get("seat_label")))
-            .toList();
-
-        if (!unavailable.isEmpty()) {
-            releaseLocks(request.eventId(), request.seatIds(), userId, lockResults);
-            throw new ResponseStatusException(HttpStatus.CONFLICT, "Seat already reserved: " + String.join(", ", unavailable));
+        if (new HashSet<>(request.seatIds()).size() != request.seatIds().size()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Duplicate seat selected");
         }
 
-        // Phase 3: Update seats with version increment and fencing token
-        for (int i = 0; i < seats.size(); i++) {
-            Map<String, Object> seat = seats.get(i);
-            int currentVersion = ((Number) seat.get("version")).intValue();
-            long fencingToken = lockResults.get(i).fencingToken();
-
-            int updated = jdbcTemplate.update("""
-                UPDATE seats
-                SET status = 'locked', version = version + 1,
-                    fencing_token = ?, locked_by = CAST(? AS UUID), updated_at = NOW()
-                WHERE id = ? AND version = ?
-                """, fencingToken, userId, seat.get("id"), currentVersion);
-
-            if (updated == 0) {
-                releaseLocks(request.eventId(), request.seatIds(), userId, lockResults);
-                throw new ResponseStatusException(HttpStatus.CONFLICT, "Seat modified concurrently");
-            }
+        // Phase 1: Acquire Redis Lua seat locks for all seats at once (before DB lock)
+        SeatLockService.SeatLockResult lockResult = seatLockService.acquireLocks(
+            request.eventId(), request.seatIds(), userId);
+        if (!lockResult.success()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Seat already selected by another user");
         }
-
-        int totalAmount = seats.stream().mapToInt(s -> ((Number) s.get("price")).intValue()).sum();
+        Map<UUID, Long> fencingTokens = lockResult.fencingTokens();
+
+        // Phase 2: claim the seats and insert the reservation with its items in one statement.
+        // The UPDATE takes only seats still 'available' (re-checked after waiting on a concurrent
+        // row lock) and bumps their version; the reservation and items are inserted only when
+        // every requested seat was claimed and the idempotency key is unused (ON CONFLICT, so a reused
+        // key leaves the transaction usable for the lookup). Returns one row per claimed seat with
+        // the insert counts.
         OffsetDateTime expiresAt = OffsetDateTime.now().plusMinutes(RESERVATION_EXPIRY_MINUTES);
         String reservationNumber = "TK" + System.currentTimeMillis() + "-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+        List<Object[]> requested = request.seatIds().stream()
+            .map(seatId -> new Object[] {seatId, fencingTokens.get(seatId)})
+            .toList();
 
-        UUID reservationId = jdbcTemplate.queryForObject("""
-            INSERT INTO reservations (user_id, event_id, reservation_number, total_amount, status, payment_status, expires_at, idempotency_key)
-            VALUES (CAST(? AS UUID), ?, ?, ?, 'pending', 'pending', ?, ?)
-            RETURNING id
-            """, UUID.class, userId, request.eventId(), reservationNumber, totalAmount,
-            Timestamp.from(expiresAt.toInstant()),
-            request.idempotencyKey() != null && !request.idempotencyKey().isBlank() ? request.idempotencyKey() : null);
-
-        for (Map<String, Object> seat : seats) {
-            jdbcTemplate.update("""
+        List<Map<String, Object>> claimed = namedParameterJdbcTemplate.queryForList("""
+            WITH requested (id, fencing_token) AS (
+                VALUES :requested
+            ),
+            claimed AS (
+                UPDATE seats s
+                SET status = 'locked', version = s.version + 1,
+                    fencing_token = r.fencing_token, locked_by = CAST(:userId AS UUID), updated_at = NOW()
+                FROM requested r
+                WHERE s.id = r.id AND s.event_id = :eventId AND s.status = 'available'
+                RETURNING s.id, s.seat_label, s.price, s.status, s.version
+            ),
+            reservation AS (
+                INSERT INTO reservations (user_id, event_id, reservation_number, total_amount, status, payment_status, expires_at, idempotency_key)
+                SELECT CAST(:userId AS UUID), :eventId, :reservationNumber, CAST(SUM(price) AS INTEGER), 'pending', 'pending',
+                       CAST(:expiresAt AS TIMESTAMPTZ), CAST(:idempotencyKey AS VARCHAR)
+                FROM claimed
+                HAVING COUNT(*) = :seatCount
+                ON CONFLICT (idempotency_key) WHERE idempotency_key IS NOT NULL DO NOTHING
+                RETURNING id
+            ),
+            items AS (
                 INSERT INTO reservation_items (reservation_id, ticket_type_id, quantity, unit_price, subtotal, seat_id)
-                VALUES (?, NULL, 1, ?, ?, ?)
-                """, reservationId, seat.get("price"), seat.get("price"), seat.get("id"));
+                SELECT reservation.id, NULL, 1, claimed.price, claimed.price, claimed.id
+                FROM reservation CROSS JOIN claimed
+                RETURNING id
+            )
+            SELECT c.id, c.seat_label, c.price, c.status, c.version,
+                   r.id AS reservation_id,
+                   (SELECT COUNT(*) FROM items) AS items_inserted
+            FROM claimed c
+            LEFT JOIN reservation r ON TRUE
+            ORDER BY c.id
+            """, new MapSqlParameterSource()
+            .addValue("requested", requested)
+            .addValue("userId", userId)
+            .addValue("eventId", request.eventId())
+            .addValue("reservationNumber", reservationNumber)
+            .addValue("expiresAt", Timestamp.from(expiresAt.toInstant()))
+            .addValue("idempotencyKey",
+                request.idempotencyKey() != null && !request.idempotencyKey().isBlank() ? request.idempotencyKey() : null)
+            .addValue("seatCount", request.seatIds().size()));
+
+        boolean allClaimed = claimed.size() == request.seatIds().size();
+        if (!allClaimed || claimed.getFirst().get("reservation_id") == null) {
+            // Partial claims are rolled back with the transaction. An earlier request with this key
+            // holds its seats in the database and, as the same user, in Redis: keep those locks.
+            Map<String, Object> stored = replayStoredReservation(userId, request.idempotencyKey(), "Seat reserved temporarily", claim);
+            if (stored != null) {
+                Set<Object> claimedIds = claimed.stream().map(row -> row.get("id")).collect(Collectors.toSet());
+                Map<UUID, Long> newlyHeld = new HashMap<>(fencingTokens);
+                newlyHeld.keySet().retainAll(claimedIds);
+                seatLockService.releaseLocks(request.eventId(), newlyHeld, userId);
+                return stored;
+            }
+            seatLockService.releaseLocks(request.eventId(), fencingTokens, userId);
+            throw allClaimed ? idempotencyKeyInUse() : claimFailure(request, claimed);
+        }
+
+        UUID reservationId = (UUID) claimed.getFirst().get("reservation_id");
+        long itemsInserted = ((Number) claimed.getFirst().get("items_inserted")).longValue();
+        if (reservationId == null || itemsInserted != claimed.size()) {
+            throw new IllegalStateException("Seat claim inserted " + itemsInserted + " items for "
+                + claimed.size() + " seats (reservation " + reservationId + ")");
         }
+        seatMapService.seatsChanged(request.eventId(), request.seatIds());
+
+        List<Map<String, Object>> seats = claimed.stream()
+            .map(row -> {
+                Map<String, Object> seat = new HashMap<>(row);
+                seat.remove("reservation_id");
+                seat.remove("items_inserted");
+                return seat;
+            })
+            .toList();
+        int totalAmount = seats.stream().mapToInt(seat -> ((Number) seat.get("price")).intValue()).sum();
 
-        // Build fencing token map for response
-        long primaryToken = lockResults.isEmpty() ? -1 : lockResults.getFirst().fencingToken();
+        long primaryToken = fencingTokens.get(request.seatIds().getFirst());
 
         Map<String, Object> reservation = new HashMap<>();
         reservation.put("id", reservationId);
@@ -161,14 +203,65 @@ public class ReservationService {
         reservation.put("fencingToken", primaryToken);
 
         metrics.recordReservationCreated();
-        return Map.of("message", "Seat reserved temporarily", "reservation", reservation);
+        publishReservationCreated(reservationId, userId, request.eventId(), totalAmount);
+        Map<String, Object> response = Map.of("message", "Seat reserved temporarily", "reservation", reservation);
+        claim.complete(response);
+        return response;
+    }
+
+    /** Response for this user's reservation already stored under the idempotency key, or null. */
+    private Map<String, Object> storedReservation(String userId, String idempotencyKey, String message,
+                                                  ReservationIdempotencyService.Claim claim) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return null;
+        }
+        List<Map<String, Object>> existing = jdbcTemplate.queryForList(
+            "SELECT id, reservation_number, total_amount, status, payment_status, expires_at FROM reservations WHERE idempotency_key = ? AND user_id = CAST(? AS UUID)",
+            idempotencyKey, userId);
+        if (existing.isEmpty()) {
+            return null;
+        }
+        Map<String, Object> response = Map.of("message", message, "reservation", existing.getFirst());
+        claim.complete(response);
+        return response;
     }
 
-    private void releaseLocks(UUID eventId, List<UUID> seatIds, String userId,
-                               List<SeatLockService.SeatLockResult> lockResults) {
-        for (int i = 0; i < lockResults.size(); i++) {
-            seatLockService.releaseLock(eventId, seatIds.get(i), userId, lockResults.get(i).fencingToken());
+    /**
+     * After the insert found the idempotency key taken (the Redis key was lost): rolls back this
+     * request's writes and returns the stored reservation, re-cached in Redis. Null when there
+     * is none for this user.
+     */
+    private Map<String, Object> replayStoredReservation(String userId, String idempotencyKey, String message,
+                                                        ReservationIdempotencyService.Claim claim) {
+        Map<String, Object> stored = storedReservation(userId, idempotencyKey, message, claim);
+        if (stored == null) {
+            return null;
         }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+        }
+        claim.replay(stored);
+        return stored;
+    }
+
+    private ResponseStatusException idempotencyKeyInUse() {
+        return new ResponseStatusException(HttpStatus.CONFLICT, "Idempotency key already used");
+    }
+
+    /** NOT_FOUND when a requested seat does not exist for the event, otherwise CONFLICT naming the taken seats. */
+    private ResponseStatusException claimFailure(SeatReserveRequest request, List<Map<String, Object>> claimed) {
+        Set<Object> claimedIds = claimed.stream().map(row -> row.get("id")).collect(Collectors.toSet());
+        List<UUID> unclaimed = request.seatIds().stream().filter(seatId -> !claimedIds.contains(seatId)).toList();
+        List<String> unavailable = namedParameterJdbcTemplate.queryForList(
+            "SELECT seat_label FROM seats WHERE id IN (:seatIds) AND event_id = :eventId",
+            new MapSqlParameterSource()
+                .addValue("seatIds", unclaimed)
+                .addValue("eventId", request.eventId()),
+            String.class);
+        if (unavailable.size() != unclaimed.size()) {
+            return new ResponseStatusException(HttpStatus.NOT_FOUND, "Selected seat not found");
+        }
+        return new ResponseStatusException(HttpStatus.CONFLICT, "Seat already reserved: " + String.join(", ", unavailable));
     }
 
     @Transactional
@@ -177,13 +270,16 @@ public class ReservationService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Reservation items are required");
         }
 
-        // Idempotency check: return existing reservation if key matches
-        if (request.idempotencyKey() != null && !request.idempotencyKey().isBlank()) {
-            List<Map<String, Object>> existing = jdbcTemplate.queryForList(
-                "SELECT id, reservation_number, total_amount, status, payment_status, expires_at FROM reservations WHERE idempotency_key = ?",
-                request.idempotencyKey());
-            if (!existing.isEmpty()) {
-                return Map.of("message", "Reservation created", "reservation", existing.getFirst());
+        // Idempotency check: Redis answers retries first. Without an owned claim the reservations
+        // lookup runs up front; with one, a lost Redis key surfaces as a conflict on the insert.
+        ReservationIdempotencyService.Claim claim = idempotencyService.claim(userId, request.idempotencyKey(), IDEMPOTENT_RESPONSE_TTL);
+        if (claim.cachedResponse() != null) {
+            return claim.cachedResponse();
+        }
+        if (!claim.owned()) {
+            Map<String, Object> existing = storedReservation(userId, request.idempotencyKey(), "Reservation created", claim);
+            if (existing != null) {
+                return existing;
             }
         }
 
@@ -231,13 +327,23 @@ public class ReservationService {
         String reservationNumber = "R" + System.currentTimeMillis() + "-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
         OffsetDateTime expiresAt = OffsetDateTime.now().plusMinutes(RESERVATION_EXPIRY_MINUTES);
 
-        UUID reservationId = jdbcTemplate.queryForObject("""
+        // ON CONFLICT rather than catching the unique violation, which would abort the transaction
+        List<UUID> inserted = jdbcTemplate.queryForList("""
             INSERT INTO reservations (user_id, event_id, reservation_number, total_amount, status, payment_status, expires_at, idempotency_key)
             VALUES (CAST(? AS UUID), ?, ?, ?, 'pending', 'pending', ?, ?)
+            ON CONFLICT (idempotency_key) WHERE idempotency_key IS NOT NULL DO NOTHING
             RETURNING id
             """, UUID.class, userId, request.eventId(), reservationNumber, totalAmount,
             Timestamp.from(expiresAt.toInstant()),
             request.idempotencyKey() != null && !request.idempotencyKey().isBlank() ? request.idempotencyKey() : null);
+        if (inserted.isEmpty()) {
+            Map<String, Object> stored = replayStoredReservation(userId, request.idempotencyKey(), "Reservation created", claim);
+            if (stored != null) {
+                return stored;
+            }
+            throw idempotencyKeyInUse();
+        }
+        UUID reservationId = inserted.getFirst();
 
         for (Map<String, Object> item : reservationItems) {
             jdbcTemplate.update("""
@@ -257,7 +363,30 @@ public class ReservationService {
         reservation.put("items", reservationItems);
 
         metrics.recordReservationCreated();
-        return Map.of("message", "Reservation created", "reservation", reservation);
+        publishReservationCreated(reservationId, userId, request.eventId(), totalAmount);
+        Map<String, Object> response = Map.of("message", "Reservation created", "reservation", reservation);
+        claim.complete(response);
+        return response;
+    }
+
+    // Feeds stats and queue-service's admitted-to-reservation conversion (overbooking factor).
+    // Sent after commit so a rolled-back reservation is never counted.
+    private void publishReservationCreated(UUID reservationId, String userId, UUID eventId, int totalAmount) {
+        if (ticketEventProducer == null) {
+            return;
+        }
+        Runnable publish = () -> ticketEventProducer.publishReservationCreated(new ReservationCreatedEvent(
+            reservationId, userId, eventId, totalAmount, Instant.now()));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish.run();
+                }
+            });
+        } else {
+            publish.run();
+        }
     }
 
     public Map<String, Object> getMyReservations(String userId) {
@@ -406,6 +535,7 @@ public class ReservationService {
         List<Map<String, Object>> items = jdbcTemplate.queryForList(
             "SELECT ticket_type_id, quantity, seat_id FROM reservation_items WHERE reservation_id = ?", reservationId);
 
+        List<UUID> releasedSeatIds = new ArrayList<>();
         for (Map<String, Object> item : items) {
             Object ticketTypeId = item.get("ticket_type_id");
             Number quantity = (Number) item.get("quantity");
@@ -418,12 +548,14 @@ public class ReservationService {
 
             if (seatId != null) {
                 jdbcTemplate.update("UPDATE seats SET status = 'available', updated_at = NOW() WHERE id = ?", seatId);
+                releasedSeatIds.add((UUID) seatId);
                 // Clean up Redis seat lock
                 if (eventId != null) {
                     seatLockService.cleanupLock(eventId, (UUID) seatId);
                 }
             }
         }
+        seatMapService.seatsChanged(eventId, releasedSeatIds);
 
         // Set payment_status to 'refund_requested' — actual refund is handled by payment-service
         // via Kafka event. Do NOT set 'refunded' directly as no actual money movement occurs here.
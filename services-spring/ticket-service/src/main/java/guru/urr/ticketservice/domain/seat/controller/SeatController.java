@@ -5,15 +5,23 @@ import guru.urr.common.security.AuthUser;
 import guru.urr.common.security.JwtTokenParser;
 import guru.urr.ticketservice.shared.service.CatalogReadService;
 import guru.urr.ticketservice.domain.reservation.service.ReservationService;
+import guru.urr.ticketservice.domain.seat.service.SeatMapService;
+import guru.urr.ticketservice.shared.metrics.BusinessMetrics;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import java.time.Duration;
 import java.util.Map;
 import java.util.UUID;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
@@ -21,13 +29,22 @@ import org.springframework.web.bind.annotation.RestController;
 public class SeatController {
 
     private final CatalogReadService catalogReadService;
+    private final SeatMapService seatMapService;
     private final ReservationService reservationService;
     private final JwtTokenParser jwtTokenParser;
+    private final BusinessMetrics metrics;
+    private final CacheControl layoutCacheControl;
 
-    public SeatController(CatalogReadService catalogReadService, ReservationService reservationService, JwtTokenParser jwtTokenParser) {
+    public SeatController(CatalogReadService catalogReadService, SeatMapService seatMapService,
+                          ReservationService reservationService, JwtTokenParser jwtTokenParser,
+                          BusinessMetrics metrics,
+                          @Value("${seat-map.layout.max-age-seconds:86400}") long layoutMaxAgeSeconds) {
         this.catalogReadService = catalogReadService;
+        this.seatMapService = seatMapService;
         this.reservationService = reservationService;
         this.jwtTokenParser = jwtTokenParser;
+        this.metrics = metrics;
+        this.layoutCacheControl = CacheControl.maxAge(Duration.ofSeconds(layoutMaxAgeSeconds)).cachePublic();
     }
 
     @GetMapping("/layouts")
@@ -37,7 +54,31 @@ public class SeatController {
 
     @GetMapping("/events/{eventId}")
     public Map<String, Object> byEvent(@PathVariable UUID eventId) {
-        return catalogReadService.getSeatsByEvent(eventId);
+        return seatMapService.getSeatMap(eventId);
+    }
+
+    @GetMapping("/events/{eventId}/changes")
+    public Map<String, Object> changes(@PathVariable UUID eventId, @RequestParam long sinceVersion) {
+        return seatMapService.changesSince(eventId, sinceVersion);
+    }
+
+    /**
+     * Static layout, cached for max-age with layoutId as ETag. A client whose availability
+     * carries a different layoutId refetches with ?v={layoutId}, which only busts caches.
+     * Event details are not part of it; they come uncached from /events/{eventId}.
+     */
+    @GetMapping("/events/{eventId}/layout")
+    public ResponseEntity<Map<String, Object>> layout(@PathVariable UUID eventId) {
+        Map<String, Object> layout = seatMapService.getLayout(eventId);
+        return ResponseEntity.ok()
+            .cacheControl(layoutCacheControl)
+            .eTag(String.valueOf(layout.get("layoutId")))
+            .body(layout);
+    }
+
+    @GetMapping("/events/{eventId}/availability")
+    public Map<String, Object> availability(@PathVariable UUID eventId) {
+        return seatMapService.getAvailability(eventId);
     }
 
     @PostMapping("/reserve")
@@ -46,7 +87,12 @@ public class SeatController {
         @Valid @RequestBody SeatReserveRequest body
     ) {
         AuthUser user = jwtTokenParser.requireUser(request);
-        return reservationService.reserveSeats(user.userId(), body);
+        Timer.Sample sample = metrics.startReservationTimer();
+        try {
+            return reservationService.reserveSeats(user.userId(), body);
+        } finally {
+            metrics.stopReservationTimer(sample);
+        }
     }
 
     @GetMapping("/reservation/{reservationId}")
@@ -0,0 +1,58 @@
+package guru.urr.ticketservice.domain.seat.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact seat availability: one bit per seat ordinal, set when the seat is available.
+ *
+ * The ordinal is the seat's index in the event's seat list (section, row_number, seat_number
+ * order), as served by the static layout. Bit i is bit (i % 8), least significant first, of
+ * byte (i / 8), so a 50k-seat venue is 6.25 KB. layoutId identifies the ordinal assignment;
+ * a client whose layout does not carry the same layoutId must refetch the layout.
+ */
+public final class SeatBitmap {
+
+    private static final String AVAILABLE = "available";
+
+    private SeatBitmap() {
+    }
+
+    public static byte[] availability(List<Map<String, Object>> seats) {
+        byte[] bits = new byte[(seats.size() + 7) / 8];
+        for (int i = 0; i < seats.size(); i++) {
+            set(bits, i, AVAILABLE.equals(seats.get(i).get("status")));
+        }
+        return bits;
+    }
+
+    public static void set(byte[] bits, int ordinal, boolean available) {
+        if (available) {
+            bits[ordinal >> 3] |= (byte) (1 << (ordinal & 7));
+        } else {
+            bits[ordinal >> 3] &= (byte) ~(1 << (ordinal & 7));
+        }
+    }
+
+    public static boolean isAvailable(byte[] bits, int ordinal) {
+        return (bits[ordinal >> 3] & (1 << (ordinal & 7))) != 0;
+    }
+
+    /** Short hash of the seat ids in ordinal order. */
+    public static String layoutId(List<Map<String, Object>> seats) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Map<String, Object> seat : seats) {
+                digest.update(String.valueOf(seat.get("id")).getBytes(StandardCharsets.US_ASCII));
+                digest.update((byte) ',');
+            }
+            return HexFormat.of().formatHex(digest.digest(), 0, 8);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+}
@@ -15,10 +15,12 @@ public class SeatGeneratorService {
 
     private final JdbcTemplate jdbcTemplate;
     private final ObjectMapper objectMapper;
+    private final SeatMapService seatMapService;
 
-    public SeatGeneratorService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+    public SeatGeneratorService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, SeatMapService seatMapService) {
         this.jdbcTemplate = jdbcTemplate;
         this.objectMapper = objectMapper;
+        this.seatMapService = seatMapService;
     }
 
     @Transactional
@@ -57,6 +59,7 @@ public class SeatGeneratorService {
                 }
             }
         }
+        seatMapService.layoutChanged(eventId);
         return created;
     }
 
@@ -67,7 +70,9 @@ public class SeatGeneratorService {
 
     @Transactional
     public int deleteSeatsForEvent(UUID eventId) {
-        return jdbcTemplate.update("DELETE FROM seats WHERE event_id = ?", eventId);
+        int deleted = jdbcTemplate.update("DELETE FROM seats WHERE event_id = ?", eventId);
+        seatMapService.layoutChanged(eventId);
+        return deleted;
     }
 
     @SuppressWarnings("unchecked")
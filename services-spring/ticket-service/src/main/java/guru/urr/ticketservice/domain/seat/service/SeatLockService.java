@@ -1,6 +1,10 @@
 package guru.urr.ticketservice.domain.seat.service;
 
+import guru.urr.ticketservice.shared.metrics.BusinessMetrics;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,63 +22,90 @@ public class SeatLockService {
     private final DefaultRedisScript<List> seatLockAcquireScript;
     private final DefaultRedisScript<Long> seatLockReleaseScript;
     private final DefaultRedisScript<Long> paymentVerifyScript;
+    private final BusinessMetrics metrics;
     private final int seatLockTtlSeconds;
 
-    public record SeatLockResult(boolean success, long fencingToken) {}
+    /**
+     * Outcome of a multi-seat hold. On success every requested seat has its fencing token;
+     * otherwise no seat was held and conflictSeatId names the seat held by another user
+     * (null when Redis itself failed).
+     */
+    public record SeatLockResult(boolean success, Map<UUID, Long> fencingTokens, UUID conflictSeatId) {}
 
     public SeatLockService(
         StringRedisTemplate redisTemplate,
         DefaultRedisScript<List> seatLockAcquireScript,
         DefaultRedisScript<Long> seatLockReleaseScript,
         DefaultRedisScript<Long> paymentVerifyScript,
+        BusinessMetrics metrics,
         @Value("${seat-lock.ttl-seconds:420}") int seatLockTtlSeconds
     ) {
         this.redisTemplate = redisTemplate;
         this.seatLockAcquireScript = seatLockAcquireScript;
         this.seatLockReleaseScript = seatLockReleaseScript;
         this.paymentVerifyScript = paymentVerifyScript;
+        this.metrics = metrics;
         this.seatLockTtlSeconds = seatLockTtlSeconds;
     }
 
-    public SeatLockResult acquireLock(UUID eventId, UUID seatId, String userId) {
-        String seatKey = seatKey(eventId, seatId);
-        String tokenSeqKey = seatKey + ":token_seq";
+    /** Holds all seats or none, in one script call. */
+    public SeatLockResult acquireLocks(UUID eventId, List<UUID> seatIds, String userId) {
+        List<String> keys = new ArrayList<>(seatIds.size() * 2);
+        for (UUID seatId : seatIds) {
+            String seatKey = seatKey(eventId, seatId);
+            keys.add(seatKey);
+            keys.add(seatKey + ":token_seq");
+        }
+        long start = System.nanoTime();
         try {
             @SuppressWarnings("unchecked")
             List<Object> result = redisTemplate.execute(
                 seatLockAcquireScript,
-                List.of(seatKey, tokenSeqKey),
+                keys,
                 userId,
                 String.valueOf(seatLockTtlSeconds)
             );
 
             if (result == null || result.size() < 2) {
-                log.warn("Seat lock acquire returned null for seat {}", seatKey);
-                return new SeatLockResult(false, -1);
+                log.warn("Seat lock acquire returned null for event {} seats {}", eventId, seatIds);
+                return new SeatLockResult(false, Map.of(), null);
+            }
+
+            if (Long.parseLong(result.get(0).toString()) != 1) {
+                int conflict = Integer.parseInt(result.get(1).toString()) - 1;
+                return new SeatLockResult(false, Map.of(), seatIds.get(conflict));
             }
 
-            long success = Long.parseLong(result.get(0).toString());
-            long token = Long.parseLong(result.get(1).toString());
-            return new SeatLockResult(success == 1, token);
+            Map<UUID, Long> tokens = new LinkedHashMap<>();
+            for (int i = 0; i < seatIds.size(); i++) {
+                tokens.put(seatIds.get(i), Long.parseLong(result.get(i + 1).toString()));
+            }
+            return new SeatLockResult(true, tokens, null);
         } catch (Exception ex) {
-            log.error("Redis seat lock failed for {}: {}", seatKey, ex.getMessage());
-            return new SeatLockResult(false, -1);
+            log.error("Redis seat lock failed for event {} seats {}: {}", eventId, seatIds, ex.getMessage());
+            return new SeatLockResult(false, Map.of(), null);
+        } finally {
+            metrics.recordSeatLock(System.nanoTime() - start);
         }
     }
 
-    public boolean releaseLock(UUID eventId, UUID seatId, String userId, long token) {
-        String seatKey = seatKey(eventId, seatId);
+    /** Releases the seats still held by userId with the given tokens, in one script call. */
+    public int releaseLocks(UUID eventId, Map<UUID, Long> fencingTokens, String userId) {
+        if (fencingTokens.isEmpty()) return 0;
+        List<String> keys = new ArrayList<>(fencingTokens.size());
+        List<String> args = new ArrayList<>(fencingTokens.size() + 1);
+        args.add(userId);
+        fencingTokens.forEach((seatId, token) -> {
+            keys.add(seatKey(eventId, seatId));
+            args.add(String.valueOf(token));
+        });
         try {
-            Long result = redisTemplate.execute(
-                seatLockReleaseScript,
-                List.of(seatKey),
-                userId,
-                String.valueOf(token)
-            );
-            return result != null && result == 1;
+            Long result = redisTemplate.execute(seatLockReleaseScript, keys, args.toArray());
+            return result != null ? result.intValue() : 0;
         } catch (Exception ex) {
-            log.warn("Redis seat lock release failed for {}: {}", seatKey, ex.getMessage());
-            return false;
+            log.warn("Redis seat lock release failed for event {} seats {}: {}",
+                eventId, fencingTokens.keySet(), ex.getMessage());
+            return 0;
         }
     }
 
@@ -108,6 +139,7 @@ public class SeatLockService {
     }
 
     private String seatKey(UUID eventId, UUID seatId) {
-        return "seat:" + eventId + ":" + seatId;
+        // Hash tag keeps all seats of an event in one cluster slot for the multi-seat scripts
+        return "seat:{" + eventId + "}:" + seatId;
     }
 }
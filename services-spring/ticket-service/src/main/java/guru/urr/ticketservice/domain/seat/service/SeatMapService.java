@@ -0,0 +1,352 @@
+package guru.urr.ticketservice.domain.seat.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import guru.urr.ticketservice.shared.service.CatalogReadService;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Versioned seat map per event.
+ *
+ * Every seat status change bumps a per-event version in Redis and records which seats changed
+ * at that version. Each replica keeps one in-memory snapshot of the full map per event, labeled
+ * with the version it reflects, and brings it forward by re-reading only the changed seats.
+ * Clients fetch the full map once and then poll {@link #changesSince} for the seats changed
+ * after the version they hold; reset=true means the delta is unavailable (layout changed, log
+ * expired or too large) and the full map must be fetched again.
+ *
+ * Statuses always come from PostgreSQL; Redis only says which seats to re-read, so bumps
+ * landing out of order cannot leave a wrong status behind. Bumps run after commit and are
+ * best-effort: a failed bump delays that change until the seat's next bump or a full reload.
+ *
+ * The same snapshot also serves the compact form: the static layout (seats without status,
+ * in ordinal order, cacheable by layoutId) and a {@link SeatBitmap} of available seats that
+ * is patched bit by bit as changes arrive.
+ */
+@Service
+public class SeatMapService {
+
+    private static final Logger log = LoggerFactory.getLogger(SeatMapService.class);
+
+    private final CatalogReadService catalogReadService;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final DefaultRedisScript<Long> seatMapBumpScript;
+    private final DefaultRedisScript<List> seatMapDeltaScript;
+    private final int maxDeltaSeats;
+    private final long keyTtlSeconds;
+    private final Cache<UUID, Snapshot> snapshots;
+
+    /**
+     * The full map as of version; positions maps seat id to its ordinal (index in seats).
+     * layoutSeats and layoutId only change on a full reload; available and its base64 form
+     * follow seats.
+     */
+    private record Snapshot(long version, Map<String, Object> event, Object layout,
+                            List<Map<String, Object>> seats, Map<String, Integer> positions,
+                            List<Map<String, Object>> layoutSeats, String layoutId,
+                            byte[] available, String availableBase64) {
+
+        Snapshot withSeats(long newVersion, List<Map<String, Object>> newSeats, byte[] newAvailable) {
+            return new Snapshot(newVersion, event, layout, newSeats, positions, layoutSeats, layoutId,
+                newAvailable, Base64.getEncoder().encodeToString(newAvailable));
+        }
+    }
+
+    private record Delta(long version, boolean reset, List<String> seatIds) {
+    }
+
+    public SeatMapService(
+        CatalogReadService catalogReadService,
+        NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+        StringRedisTemplate redisTemplate,
+        DefaultRedisScript<Long> seatMapBumpScript,
+        DefaultRedisScript<List> seatMapDeltaScript,
+        @Value("${seat-map.snapshot.max-events:200}") int maxEvents,
+        @Value("${seat-map.delta.max-seats:5000}") int maxDeltaSeats,
+        @Value("${seat-map.key-ttl-hours:168}") int keyTtlHours
+    ) {
+        this.catalogReadService = catalogReadService;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.redisTemplate = redisTemplate;
+        this.seatMapBumpScript = seatMapBumpScript;
+        this.seatMapDeltaScript = seatMapDeltaScript;
+        this.maxDeltaSeats = maxDeltaSeats;
+        this.keyTtlSeconds = keyTtlHours * 3600L;
+        this.snapshots = Caffeine.newBuilder().maximumSize(maxEvents).build();
+    }
+
+    /** Full seat map plus the version it reflects, served from this replica's snapshot. */
+    public Map<String, Object> getSeatMap(UUID eventId) {
+        Snapshot snapshot = current(eventId);
+        Map<String, Object> response = new HashMap<>();
+        response.put("event", snapshot.event());
+        response.put("layout", snapshot.layout());
+        response.put("seats", snapshot.seats());
+        response.put("version", snapshot.version());
+        return response;
+    }
+
+    /**
+     * Static part of the seat map: seats without status, in ordinal order, and the venue layout.
+     * Changes only when seats are generated or deleted, which also changes layoutId. Event
+     * details are left out since they can change under the same layoutId; they come with the
+     * full map.
+     */
+    public Map<String, Object> getLayout(UUID eventId) {
+        Snapshot snapshot = current(eventId);
+        Map<String, Object> response = new HashMap<>();
+        response.put("layout", snapshot.layout());
+        response.put("layoutId", snapshot.layoutId());
+        response.put("seats", snapshot.layoutSeats());
+        return response;
+    }
+
+    /** Live availability as a base64 {@link SeatBitmap} over the layout's seat ordinals. */
+    public Map<String, Object> getAvailability(UUID eventId) {
+        Snapshot snapshot = current(eventId);
+        Map<String, Object> response = new HashMap<>();
+        response.put("version", snapshot.version());
+        response.put("layoutId", snapshot.layoutId());
+        response.put("seatCount", snapshot.seats().size());
+        response.put("available", snapshot.availableBase64());
+        return response;
+    }
+
+    /**
+     * Seats whose status changed after sinceVersion, with their current status. The returned
+     * version is the one to send next time; statuses may already include later changes, which
+     * are then sent again (idempotently) with a later version.
+     */
+    public Map<String, Object> changesSince(UUID eventId, long sinceVersion) {
+        Delta delta = delta(eventId, sinceVersion);
+        if (delta == null || delta.reset()) {
+            return changesResponse(delta != null ? delta.version() : sinceVersion, true, List.of());
+        }
+        if (delta.seatIds().isEmpty()) {
+            return changesResponse(delta.version(), false, List.of());
+        }
+
+        Snapshot snapshot = snapshots.getIfPresent(eventId);
+        if (snapshot == null || snapshot.version() < delta.version()) {
+            snapshot = refresh(eventId, delta.version());
+        }
+        List<Map<String, Object>> seats = new ArrayList<>(delta.seatIds().size());
+        for (String seatId : delta.seatIds()) {
+            Integer position = snapshot.positions().get(seatId);
+            if (position == null) {
+                return changesResponse(delta.version(), true, List.of());
+            }
+            Map<String, Object> seat = new LinkedHashMap<>();
+            seat.put("id", seatId);
+            seat.put("status", snapshot.seats().get(position).get("status"));
+            seats.add(seat);
+        }
+        return changesResponse(delta.version(), false, seats);
+    }
+
+    /** Records a status change of the given seats, after the current transaction commits. */
+    public void seatsChanged(UUID eventId, Collection<UUID> seatIds) {
+        if (eventId == null || seatIds.isEmpty()) return;
+        List<String> ids = seatIds.stream().map(UUID::toString).toList();
+        afterCommit(() -> bump(eventId, false, ids));
+    }
+
+    /** Records that the event's seats were created or removed; every client reloads the full map. */
+    public void layoutChanged(UUID eventId) {
+        if (eventId == null) return;
+        afterCommit(() -> {
+            snapshots.invalidate(eventId);
+            bump(eventId, true, List.of());
+        });
+    }
+
+    private Snapshot current(UUID eventId) {
+        Long current = currentVersion(eventId);
+        Snapshot snapshot = snapshots.getIfPresent(eventId);
+        // Without Redis the snapshot cannot be checked; serve it as is rather than query per request
+        if (snapshot == null || (current != null && snapshot.version() < current)) {
+            snapshot = refresh(eventId, current);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Brings the snapshot up to atLeast. The database reads run outside the cache's lock, so
+     * concurrent refreshes of one event may both read; publishing keeps whichever is newer.
+     */
+    private Snapshot refresh(UUID eventId, Long atLeast) {
+        Snapshot existing = snapshots.getIfPresent(eventId);
+        // Another request may have brought the snapshot forward in the meantime
+        if (existing != null && atLeast != null && existing.version() >= atLeast) {
+            return existing;
+        }
+        Snapshot refreshed = build(eventId, existing, atLeast);
+        return snapshots.asMap().merge(eventId, refreshed,
+            (cached, fresh) -> fresh.version() >= cached.version() ? fresh : cached);
+    }
+
+    private Snapshot build(UUID eventId, Snapshot existing, Long atLeast) {
+        if (existing == null || atLeast == null) {
+            return load(eventId, atLeast);
+        }
+        Delta delta = delta(eventId, existing.version());
+        if (delta == null || delta.reset()) {
+            return load(eventId, delta != null ? delta.version() : atLeast);
+        }
+        Snapshot applied = apply(eventId, existing, delta);
+        return applied != null ? applied : load(eventId, delta.version());
+    }
+
+    /**
+     * Reads the whole map from PostgreSQL. The version is read before the query, so the map is
+     * at least as new as its label; without Redis it is labeled 0 and clients resync once the
+     * version is back.
+     */
+    private Snapshot load(UUID eventId, Long knownVersion) {
+        Long version = knownVersion;
+        if (version == null) {
+            version = currentVersion(eventId);
+        }
+        Map<String, Object> response = catalogReadService.getSeatsByEvent(eventId);
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> seats = (List<Map<String, Object>>) response.get("seats");
+        Map<String, Integer> positions = new HashMap<>(seats.size() * 2);
+        List<Map<String, Object>> layoutSeats = new ArrayList<>(seats.size());
+        for (int i = 0; i < seats.size(); i++) {
+            positions.put(String.valueOf(seats.get(i).get("id")), i);
+            Map<String, Object> layoutSeat = new LinkedHashMap<>(seats.get(i));
+            layoutSeat.remove("status");
+            layoutSeats.add(layoutSeat);
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Object> event = (Map<String, Object>) response.get("event");
+        byte[] available = SeatBitmap.availability(seats);
+        return new Snapshot(version != null ? version : 0L, event, response.get("layout"),
+            Collections.unmodifiableList(seats), positions, Collections.unmodifiableList(layoutSeats),
+            SeatBitmap.layoutId(seats), available, Base64.getEncoder().encodeToString(available));
+    }
+
+    /** Copies the snapshot with the changed seats re-read; null when a seat is unknown (reload). */
+    private Snapshot apply(UUID eventId, Snapshot snapshot, Delta delta) {
+        if (delta.seatIds().isEmpty()) {
+            return snapshot.withSeats(delta.version(), snapshot.seats(), snapshot.available());
+        }
+        List<Map<String, Object>> rows = namedParameterJdbcTemplate.queryForList(
+            "SELECT id, status FROM seats WHERE event_id = :eventId AND id IN (:ids)",
+            new MapSqlParameterSource()
+                .addValue("eventId", eventId)
+                .addValue("ids", delta.seatIds().stream().map(UUID::fromString).toList()));
+        if (rows.size() != delta.seatIds().size()) {
+            return null;
+        }
+
+        List<Map<String, Object>> seats = new ArrayList<>(snapshot.seats());
+        byte[] available = snapshot.available().clone();
+        for (Map<String, Object> row : rows) {
+            Integer position = snapshot.positions().get(String.valueOf(row.get("id")));
+            if (position == null) {
+                return null;
+            }
+            Map<String, Object> seat = new LinkedHashMap<>(seats.get(position));
+            seat.put("status", row.get("status"));
+            seats.set(position, seat);
+            SeatBitmap.set(available, position, "available".equals(row.get("status")));
+        }
+        return snapshot.withSeats(delta.version(), Collections.unmodifiableList(seats), available);
+    }
+
+    private Map<String, Object> changesResponse(long version, boolean reset, List<Map<String, Object>> seats) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("version", version);
+        response.put("reset", reset);
+        response.put("seats", seats);
+        return response;
+    }
+
+    /** The event's current version, 0 if nothing changed yet, null when Redis is unavailable. */
+    private Long currentVersion(UUID eventId) {
+        try {
+            String value = redisTemplate.opsForValue().get(versionKey(eventId));
+            return value != null ? Long.parseLong(value) : 0L;
+        } catch (Exception ex) {
+            log.warn("Seat map version read failed for event {}: {}", eventId, ex.getMessage());
+            return null;
+        }
+    }
+
+    private Delta delta(UUID eventId, long sinceVersion) {
+        try {
+            @SuppressWarnings("unchecked")
+            List<Object> result = redisTemplate.execute(
+                seatMapDeltaScript,
+                keys(eventId),
+                String.valueOf(sinceVersion),
+                String.valueOf(maxDeltaSeats)
+            );
+            if (result == null || result.size() < 2) {
+                return null;
+            }
+            long version = Long.parseLong(result.get(0).toString());
+            boolean reset = Long.parseLong(result.get(1).toString()) == 1;
+            List<String> seatIds = result.subList(2, result.size()).stream().map(Object::toString).toList();
+            return new Delta(version, reset, seatIds);
+        } catch (Exception ex) {
+            log.warn("Seat map delta failed for event {}: {}", eventId, ex.getMessage());
+            return null;
+        }
+    }
+
+    private void bump(UUID eventId, boolean reset, List<String> seatIds) {
+        List<String> args = new ArrayList<>(seatIds.size() + 2);
+        args.add(reset ? "1" : "0");
+        args.add(String.valueOf(keyTtlSeconds));
+        args.addAll(seatIds);
+        try {
+            redisTemplate.execute(seatMapBumpScript, keys(eventId), args.toArray());
+        } catch (Exception ex) {
+            log.warn("Seat map bump failed for event {} ({} seats): {}", eventId, seatIds.size(), ex.getMessage());
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private List<String> keys(UUID eventId) {
+        // Hash tag keeps an event's seat-map keys in one cluster slot for the scripts
+        String prefix = "seatmap:{" + eventId + "}:";
+        return List.of(prefix + "version", prefix + "changes", prefix + "reset");
+    }
+
+    private String versionKey(UUID eventId) {
+        return "seatmap:{" + eventId + "}:version";
+    }
+}
@@ -1,6 +1,7 @@
 package guru.urr.ticketservice.internal.controller;
 
 import guru.urr.common.security.InternalTokenValidator;
+import guru.urr.ticketservice.domain.seat.service.SeatMapService;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -17,10 +18,13 @@ public class InternalAdminDataController {
 
     private final JdbcTemplate jdbcTemplate;
     private final InternalTokenValidator internalTokenValidator;
+    private final SeatMapService seatMapService;
 
-    public InternalAdminDataController(JdbcTemplate jdbcTemplate, InternalTokenValidator internalTokenValidator) {
+    public InternalAdminDataController(JdbcTemplate jdbcTemplate, InternalTokenValidator internalTokenValidator,
+                                       SeatMapService seatMapService) {
         this.jdbcTemplate = jdbcTemplate;
         this.internalTokenValidator = internalTokenValidator;
+        this.seatMapService = seatMapService;
     }
 
     @GetMapping("/reservation-stats")
@@ -135,9 +139,10 @@ public class InternalAdminDataController {
             WHERE event_id = ? AND status IN ('pending', 'confirmed') RETURNING id
             """, eventId);
 
-        jdbcTemplate.update(
-            "UPDATE seats SET status = 'available', updated_at = NOW() WHERE event_id = ? AND status = 'locked'",
-            eventId);
+        List<UUID> releasedSeatIds = jdbcTemplate.queryForList(
+            "UPDATE seats SET status = 'available', updated_at = NOW() WHERE event_id = ? AND status = 'locked' RETURNING id",
+            UUID.class, eventId);
+        seatMapService.seatsChanged(eventId, releasedSeatIds);
 
         return Map.of("cancelledCount", cancelled.size());
     }
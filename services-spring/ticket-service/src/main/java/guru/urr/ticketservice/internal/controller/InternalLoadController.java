@@ -0,0 +1,28 @@
+package guru.urr.ticketservice.internal.controller;
+
+import guru.urr.common.security.InternalTokenValidator;
+import guru.urr.ticketservice.shared.service.LoadSignalService;
+import java.util.Map;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/internal")
+public class InternalLoadController {
+
+    private final LoadSignalService loadSignalService;
+    private final InternalTokenValidator internalTokenValidator;
+
+    public InternalLoadController(LoadSignalService loadSignalService, InternalTokenValidator internalTokenValidator) {
+        this.loadSignalService = loadSignalService;
+        this.internalTokenValidator = internalTokenValidator;
+    }
+
+    @GetMapping("/load-signal")
+    public Map<String, Object> loadSignal(@RequestHeader(value = "Authorization", required = false) String authorization) {
+        internalTokenValidator.requireValidToken(authorization);
+        return loadSignalService.snapshot();
+    }
+}
@@ -37,27 +37,26 @@ public class InternalSeatController {
 
         internalTokenValidator.requireValidToken(authorization);
 
-        List<Map<String, Object>> results = new ArrayList<>();
-        boolean allSuccess = true;
+        // All seats are held or none; a conflict leaves no partial hold behind
+        SeatLockResult lockResult = seatLockService.acquireLocks(
+                request.eventId(), request.seatIds(), request.userId());
+        boolean allSuccess = lockResult.success();
 
+        List<Map<String, Object>> results = new ArrayList<>();
         for (UUID seatId : request.seatIds()) {
-            SeatLockResult lockResult = seatLockService.acquireLock(
-                    request.eventId(), seatId, request.userId());
-
             Map<String, Object> seatResult = new HashMap<>();
             seatResult.put("seatId", seatId);
-            seatResult.put("success", lockResult.success());
-            seatResult.put("fencingToken", lockResult.fencingToken());
+            seatResult.put("success", allSuccess);
+            seatResult.put("fencingToken", lockResult.fencingTokens().getOrDefault(seatId, -1L));
             results.add(seatResult);
-
-            if (!lockResult.success()) {
-                allSuccess = false;
-            }
         }
 
         Map<String, Object> response = new HashMap<>();
         response.put("success", allSuccess);
         response.put("seats", results);
+        if (lockResult.conflictSeatId() != null) {
+            response.put("conflictSeatId", lockResult.conflictSeatId());
+        }
 
         return allSuccess
                 ? ResponseEntity.ok(response)
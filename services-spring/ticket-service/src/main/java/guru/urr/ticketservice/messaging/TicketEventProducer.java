@@ -4,6 +4,7 @@ import guru.urr.ticketservice.messaging.event.MembershipActivatedEvent;
 import guru.urr.ticketservice.messaging.event.ReservationCancelledEvent;
 import guru.urr.ticketservice.messaging.event.ReservationConfirmedEvent;
 import guru.urr.ticketservice.messaging.event.ReservationCreatedEvent;
+import guru.urr.ticketservice.messaging.event.ReservationExpiredEvent;
 import guru.urr.ticketservice.messaging.event.TransferCompletedEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -54,6 +55,17 @@ public class TicketEventProducer {
             });
     }
 
+    public void publishReservationExpired(ReservationExpiredEvent event) {
+        kafkaTemplate.send("reservation-events", event.reservationId().toString(), event)
+            .whenComplete((result, ex) -> {
+                if (ex != null) {
+                    log.error("Failed to publish ReservationExpiredEvent: {}", ex.getMessage());
+                } else {
+                    log.info("Published ReservationExpiredEvent reservationId={}", event.reservationId());
+                }
+            });
+    }
+
     public void publishTransferCompleted(TransferCompletedEvent event) {
         kafkaTemplate.send("transfer-events", event.transferId().toString(), event)
             .whenComplete((result, ex) -> {
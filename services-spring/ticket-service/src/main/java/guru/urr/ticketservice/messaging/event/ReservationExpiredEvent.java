@@ -0,0 +1,17 @@
+package guru.urr.ticketservice.messaging.event;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record ReservationExpiredEvent(
+    String type,
+    UUID sagaId,
+    UUID reservationId,
+    String userId,
+    UUID eventId,
+    Instant timestamp
+) {
+    public ReservationExpiredEvent(UUID reservationId, String userId, UUID eventId, Instant timestamp) {
+        this("RESERVATION_EXPIRED", null, reservationId, userId, eventId, timestamp);
+    }
+}
@@ -1,7 +1,12 @@
 package guru.urr.ticketservice.scheduling;
 
 import guru.urr.ticketservice.domain.seat.service.SeatLockService;
+import guru.urr.ticketservice.domain.seat.service.SeatMapService;
+import guru.urr.ticketservice.messaging.TicketEventProducer;
+import guru.urr.ticketservice.messaging.event.ReservationExpiredEvent;
 import guru.urr.ticketservice.shared.metrics.BusinessMetrics;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -11,6 +16,8 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Component
 public class ReservationCleanupScheduler {
@@ -19,25 +26,31 @@ public class ReservationCleanupScheduler {
 
     private final JdbcTemplate jdbcTemplate;
     private final SeatLockService seatLockService;
+    private final SeatMapService seatMapService;
     private final BusinessMetrics metrics;
+    private final TicketEventProducer ticketEventProducer;
 
     public ReservationCleanupScheduler(JdbcTemplate jdbcTemplate, SeatLockService seatLockService,
-                                        BusinessMetrics metrics) {
+                                        SeatMapService seatMapService, BusinessMetrics metrics,
+                                        TicketEventProducer ticketEventProducer) {
         this.jdbcTemplate = jdbcTemplate;
         this.seatLockService = seatLockService;
+        this.seatMapService = seatMapService;
         this.metrics = metrics;
+        this.ticketEventProducer = ticketEventProducer;
     }
 
     /**
      * H6: Finds expired pending reservations and cleans them up.
      * Sets status to 'expired', releases Redis seat locks, and marks seats as available.
+     * Publishes RESERVATION_EXPIRED so queue-service frees the user's active slot.
      */
     @Scheduled(fixedRateString = "${reservation.cleanup.interval-ms:30000}")
     @Transactional
     public void cleanupExpiredReservations() {
         try {
             List<Map<String, Object>> expired = jdbcTemplate.queryForList("""
-                SELECT id, event_id
+                SELECT id, event_id, user_id
                 FROM reservations
                 WHERE status = 'pending'
                   AND expires_at < NOW()
@@ -53,12 +66,14 @@ public class ReservationCleanupScheduler {
             for (Map<String, Object> reservation : expired) {
                 UUID reservationId = (UUID) reservation.get("id");
                 UUID eventId = (UUID) reservation.get("event_id");
+                Object userId = reservation.get("user_id");
 
                 try {
                     List<Map<String, Object>> items = jdbcTemplate.queryForList(
                         "SELECT seat_id, ticket_type_id, quantity FROM reservation_items WHERE reservation_id = ?",
                         reservationId);
 
+                    List<UUID> releasedSeatIds = new ArrayList<>();
                     for (Map<String, Object> item : items) {
                         Object seatId = item.get("seat_id");
                         Object ticketTypeId = item.get("ticket_type_id");
@@ -70,6 +85,7 @@ public class ReservationCleanupScheduler {
                                 fencing_token = 0, locked_by = NULL, updated_at = NOW()
                                 WHERE id = ?
                                 """, seatId);
+                            releasedSeatIds.add((UUID) seatId);
 
                             try {
                                 seatLockService.cleanupLock(eventId, (UUID) seatId);
@@ -83,12 +99,16 @@ public class ReservationCleanupScheduler {
                                 quantity, ticketTypeId);
                         }
                     }
+                    seatMapService.seatsChanged(eventId, releasedSeatIds);
 
                     jdbcTemplate.update(
                         "UPDATE reservations SET status = 'expired', updated_at = NOW() WHERE id = ?",
                         reservationId);
 
                     metrics.recordReservationExpired();
+                    if (userId != null) {
+                        publishReservationExpired(reservationId, userId.toString(), eventId);
+                    }
                     log.info("Reservation cleanup: expired reservation {} with {} items", reservationId, items.size());
                 } catch (Exception e) {
                     log.error("Reservation cleanup: failed to expire reservation {}: {}", reservationId, e.getMessage(), e);
@@ -98,4 +118,20 @@ public class ReservationCleanupScheduler {
             log.error("Reservation cleanup scheduler failed: {}", e.getMessage(), e);
         }
     }
+
+    // Sent after commit so queue-service never frees a slot for an expiry that rolled back.
+    private void publishReservationExpired(UUID reservationId, String userId, UUID eventId) {
+        Runnable publish = () -> ticketEventProducer.publishReservationExpired(new ReservationExpiredEvent(
+            reservationId, userId, eventId, Instant.now()));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish.run();
+                }
+            });
+        } else {
+            publish.run();
+        }
+    }
 }
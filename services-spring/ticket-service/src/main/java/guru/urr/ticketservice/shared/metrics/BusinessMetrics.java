@@ -3,11 +3,17 @@ package guru.urr.ticketservice.shared.metrics;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 import org.springframework.stereotype.Component;
 
 @Component
 public class BusinessMetrics {
 
+    // Short decay window so the p99 served to queue-service reflects the current load
+    private static final Duration LATENCY_WINDOW = Duration.ofSeconds(30);
+
     private final Counter reservationCreated;
     private final Counter reservationConfirmed;
     private final Counter reservationCancelled;
@@ -17,6 +23,7 @@ public class BusinessMetrics {
     private final Counter transferCompleted;
     private final Counter membershipActivated;
     private final Timer reservationCreateTimer;
+    private final Timer seatLockTimer;
 
     public BusinessMetrics(MeterRegistry registry) {
         this.reservationCreated = Counter.builder("business.reservation.created.total")
@@ -45,6 +52,13 @@ public class BusinessMetrics {
             .register(registry);
         this.reservationCreateTimer = Timer.builder("business.reservation.create.duration")
             .description("Time to create a reservation")
+            .publishPercentiles(0.99)
+            .distributionStatisticExpiry(LATENCY_WINDOW)
+            .register(registry);
+        this.seatLockTimer = Timer.builder("business.seat.lock.duration")
+            .description("Time to run the seat lock acquire script")
+            .publishPercentiles(0.99)
+            .distributionStatisticExpiry(LATENCY_WINDOW)
             .register(registry);
     }
 
@@ -57,4 +71,18 @@ public class BusinessMetrics {
     public void recordTransferCompleted() { transferCompleted.increment(); }
     public void recordMembershipActivated() { membershipActivated.increment(); }
     public Timer getReservationCreateTimer() { return reservationCreateTimer; }
+    public Timer.Sample startReservationTimer() { return Timer.start(); }
+    public void stopReservationTimer(Timer.Sample sample) { sample.stop(reservationCreateTimer); }
+    public void recordSeatLock(long durationNanos) { seatLockTimer.record(durationNanos, TimeUnit.NANOSECONDS); }
+    public double reservationCreateP99Ms() { return p99Millis(reservationCreateTimer); }
+    public double seatLockP99Ms() { return p99Millis(seatLockTimer); }
+
+    private static double p99Millis(Timer timer) {
+        for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+            if (percentile.percentile() == 0.99) {
+                return percentile.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return 0;
+    }
 }
@@ -0,0 +1,53 @@
+package guru.urr.ticketservice.shared.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import guru.urr.ticketservice.shared.metrics.BusinessMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.springframework.stereotype.Service;
+
+/**
+ * Point-in-time saturation signal for the reservation path, polled by queue-service's
+ * admission controller: DB pool usage/waiters and recent reservation and seat-lock p99.
+ */
+@Service
+public class LoadSignalService {
+
+    private final DataSource dataSource;
+    private final MeterRegistry meterRegistry;
+    private final BusinessMetrics metrics;
+
+    public LoadSignalService(DataSource dataSource, MeterRegistry meterRegistry, BusinessMetrics metrics) {
+        this.dataSource = dataSource;
+        this.meterRegistry = meterRegistry;
+        this.metrics = metrics;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> signal = new LinkedHashMap<>();
+        int activeConnections = 0;
+        int maxPoolSize = 0;
+        int threadsAwaitingConnection = 0;
+        if (dataSource instanceof HikariDataSource hikari && hikari.getHikariPoolMXBean() != null) {
+            HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+            activeConnections = pool.getActiveConnections();
+            threadsAwaitingConnection = pool.getThreadsAwaitingConnection();
+            maxPoolSize = hikari.getMaximumPoolSize();
+        }
+        Timer acquire = meterRegistry.find("hikaricp.connections.acquire").timer();
+
+        signal.put("activeConnections", activeConnections);
+        signal.put("maxPoolSize", maxPoolSize);
+        signal.put("threadsAwaitingConnection", threadsAwaitingConnection);
+        signal.put("poolUtilization", maxPoolSize > 0 ? (double) activeConnections / maxPoolSize : 0.0);
+        signal.put("connectionAcquireMaxMs", acquire != null ? acquire.max(TimeUnit.MILLISECONDS) : 0.0);
+        signal.put("reservationP99Ms", metrics.reservationCreateP99Ms());
+        signal.put("seatLockP99Ms", metrics.seatLockP99Ms());
+        return signal;
+    }
+}
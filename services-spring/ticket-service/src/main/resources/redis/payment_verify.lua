@@ -1,4 +1,4 @@
--- KEYS[1] = seat:{eventId}:{seatId}
+-- KEYS[1] = seat:{eventId}:seatId  ({eventId} is a hash tag)
 -- ARGV[1] = userId
 -- ARGV[2] = token
 
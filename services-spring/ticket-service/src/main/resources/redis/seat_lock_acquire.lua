@@ -1,36 +1,46 @@
--- KEYS[1] = seat:{eventId}:{seatId}      (HASH: status, userId, token, heldAt)
--- KEYS[2] = seat:{eventId}:{seatId}:token_seq  (fencing token counter)
+-- KEYS[2i-1] = seat:{eventId}:seatId            (HASH: status, userId, token, heldAt)
+-- KEYS[2i]   = seat:{eventId}:seatId:token_seq  (fencing token counter)
 -- ARGV[1] = userId
 -- ARGV[2] = ttl (seconds)
+-- {eventId} is a hash tag: every seat of one call maps to the same cluster slot.
+-- Returns {1, token1, token2, ...} when all seats are held by userId, or {0, i} naming the
+-- first seat (1-based) held by another user, in which case nothing is changed.
 
-local seatKey = KEYS[1]
-local tokenSeqKey = KEYS[2]
 local userId = ARGV[1]
 local ttl = tonumber(ARGV[2])
+local seatCount = #KEYS / 2
 
--- 1. Check current status
-local status = redis.call('HGET', seatKey, 'status')
-if status == 'HELD' or status == 'CONFIRMED' then
-    local currentUser = redis.call('HGET', seatKey, 'userId')
-    if currentUser == userId then
-        -- Same user re-selecting: extend TTL and return existing token
-        redis.call('EXPIRE', seatKey, ttl)
-        local existingToken = redis.call('HGET', seatKey, 'token')
-        return {1, existingToken}
+-- 1. Check every seat before touching any, so a conflict leaves no partial hold
+for i = 1, seatCount do
+    local seatKey = KEYS[2 * i - 1]
+    local status = redis.call('HGET', seatKey, 'status')
+    if (status == 'HELD' or status == 'CONFIRMED') and redis.call('HGET', seatKey, 'userId') ~= userId then
+        return {0, i}  -- Failure: seat taken by another user
     end
-    return {0, '-1'}  -- Failure: seat taken by another user
 end
 
--- 2. Generate monotonically increasing fencing token
-local token = redis.call('INCR', tokenSeqKey)
-
--- 3. Atomic state transition: AVAILABLE -> HELD
-redis.call('HMSET', seatKey,
-    'status', 'HELD',
-    'userId', userId,
-    'token', token,
-    'heldAt', tostring(redis.call('TIME')[1])
-)
-redis.call('EXPIRE', seatKey, ttl)
+-- 2. Hold every seat
+local heldAt = tostring(redis.call('TIME')[1])
+local result = {1}
+for i = 1, seatCount do
+    local seatKey = KEYS[2 * i - 1]
+    local status = redis.call('HGET', seatKey, 'status')
+    local token
+    if status == 'HELD' or status == 'CONFIRMED' then
+        -- Same user re-selecting: extend TTL and keep the existing token
+        token = redis.call('HGET', seatKey, 'token')
+    else
+        -- Monotonically increasing fencing token, AVAILABLE -> HELD
+        token = redis.call('INCR', KEYS[2 * i])
+        redis.call('HMSET', seatKey,
+            'status', 'HELD',
+            'userId', userId,
+            'token', token,
+            'heldAt', heldAt
+        )
+    end
+    redis.call('EXPIRE', seatKey, ttl)
+    result[#result + 1] = tostring(token)
+end
 
-return {1, token}
+return result
@@ -1,18 +1,21 @@
--- KEYS[1] = seat:{eventId}:{seatId}
+-- KEYS[i] = seat:{eventId}:seatId
 -- ARGV[1] = userId
--- ARGV[2] = token
+-- ARGV[i + 1] = fencing token held for KEYS[i]
+-- Returns the number of seats released.
 
-local seatKey = KEYS[1]
 local userId = ARGV[1]
-local token = ARGV[2]
+local released = 0
 
-local currentUserId = redis.call('HGET', seatKey, 'userId')
-local currentToken = redis.call('HGET', seatKey, 'token')
+for i = 1, #KEYS do
+    local seatKey = KEYS[i]
+    local currentUserId = redis.call('HGET', seatKey, 'userId')
+    local currentToken = redis.call('HGET', seatKey, 'token')
 
--- Only release if same user and same token
-if currentUserId ~= userId or currentToken ~= token then
-    return 0
+    -- Only release if same user and same token
+    if currentUserId == userId and currentToken == ARGV[i + 1] then
+        redis.call('DEL', seatKey)
+        released = released + 1
+    end
 end
 
-redis.call('DEL', seatKey)
-return 1
+return released
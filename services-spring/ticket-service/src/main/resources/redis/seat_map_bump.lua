@@ -0,0 +1,33 @@
+-- KEYS[1] = seatmap:{eventId}:version  (STRING, current seat-map version)
+-- KEYS[2] = seatmap:{eventId}:changes  (ZSET seatId -> version of its latest change)
+-- KEYS[3] = seatmap:{eventId}:reset    (STRING, versions below this must reload the full map)
+-- ARGV[1] = reset ('1' when seats were added or removed; drops the change log)
+-- ARGV[2] = ttlSeconds
+-- ARGV[3..] = changed seatIds
+
+local version
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    -- First bump, or keys expired: start from the clock so the version never moves
+    -- backwards, and make every older version reload the full map
+    local now = redis.call('TIME')
+    version = tonumber(now[1]) * 1000 + math.floor(tonumber(now[2]) / 1000)
+    redis.call('SET', KEYS[1], version)
+    redis.call('DEL', KEYS[2])
+    redis.call('SET', KEYS[3], version)
+else
+    version = redis.call('INCR', KEYS[1])
+    if ARGV[1] == '1' then
+        redis.call('DEL', KEYS[2])
+        redis.call('SET', KEYS[3], version)
+    end
+end
+
+for i = 3, #ARGV do
+    redis.call('ZADD', KEYS[2], version, ARGV[i])
+end
+
+local ttl = tonumber(ARGV[2])
+for i = 1, 3 do
+    redis.call('EXPIRE', KEYS[i], ttl)
+end
+return version
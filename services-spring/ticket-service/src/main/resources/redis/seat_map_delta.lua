@@ -0,0 +1,28 @@
+-- KEYS[1] = seatmap:{eventId}:version
+-- KEYS[2] = seatmap:{eventId}:changes
+-- KEYS[3] = seatmap:{eventId}:reset
+-- ARGV[1] = sinceVersion
+-- ARGV[2] = maxSeats (larger deltas answer with reset instead)
+-- Returns {version, reset (0|1), changedSeatId...}
+
+local version = tonumber(redis.call('GET', KEYS[1]) or '0')
+local resetVersion = tonumber(redis.call('GET', KEYS[3]) or '0')
+local since = tonumber(ARGV[1])
+
+if since == version then
+    return {version, 0}
+end
+if since > version or since < resetVersion then
+    return {version, 1}
+end
+
+local min = '(' .. ARGV[1]
+if redis.call('ZCOUNT', KEYS[2], min, '+inf') > tonumber(ARGV[2]) then
+    return {version, 1}
+end
+
+local result = {version, 0}
+for _, seatId in ipairs(redis.call('ZRANGEBYSCORE', KEYS[2], min, '+inf')) do
+    result[#result + 1] = seatId
+end
+return result
@@ -0,0 +1,121 @@
+package guru.urr.ticketservice.domain.reservation.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+@ExtendWith(MockitoExtension.class)
+class ReservationIdempotencyServiceTest {
+
+    private static final String KEY = "reservation:idempotency:user-1:idem-1";
+    private static final Duration RESPONSE_TTL = Duration.ofMinutes(5);
+
+    @Mock private StringRedisTemplate redisTemplate;
+    @Mock private ValueOperations<String, String> valueOperations;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ReservationIdempotencyService idempotencyService;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new ReservationIdempotencyService(redisTemplate, objectMapper, 30);
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    private void completeTransaction(int status) {
+        TransactionSynchronizationManager.getSynchronizations().forEach(sync -> sync.afterCompletion(status));
+    }
+
+    @Test
+    void claim_firstRequest_storesResponseOnCommit() throws Exception {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(KEY, "IN_FLIGHT", Duration.ofSeconds(30))).thenReturn(true);
+
+        ReservationIdempotencyService.Claim claim = idempotencyService.claim("user-1", "idem-1", RESPONSE_TTL);
+        Map<String, Object> response = Map.of("message", "Seat reserved temporarily", "reservation", Map.of("id", "r-1"));
+        claim.complete(response);
+        completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertTrue(claim.owned());
+        assertNull(claim.cachedResponse());
+        verify(valueOperations).set(KEY, objectMapper.writeValueAsString(response), RESPONSE_TTL);
+    }
+
+    @Test
+    void claim_rollback_releasesKey() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(eq(KEY), eq("IN_FLIGHT"), any(Duration.class))).thenReturn(true);
+
+        idempotencyService.claim("user-1", "idem-1", RESPONSE_TTL);
+        completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        verify(redisTemplate).delete(KEY);
+        verify(valueOperations, never()).set(anyString(), anyString(), any(Duration.class));
+    }
+
+    @Test
+    void claim_retryAfterCommit_returnsStoredResponse() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(eq(KEY), eq("IN_FLIGHT"), any(Duration.class))).thenReturn(false);
+        when(valueOperations.get(KEY)).thenReturn("{\"message\":\"Seat reserved temporarily\",\"reservation\":{\"id\":\"r-1\"}}");
+
+        ReservationIdempotencyService.Claim claim = idempotencyService.claim("user-1", "idem-1", RESPONSE_TTL);
+
+        assertFalse(claim.owned());
+        assertEquals(Map.of("id", "r-1"), claim.cachedResponse().get("reservation"));
+        assertTrue(TransactionSynchronizationManager.getSynchronizations().isEmpty());
+    }
+
+    @Test
+    void claim_duplicateWhileInFlight_conflicts() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(eq(KEY), eq("IN_FLIGHT"), any(Duration.class))).thenReturn(false);
+        when(valueOperations.get(KEY)).thenReturn("IN_FLIGHT");
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+            () -> idempotencyService.claim("user-1", "idem-1", RESPONSE_TTL));
+        assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+    }
+
+    @Test
+    void claim_redisDown_fallsBackToDatabase() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(eq(KEY), eq("IN_FLIGHT"), any(Duration.class)))
+            .thenThrow(new RedisConnectionFailureException("down"));
+
+        ReservationIdempotencyService.Claim claim = idempotencyService.claim("user-1", "idem-1", RESPONSE_TTL);
+
+        assertFalse(claim.owned());
+        assertNull(claim.cachedResponse());
+    }
+
+    @Test
+    void claim_withoutKey_skipsRedis() {
+        ReservationIdempotencyService.Claim claim = idempotencyService.claim("user-1", null, RESPONSE_TTL);
+
+        assertFalse(claim.owned());
+        verifyNoInteractions(redisTemplate);
+    }
+}
@@ -6,6 +6,7 @@ import static org.mockito.Mockito.*;
 
 import guru.urr.ticketservice.domain.membership.service.MembershipService;
 import guru.urr.ticketservice.domain.seat.service.SeatLockService;
+import guru.urr.ticketservice.domain.seat.service.SeatMapService;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -23,13 +24,14 @@ class ReservationPaymentHandlerTest {
 
     @Mock private JdbcTemplate jdbcTemplate;
     @Mock private SeatLockService seatLockService;
+    @Mock private SeatMapService seatMapService;
     @Mock private MembershipService membershipService;
 
     private ReservationPaymentHandler handler;
 
     @BeforeEach
     void setUp() {
-        handler = new ReservationPaymentHandler(jdbcTemplate, seatLockService, membershipService);
+        handler = new ReservationPaymentHandler(jdbcTemplate, seatLockService, seatMapService, membershipService);
     }
 
     @Test
@@ -60,9 +62,25 @@ class ReservationPaymentHandlerTest {
         UUID reservationId = UUID.randomUUID();
 
         when(jdbcTemplate.update(contains("UPDATE reservations"), eq(reservationId))).thenReturn(1);
-        when(jdbcTemplate.update(contains("UPDATE seats"), eq(reservationId))).thenReturn(0);
+        when(jdbcTemplate.queryForList(contains("UPDATE seats"), eq(reservationId))).thenReturn(Collections.emptyList());
 
         assertDoesNotThrow(() -> handler.markReservationRefunded(reservationId));
         verify(jdbcTemplate).update(contains("status = 'cancelled'"), eq(reservationId));
+        verifyNoInteractions(seatMapService);
+    }
+
+    @Test
+    void markReservationRefunded_recordsReleasedSeatsInSeatMap() {
+        UUID reservationId = UUID.randomUUID();
+        UUID eventId = UUID.randomUUID();
+        UUID seatId = UUID.randomUUID();
+
+        when(jdbcTemplate.update(contains("UPDATE reservations"), eq(reservationId))).thenReturn(1);
+        when(jdbcTemplate.queryForList(contains("UPDATE seats"), eq(reservationId)))
+            .thenReturn(List.of(Map.of("id", seatId, "event_id", eventId)));
+
+        handler.markReservationRefunded(reservationId);
+
+        verify(seatMapService).seatsChanged(eventId, List.of(seatId));
     }
 }
@@ -4,9 +4,15 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import guru.urr.ticketservice.domain.reservation.dto.CreateReservationRequest;
+import guru.urr.ticketservice.domain.reservation.dto.ReservationItemRequest;
+import guru.urr.ticketservice.domain.reservation.dto.SeatReserveRequest;
 import guru.urr.ticketservice.domain.seat.service.SeatLockService;
+import guru.urr.ticketservice.domain.seat.service.SeatMapService;
 import guru.urr.ticketservice.messaging.TicketEventProducer;
 import guru.urr.ticketservice.shared.metrics.BusinessMetrics;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -17,8 +23,14 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.http.HttpStatus;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.server.ResponseStatusException;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,6 +39,8 @@ class ReservationServiceTest {
     @Mock private JdbcTemplate jdbcTemplate;
     @Mock private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
     @Mock private SeatLockService seatLockService;
+    @Mock private SeatMapService seatMapService;
+    @Mock private ReservationIdempotencyService idempotencyService;
     @Mock private TicketEventProducer ticketEventProducer;
     @Mock private BusinessMetrics metrics;
 
@@ -34,7 +48,227 @@ class ReservationServiceTest {
 
     @BeforeEach
     void setUp() {
-        reservationService = new ReservationService(jdbcTemplate, namedParameterJdbcTemplate, seatLockService, ticketEventProducer, metrics);
+        reservationService = new ReservationService(jdbcTemplate, namedParameterJdbcTemplate, seatLockService, seatMapService,
+            idempotencyService, ticketEventProducer, metrics, 4);
+        lenient().when(idempotencyService.claim(any(), any(), any())).thenReturn(ReservationIdempotencyService.Claim.none());
+    }
+
+    @Test
+    void reserveSeats_lockConflict_throwsWithoutTouchingDb() {
+        String userId = UUID.randomUUID().toString();
+        UUID eventId = UUID.randomUUID();
+        List<UUID> seatIds = List.of(UUID.randomUUID(), UUID.randomUUID());
+
+        when(seatLockService.acquireLocks(eventId, seatIds, userId))
+            .thenReturn(new SeatLockService.SeatLockResult(false, Map.of(), seatIds.get(1)));
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+            () -> reservationService.reserveSeats(userId, new SeatReserveRequest(eventId, seatIds, null)));
+        assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+        verifyNoInteractions(namedParameterJdbcTemplate);
+        verify(seatLockService, never()).releaseLocks(any(), any(), any());
+    }
+
+    @Test
+    void reserveSeats_claimsSeatsAndInsertsReservationInOneStatement() {
+        String userId = UUID.randomUUID().toString();
+        UUID eventId = UUID.randomUUID();
+        UUID reservationId = UUID.randomUUID();
+        List<UUID> seatIds = List.of(UUID.randomUUID(), UUID.randomUUID());
+
+        when(seatLockService.acquireLocks(eventId, seatIds, userId))
+            .thenReturn(new SeatLockService.SeatLockResult(true, Map.of(seatIds.get(0), 5L, seatIds.get(1), 6L), null));
+        when(namedParameterJdbcTemplate.queryForList(contains("WITH requested"), any(SqlParameterSource.class)))
+            .thenReturn(List.of(
+                claimedRow(seatIds.get(0), 50000, reservationId, 2),
+                claimedRow(seatIds.get(1), 70000, reservationId, 2)));
+
+        Map<String, Object> result = reservationService.reserveSeats(userId, new SeatReserveRequest(eventId, seatIds, null));
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> reservation = (Map<String, Object>) result.get("reservation");
+        assertEquals(reservationId, reservation.get("id"));
+        assertEquals(120000, reservation.get("totalAmount"));
+        assertEquals(5L, reservation.get("fencingToken"));
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+        verify(seatMapService).seatsChanged(eventId, seatIds);
+        verify(seatLockService, never()).releaseLocks(any(), any(), any());
+    }
+
+    @Test
+    void reserveSeats_publishesCreatedEventOnlyAfterCommit() {
+        String userId = UUID.randomUUID().toString();
+        UUID eventId = UUID.randomUUID();
+        List<UUID> seatIds = List.of(UUID.randomUUID());
+
+        when(seatLockService.acquireLocks(eventId, seatIds, userId))
+            .thenReturn(new SeatLockService.SeatLockResult(true, Map.of(seatIds.get(0), 5L), null));
+        when(namedParameterJdbcTemplate.queryForList(contains("WITH requested"), any(SqlParameterSource.class)))
+            .thenReturn(List.of(claimedRow(seatIds.get(0), 50000, UUID.randomUUID(), 1)));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            reservationService.reserveSeats(userId, new SeatReserveRequest(eventId, seatIds, null));
+            verifyNoInteractions(ticketEventProducer);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            verify(ticketEventProducer).publishReservationCreated(any());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void reserveSeats_seatTaken_conflictNamesSeatAndReleasesLocks() {
+        String userId = UUID.randomUUID().toString();
+        UUID eventId = UUID.randomUUID();
+        List<UUID> seatIds = List.of(UUID.randomUUID(), UUID.randomUUID());
+        Map<UUID, Long> tokens = Map.of(seatIds.get(0), 5L, seatIds.get(1), 6L);
+
+        when(seatLockService.acquireLocks(eventId, seatIds, userId))
+            .thenReturn(new SeatLockService.SeatLockResult(true, tokens, null));
+        when(namedParameterJdbcTemplate.queryForList(contains("WITH requested"), any(SqlParameterSource.class)))
+            .thenReturn(List.of(claimedRow(seatIds.get(0), 50000, null, 0)));
+        when(namedParameterJdbcTemplate.queryForList(contains("SELECT seat_label"), any(SqlParameterSource.class), eq(String.class)))
+            .thenReturn(List.of("A-1-2"));
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+            () -> reservationService.reserveSeats(userId, new SeatReserveRequest(eventId, seatIds, null)));
+        assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+        assertTrue(e.getReason().contains("A-1-2"));
+        verify(seatLockService).releaseLocks(eventId, tokens, userId);
+        verifyNoInteractions(seatMapService);
+    }
+
+    @Test
+    void reserveSeats_seatMissing_releasesAllLocksInOneCall() {
+        String userId = UUID.randomUUID().toString();
+        UUID eventId = UUID.randomUUID();
+        List<UUID> seatIds = List.of(UUID.randomUUID(), UUID.randomUUID());
+        Map<UUID, Long> tokens = Map.of(seatIds.get(0), 5L, seatIds.get(1), 6L);
+
+        when(seatLockService.acquireLocks(eventId, seatIds, userId))
+            .thenReturn(new SeatLockService.SeatLockResult(true, tokens, null));
+        when(namedParameterJdbcTemplate.queryForList(contains("WITH requested"), any(SqlParameterSource.class)))
+            .thenReturn(List.of(claimedRow(seatIds.get(0), 50000, null, 0)));
+        when(namedParameterJdbcTemplate.queryForList(contains("SELECT seat_label"), any(SqlParameterSource.class), eq(String.class)))
+            .thenReturn(Collections.emptyList());
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+            () -> reservationService.reserveSeats(userId, new SeatReserveRequest(eventId, seatIds, null)));
+        assertEquals(HttpStatus.NOT_FOUND, e.getStatusCode());
+        verify(seatLockService).releaseLocks(eventId, tokens, userId);
+    }
+
+    private Map<String, Object> claimedRow(UUID seatId, int price, UUID reservationId, long itemsInserted) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", seatId);
+        row.put("seat_label", "A-1-1");
+        row.put("price", price);
+        row.put("status", "locked");
+        row.put("version", 1);
+        row.put("reservation_id", reservationId);
+        row.put("items_inserted", itemsInserted);
+        return row;
+    }
+
+    @Test
+    void reserveSeats_tooManySeats_throws() {
+        List<UUID> seatIds = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(),
+            UUID.randomUUID(), UUID.randomUUID());
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+            () -> reservationService.reserveSeats("user-1", new SeatReserveRequest(UUID.randomUUID(), seatIds, null)));
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+        verifyNoInteractions(seatLockService);
+    }
+
+    @Test
+    void reserveSeats_singleSeatLimit_rejectsSecondSeat() {
+        ReservationService service = new ReservationService(jdbcTemplate, namedParameterJdbcTemplate, seatLockService,
+            seatMapService, idempotencyService, ticketEventProducer, metrics, 1);
+        List<UUID> seatIds = List.of(UUID.randomUUID(), UUID.randomUUID());
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+            () -> service.reserveSeats("user-1", new SeatReserveRequest(UUID.randomUUID(), seatIds, null)));
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+        assertEquals("Only one seat can be selected", e.getReason());
+        verifyNoInteractions(seatLockService);
+    }
+
+    @Test
+    void reserveSeats_ownedClaim_skipsIdempotencyLookup() {
+        String userId = UUID.randomUUID().toString();
+        UUID eventId = UUID.randomUUID();
+        List<UUID> seatIds = List.of(UUID.randomUUID());
+        when(idempotencyService.claim(eq(userId), eq("idem-1"), any())).thenReturn(new ReservationIdempotencyService.Claim(true, null));
+        when(seatLockService.acquireLocks(eventId, seatIds, userId))
+            .thenReturn(new SeatLockService.SeatLockResult(true, Map.of(seatIds.get(0), 5L), null));
+        when(namedParameterJdbcTemplate.queryForList(contains("WITH requested"), any(SqlParameterSource.class)))
+            .thenReturn(List.of(claimedRow(seatIds.get(0), 50000, UUID.randomUUID(), 1)));
+
+        reservationService.reserveSeats(userId, new SeatReserveRequest(eventId, seatIds, "idem-1"));
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reserveSeats_redisKeyLost_returnsStoredReservationAndRecachesIt() throws Exception {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(anyString(), eq("IN_FLIGHT"), any(Duration.class))).thenReturn(true);
+        ObjectMapper objectMapper = new ObjectMapper();
+        ReservationService service = new ReservationService(jdbcTemplate, namedParameterJdbcTemplate, seatLockService,
+            seatMapService, new ReservationIdempotencyService(redisTemplate, objectMapper, 30), ticketEventProducer, metrics, 4);
+        UUID eventId = UUID.randomUUID();
+        List<UUID> seatIds = List.of(UUID.randomUUID());
+        // The earlier request still holds the seat, in Redis for this same user and as locked in the database
+        when(seatLockService.acquireLocks(eventId, seatIds, "user-1"))
+            .thenReturn(new SeatLockService.SeatLockResult(true, Map.of(seatIds.get(0), 5L), null));
+        when(namedParameterJdbcTemplate.queryForList(contains("WITH requested"), any(SqlParameterSource.class)))
+            .thenReturn(List.of());
+        Map<String, Object> stored = Map.of("id", "r-1", "reservation_number", "TK1-ABC", "status", "pending");
+        when(jdbcTemplate.queryForList(contains("WHERE idempotency_key = ?"), eq("idem-1"), eq("user-1"))).thenReturn(List.of(stored));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            Map<String, Object> result = service.reserveSeats("user-1", new SeatReserveRequest(eventId, seatIds, "idem-1"));
+            // This request's writes roll back; the stored response is cached again regardless
+            TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+            assertEquals(stored, result.get("reservation"));
+            verify(valueOperations).set("reservation:idempotency:user-1:idem-1",
+                objectMapper.writeValueAsString(result), Duration.ofMinutes(5));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        verify(seatLockService).releaseLocks(eventId, Map.of(), "user-1");
+        verifyNoInteractions(seatMapService, ticketEventProducer);
+    }
+
+    @Test
+    void createReservation_keyTakenOnInsert_returnsStoredReservation() {
+        String userId = UUID.randomUUID().toString();
+        UUID eventId = UUID.randomUUID();
+        UUID ticketTypeId = UUID.randomUUID();
+        when(idempotencyService.claim(eq(userId), eq("idem-1"), any())).thenReturn(new ReservationIdempotencyService.Claim(true, null));
+        when(jdbcTemplate.queryForList(contains("FROM events"), eq(eventId))).thenReturn(List.of(Map.of("id", eventId, "title", "Concert")));
+        when(jdbcTemplate.queryForList(contains("FROM ticket_types"), eq(ticketTypeId), eq(eventId)))
+            .thenReturn(List.of(Map.of("id", ticketTypeId, "name", "General", "price", 50000, "available_quantity", 10)));
+        when(jdbcTemplate.queryForList(contains("INSERT INTO reservations"), eq(UUID.class), any(Object[].class)))
+            .thenReturn(List.of());
+        Map<String, Object> stored = Map.of("id", "r-1", "status", "pending");
+        when(jdbcTemplate.queryForList(contains("WHERE idempotency_key = ?"), eq("idem-1"), eq(userId))).thenReturn(List.of(stored));
+
+        Map<String, Object> result = reservationService.createReservation(userId, new CreateReservationRequest(
+            eventId, List.of(new ReservationItemRequest(ticketTypeId, 2)), "idem-1"));
+
+        assertEquals(stored, result.get("reservation"));
+        verify(jdbcTemplate, never()).update(contains("INSERT INTO reservation_items"), any(Object[].class));
+        verifyNoInteractions(ticketEventProducer);
     }
 
     @Test
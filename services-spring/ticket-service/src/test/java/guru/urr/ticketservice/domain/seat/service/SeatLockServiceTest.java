@@ -0,0 +1,89 @@
+package guru.urr.ticketservice.domain.seat.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import guru.urr.ticketservice.shared.metrics.BusinessMetrics;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+@ExtendWith(MockitoExtension.class)
+class SeatLockServiceTest {
+
+    @Mock private StringRedisTemplate redisTemplate;
+    @Mock private BusinessMetrics metrics;
+
+    private final DefaultRedisScript<List> acquireScript = new DefaultRedisScript<>();
+    private final DefaultRedisScript<Long> releaseScript = new DefaultRedisScript<>();
+    private final UUID eventId = UUID.randomUUID();
+    private final UUID seatA = UUID.randomUUID();
+    private final UUID seatB = UUID.randomUUID();
+
+    private SeatLockService seatLockService;
+
+    @BeforeEach
+    void setUp() {
+        seatLockService = new SeatLockService(redisTemplate, acquireScript, releaseScript,
+            new DefaultRedisScript<>(), metrics, 420);
+    }
+
+    private String key(UUID seatId) {
+        return "seat:{" + eventId + "}:" + seatId;
+    }
+
+    @Test
+    void acquireLocks_holdsAllSeatsInOneHashTaggedCall() {
+        List<String> keys = List.of(key(seatA), key(seatA) + ":token_seq", key(seatB), key(seatB) + ":token_seq");
+        when(redisTemplate.execute(acquireScript, keys, "user-1", "420")).thenReturn(List.of(1L, "7", "3"));
+
+        SeatLockService.SeatLockResult result = seatLockService.acquireLocks(eventId, List.of(seatA, seatB), "user-1");
+
+        assertTrue(result.success());
+        assertEquals(Map.of(seatA, 7L, seatB, 3L), result.fencingTokens());
+        assertNull(result.conflictSeatId());
+        verify(metrics).recordSeatLock(anyLong());
+    }
+
+    @Test
+    void acquireLocks_reportsConflictingSeat() {
+        when(redisTemplate.execute(eq(acquireScript), anyList(), eq("user-1"), eq("420"))).thenReturn(List.of(0L, 2L));
+
+        SeatLockService.SeatLockResult result = seatLockService.acquireLocks(eventId, List.of(seatA, seatB), "user-1");
+
+        assertFalse(result.success());
+        assertTrue(result.fencingTokens().isEmpty());
+        assertEquals(seatB, result.conflictSeatId());
+    }
+
+    @Test
+    void acquireLocks_redisFailure_fails() {
+        when(redisTemplate.execute(eq(acquireScript), anyList(), eq("user-1"), eq("420")))
+            .thenThrow(new RedisConnectionFailureException("down"));
+
+        SeatLockService.SeatLockResult result = seatLockService.acquireLocks(eventId, List.of(seatA), "user-1");
+
+        assertFalse(result.success());
+        assertNull(result.conflictSeatId());
+    }
+
+    @Test
+    void releaseLocks_passesTokensInKeyOrder() {
+        Map<UUID, Long> tokens = new LinkedHashMap<>();
+        tokens.put(seatA, 7L);
+        tokens.put(seatB, 3L);
+        when(redisTemplate.execute(releaseScript, List.of(key(seatA), key(seatB)), "user-1", "7", "3")).thenReturn(2L);
+
+        assertEquals(2, seatLockService.releaseLocks(eventId, tokens, "user-1"));
+    }
+}
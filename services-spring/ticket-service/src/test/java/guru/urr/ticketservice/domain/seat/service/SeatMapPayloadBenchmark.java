@@ -0,0 +1,124 @@
+package guru.urr.ticketservice.domain.seat.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import guru.urr.ticketservice.shared.service.CatalogReadService;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+/**
+ * Per-poll payload of the full seat map (getSeatsByEvent JSON) vs the availability bitset, plus
+ * the one-off static layout, for a large venue. Run with ./gradlew benchmark;
+ * -Dseat.benchmark.seats=50000 sets the venue size.
+ */
+@Tag("benchmark")
+class SeatMapPayloadBenchmark {
+
+    private static final int SEATS = Integer.getInteger("seat.benchmark.seats", 50_000);
+    private static final int WARMUP_ITERATIONS = 20;
+    private static final int MEASURED_ITERATIONS = 100;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void compareFullMapWithAvailability() throws IOException {
+        UUID eventId = UUID.randomUUID();
+        Map<String, Object> fullMap = fullMap(eventId);
+
+        CatalogReadService catalogReadService = mock(CatalogReadService.class);
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+        when(catalogReadService.getSeatsByEvent(eventId)).thenReturn(fullMap);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(anyString())).thenReturn("1");
+        SeatMapService seatMapService = new SeatMapService(catalogReadService, mock(NamedParameterJdbcTemplate.class),
+            redisTemplate, new DefaultRedisScript<>(), new DefaultRedisScript<>(), 10, 5000, 1);
+
+        byte[] full = objectMapper.writeValueAsBytes(fullMap);
+        byte[] layout = objectMapper.writeValueAsBytes(seatMapService.getLayout(eventId));
+        byte[] availability = objectMapper.writeValueAsBytes(seatMapService.getAvailability(eventId));
+
+        double fullMs = cpuMillisPerOp(() -> objectMapper.writeValueAsBytes(fullMap));
+        double availabilityMs = cpuMillisPerOp(() -> objectMapper.writeValueAsBytes(seatMapService.getAvailability(eventId)));
+
+        System.out.printf("seat map for %d seats: full=%d bytes (gzip %d, %.2f ms CPU) availability=%d bytes (gzip %d, %.3f ms CPU) layout once=%d bytes (gzip %d)%n",
+            SEATS, full.length, gzipSize(full), fullMs, availability.length, gzipSize(availability), availabilityMs,
+            layout.length, gzipSize(layout));
+        assertTrue(availability.length * 50L < full.length, "availability should be far smaller than the full map");
+        assertTrue(availability.length < SEATS / 6 + 512, "availability should stay around 8 bytes base64 per 6 seats");
+    }
+
+    private Map<String, Object> fullMap(UUID eventId) {
+        Random random = new Random(42);
+        List<Map<String, Object>> seats = new ArrayList<>(SEATS);
+        int seatsPerRow = 50;
+        int rowsPerSection = 50;
+        for (int i = 0; i < SEATS; i++) {
+            String section = String.valueOf((char) ('A' + i / (seatsPerRow * rowsPerSection) % 26));
+            int row = i / seatsPerRow % rowsPerSection + 1;
+            int number = i % seatsPerRow + 1;
+            double roll = random.nextDouble();
+            Map<String, Object> seat = new HashMap<>();
+            seat.put("id", UUID.randomUUID());
+            seat.put("section", section);
+            seat.put("row_number", row);
+            seat.put("seat_number", number);
+            seat.put("seat_label", section + "-" + row + "-" + number);
+            seat.put("price", 99000);
+            seat.put("status", roll < 0.6 ? "available" : roll < 0.7 ? "locked" : "reserved");
+            seats.add(seat);
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("event", Map.of("id", eventId, "title", "Benchmark Concert"));
+        response.put("layout", "{\"sections\":[]}");
+        response.put("seats", seats);
+        return response;
+    }
+
+    private double cpuMillisPerOp(ThrowingSupplier op) throws IOException {
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            sink += op.get().length;
+        }
+        long start = threadMXBean.getCurrentThreadCpuTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            sink += op.get().length;
+        }
+        long elapsed = threadMXBean.getCurrentThreadCpuTime() - start;
+        assertTrue(sink > 0);
+        return elapsed / 1_000_000.0 / MEASURED_ITERATIONS;
+    }
+
+    private static int gzipSize(byte[] payload) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(payload);
+        }
+        return out.size();
+    }
+
+    @FunctionalInterface
+    private interface ThrowingSupplier {
+        byte[] get() throws IOException;
+    }
+}
@@ -0,0 +1,246 @@
+package guru.urr.ticketservice.domain.seat.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import guru.urr.ticketservice.shared.service.CatalogReadService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+@ExtendWith(MockitoExtension.class)
+class SeatMapServiceTest {
+
+    @Mock private CatalogReadService catalogReadService;
+    @Mock private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    @Mock private StringRedisTemplate redisTemplate;
+    @Mock private ValueOperations<String, String> valueOperations;
+
+    private final DefaultRedisScript<Long> bumpScript = new DefaultRedisScript<>();
+    private final DefaultRedisScript<List> deltaScript = new DefaultRedisScript<>();
+    private final UUID eventId = UUID.randomUUID();
+    private final UUID seatA = UUID.randomUUID();
+    private final UUID seatB = UUID.randomUUID();
+
+    private SeatMapService seatMapService;
+
+    @BeforeEach
+    void setUp() {
+        seatMapService = new SeatMapService(catalogReadService, namedParameterJdbcTemplate, redisTemplate,
+            bumpScript, deltaScript, 10, 100, 1);
+    }
+
+    private Map<String, Object> seat(UUID id, String status) {
+        Map<String, Object> seat = new HashMap<>();
+        seat.put("id", id);
+        seat.put("seat_label", "A-1-" + id.toString().substring(0, 4));
+        seat.put("status", status);
+        return seat;
+    }
+
+    private void stubFullMap() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("event", Map.of("id", eventId, "title", "Concert"));
+        response.put("layout", "{}");
+        response.put("seats", new ArrayList<>(List.of(seat(seatA, "available"), seat(seatB, "available"))));
+        when(catalogReadService.getSeatsByEvent(eventId)).thenReturn(response);
+    }
+
+    private void stubVersion(String... versions) {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        String first = versions[0];
+        String[] rest = Arrays.copyOfRange(versions, 1, versions.length);
+        when(valueOperations.get("seatmap:{" + eventId + "}:version")).thenReturn(first, rest);
+    }
+
+    private void stubDelta(String since, Object... result) {
+        when(redisTemplate.execute(eq(deltaScript), anyList(), eq(since), eq("100"))).thenReturn(List.of(result));
+    }
+
+    @SuppressWarnings("unchecked")
+    private String status(Map<String, Object> map, UUID seatId) {
+        return ((List<Map<String, Object>>) map.get("seats")).stream()
+            .filter(s -> seatId.equals(s.get("id")))
+            .map(s -> (String) s.get("status"))
+            .findFirst().orElseThrow();
+    }
+
+    @Test
+    void getSeatMap_servesSnapshotWhileVersionUnchanged() {
+        stubVersion("5", "5");
+        stubFullMap();
+
+        Map<String, Object> first = seatMapService.getSeatMap(eventId);
+        Map<String, Object> second = seatMapService.getSeatMap(eventId);
+
+        assertEquals(5L, first.get("version"));
+        assertSame(first.get("seats"), second.get("seats"));
+        verify(catalogReadService, times(1)).getSeatsByEvent(eventId);
+    }
+
+    @Test
+    void getSeatMap_appliesChangedSeatsWhenVersionMoves() {
+        stubVersion("5", "7");
+        stubFullMap();
+        stubDelta("5", 7L, 0L, seatB.toString());
+        when(namedParameterJdbcTemplate.queryForList(contains("FROM seats"), any(SqlParameterSource.class)))
+            .thenReturn(List.of(seat(seatB, "locked")));
+
+        Map<String, Object> before = seatMapService.getSeatMap(eventId);
+        Map<String, Object> after = seatMapService.getSeatMap(eventId);
+
+        assertEquals(7L, after.get("version"));
+        assertEquals("locked", status(after, seatB));
+        assertEquals("available", status(after, seatA));
+        assertEquals("available", status(before, seatB));
+        verify(catalogReadService, times(1)).getSeatsByEvent(eventId);
+    }
+
+    @Test
+    void getSeatMap_reloadsWhenDeltaIsReset() {
+        stubVersion("5", "9");
+        stubFullMap();
+        stubDelta("5", 9L, 1L);
+
+        seatMapService.getSeatMap(eventId);
+        Map<String, Object> after = seatMapService.getSeatMap(eventId);
+
+        assertEquals(9L, after.get("version"));
+        verify(catalogReadService, times(2)).getSeatsByEvent(eventId);
+        verifyNoInteractions(namedParameterJdbcTemplate);
+    }
+
+    @Test
+    void getSeatMap_loadsOutsideCacheLockAndKeepsNewerSnapshot() {
+        stubVersion("5", "6");
+        Map<String, Object> response = new HashMap<>();
+        response.put("event", Map.of("id", eventId, "title", "Concert"));
+        response.put("layout", "{}");
+        response.put("seats", new ArrayList<>(List.of(seat(seatA, "available"), seat(seatB, "available"))));
+        Map<String, Object> nested = new HashMap<>();
+        // A second request for the same event completes while the first one is still loading
+        when(catalogReadService.getSeatsByEvent(eventId))
+            .thenAnswer(invocation -> {
+                nested.putAll(seatMapService.getSeatMap(eventId));
+                return response;
+            })
+            .thenReturn(response);
+
+        Map<String, Object> outer = seatMapService.getSeatMap(eventId);
+
+        assertEquals(6L, nested.get("version"));
+        assertEquals(6L, outer.get("version"));
+        verify(catalogReadService, times(2)).getSeatsByEvent(eventId);
+    }
+
+    @Test
+    void getSeatMap_servesSnapshotWhileRedisIsDown() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(anyString()))
+            .thenReturn("5")
+            .thenThrow(new RedisConnectionFailureException("down"));
+        stubFullMap();
+
+        seatMapService.getSeatMap(eventId);
+        Map<String, Object> during = seatMapService.getSeatMap(eventId);
+
+        assertEquals(5L, during.get("version"));
+        verify(catalogReadService, times(1)).getSeatsByEvent(eventId);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getLayout_servesSeatsWithoutStatus() {
+        stubVersion("5");
+        stubFullMap();
+
+        Map<String, Object> layout = seatMapService.getLayout(eventId);
+
+        List<Map<String, Object>> seats = (List<Map<String, Object>>) layout.get("seats");
+        assertEquals(2, seats.size());
+        assertEquals(seatA, seats.getFirst().get("id"));
+        assertFalse(seats.getFirst().containsKey("status"));
+        assertNotNull(layout.get("layoutId"));
+        assertEquals("{}", layout.get("layout"));
+        assertFalse(layout.containsKey("event"));
+    }
+
+    @Test
+    void getAvailability_patchesBitsFromChangedSeats() {
+        stubVersion("5", "5", "7");
+        stubFullMap();
+        stubDelta("5", 7L, 0L, seatB.toString());
+        when(namedParameterJdbcTemplate.queryForList(contains("FROM seats"), any(SqlParameterSource.class)))
+            .thenReturn(List.of(seat(seatB, "reserved")));
+
+        String layoutId = (String) seatMapService.getLayout(eventId).get("layoutId");
+        Map<String, Object> before = seatMapService.getAvailability(eventId);
+        Map<String, Object> after = seatMapService.getAvailability(eventId);
+
+        assertEquals(layoutId, after.get("layoutId"));
+        assertEquals(2, after.get("seatCount"));
+        byte[] beforeBits = Base64.getDecoder().decode((String) before.get("available"));
+        byte[] afterBits = Base64.getDecoder().decode((String) after.get("available"));
+        assertTrue(SeatBitmap.isAvailable(beforeBits, 1));
+        assertTrue(SeatBitmap.isAvailable(afterBits, 0));
+        assertFalse(SeatBitmap.isAvailable(afterBits, 1));
+        assertEquals(7L, after.get("version"));
+    }
+
+    @Test
+    void changesSince_returnsChangedSeatsWithCurrentStatus() {
+        stubFullMap();
+        stubDelta("3", 5L, 0L, seatA.toString());
+
+        Map<String, Object> changes = seatMapService.changesSince(eventId, 3);
+
+        assertEquals(5L, changes.get("version"));
+        assertEquals(false, changes.get("reset"));
+        assertEquals(List.of(Map.of("id", seatA.toString(), "status", "available")), changes.get("seats"));
+    }
+
+    @Test
+    void changesSince_resetWhenDeltaUnavailable() {
+        when(redisTemplate.execute(eq(deltaScript), anyList(), eq("3"), eq("100")))
+            .thenThrow(new RedisConnectionFailureException("down"));
+
+        Map<String, Object> changes = seatMapService.changesSince(eventId, 3);
+
+        assertEquals(true, changes.get("reset"));
+        assertEquals(List.of(), changes.get("seats"));
+        verifyNoInteractions(catalogReadService);
+    }
+
+    @Test
+    void seatsChanged_bumpsVersionWithChangedSeats() {
+        seatMapService.seatsChanged(eventId, List.of(seatA));
+
+        String prefix = "seatmap:{" + eventId + "}:";
+        verify(redisTemplate).execute(eq(bumpScript),
+            eq(List.of(prefix + "version", prefix + "changes", prefix + "reset")),
+            eq("0"), eq("3600"), eq(seatA.toString()));
+    }
+
+    @Test
+    void layoutChanged_bumpsWithReset() {
+        seatMapService.layoutChanged(eventId);
+
+        verify(redisTemplate).execute(eq(bumpScript), anyList(), eq("1"), eq("3600"));
+    }
+}
@@ -0,0 +1,136 @@
+package guru.urr.ticketservice.integration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import guru.urr.ticketservice.domain.reservation.dto.SeatReserveRequest;
+import guru.urr.ticketservice.domain.reservation.service.ReservationService;
+import guru.urr.ticketservice.domain.seat.service.SeatLockService;
+import guru.urr.ticketservice.messaging.TicketEventProducer;
+import guru.urr.ticketservice.shared.client.PaymentInternalClient;
+import guru.urr.ticketservice.shared.metrics.BusinessMetrics;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.web.server.ResponseStatusException;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Runs the single-statement seat claim of reserveSeats against PostgreSQL, since the H2 test
+ * profile cannot execute data-modifying CTEs. Schema comes from the Flyway migrations.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Testcontainers
+@Tag("integration")
+class ReservationSeatClaimPostgresTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.datasource.driver-class-name", postgres::getDriverClassName);
+        registry.add("spring.flyway.enabled", () -> "true");
+        registry.add("spring.sql.init.mode", () -> "never");
+        registry.add("reservation.max-seats", () -> "2");
+    }
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private ReservationService reservationService;
+
+    @MockitoBean private TicketEventProducer ticketEventProducer;
+    @MockitoBean private SeatLockService seatLockService;
+    @MockitoBean private PaymentInternalClient paymentInternalClient;
+    @MockitoBean private BusinessMetrics businessMetrics;
+    @MockitoBean private StringRedisTemplate stringRedisTemplate;
+
+    private UUID eventId;
+    private UUID seatA;
+    private UUID seatB;
+
+    @BeforeEach
+    void setUp() {
+        eventId = UUID.randomUUID();
+        seatA = UUID.randomUUID();
+        seatB = UUID.randomUUID();
+
+        jdbcTemplate.update("""
+            INSERT INTO events (id, title, venue, event_date, status, sale_start_date, sale_end_date)
+            VALUES (?, 'Test Concert', 'Test Venue', NOW() + INTERVAL '30 days',
+                    'on_sale', NOW() - INTERVAL '1 day', NOW() + INTERVAL '14 days')
+            """, eventId);
+        insertSeat(seatA, 1, "A-1");
+        insertSeat(seatB, 2, "A-2");
+
+        when(seatLockService.acquireLocks(eq(eventId), anyList(), anyString()))
+            .thenReturn(new SeatLockService.SeatLockResult(true, Map.of(seatA, 11L, seatB, 12L), null));
+    }
+
+    private void insertSeat(UUID seatId, int seatNumber, String label) {
+        jdbcTemplate.update("""
+            INSERT INTO seats (id, event_id, section, row_number, seat_number, seat_label, price, status)
+            VALUES (?, ?, 'A', 1, ?, ?, 50000, 'available')
+            """, seatId, eventId, seatNumber, label);
+    }
+
+    @Test
+    void reserveSeats_allAvailable_claimsSeatsAndInsertsReservationWithItems() {
+        String userId = UUID.randomUUID().toString();
+
+        Map<String, Object> result = reservationService.reserveSeats(userId,
+            new SeatReserveRequest(eventId, List.of(seatA, seatB), null));
+
+        assertEquals("Seat reserved temporarily", result.get("message"));
+        assertEquals(1, count("SELECT COUNT(*) FROM reservations WHERE event_id = ?", eventId));
+        assertEquals(2, count("""
+            SELECT COUNT(*) FROM reservation_items ri JOIN reservations r ON r.id = ri.reservation_id
+            WHERE r.event_id = ? AND r.total_amount = 100000
+            """, eventId));
+        assertEquals(List.of(Map.<String, Object>of("status", "locked", "version", 1, "fencing_token", 11L),
+                             Map.<String, Object>of("status", "locked", "version", 1, "fencing_token", 12L)),
+            jdbcTemplate.queryForList("SELECT status, version, fencing_token FROM seats WHERE event_id = ? ORDER BY seat_number", eventId));
+    }
+
+    @Test
+    void reserveSeats_oneSeatTaken_rollsBackPartialClaim() {
+        jdbcTemplate.update("UPDATE seats SET status = 'reserved' WHERE id = ?", seatB);
+        String userId = UUID.randomUUID().toString();
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+            () -> reservationService.reserveSeats(userId, new SeatReserveRequest(eventId, List.of(seatA, seatB), null)));
+
+        assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+        assertTrue(e.getReason().contains("A-2"));
+        // The CTE claimed seat A before the count check failed; the transaction rollback must undo it
+        assertEquals(0, count("SELECT COUNT(*) FROM reservations WHERE event_id = ?", eventId));
+        assertEquals(0, count("""
+            SELECT COUNT(*) FROM reservation_items ri JOIN seats s ON s.id = ri.seat_id WHERE s.event_id = ?
+            """, eventId));
+        assertEquals(Map.of("status", "available", "version", 0, "fencing_token", 0L),
+            jdbcTemplate.queryForMap("SELECT status, version, fencing_token FROM seats WHERE id = ?", seatA));
+        verify(seatLockService).releaseLocks(eventId, Map.of(seatA, 11L, seatB, 12L), userId);
+    }
+
+    private int count(String sql, Object... args) {
+        return jdbcTemplate.queryForObject(sql, Integer.class, args);
+    }
+}
@@ -0,0 +1,117 @@
+package guru.urr.ticketservice.integration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import guru.urr.ticketservice.domain.seat.service.SeatLockService;
+import guru.urr.ticketservice.domain.seat.service.SeatLockService.SeatLockResult;
+import guru.urr.ticketservice.shared.config.RedisConfig;
+import guru.urr.ticketservice.shared.metrics.BusinessMetrics;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Runs the multi-seat hold of seat_lock_acquire.lua through SeatLockService against a real Redis.
+ */
+@Testcontainers
+@Tag("integration")
+class SeatLockScriptRedisTest {
+
+    @Container
+    private static final GenericContainer<?> redis =
+        new GenericContainer<>("redis:7.2-alpine").withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    private SeatLockService seatLockService;
+    private UUID eventId;
+    private UUID seatA;
+    private UUID seatB;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(
+            new RedisStandaloneConfiguration(redis.getHost(), redis.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        RedisConfig scripts = new RedisConfig();
+        seatLockService = new SeatLockService(redisTemplate, scripts.seatLockAcquireScript(),
+            scripts.seatLockReleaseScript(), scripts.paymentVerifyScript(), mock(BusinessMetrics.class), 420);
+        eventId = UUID.randomUUID();
+        seatA = UUID.randomUUID();
+        seatB = UUID.randomUUID();
+    }
+
+    private Map<Object, Object> seat(UUID seatId) {
+        return redisTemplate.opsForHash().entries("seat:{" + eventId + "}:" + seatId);
+    }
+
+    @Test
+    void acquireLocks_freeSeats_holdsAllWithFencingTokens() {
+        SeatLockResult result = seatLockService.acquireLocks(eventId, List.of(seatA, seatB), "user-1");
+
+        assertTrue(result.success());
+        assertEquals(Map.of(seatA, 1L, seatB, 1L), result.fencingTokens());
+        assertEquals("HELD", seat(seatA).get("status"));
+        assertEquals("user-1", seat(seatB).get("userId"));
+        assertTrue(redisTemplate.getExpire("seat:{" + eventId + "}:" + seatA) > 0);
+    }
+
+    @Test
+    void acquireLocks_oneSeatHeldByOther_holdsNothingAndNamesConflict() {
+        assertTrue(seatLockService.acquireLocks(eventId, List.of(seatB), "user-2").success());
+
+        SeatLockResult result = seatLockService.acquireLocks(eventId, List.of(seatA, seatB), "user-1");
+
+        assertFalse(result.success());
+        assertEquals(seatB, result.conflictSeatId());
+        // The free seat checked first was not held either
+        assertTrue(seat(seatA).isEmpty());
+        assertEquals("user-2", seat(seatB).get("userId"));
+    }
+
+    @Test
+    void acquireLocks_sameUserReselecting_keepsExistingToken() {
+        Map<UUID, Long> first = seatLockService.acquireLocks(eventId, List.of(seatA), "user-1").fencingTokens();
+
+        SeatLockResult again = seatLockService.acquireLocks(eventId, List.of(seatA, seatB), "user-1");
+
+        assertTrue(again.success());
+        assertEquals(first.get(seatA), again.fencingTokens().get(seatA));
+        assertTrue(seatLockService.verifyForPayment(eventId, seatA, "user-1", first.get(seatA)));
+    }
+
+    @Test
+    void acquireLocks_afterRelease_nextHolderGetsHigherToken() {
+        Map<UUID, Long> first = seatLockService.acquireLocks(eventId, List.of(seatA), "user-1").fencingTokens();
+        assertEquals(1, seatLockService.releaseLocks(eventId, first, "user-1"));
+
+        SeatLockResult next = seatLockService.acquireLocks(eventId, List.of(seatA), "user-2");
+
+        assertTrue(next.success());
+        assertTrue(next.fencingTokens().get(seatA) > first.get(seatA));
+        assertFalse(seatLockService.verifyForPayment(eventId, seatA, "user-1", first.get(seatA)));
+    }
+}
@@ -0,0 +1,79 @@
+package guru.urr.ticketservice.scheduling;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import guru.urr.ticketservice.domain.seat.service.SeatLockService;
+import guru.urr.ticketservice.domain.seat.service.SeatMapService;
+import guru.urr.ticketservice.messaging.TicketEventProducer;
+import guru.urr.ticketservice.shared.metrics.BusinessMetrics;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@ExtendWith(MockitoExtension.class)
+class ReservationCleanupSchedulerTest {
+
+    @Mock private JdbcTemplate jdbcTemplate;
+    @Mock private SeatLockService seatLockService;
+    @Mock private SeatMapService seatMapService;
+    @Mock private BusinessMetrics metrics;
+    @Mock private TicketEventProducer ticketEventProducer;
+
+    private ReservationCleanupScheduler scheduler;
+    private final UUID reservationId = UUID.randomUUID();
+    private final UUID eventId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new ReservationCleanupScheduler(jdbcTemplate, seatLockService, seatMapService, metrics,
+            ticketEventProducer);
+        when(jdbcTemplate.queryForList(contains("FOR UPDATE SKIP LOCKED")))
+            .thenReturn(List.of(Map.of("id", reservationId, "event_id", eventId, "user_id", "user-1")));
+        when(jdbcTemplate.queryForList(contains("FROM reservation_items"), eq(reservationId)))
+            .thenReturn(List.of());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void cleanupExpiredReservations_publishesExpiryOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        scheduler.cleanupExpiredReservations();
+
+        verify(jdbcTemplate).update(contains("SET status = 'expired'"), eq(reservationId));
+        verifyNoInteractions(ticketEventProducer);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        verify(ticketEventProducer).publishReservationExpired(argThat(event ->
+            event.reservationId().equals(reservationId) && event.userId().equals("user-1")
+                && event.eventId().equals(eventId)));
+    }
+
+    @Test
+    void cleanupExpiredReservations_rolledBack_publishesNothing() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        scheduler.cleanupExpiredReservations();
+        TransactionSynchronizationManager.getSynchronizations()
+            .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        verifyNoInteractions(ticketEventProducer);
+    }
+}
@@ -0,0 +1,36 @@
+#!/usr/bin/env node
+// Usage: node compare-summaries.mjs before.json after.json
+// Prints p50/p99 per queue operation from two `k6 run --summary-export` files (see queue-rush.js).
+
+import { readFileSync } from 'node:fs';
+
+const OPERATIONS = ['join', 'status', 'heartbeat', 'leave'];
+
+const [beforePath, afterPath] = process.argv.slice(2);
+if (!beforePath || !afterPath) {
+  console.error('Usage: node compare-summaries.mjs <before.json> <after.json>');
+  process.exit(1);
+}
+
+const before = JSON.parse(readFileSync(beforePath, 'utf8')).metrics;
+const after = JSON.parse(readFileSync(afterPath, 'utf8')).metrics;
+
+function ms(value) {
+  return value === undefined ? '-' : value.toFixed(1);
+}
+
+function change(from, to) {
+  if (from === undefined || to === undefined || from === 0) return '-';
+  return `${(((to - from) / from) * 100).toFixed(1)}%`;
+}
+
+console.log('operation   p50 before  p50 after  change   p99 before  p99 after  change');
+for (const op of OPERATIONS) {
+  const b = before[`queue_${op}_duration`] || {};
+  const a = after[`queue_${op}_duration`] || {};
+  console.log([
+    op.padEnd(10),
+    ms(b.med).padStart(11), ms(a.med).padStart(10), change(b.med, a.med).padStart(7),
+    ms(b['p(99)']).padStart(12), ms(a['p(99)']).padStart(10), change(b['p(99)'], a['p(99)']).padStart(7),
+  ].join(' '));
+}
@@ -3,22 +3,37 @@ import { check, sleep } from 'k6';
 import { Counter, Trend } from 'k6/metrics';
 import { BASE_URL, DEFAULT_HEADERS } from '../lib/config.js';
 
-const queueJoinDuration = new Trend('queue_join_duration');
+// Before/after comparison for queue-service changes: run this scenario against each build
+// with the same VU profile and compare the per-operation trends, e.g.
+//   ./run.sh queue-rush --summary-export before.json   (previous image)
+//   ./run.sh queue-rush --summary-export after.json    (new image)
+// then print p50/p99 per operation with
+//   node compare-summaries.mjs before.json after.json
+// VUS, RAMP, HOLD and DOWN scale the profile for a smaller host, e.g.
+//   ./run.sh queue-rush --env VUS=1500 --env RAMP=1m --env HOLD=4m --env DOWN=30s --summary-export before.json
+
+const queueJoinDuration = new Trend('queue_join_duration', true);
+const queueStatusDuration = new Trend('queue_status_duration', true);
+const queueHeartbeatDuration = new Trend('queue_heartbeat_duration', true);
+const queueLeaveDuration = new Trend('queue_leave_duration', true);
 const queueJoinSuccess = new Counter('queue_join_success');
 const queueJoinFailed = new Counter('queue_join_failed');
 
+const VUS = Number(__ENV.VUS || 15000);
+
 export const options = {
   scenarios: {
     queue_rush: {
       executor: 'ramping-vus',
       startVUs: 0,
       stages: [
-        { duration: '2m', target: 15000 },  // ramp to 15K
-        { duration: '5m', target: 15000 },  // hold at 15K
-        { duration: '1m', target: 0 },       // ramp down
+        { duration: __ENV.RAMP || '2m', target: VUS },  // ramp to VUS (15K)
+        { duration: __ENV.HOLD || '5m', target: VUS },  // hold
+        { duration: __ENV.DOWN || '1m', target: 0 },    // ramp down
       ],
     },
   },
+  summaryTrendStats: ['avg', 'med', 'p(90)', 'p(95)', 'p(99)', 'max'],
   thresholds: {
     http_req_duration: ['p(95)<5000', 'p(99)<10000'],
     http_req_failed: ['rate<0.05'],
@@ -27,6 +42,8 @@ export const options = {
 };
 
 const EVENT_ID = __ENV.EVENT_ID || '';
+// Share of iterations that leave the queue at the end (exercises the leave path)
+const LEAVE_RATIO = parseFloat(__ENV.LEAVE_RATIO || '0.2');
 
 export function setup() {
   if (!EVENT_ID) {
@@ -53,14 +70,12 @@ export default function (data) {
   }
 
   // Simulate user joining queue
-  const start = Date.now();
   const joinRes = http.post(
     `${BASE_URL}/api/v1/queue/check/${data.eventId}`,
     null,
     { headers: DEFAULT_HEADERS, tags: { name: 'queue_join' } }
   );
-  const duration = Date.now() - start;
-  queueJoinDuration.add(duration);
+  queueJoinDuration.add(joinRes.timings.duration);
 
   const ok = check(joinRes, {
     'queue join ok': (r) => r.status === 200 || r.status === 202,
@@ -78,16 +93,27 @@ export default function (data) {
     `${BASE_URL}/api/v1/queue/status/${data.eventId}`,
     { tags: { name: 'queue_status' } }
   );
+  queueStatusDuration.add(statusRes.timings.duration);
   check(statusRes, {
     'queue status ok': (r) => r.status === 200,
   });
   sleep(Math.random() * 3 + 2); // 2-5s
 
   // Heartbeat
-  http.post(
+  const heartbeatRes = http.post(
     `${BASE_URL}/api/v1/queue/heartbeat/${data.eventId}`,
     null,
     { headers: DEFAULT_HEADERS, tags: { name: 'queue_heartbeat' } }
   );
+  queueHeartbeatDuration.add(heartbeatRes.timings.duration);
   sleep(Math.random() * 5 + 5); // 5-10s between heartbeats
+
+  if (Math.random() < LEAVE_RATIO) {
+    const leaveRes = http.post(
+      `${BASE_URL}/api/v1/queue/leave/${data.eventId}`,
+      null,
+      { headers: DEFAULT_HEADERS, tags: { name: 'queue_leave' } }
+    );
+    queueLeaveDuration.add(leaveRes.timings.duration);
+  }
 }